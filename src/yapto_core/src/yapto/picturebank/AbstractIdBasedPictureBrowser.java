@@ -1,9 +1,11 @@
 package yapto.picturebank;
 
+import java.awt.Dimension;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 
 import org.apache.lucene.search.Query;
 import org.slf4j.Logger;
@@ -40,6 +42,17 @@ public abstract class AbstractIdBasedPictureBrowser<PICTURE extends IPicture>
 	 */
 	protected int _iCurrentId = 0;
 
+	/**
+	 * {@link PicturePrefetcher} loading in the background the pictures likely
+	 * to be displayed next, null if prefetching is disabled.
+	 */
+	private final PicturePrefetcher<PICTURE> _prefetcher;
+
+	/**
+	 * Whether this browser has been closed, protected by the lock.
+	 */
+	private boolean _bClosed = false;
+
 	/**
 	 * Creates a new AbstractIdBasedPictureBrowser.
 	 * 
@@ -61,12 +74,133 @@ public abstract class AbstractIdBasedPictureBrowser<PICTURE extends IPicture>
 			final IPictureBank<PICTURE> pictureBank, final Query query,
 			final EventBus bus, final List<String> idList)
 			throws ExecutionException
+	{
+		this(pictureBank, query, bus, idList, null, 0, 0, 0);
+	}
+
+	/**
+	 * Creates a new AbstractIdBasedPictureBrowser prefetching the pictures
+	 * likely to be displayed next.
+	 * 
+	 * @param pictureBank
+	 *            the {@link IPictureBank} for this {@link IPictureBrowser}.
+	 * @param query
+	 *            the {@link Query} which created this {@link IPictureBrowser}.
+	 * @param bus
+	 *            the {@link EventBus} used to signal registered objects of
+	 *            changes in this {@link AbstractPictureBrowser}.
+	 * @param idList
+	 *            {@link List} containing the ids of the picture contained in
+	 *            this AbstractIdBasedPictureBrowser.
+	 * @param prefetchExecutor
+	 *            {@link ExecutorService} used to prefetch the pictures, null to
+	 *            disable prefetching.
+	 * @param iMinPrefetchDepth
+	 *            minimum number of pictures to prefetch in the direction of
+	 *            the navigation.
+	 * @param iMaxPrefetchDepth
+	 *            maximum number of pictures to prefetch in the direction of
+	 *            the navigation, when navigating fast.
+	 * @param lMaxSpeculativeBytes
+	 *            maximum number of bytes used by speculatively decoded
+	 *            pictures.
+	 * @throws ExecutionException
+	 *             if an Exception was thrown during the loading of the first
+	 *             picture.
+	 */
+	public AbstractIdBasedPictureBrowser(
+			final IPictureBank<PICTURE> pictureBank, final Query query,
+			final EventBus bus, final List<String> idList,
+			final ExecutorService prefetchExecutor,
+			final int iMinPrefetchDepth, final int iMaxPrefetchDepth,
+			final long lMaxSpeculativeBytes) throws ExecutionException
 	{
 		super(pictureBank, query, bus);
 		_idList = idList;
+		if (prefetchExecutor != null)
+		{
+			_prefetcher = new PicturePrefetcher<>(this, _idList,
+					prefetchExecutor, iMinPrefetchDepth, iMaxPrefetchDepth,
+					lMaxSpeculativeBytes);
+		}
+		else
+		{
+			_prefetcher = null;
+		}
 		if (_idList.size() > 0)
 		{
 			_currentPicture = getPicture(_idList.get(0));
+			currentPictureChanged(null, _currentPicture);
+			prefetch();
+		}
+	}
+
+	/**
+	 * Update the prefetched pictures after a change of the current picture.
+	 */
+	private void prefetch()
+	{
+		if (_prefetcher != null)
+		{
+			_prefetcher.update(_iCurrentId);
+		}
+	}
+
+	/**
+	 * Change the current picture. Must be called while holding the lock.
+	 * 
+	 * @param picture
+	 *            the new current picture.
+	 */
+	private void changeCurrentPicture(final PICTURE picture)
+	{
+		final PICTURE previous = _currentPicture;
+		_currentPicture = picture;
+		if (!_bClosed)
+		{
+			currentPictureChanged(previous, _currentPicture);
+		}
+	}
+
+	/**
+	 * Method called when the current picture changes. Does nothing by
+	 * default, implementations can override it to keep the displayed picture
+	 * in memory.
+	 * 
+	 * @param previous
+	 *            the previous current picture, null if there was none.
+	 * @param current
+	 *            the new current picture, null if there is none.
+	 */
+	protected void currentPictureChanged(final PICTURE previous,
+			final PICTURE current)
+	{
+		// nothing to do by default
+	}
+
+	@Override
+	public void setDisplayDimension(final Dimension displayDimension)
+	{
+		if (_prefetcher != null)
+		{
+			_prefetcher.setDisplayDimension(displayDimension);
+		}
+	}
+
+	@Override
+	public void close()
+	{
+		if (_prefetcher != null)
+		{
+			_prefetcher.cancelAll();
+		}
+		synchronized (_lock)
+		{
+			if (!_bClosed)
+			{
+				_bClosed = true;
+				currentPictureChanged(_currentPicture, null);
+			}
 		}
 	}
 
@@ -104,7 +238,8 @@ public abstract class AbstractIdBasedPictureBrowser<PICTURE extends IPicture>
 				if (hasNext())
 				{
 					_iCurrentId++;
-					_currentPicture = getPicture(_idList.get(_iCurrentId));
+					changeCurrentPicture(getPicture(_idList.get(_iCurrentId)));
+					prefetch();
 					_bus.post(new PictureChangedEvent());
 				}
 				if (LOGGER.isDebugEnabled())
@@ -140,7 +275,8 @@ public abstract class AbstractIdBasedPictureBrowser<PICTURE extends IPicture>
 				if (hasPrevious())
 				{
 					_iCurrentId--;
-					_currentPicture = getPicture(_idList.get(_iCurrentId));
+					changeCurrentPicture(getPicture(_idList.get(_iCurrentId)));
+					prefetch();
 					_bus.post(new PictureChangedEvent());
 				}
 				if (LOGGER.isDebugEnabled())
@@ -252,12 +388,31 @@ public abstract class AbstractIdBasedPictureBrowser<PICTURE extends IPicture>
 			Collections.reverse(reverseList);
 			ids = reverseList;
 		}
-		final IPicture[] array = new IPicture[ids.size()];
-		for (int i = 0; i < ids.size(); i++)
+		final List<PICTURE> pictures = getPictures(ids);
+		return pictures.toArray(new IPicture[pictures.size()]);
+	}
+
+	/**
+	 * Get the {@link IPicture}s with the specified ids. The default
+	 * implementation loads the pictures one by one, implementations should
+	 * override it to load them in bulk.
+	 * 
+	 * @param pictureIds
+	 *            the ids of the pictures.
+	 * @return the requested {@link IPicture}s, in the order of the ids.
+	 * @throws ExecutionException
+	 *             if an Exception was thrown during the loading of the
+	 *             pictures.
+	 */
+	protected List<PICTURE> getPictures(final List<String> pictureIds)
+			throws ExecutionException
+	{
+		final List<PICTURE> pictures = new ArrayList<>(pictureIds.size());
+		for (final String strId : pictureIds)
 		{
-			array[i] = getPicture(ids.get(i));
+			pictures.add(getPicture(strId));
 		}
-		return array;
+		return pictures;
 	}
 
 	/**
@@ -131,4 +131,16 @@ public abstract class AbstractPictureBrowser<PICTURE extends IPicture>
 	{
 		return _pictureBank.hasTagNamed(strName);
 	}
+
+	@Override
+	public int getPictureCount(final int iTagId)
+	{
+		return _pictureBank.getPictureCount(iTagId);
+	}
+
+	@Override
+	public int getPictureCountWithDescendants(final int iTagId)
+	{
+		return _pictureBank.getPictureCountWithDescendants(iTagId);
+	}
 }
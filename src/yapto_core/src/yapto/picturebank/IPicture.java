@@ -1,5 +1,7 @@
 package yapto.picturebank;
 
+import java.awt.Dimension;
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.util.List;
@@ -7,6 +9,8 @@ import java.util.Set;
 
 import yapto.picturebank.tag.ITag;
 
+import com.google.common.util.concurrent.ListenableFuture;
+
 /**
  * An interface describing a picture.
  * 
@@ -38,6 +42,20 @@ public interface IPicture extends Comparable<IPicture>
 	 */
 	BufferedImage getImageData() throws IOException;
 
+	/**
+	 * Get the data of the main image of this {@link IPicture}, decoded at a
+	 * resolution suited to the specified display size. The returned image is
+	 * at least as big as the target dimension, unless the picture itself is
+	 * smaller.
+	 * 
+	 * @param targetDimension
+	 *            the {@link Dimension} at which the image will be displayed.
+	 * @return the data of the main image of this {@link IPicture}.
+	 * @throws IOException
+	 *             if an error occurs during reading.
+	 */
+	BufferedImage getImageData(Dimension targetDimension) throws IOException;
+
 	/**
 	 * Get the data of the thumbnail image of this {@link IPicture}.
 	 * 
@@ -47,6 +65,53 @@ public interface IPicture extends Comparable<IPicture>
 	 */
 	BufferedImage getThumbnailData() throws IOException;
 
+	/**
+	 * Get asynchronously the data of the main image of this {@link IPicture}.
+	 * Concurrent requests for the same image share a single load, and
+	 * cancelling the returned future tells the loader the image isn't needed
+	 * anymore.
+	 * 
+	 * @return a {@link ListenableFuture} giving the data of the main image of
+	 *         this {@link IPicture}.
+	 */
+	ListenableFuture<BufferedImage> getImageDataAsync();
+
+	/**
+	 * Get asynchronously the data of the main image of this {@link IPicture},
+	 * decoded at a resolution suited to the specified display size.
+	 * 
+	 * @param targetDimension
+	 *            the {@link Dimension} at which the image will be displayed.
+	 * @return a {@link ListenableFuture} giving the data of the main image of
+	 *         this {@link IPicture}.
+	 */
+	ListenableFuture<BufferedImage> getImageDataAsync(Dimension targetDimension);
+
+	/**
+	 * Get asynchronously the data of the thumbnail image of this
+	 * {@link IPicture}.
+	 * 
+	 * @return a {@link ListenableFuture} giving the data of the thumbnail image
+	 *         of this {@link IPicture}.
+	 */
+	ListenableFuture<BufferedImage> getThumbnailDataAsync();
+
+	/**
+	 * Get asynchronously a tile of the main image of this {@link IPicture}.
+	 * Only the requested region is decoded, so that pictures too big to be
+	 * decoded at once can still be displayed.
+	 * 
+	 * @param region
+	 *            the region of the image covered by the tile, in image
+	 *            coordinates.
+	 * @param iSubsampling
+	 *            the subsampling factor, 1 to decode the tile at full
+	 *            resolution.
+	 * @return a {@link ListenableFuture} giving the decoded tile.
+	 */
+	ListenableFuture<BufferedImage> getImageTileAsync(Rectangle region,
+			int iSubsampling);
+
 	/**
 	 * Get the time stamp of the last modification of this {@link IPicture}.
 	 * 
@@ -54,6 +119,15 @@ public interface IPicture extends Comparable<IPicture>
 	 */
 	long getModifiedTimestamp();
 
+	/**
+	 * Get the time stamp of the addition of this {@link IPicture} to its
+	 * {@link IPictureBank}.
+	 * 
+	 * @return the time stamp of the addition of this {@link IPicture} to its
+	 *         {@link IPictureBank}.
+	 */
+	long getAddingTimestamp();
+
 	/**
 	 * Get the {@link IPictureBank} from which this {@link IPicture} is coming.
 	 * 
@@ -1,6 +1,7 @@
 package yapto.picturebank;
 
 import java.nio.file.Path;
+import java.util.concurrent.Future;
 
 import yapto.picturebank.tag.IWritableTagRepository;
 
@@ -55,6 +56,18 @@ public interface IPictureBank<PICTURE extends IPicture> extends
 	 */
 	int getId();
 
+	/**
+	 * Back up this {@link IPictureBank} to a directory in the background,
+	 * while it's still used. The backup is incremental, only the pictures
+	 * which aren't in the directory yet are copied.
+	 * 
+	 * @param backupDirectory
+	 *            the backup directory.
+	 * @return the {@link Future} giving the number of pictures copied by the
+	 *         backup.
+	 */
+	Future<Integer> backup(Path backupDirectory);
+
 	/**
 	 * Close this {@link IPictureBank}.
 	 */
@@ -1,5 +1,6 @@
 package yapto.picturebank;
 
+import java.awt.Dimension;
 import java.util.concurrent.ExecutionException;
 
 import org.apache.lucene.search.Query;
@@ -145,4 +146,22 @@ public interface IPictureBrowser<PICTURE extends IPicture> extends
 	 * @return the {@link Query} which created this {@link IPictureBrowser}.
 	 */
 	Query getQuery();
+
+	/**
+	 * Set the {@link Dimension} at which the pictures of this
+	 * {@link IPictureBrowser} are displayed, so that the pictures likely to be
+	 * displayed next are loaded in the background at the resolution which
+	 * will be requested.
+	 * 
+	 * @param displayDimension
+	 *            the {@link Dimension} at which the pictures are displayed,
+	 *            null if they are displayed at full resolution.
+	 */
+	void setDisplayDimension(Dimension displayDimension);
+
+	/**
+	 * Release the resources held by this {@link IPictureBrowser}. It shouldn't
+	 * be used anymore afterwards.
+	 */
+	void close();
 }
@@ -37,6 +37,31 @@ public interface IPictureBrowserCreator
 	IPictureBrowser<?> filterPictures(Query query, int iLimit)
 			throws IOException, ExecutionException;
 
+	/**
+	 * Get an {@link IPictureBrowser} browsing a selection of pictures from this
+	 * {@link IPictureBank}, sorted by the index.
+	 * 
+	 * @param query
+	 *            the {@link Query} used to filter the pictures to select.
+	 * @param iLimit
+	 *            the maximal number of pictures to select.
+	 * @param sortField
+	 *            the value by which the pictures are sorted.
+	 * @param bReverse
+	 *            true to sort the pictures in decreasing order of the value,
+	 *            ignored for the relevance which is always decreasing.
+	 * 
+	 * @return an {@link IPictureBrowser}.
+	 * @throws IOException
+	 *             if an error occurs during the filtering.
+	 * @throws ExecutionException
+	 *             if an Exception was thrown during the loading of the first
+	 *             picture.
+	 */
+	IPictureBrowser<?> filterPictures(Query query, int iLimit,
+			PictureSortField sortField, boolean bReverse) throws IOException,
+			ExecutionException;
+
 	/**
 	 * Get an {@link IPictureBrowser} browsing a random number of pictures from
 	 * this {@link IPictureBank}.
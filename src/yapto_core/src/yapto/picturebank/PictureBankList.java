@@ -300,6 +300,23 @@ public final class PictureBankList implements IPictureBrowserCreator
 		}
 	}
 
+	/**
+	 * Replace the current {@link IPictureBrowser}, closing the previous one.
+	 * Must be called while holding the lock.
+	 * 
+	 * @param pictureBrowser
+	 *            the new {@link IPictureBrowser}, null if there is none.
+	 */
+	private void changePictureBrowser(
+			final IPictureBrowser<?> pictureBrowser)
+	{
+		if (_pictureBrowser != null)
+		{
+			_pictureBrowser.close();
+		}
+		_pictureBrowser = pictureBrowser;
+	}
+
 	@Override
 	public IPictureBrowser<?> getAllPictures() throws ExecutionException
 	{
@@ -309,11 +326,12 @@ public final class PictureBankList implements IPictureBrowserCreator
 		{
 			if (selected.isEmpty())
 			{
-				_pictureBrowser = null;
+				changePictureBrowser(null);
 			}
 			else
 			{
-				_pictureBrowser = selected.iterator().next().getAllPictures();
+				changePictureBrowser(selected.iterator().next()
+						.getAllPictures());
 			}
 			_bus.post(new PictureBrowserChangedEvent());
 			return _pictureBrowser;
@@ -330,12 +348,35 @@ public final class PictureBankList implements IPictureBrowserCreator
 		{
 			if (selected.isEmpty())
 			{
-				_pictureBrowser = null;
+				changePictureBrowser(null);
+			}
+			else
+			{
+				changePictureBrowser(selected.iterator().next()
+						.filterPictures(query, iLimit));
+			}
+			_bus.post(new PictureBrowserChangedEvent());
+			return _pictureBrowser;
+		}
+	}
+
+	@Override
+	public IPictureBrowser<?> filterPictures(final Query query,
+			final int iLimit, final PictureSortField sortField,
+			final boolean bReverse) throws IOException, ExecutionException
+	{
+		final Collection<IPictureBank<?>> selected = _selectedPictureBankMap
+				.values();
+		synchronized (_lock)
+		{
+			if (selected.isEmpty())
+			{
+				changePictureBrowser(null);
 			}
 			else
 			{
-				_pictureBrowser = selected.iterator().next()
-						.filterPictures(query, iLimit);
+				changePictureBrowser(selected.iterator().next()
+						.filterPictures(query, iLimit, sortField, bReverse));
 			}
 			_bus.post(new PictureBrowserChangedEvent());
 			return _pictureBrowser;
@@ -352,12 +393,12 @@ public final class PictureBankList implements IPictureBrowserCreator
 		{
 			if (selected.isEmpty())
 			{
-				_pictureBrowser = null;
+				changePictureBrowser(null);
 			}
 			else
 			{
-				_pictureBrowser = selected.iterator().next()
-						.getRandomPictureList(iNbrPicture);
+				changePictureBrowser(selected.iterator().next()
+						.getRandomPictureList(iNbrPicture));
 			}
 			_bus.post(new PictureBrowserChangedEvent());
 			return _pictureBrowser;
@@ -5,20 +5,41 @@ import java.awt.Dimension;
 /**
  * Object holding all the meta information of a picture.
  * 
+ * The information is stored in a compact form, since one instance is kept in
+ * memory for each cached picture : the camera make and model are shared
+ * through a {@link StringDictionary}, and the exposure time, the relative
+ * aperture and the focal length are stored as rationals packed in a long.
+ * 
  * @author benobiwan
  * 
  */
 public final class PictureInformation
 {
+	/**
+	 * {@link StringDictionary} shared by every picture for the values
+	 * repeated across pictures.
+	 */
+	private static final StringDictionary DICTIONARY = new StringDictionary();
+
+	/**
+	 * Packed value of an unknown rational.
+	 */
+	private static final long NO_RATIONAL = 0;
+
 	/**
 	 * The original name of the file.
 	 */
 	private final String _strOriginalFileName;
 
 	/**
-	 * Dimension of the picture.
+	 * Width of the picture.
+	 */
+	private final int _iWidth;
+
+	/**
+	 * Height of the picture.
 	 */
-	private final Dimension _pictureDimension;
+	private final int _iHeight;
 
 	/**
 	 * The timestamp of the creation of this picture.
@@ -31,29 +52,29 @@ public final class PictureInformation
 	private final int _iOrientation;
 
 	/**
-	 * 'Make' exif information of this picture.
+	 * Dictionary id of the 'Make' exif information of this picture.
 	 */
-	private final String _strMake;
+	private final int _iMakeId;
 
 	/**
-	 * 'Model' exif information of this picture.
+	 * Dictionary id of the 'Model' exif information of this picture.
 	 */
-	private final String _strModel;
+	private final int _iModelId;
 
 	/**
-	 * 'exposure' exif information of this picture.
+	 * Packed 'exposure' exif information of this picture.
 	 */
-	private final String _strExposureTime;
+	private final long _lExposureTime;
 
 	/**
-	 * 'relative aperture' exif information of this picture.
+	 * Packed 'relative aperture' exif information of this picture.
 	 */
-	private final String _strRelativeAperture;
+	private final long _lRelativeAperture;
 
 	/**
-	 * 'focal length' exif information of this picture.
+	 * Packed 'focal length' exif information of this picture.
 	 */
-	private final String _strFocalLength;
+	private final long _lFocalLength;
 
 	/**
 	 * Creates a new PictureInformation.
@@ -87,14 +108,97 @@ public final class PictureInformation
 	{
 		super();
 		_strOriginalFileName = strOriginalFileName;
-		_pictureDimension = new Dimension(iWidth, iHeight);
+		_iWidth = iWidth;
+		_iHeight = iHeight;
 		_lCreationTimestamp = lCreationTimestamp;
 		_iOrientation = iOrientation;
-		_strMake = strMake;
-		_strModel = strModel;
-		_strExposureTime = strExposureTime;
-		_strRelativeAperture = strRelativeAperture;
-		_strFocalLength = strFocalLength;
+		_iMakeId = DICTIONARY.getId(strMake);
+		_iModelId = DICTIONARY.getId(strModel);
+		_lExposureTime = packRational(strExposureTime);
+		_lRelativeAperture = packRational(strRelativeAperture);
+		_lFocalLength = packRational(strFocalLength);
+	}
+
+	/**
+	 * Pack a rational written as 'numerator/denominator' in a long, the
+	 * numerator in the high 32 bits and the denominator in the low 32 bits. A
+	 * value which isn't such a rational is stored in the dictionary, and its
+	 * negated id is packed instead.
+	 * 
+	 * @param strRational
+	 *            the rational to pack.
+	 * @return the packed rational, {@link #NO_RATIONAL} if it's null.
+	 */
+	private static long packRational(final String strRational)
+	{
+		if (strRational == null)
+		{
+			return NO_RATIONAL;
+		}
+		final int iSlash = strRational.indexOf('/');
+		if (iSlash > 0)
+		{
+			try
+			{
+				final int iNumerator = Integer.parseInt(strRational.substring(
+						0, iSlash));
+				final int iDenominator = Integer.parseInt(strRational
+						.substring(iSlash + 1));
+				if (iNumerator >= 0 && iDenominator > 0)
+				{
+					final long lPacked = ((long) iNumerator << 32)
+							| iDenominator;
+					// only keep the packed form if it gives back the same text
+					if (unpackRational(lPacked).equals(strRational))
+					{
+						return lPacked;
+					}
+				}
+			}
+			catch (final NumberFormatException e)
+			{
+				// stored in the dictionary
+			}
+		}
+		return -DICTIONARY.getId(strRational);
+	}
+
+	/**
+	 * Give back the text of a rational packed by {@link #packRational(String)}
+	 * .
+	 * 
+	 * @param lPacked
+	 *            the packed rational.
+	 * @return the text of the rational, null if it's unknown.
+	 */
+	private static String unpackRational(final long lPacked)
+	{
+		if (lPacked == NO_RATIONAL)
+		{
+			return null;
+		}
+		if (lPacked < 0)
+		{
+			return DICTIONARY.getString((int) -lPacked);
+		}
+		return (lPacked >>> 32) + "/" + (lPacked & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * Get the value of a rational packed by {@link #packRational(String)}.
+	 * 
+	 * @param lPacked
+	 *            the packed rational.
+	 * @return the value of the rational, {@link Double#NaN} if it's unknown
+	 *         or isn't a rational.
+	 */
+	private static double rationalValue(final long lPacked)
+	{
+		if (lPacked <= 0)
+		{
+			return Double.NaN;
+		}
+		return (double) (lPacked >>> 32) / (lPacked & 0xFFFFFFFFL);
 	}
 
 	/**
@@ -114,7 +218,7 @@ public final class PictureInformation
 	 */
 	public String getMake()
 	{
-		return _strMake;
+		return DICTIONARY.getString(_iMakeId);
 	}
 
 	/**
@@ -124,7 +228,7 @@ public final class PictureInformation
 	 */
 	public String getModel()
 	{
-		return _strModel;
+		return DICTIONARY.getString(_iModelId);
 	}
 
 	/**
@@ -154,7 +258,7 @@ public final class PictureInformation
 	 */
 	public Dimension getDimension()
 	{
-		return _pictureDimension;
+		return new Dimension(_iWidth, _iHeight);
 	}
 
 	/**
@@ -164,7 +268,7 @@ public final class PictureInformation
 	 */
 	public int getHeight()
 	{
-		return (int) _pictureDimension.getHeight();
+		return _iHeight;
 	}
 
 	/**
@@ -174,7 +278,7 @@ public final class PictureInformation
 	 */
 	public int getWidth()
 	{
-		return (int) _pictureDimension.getWidth();
+		return _iWidth;
 	}
 
 	/**
@@ -184,7 +288,19 @@ public final class PictureInformation
 	 */
 	public String getExposureTime()
 	{
-		return _strExposureTime;
+		return unpackRational(_lExposureTime);
+	}
+
+	/**
+	 * Get the value of the 'exposure' exif information of this picture, in
+	 * seconds.
+	 * 
+	 * @return the value of the 'exposure' exif information of this picture,
+	 *         {@link Double#NaN} if it's unknown.
+	 */
+	public double getExposureTimeValue()
+	{
+		return rationalValue(_lExposureTime);
 	}
 
 	/**
@@ -194,7 +310,19 @@ public final class PictureInformation
 	 */
 	public String getRelativeAperture()
 	{
-		return _strRelativeAperture;
+		return unpackRational(_lRelativeAperture);
+	}
+
+	/**
+	 * Get the value of the 'relative aperture' exif information of this
+	 * picture.
+	 * 
+	 * @return the value of the 'relative aperture' exif information of this
+	 *         picture, {@link Double#NaN} if it's unknown.
+	 */
+	public double getRelativeApertureValue()
+	{
+		return rationalValue(_lRelativeAperture);
 	}
 
 	/**
@@ -204,7 +332,19 @@ public final class PictureInformation
 	 */
 	public String getFocalLength()
 	{
-		return _strFocalLength;
+		return unpackRational(_lFocalLength);
+	}
+
+	/**
+	 * Get the value of the 'focal length' exif information of this picture,
+	 * in millimeters.
+	 * 
+	 * @return the value of the 'focal length' exif information of this
+	 *         picture, {@link Double#NaN} if it's unknown.
+	 */
+	public double getFocalLengthValue()
+	{
+		return rationalValue(_lFocalLength);
 	}
 
 	@Override
@@ -222,15 +362,15 @@ public final class PictureInformation
 		sb.append("\nOrientation : ");
 		sb.append(_iOrientation);
 		sb.append("\nMake : ");
-		sb.append(_strMake);
+		sb.append(getMake());
 		sb.append("\nModel : ");
-		sb.append(_strModel);
+		sb.append(getModel());
 		sb.append("\nExposure time : ");
-		sb.append(_strExposureTime);
+		sb.append(getExposureTime());
 		sb.append("\nReltaive aperture : ");
-		sb.append(_strRelativeAperture);
+		sb.append(getRelativeAperture());
 		sb.append("\nFocal length : ");
-		sb.append(_strFocalLength);
+		sb.append(getFocalLength());
 		return sb.toString();
 	}
 }
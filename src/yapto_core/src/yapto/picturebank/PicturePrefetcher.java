@@ -0,0 +1,441 @@
+package yapto.picturebank;
+
+import java.awt.Dimension;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import yapto.picturebank.io.ImageInputStreams;
+
+/**
+ * Object used to load in the background the pictures an
+ * {@link AbstractIdBasedPictureBrowser} is likely to display next.
+ * 
+ * The number of pictures loaded ahead depends on the direction and on the
+ * speed of the navigation. Pictures leaving the prefetch window are cancelled,
+ * and the memory used by speculatively decoded pictures is capped.
+ * 
+ * @author benobiwan
+ * 
+ * @param <PICTURE>
+ *            type of {@link IPicture} of the browser.
+ */
+public final class PicturePrefetcher<PICTURE extends IPicture>
+{
+	/**
+	 * Logger object.
+	 */
+	protected static final Logger LOGGER = LoggerFactory
+			.getLogger(PicturePrefetcher.class);
+
+	/**
+	 * Interval between two moves, in milliseconds, above which the navigation
+	 * is considered slow and only the minimum number of pictures is
+	 * prefetched.
+	 */
+	private static final long SLOW_NAVIGATION_INTERVAL = 1000;
+
+	/**
+	 * Weight of the last interval in the moving average of the intervals
+	 * between two moves.
+	 */
+	private static final double INTERVAL_SMOOTHING = 0.5;
+
+	/**
+	 * Number of bytes used by a pixel of a decoded picture.
+	 */
+	private static final int BYTES_PER_PIXEL = 4;
+
+	/**
+	 * The browser whose pictures are prefetched.
+	 */
+	private final AbstractIdBasedPictureBrowser<PICTURE> _browser;
+
+	/**
+	 * {@link List} of the picture ids of the browser.
+	 */
+	private final List<String> _idList;
+
+	/**
+	 * {@link ExecutorService} running the prefetch tasks.
+	 */
+	private final ExecutorService _executor;
+
+	/**
+	 * Minimum number of pictures to prefetch in the direction of the
+	 * navigation.
+	 */
+	private final int _iMinDepth;
+
+	/**
+	 * Maximum number of pictures to prefetch in the direction of the
+	 * navigation.
+	 */
+	private final int _iMaxDepth;
+
+	/**
+	 * Maximum number of bytes used by speculatively decoded pictures.
+	 */
+	private final long _lMaxSpeculativeBytes;
+
+	/**
+	 * Number of bytes currently used by speculatively decoded pictures.
+	 */
+	private final AtomicLong _reservedBytes = new AtomicLong();
+
+	/**
+	 * {@link Dimension} at which the pictures are displayed, null if they are
+	 * displayed at full resolution.
+	 */
+	private volatile Dimension _displayDimension;
+
+	/**
+	 * Lock protecting the prefetch state.
+	 */
+	private final Object _lock = new Object();
+
+	/**
+	 * Map of the running or pending prefetch tasks by picture id.
+	 */
+	private final Map<String, PrefetchTask> _taskMap = new HashMap<>();
+
+	/**
+	 * Index of the picture at the last update.
+	 */
+	private int _iLastIndex = -1;
+
+	/**
+	 * Direction of the navigation, 1 for forward, -1 for backward.
+	 */
+	private int _iDirection = 1;
+
+	/**
+	 * Timestamp of the last update.
+	 */
+	private long _lLastMoveTimestamp = 0;
+
+	/**
+	 * Moving average of the interval between two moves.
+	 */
+	private double _dAverageInterval = SLOW_NAVIGATION_INTERVAL;
+
+	/**
+	 * Creates a new PicturePrefetcher.
+	 * 
+	 * @param browser
+	 *            the browser whose pictures are prefetched.
+	 * @param idList
+	 *            {@link List} of the picture ids of the browser.
+	 * @param executor
+	 *            {@link ExecutorService} running the prefetch tasks.
+	 * @param iMinDepth
+	 *            minimum number of pictures to prefetch in the direction of
+	 *            the navigation.
+	 * @param iMaxDepth
+	 *            maximum number of pictures to prefetch in the direction of
+	 *            the navigation.
+	 * @param lMaxSpeculativeBytes
+	 *            maximum number of bytes used by speculatively decoded
+	 *            pictures.
+	 */
+	public PicturePrefetcher(
+			final AbstractIdBasedPictureBrowser<PICTURE> browser,
+			final List<String> idList, final ExecutorService executor,
+			final int iMinDepth, final int iMaxDepth,
+			final long lMaxSpeculativeBytes)
+	{
+		_browser = browser;
+		_idList = idList;
+		_executor = executor;
+		_iMinDepth = iMinDepth;
+		_iMaxDepth = Math.max(iMinDepth, iMaxDepth);
+		_lMaxSpeculativeBytes = lMaxSpeculativeBytes;
+	}
+
+	/**
+	 * Update the prefetch window after the current picture changed.
+	 * 
+	 * @param iCurrentIndex
+	 *            index of the new current picture.
+	 */
+	public void update(final int iCurrentIndex)
+	{
+		synchronized (_lock)
+		{
+			final long lNow = System.currentTimeMillis();
+			final int iStep = iCurrentIndex - _iLastIndex;
+			if (_iLastIndex >= 0 && Math.abs(iStep) == 1)
+			{
+				final long lInterval = Math.min(lNow - _lLastMoveTimestamp,
+						SLOW_NAVIGATION_INTERVAL);
+				_dAverageInterval = INTERVAL_SMOOTHING * lInterval
+						+ (1 - INTERVAL_SMOOTHING) * _dAverageInterval;
+				_iDirection = iStep;
+			}
+			else
+			{
+				// first picture or jump, the navigation speed is unknown
+				_dAverageInterval = SLOW_NAVIGATION_INTERVAL;
+			}
+			_iLastIndex = iCurrentIndex;
+			_lLastMoveTimestamp = lNow;
+
+			final Set<String> window = computeWindow(iCurrentIndex);
+			// cancel the stale prefetches
+			final Iterator<Entry<String, PrefetchTask>> it = _taskMap
+					.entrySet().iterator();
+			while (it.hasNext())
+			{
+				final Entry<String, PrefetchTask> entry = it.next();
+				if (!window.contains(entry.getKey()))
+				{
+					entry.getValue().cancel();
+					it.remove();
+				}
+			}
+			// submit the new ones
+			for (final String strId : window)
+			{
+				if (!_taskMap.containsKey(strId))
+				{
+					final PrefetchTask task = new PrefetchTask(strId);
+					try
+					{
+						task.setFuture(_executor.submit(task));
+						_taskMap.put(strId, task);
+					}
+					catch (final RejectedExecutionException e)
+					{
+						// the picture bank is closing
+						return;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Set the {@link Dimension} at which the pictures are displayed, and
+	 * therefore prefetched by the tasks which haven't started yet.
+	 * 
+	 * @param displayDimension
+	 *            the {@link Dimension} at which the pictures are displayed,
+	 *            null if they are displayed at full resolution.
+	 */
+	public void setDisplayDimension(final Dimension displayDimension)
+	{
+		_displayDimension = displayDimension;
+	}
+
+	/**
+	 * Cancel every prefetch task.
+	 */
+	public void cancelAll()
+	{
+		synchronized (_lock)
+		{
+			for (final PrefetchTask task : _taskMap.values())
+			{
+				task.cancel();
+			}
+			_taskMap.clear();
+		}
+	}
+
+	/**
+	 * Compute the ids of the pictures to prefetch, nearest first.
+	 * 
+	 * @param iCurrentIndex
+	 *            index of the current picture.
+	 * @return the ids of the pictures to prefetch.
+	 */
+	private Set<String> computeWindow(final int iCurrentIndex)
+	{
+		final double dSpeed = 1 - _dAverageInterval / SLOW_NAVIGATION_INTERVAL;
+		final int iDepth = _iMinDepth
+				+ (int) Math.round((_iMaxDepth - _iMinDepth) * dSpeed);
+		final Set<String> window = new LinkedHashSet<>();
+		final int iSize = _idList.size();
+		for (int i = 1; i <= iDepth; i++)
+		{
+			final int iIndex = iCurrentIndex + _iDirection * i;
+			if (iIndex >= 0 && iIndex < iSize)
+			{
+				window.add(_idList.get(iIndex));
+			}
+		}
+		// one picture behind, in case the user goes back
+		final int iBehind = iCurrentIndex - _iDirection;
+		if (iBehind >= 0 && iBehind < iSize)
+		{
+			window.add(_idList.get(iBehind));
+		}
+		return window;
+	}
+
+	/**
+	 * Try to reserve the specified number of bytes for a speculative decode.
+	 * 
+	 * @param lBytes
+	 *            the number of bytes to reserve.
+	 * @return true if the bytes have been reserved.
+	 */
+	boolean reserve(final long lBytes)
+	{
+		long lCurrent;
+		do
+		{
+			lCurrent = _reservedBytes.get();
+			if (lCurrent + lBytes > _lMaxSpeculativeBytes)
+			{
+				return false;
+			}
+		}
+		while (!_reservedBytes.compareAndSet(lCurrent, lCurrent + lBytes));
+		return true;
+	}
+
+	/**
+	 * Release bytes previously reserved for a speculative decode.
+	 * 
+	 * @param lBytes
+	 *            the number of bytes to release.
+	 */
+	void release(final long lBytes)
+	{
+		_reservedBytes.addAndGet(-lBytes);
+	}
+
+	/**
+	 * Task loading a picture and its image, at the resolution at which it will
+	 * be displayed.
+	 * 
+	 * @author benobiwan
+	 * 
+	 */
+	private final class PrefetchTask implements Runnable
+	{
+		/**
+		 * Id of the picture to load.
+		 */
+		private final String _strId;
+
+		/**
+		 * {@link Future} of this task.
+		 */
+		private Future<?> _future;
+
+		/**
+		 * Number of bytes reserved by this task.
+		 */
+		private long _lReservedBytes = 0;
+
+		/**
+		 * Whether this task has been cancelled.
+		 */
+		private boolean _bCancelled = false;
+
+		/**
+		 * Creates a new PrefetchTask.
+		 * 
+		 * @param strId
+		 *            id of the picture to load.
+		 */
+		public PrefetchTask(final String strId)
+		{
+			_strId = strId;
+		}
+
+		/**
+		 * Set the {@link Future} of this task.
+		 * 
+		 * @param future
+		 *            the {@link Future} of this task.
+		 */
+		public synchronized void setFuture(final Future<?> future)
+		{
+			_future = future;
+		}
+
+		/**
+		 * Cancel this task and release its reserved bytes.
+		 */
+		public synchronized void cancel()
+		{
+			_bCancelled = true;
+			if (_future != null)
+			{
+				_future.cancel(false);
+			}
+			release(_lReservedBytes);
+			_lReservedBytes = 0;
+		}
+
+		@Override
+		public void run()
+		{
+			try
+			{
+				final PICTURE picture = _browser.getPicture(_strId);
+				final PictureInformation info = picture.getPictureInformation();
+				final Dimension displayDimension = _displayDimension;
+				long lBytes = 0;
+				if (info != null)
+				{
+					final int iSubsampling = (displayDimension == null) ? 1
+							: ImageInputStreams.computeSubsampling(
+									info.getWidth(), info.getHeight(),
+									displayDimension.width,
+									displayDimension.height);
+					final int iWidth = (info.getWidth() + iSubsampling - 1)
+							/ iSubsampling;
+					final int iHeight = (info.getHeight() + iSubsampling - 1)
+							/ iSubsampling;
+					lBytes = (long) iWidth * iHeight * BYTES_PER_PIXEL;
+				}
+				synchronized (this)
+				{
+					if (_bCancelled)
+					{
+						return;
+					}
+					if (!reserve(lBytes))
+					{
+						if (LOGGER.isDebugEnabled())
+						{
+							LOGGER.debug("Speculative memory exhausted, not decoding picture "
+									+ _strId);
+						}
+						return;
+					}
+					_lReservedBytes = lBytes;
+				}
+				if (displayDimension == null)
+				{
+					picture.getImageData();
+				}
+				else
+				{
+					picture.getImageData(displayDimension);
+				}
+			}
+			catch (final ExecutionException | IOException e)
+			{
+				LOGGER.warn("can't prefetch picture " + _strId, e);
+			}
+		}
+	}
+}
@@ -0,0 +1,62 @@
+package yapto.picturebank;
+
+/**
+ * Value by which the pictures selected by a search are sorted.
+ * 
+ * @author benobiwan
+ * 
+ */
+public enum PictureSortField
+{
+	/**
+	 * Relevance of the picture for the search.
+	 */
+	RELEVANCE("Relevance"),
+
+	/**
+	 * Grade of the picture.
+	 */
+	GRADE("Grade"),
+
+	/**
+	 * Date the picture was taken.
+	 */
+	CREATION_DATE("Creation date"),
+
+	/**
+	 * Date the picture was added to its bank.
+	 */
+	ADDING_DATE("Adding date");
+
+	/**
+	 * Description of this sort field.
+	 */
+	private final String _strDescription;
+
+	/**
+	 * Creates a new PictureSortField.
+	 * 
+	 * @param strDescription
+	 *            description for this sort field.
+	 */
+	private PictureSortField(final String strDescription)
+	{
+		_strDescription = strDescription;
+	}
+
+	/**
+	 * Get the description for this sort field.
+	 * 
+	 * @return the description for this sort field.
+	 */
+	public String getDescription()
+	{
+		return _strDescription;
+	}
+
+	@Override
+	public String toString()
+	{
+		return getDescription();
+	}
+}
@@ -0,0 +1,104 @@
+package yapto.picturebank;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Dictionary giving a small integer id to each distinct {@link String}, used
+ * to share the values repeated across many pictures, like the camera make
+ * and model, instead of keeping a copy of them in every picture.
+ * 
+ * Ids are never reused, the dictionary only grows. The id 0 stands for the
+ * null {@link String}.
+ * 
+ * @author benobiwan
+ * 
+ */
+public final class StringDictionary
+{
+	/**
+	 * Id of the null {@link String}.
+	 */
+	public static final int NULL_ID = 0;
+
+	/**
+	 * Map of the ids by {@link String}.
+	 */
+	private final ConcurrentMap<String, Integer> _idMap = new ConcurrentHashMap<>();
+
+	/**
+	 * List of the {@link String}s by id, protected by its own lock.
+	 */
+	private final List<String> _stringList = new ArrayList<>();
+
+	/**
+	 * Creates a new StringDictionary.
+	 */
+	public StringDictionary()
+	{
+		_stringList.add(null);
+	}
+
+	/**
+	 * Get the id of the specified {@link String}, giving it a new id if it
+	 * isn't in the dictionary yet.
+	 * 
+	 * @param str
+	 *            the {@link String}.
+	 * @return the id of the {@link String}, {@link #NULL_ID} if it's null.
+	 */
+	public int getId(final String str)
+	{
+		if (str == null)
+		{
+			return NULL_ID;
+		}
+		final Integer id = _idMap.get(str);
+		if (id != null)
+		{
+			return id.intValue();
+		}
+		synchronized (_stringList)
+		{
+			final Integer existingId = _idMap.get(str);
+			if (existingId != null)
+			{
+				return existingId.intValue();
+			}
+			final int iNewId = _stringList.size();
+			_stringList.add(str);
+			_idMap.put(str, Integer.valueOf(iNewId));
+			return iNewId;
+		}
+	}
+
+	/**
+	 * Get the {@link String} with the specified id.
+	 * 
+	 * @param iId
+	 *            the id of the {@link String}.
+	 * @return the {@link String}, null if the id is {@link #NULL_ID}.
+	 */
+	public String getString(final int iId)
+	{
+		synchronized (_stringList)
+		{
+			return _stringList.get(iId);
+		}
+	}
+
+	/**
+	 * Get the number of {@link String}s in this dictionary.
+	 * 
+	 * @return the number of {@link String}s in this dictionary.
+	 */
+	public int size()
+	{
+		synchronized (_stringList)
+		{
+			return _stringList.size() - 1;
+		}
+	}
+}
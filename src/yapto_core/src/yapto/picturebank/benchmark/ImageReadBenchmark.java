@@ -0,0 +1,205 @@
+package yapto.picturebank.benchmark;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.util.Iterator;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+import yapto.picturebank.io.FileChannelImageInputStream;
+import yapto.picturebank.io.MappedFileImageInputStream;
+
+/**
+ * Benchmark comparing the ways of reading picture files : {@link ImageIO}
+ * reading a {@link File}, a {@link MappedFileImageInputStream} and a
+ * {@link FileChannelImageInputStream}.
+ * 
+ * Usage : ImageReadBenchmark &lt;picture directory&gt; [iterations]
+ * 
+ * The first pass over the directory is used as a warm-up, so the measured
+ * passes read from the page cache. Drop the caches between runs to measure
+ * cold reads.
+ * 
+ * @author benobiwan
+ * 
+ */
+public final class ImageReadBenchmark
+{
+	/**
+	 * Private constructor, only static methods.
+	 */
+	private ImageReadBenchmark()
+	{
+		// nothing to do
+	}
+
+	/**
+	 * Way of reading a picture file.
+	 * 
+	 * @author benobiwan
+	 * 
+	 */
+	private enum ReadMethod
+	{
+		/**
+		 * {@link ImageIO#read(File)}, the historical way.
+		 */
+		IMAGEIO_FILE,
+
+		/**
+		 * {@link MappedFileImageInputStream}.
+		 */
+		MAPPED,
+
+		/**
+		 * {@link FileChannelImageInputStream}.
+		 */
+		CHANNEL;
+
+		/**
+		 * Read the specified file.
+		 * 
+		 * @param file
+		 *            the file to read.
+		 * @return the decoded picture.
+		 * @throws IOException
+		 *             if an error occurs during reading.
+		 */
+		public BufferedImage read(final File file) throws IOException
+		{
+			switch (this)
+			{
+			case MAPPED:
+				return read(new MappedFileImageInputStream(file));
+			case CHANNEL:
+				return read(new FileChannelImageInputStream(file));
+			default:
+				return ImageIO.read(file);
+			}
+		}
+
+		/**
+		 * Decode the picture from the specified stream, and close it.
+		 * 
+		 * @param stream
+		 *            the stream to read.
+		 * @return the decoded picture.
+		 * @throws IOException
+		 *             if an error occurs during reading.
+		 */
+		private static BufferedImage read(final ImageInputStream stream)
+				throws IOException
+		{
+			try
+			{
+				final Iterator<ImageReader> readers = ImageIO
+						.getImageReaders(stream);
+				if (!readers.hasNext())
+				{
+					return null;
+				}
+				final ImageReader reader = readers.next();
+				try
+				{
+					reader.setInput(stream, true, true);
+					return reader.read(0);
+				}
+				finally
+				{
+					reader.dispose();
+				}
+			}
+			finally
+			{
+				stream.close();
+			}
+		}
+	}
+
+	/**
+	 * Run the benchmark.
+	 * 
+	 * @param args
+	 *            the picture directory and optionally the number of
+	 *            iterations.
+	 * @throws IOException
+	 *             if an error occurs during reading.
+	 */
+	public static void main(final String[] args) throws IOException
+	{
+		if (args.length < 1)
+		{
+			System.err
+					.println("Usage : ImageReadBenchmark <picture directory> [iterations]");
+			return;
+		}
+		final File[] files = new File(args[0]).listFiles(new FileFilter()
+		{
+			@Override
+			public boolean accept(final File pathname)
+			{
+				return pathname.isFile();
+			}
+		});
+		if (files == null || files.length == 0)
+		{
+			System.err.println("No file in " + args[0]);
+			return;
+		}
+		final int iIterations = (args.length > 1) ? Integer.parseInt(args[1])
+				: 3;
+		long lTotalBytes = 0;
+		for (final File file : files)
+		{
+			lTotalBytes += file.length();
+		}
+		System.out.println(files.length + " files, " + lTotalBytes
+				/ (1024 * 1024) + " MB");
+
+		// warm-up
+		for (final ReadMethod method : ReadMethod.values())
+		{
+			runPass(method, files);
+		}
+		for (final ReadMethod method : ReadMethod.values())
+		{
+			long lBest = Long.MAX_VALUE;
+			for (int i = 0; i < iIterations; i++)
+			{
+				lBest = Math.min(lBest, runPass(method, files));
+			}
+			final double dSeconds = lBest / 1e9;
+			System.out.println(String.format(
+					"%-14s best %8.1f ms, %6.1f ms/picture, %7.1f MB/s",
+					method, Double.valueOf(lBest / 1e6),
+					Double.valueOf(lBest / 1e6 / files.length),
+					Double.valueOf(lTotalBytes / (1024.0 * 1024) / dSeconds)));
+		}
+	}
+
+	/**
+	 * Read every file with the specified method.
+	 * 
+	 * @param method
+	 *            the method used to read the files.
+	 * @param files
+	 *            the files to read.
+	 * @return the time taken in nanoseconds.
+	 * @throws IOException
+	 *             if an error occurs during reading.
+	 */
+	private static long runPass(final ReadMethod method, final File[] files)
+			throws IOException
+	{
+		final long lStart = System.nanoTime();
+		for (final File file : files)
+		{
+			method.read(file);
+		}
+		return System.nanoTime() - lStart;
+	}
+}
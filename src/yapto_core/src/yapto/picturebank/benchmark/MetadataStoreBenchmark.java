@@ -0,0 +1,323 @@
+package yapto.picturebank.benchmark;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import yapto.picturebank.PictureInformation;
+import yapto.picturebank.sqlfile.IMetadataStore;
+import yapto.picturebank.sqlfile.IStoreCursor;
+import yapto.picturebank.sqlfile.MetadataStoreType;
+import yapto.picturebank.sqlfile.PictureRecord;
+import yapto.picturebank.sqlfile.PictureState;
+import yapto.picturebank.sqlfile.SQLFileTagRepository;
+import yapto.picturebank.sqlfile.config.SQLFilePictureBankConfigurationImpl;
+import yapto.picturebank.tag.TagAddException;
+
+import com.google.common.eventbus.EventBus;
+
+import common.config.InvalidConfigurationException;
+
+/**
+ * Benchmark measuring the throughput of each {@link MetadataStoreType} : the
+ * insertion of pictures, the batched update of their grade and tags, as done
+ * when the modified pictures are written, and the batched reading of the
+ * pictures.
+ * 
+ * Usage : MetadataStoreBenchmark [picture count] [batch size] [synchronous
+ * level]
+ * 
+ * Each store is created in a new temporary directory, deleted at the end.
+ * 
+ * @author benobiwan
+ * 
+ */
+public final class MetadataStoreBenchmark
+{
+	/**
+	 * Camera makes used to generate the pictures.
+	 */
+	private static final String[] MAKES = { "Canon", "NIKON CORPORATION",
+			"SONY", "Panasonic" };
+
+	/**
+	 * Camera models used to generate the pictures.
+	 */
+	private static final String[] MODELS = { "Canon EOS 5D Mark II",
+			"NIKON D700", "DSLR-A900", "DMC-GH2", "Canon PowerShot G12" };
+
+	/**
+	 * Number of distinct tags.
+	 */
+	private static final int TAG_COUNT = 200;
+
+	/**
+	 * Number of tags given to each picture by the update.
+	 */
+	private static final int TAGS_PER_PICTURE = 5;
+
+	/**
+	 * Private constructor, only static methods.
+	 */
+	private MetadataStoreBenchmark()
+	{
+		// nothing to do
+	}
+
+	/**
+	 * Run the benchmark.
+	 * 
+	 * @param args
+	 *            optionally the number of pictures, the number of pictures
+	 *            per update and read, and the synchronous level of the
+	 *            stores.
+	 * @throws IOException
+	 *             if a store can't be created or written.
+	 * @throws SQLException
+	 *             if an SQL error occurred during the connection to the
+	 *             SQLite database.
+	 * @throws ClassNotFoundException
+	 *             if the database driver class can't be found.
+	 * @throws InvalidConfigurationException
+	 *             if the configuration of a store is invalid.
+	 * @throws TagAddException
+	 *             if a tag can't be created.
+	 */
+	public static void main(final String[] args) throws IOException,
+			ClassNotFoundException, SQLException,
+			InvalidConfigurationException, TagAddException
+	{
+		final int iPictureCount = (args.length > 0) ? Integer
+				.parseInt(args[0]) : 20000;
+		final int iBatchSize = (args.length > 1) ? Integer.parseInt(args[1])
+				: 100;
+		final int iSynchronous = (args.length > 2) ? Integer
+				.parseInt(args[2]) : 1;
+		for (final MetadataStoreType type : MetadataStoreType.values())
+		{
+			final Path directory = Files.createTempDirectory("yapto-store");
+			try
+			{
+				final SQLFilePictureBankConfigurationImpl conf = new SQLFilePictureBankConfigurationImpl(
+						null, ManagementFactory.getPlatformMBeanServer(),
+						Integer.valueOf(type.getValue() + 1), type.name(),
+						directory.resolve("bank.db").toString(), directory
+								.resolve("pictures").toString(), directory
+								.resolve("thumbnails").toString(), directory
+								.resolve("index").toString(),
+						Integer.valueOf(8192), Integer.valueOf(64),
+						Integer.valueOf(iSynchronous), Integer.valueOf(4),
+						Integer.valueOf(type.getValue()), Integer.valueOf(1),
+						Integer.valueOf(2));
+				final IMetadataStore store = type.open(conf);
+				try
+				{
+					run(type, conf, store, iPictureCount, iBatchSize);
+				}
+				finally
+				{
+					store.close();
+				}
+			}
+			finally
+			{
+				delete(directory);
+			}
+		}
+	}
+
+	/**
+	 * Run the benchmark on a store.
+	 * 
+	 * @param type
+	 *            the type of the store.
+	 * @param conf
+	 *            the configuration of the store.
+	 * @param store
+	 *            the store.
+	 * @param iPictureCount
+	 *            the number of pictures.
+	 * @param iBatchSize
+	 *            the number of pictures per update and read.
+	 * @throws IOException
+	 *             if the store can't be written or read.
+	 * @throws TagAddException
+	 *             if a tag can't be created.
+	 */
+	private static void run(final MetadataStoreType type,
+			final SQLFilePictureBankConfigurationImpl conf,
+			final IMetadataStore store, final int iPictureCount,
+			final int iBatchSize) throws IOException, TagAddException
+	{
+		final SQLFileTagRepository tagRepository = new SQLFileTagRepository(
+				conf, store, new EventBus(), null);
+		final int[] tagIds = new int[TAG_COUNT];
+		for (int i = 0; i < TAG_COUNT; i++)
+		{
+			tagRepository.addTag("tag" + i, "", true);
+			tagIds[i] = tagRepository.getTag("tag" + i).getTagId();
+		}
+
+		final int[] keys = new int[iPictureCount];
+		long lStart = System.nanoTime();
+		for (int i = 0; i < iPictureCount; i++)
+		{
+			keys[i] = store.insertPicture(
+					String.format("%064x", Integer.valueOf(i)), i,
+					createInformation(i));
+		}
+		print(type, "insert", System.nanoTime() - lStart, iPictureCount);
+
+		lStart = System.nanoTime();
+		for (int iFirst = 0; iFirst < iPictureCount; iFirst += iBatchSize)
+		{
+			final int iLast = Math.min(iFirst + iBatchSize, iPictureCount);
+			final Map<Integer, PictureState> stateMap = new HashMap<>();
+			final Map<Integer, int[]> countDeltas = new HashMap<>();
+			for (int i = iFirst; i < iLast; i++)
+			{
+				final int[] pictureTagIds = pickTags(i, tagIds);
+				stateMap.put(Integer.valueOf(keys[i]), new PictureRecord(
+						keys[i], String.format("%064x", Integer.valueOf(i)),
+						i % 5 + 1, i, i, null, pictureTagIds)
+						.toInsertedState());
+				for (final int iTagId : pictureTagIds)
+				{
+					int[] delta = countDeltas.get(Integer.valueOf(iTagId));
+					if (delta == null)
+					{
+						delta = new int[2];
+						countDeltas.put(Integer.valueOf(iTagId), delta);
+					}
+					delta[0]++;
+					delta[1]++;
+				}
+			}
+			store.updatePictures(stateMap, countDeltas);
+		}
+		print(type, "update", System.nanoTime() - lStart, iPictureCount);
+
+		lStart = System.nanoTime();
+		int iRead = 0;
+		final List<String> batch = new ArrayList<>(iBatchSize);
+		final IStoreCursor<String> cursor = store.openPictureIdCursor();
+		try
+		{
+			while (cursor.next())
+			{
+				batch.add(cursor.get());
+				if (batch.size() == iBatchSize)
+				{
+					iRead += store.loadPictures(batch).size();
+					batch.clear();
+				}
+			}
+		}
+		finally
+		{
+			cursor.close();
+		}
+		if (!batch.isEmpty())
+		{
+			iRead += store.loadPictures(batch).size();
+		}
+		print(type, "read", System.nanoTime() - lStart, iRead);
+	}
+
+	/**
+	 * Create the {@link PictureInformation} of a picture.
+	 * 
+	 * @param i
+	 *            index of the picture.
+	 * @return the {@link PictureInformation} of the picture.
+	 */
+	private static PictureInformation createInformation(final int i)
+	{
+		return new PictureInformation("IMG_" + i + ".JPG", 5616, 3744, i, 1,
+				MAKES[i % MAKES.length], MODELS[i % MODELS.length], "1/125",
+				"4/1", "50/1");
+	}
+
+	/**
+	 * Pick the tags of a picture.
+	 * 
+	 * @param i
+	 *            index of the picture.
+	 * @param tagIds
+	 *            the ids of the available tags.
+	 * @return sorted array of the ids of the tags of the picture.
+	 */
+	private static int[] pickTags(final int i, final int[] tagIds)
+	{
+		final SortedSet<Integer> picked = new TreeSet<>();
+		for (int j = 0; j < TAGS_PER_PICTURE; j++)
+		{
+			picked.add(Integer
+					.valueOf(tagIds[(i * 7 + j * 13) % tagIds.length]));
+		}
+		final int[] pickedIds = new int[picked.size()];
+		int j = 0;
+		for (final Integer iTagId : picked)
+		{
+			pickedIds[j++] = iTagId.intValue();
+		}
+		return pickedIds;
+	}
+
+	/**
+	 * Print the result of a measure.
+	 * 
+	 * @param type
+	 *            the type of the store.
+	 * @param strOperation
+	 *            name of the operation.
+	 * @param lNanos
+	 *            the duration of the operations, in nanoseconds.
+	 * @param iCount
+	 *            the number of pictures processed.
+	 */
+	private static void print(final MetadataStoreType type,
+			final String strOperation, final long lNanos, final int iCount)
+	{
+		System.out.println(String.format(
+				"%-14s %-6s %8d pictures in %8.1f ms, %10.0f pictures/s",
+				type.name(), strOperation, Integer.valueOf(iCount),
+				Double.valueOf(lNanos / 1e6),
+				Double.valueOf(iCount * 1e9 / Math.max(lNanos, 1))));
+	}
+
+	/**
+	 * Delete a temporary directory and the files it contains.
+	 * 
+	 * @param directory
+	 *            the directory to delete.
+	 * @throws IOException
+	 *             if a file can't be deleted.
+	 */
+	private static void delete(final Path directory) throws IOException
+	{
+		final DirectoryStream<Path> stream = Files
+				.newDirectoryStream(directory);
+		try
+		{
+			for (final Path file : stream)
+			{
+				Files.delete(file);
+			}
+		}
+		finally
+		{
+			stream.close();
+		}
+		Files.delete(directory);
+	}
+}
@@ -0,0 +1,298 @@
+package yapto.picturebank.benchmark;
+
+import java.awt.Dimension;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+import yapto.picturebank.sqlfile.FsPicture;
+import yapto.picturebank.tag.ITag;
+import yapto.picturebank.tag.UneditableTag;
+
+/**
+ * Benchmark measuring the heap used by each cached picture : the current
+ * {@link FsPicture} against an emulation of its previous layout, which kept
+ * its tags in a {@link ConcurrentSkipListSet} and its meta-information as
+ * {@link String}s and a {@link Dimension}.
+ * 
+ * Usage : PictureMemoryBenchmark [picture count] [tags per picture]
+ * 
+ * The measure relies on {@link System#gc()}, so it should be run with a fixed
+ * heap size (-Xms equal to -Xmx) for stable results.
+ * 
+ * @author benobiwan
+ * 
+ */
+public final class PictureMemoryBenchmark
+{
+	/**
+	 * Camera makes used to generate the pictures.
+	 */
+	private static final String[] MAKES = { "Canon", "NIKON CORPORATION",
+			"SONY", "Panasonic" };
+
+	/**
+	 * Camera models used to generate the pictures.
+	 */
+	private static final String[] MODELS = { "Canon EOS 5D Mark II",
+			"NIKON D700", "DSLR-A900", "DMC-GH2", "Canon PowerShot G12" };
+
+	/**
+	 * Exposure times used to generate the pictures.
+	 */
+	private static final String[] EXPOSURES = { "1/60", "1/125", "1/250",
+			"1/500", "10/1" };
+
+	/**
+	 * Relative apertures used to generate the pictures.
+	 */
+	private static final String[] APERTURES = { "28/10", "4/1", "56/10",
+			"8/1", "11/1" };
+
+	/**
+	 * Focal lengths used to generate the pictures.
+	 */
+	private static final String[] FOCALS = { "24/1", "35/1", "50/1",
+			"85/1", "200/1" };
+
+	/**
+	 * Number of distinct tags.
+	 */
+	private static final int TAG_COUNT = 200;
+
+	/**
+	 * Private constructor, only static methods.
+	 */
+	private PictureMemoryBenchmark()
+	{
+		// nothing to do
+	}
+
+	/**
+	 * Run the benchmark.
+	 * 
+	 * @param args
+	 *            optionally the number of pictures and the number of tags per
+	 *            picture.
+	 */
+	public static void main(final String[] args)
+	{
+		final int iPictureCount = (args.length > 0) ? Integer
+				.parseInt(args[0]) : 100000;
+		final int iTagsPerPicture = (args.length > 1) ? Integer
+				.parseInt(args[1]) : 5;
+		final List<ITag> tags = new ArrayList<>(TAG_COUNT);
+		for (int i = 1; i <= TAG_COUNT; i++)
+		{
+			tags.add(new UneditableTag(1, null, i, "tag" + i, "", true));
+		}
+
+		final long lBase = usedMemory();
+		final List<Object> compact = new ArrayList<>(iPictureCount);
+		for (int i = 0; i < iPictureCount; i++)
+		{
+			compact.add(createPicture(i, tags, iTagsPerPicture));
+		}
+		final long lCompact = usedMemory() - lBase;
+		print("compact", lCompact, iPictureCount);
+		compact.clear();
+
+		final long lLegacyBase = usedMemory();
+		final List<Object> legacy = new ArrayList<>(iPictureCount);
+		for (int i = 0; i < iPictureCount; i++)
+		{
+			legacy.add(new LegacyPicture(i, tags, iTagsPerPicture));
+		}
+		final long lLegacy = usedMemory() - lLegacyBase;
+		print("legacy", lLegacy, iPictureCount);
+		legacy.clear();
+	}
+
+	/**
+	 * Create a picture with the current layout.
+	 * 
+	 * @param i
+	 *            index of the picture.
+	 * @param tags
+	 *            the available tags.
+	 * @param iTagsPerPicture
+	 *            the number of tags of the picture.
+	 * @return the picture.
+	 */
+	private static FsPicture createPicture(final int i, final List<ITag> tags,
+			final int iTagsPerPicture)
+	{
+		return new FsPicture(null, null, String.valueOf(i), i, i, i, 3,
+				"IMG_" + i + ".JPG", 5616, 3744, i, 1,
+				new String(MAKES[i % MAKES.length]), new String(MODELS[i
+						% MODELS.length]), new String(EXPOSURES[i
+						% EXPOSURES.length]), new String(APERTURES[i
+						% APERTURES.length]), new String(FOCALS[i
+						% FOCALS.length]), pickTags(i, tags, iTagsPerPicture));
+	}
+
+	/**
+	 * Pick the tags of a picture.
+	 * 
+	 * @param i
+	 *            index of the picture.
+	 * @param tags
+	 *            the available tags.
+	 * @param iTagsPerPicture
+	 *            the number of tags of the picture.
+	 * @return the tags of the picture.
+	 */
+	static List<ITag> pickTags(final int i, final List<ITag> tags,
+			final int iTagsPerPicture)
+	{
+		final List<ITag> picked = new ArrayList<>(iTagsPerPicture);
+		for (int j = 0; j < iTagsPerPicture; j++)
+		{
+			picked.add(tags.get((i * 7 + j * 13) % tags.size()));
+		}
+		return picked;
+	}
+
+	/**
+	 * Print the result of a measure.
+	 * 
+	 * @param strName
+	 *            name of the layout.
+	 * @param lBytes
+	 *            the number of bytes used.
+	 * @param iPictureCount
+	 *            the number of pictures.
+	 */
+	private static void print(final String strName, final long lBytes,
+			final int iPictureCount)
+	{
+		System.out.println(String.format("%-8s %8.1f MB, %6d bytes/picture",
+				strName, Double.valueOf(lBytes / (1024.0 * 1024)),
+				Long.valueOf(lBytes / iPictureCount)));
+	}
+
+	/**
+	 * Get the heap currently used, after a garbage collection.
+	 * 
+	 * @return the heap currently used, in bytes.
+	 */
+	private static long usedMemory()
+	{
+		final Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++)
+		{
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	/**
+	 * Emulation of the previous layout of a cached picture.
+	 * 
+	 * @author benobiwan
+	 * 
+	 */
+	private static final class LegacyPicture
+	{
+		/**
+		 * The id of the picture.
+		 */
+		final String _strId;
+
+		/**
+		 * The tags of the picture.
+		 */
+		final Set<ITag> _tagSet;
+
+		/**
+		 * The timestamp of the last modification of the picture.
+		 */
+		final long _lModifiedTimestamp;
+
+		/**
+		 * The timestamp of the addition of the picture.
+		 */
+		final long _lAddingTimestamp;
+
+		/**
+		 * The grade of the picture.
+		 */
+		final int _iPictureGrade;
+
+		/**
+		 * The original file name.
+		 */
+		final String _strOriginalFileName;
+
+		/**
+		 * The dimension of the picture.
+		 */
+		final Dimension _pictureDimension;
+
+		/**
+		 * The timestamp of the creation of the picture.
+		 */
+		final long _lCreationTimestamp;
+
+		/**
+		 * The orientation of the picture.
+		 */
+		final int _iOrientation;
+
+		/**
+		 * The 'Make' exif information of the picture.
+		 */
+		final String _strMake;
+
+		/**
+		 * The 'Model' exif information of the picture.
+		 */
+		final String _strModel;
+
+		/**
+		 * The 'exposure' exif information of the picture.
+		 */
+		final String _strExposureTime;
+
+		/**
+		 * The 'relative aperture' exif information of the picture.
+		 */
+		final String _strRelativeAperture;
+
+		/**
+		 * The 'focal length' exif information of the picture.
+		 */
+		final String _strFocalLength;
+
+		/**
+		 * Creates a new LegacyPicture.
+		 * 
+		 * @param i
+		 *            index of the picture.
+		 * @param tags
+		 *            the available tags.
+		 * @param iTagsPerPicture
+		 *            the number of tags of the picture.
+		 */
+		public LegacyPicture(final int i, final List<ITag> tags,
+				final int iTagsPerPicture)
+		{
+			_strId = String.valueOf(i);
+			_tagSet = new ConcurrentSkipListSet<>(pickTags(i, tags,
+					iTagsPerPicture));
+			_lModifiedTimestamp = i;
+			_lAddingTimestamp = i;
+			_iPictureGrade = 3;
+			_strOriginalFileName = "IMG_" + i + ".JPG";
+			_pictureDimension = new Dimension(5616, 3744);
+			_lCreationTimestamp = i;
+			_iOrientation = 1;
+			_strMake = new String(MAKES[i % MAKES.length]);
+			_strModel = new String(MODELS[i % MODELS.length]);
+			_strExposureTime = new String(EXPOSURES[i % EXPOSURES.length]);
+			_strRelativeAperture = new String(APERTURES[i % APERTURES.length]);
+			_strFocalLength = new String(FOCALS[i % FOCALS.length]);
+		}
+	}
+}
@@ -3,28 +3,56 @@ package yapto.picturebank.index;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.lucene.document.Document;
+import org.apache.lucene.document.DoubleField;
 import org.apache.lucene.document.Field;
+import org.apache.lucene.document.IntDocValuesField;
 import org.apache.lucene.document.IntField;
+import org.apache.lucene.document.LongDocValuesField;
+import org.apache.lucene.document.LongField;
+import org.apache.lucene.document.StraightBytesDocValuesField;
 import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.AtomicReaderContext;
 import org.apache.lucene.index.CorruptIndexException;
 import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.IndexCommit;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
 import org.apache.lucene.index.IndexWriterConfig.OpenMode;
+import org.apache.lucene.index.KeepOnlyLastCommitDeletionPolicy;
+import org.apache.lucene.index.ReaderUtil;
+import org.apache.lucene.index.SnapshotDeletionPolicy;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherFactory;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TopDocs;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.Version;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import yapto.picturebank.IPicture;
 import yapto.picturebank.PictureInformation;
+import yapto.picturebank.PictureSortField;
 import yapto.picturebank.sqlfile.config.ISQLFilePictureBankConfiguration;
 import yapto.picturebank.tag.ITag;
 
@@ -72,7 +100,8 @@ public final class PictureIndexer
 	public static final String WIDTH_INDEX_FIELD = "width";
 
 	/**
-	 * Name of the field used to index the exif 'exposure' of the picture.
+	 * Name of the field used to index the exif 'exposure' of the picture, in
+	 * seconds.
 	 */
 	public static final String PICTURE_EXPOSURE_INDEX_FIELD = "exposure";
 
@@ -83,7 +112,8 @@ public final class PictureIndexer
 	public static final String MODEL_RELATIVE_APERTURE_FIELD = "relative_aperture";
 
 	/**
-	 * Name of the field used to index the exif 'focal length' of the picture.
+	 * Name of the field used to index the exif 'focal length' of the picture,
+	 * in millimeters.
 	 */
 	public static final String FOCAL_LENGTH_INDEX_FIELD = "focal_length";
 
@@ -92,6 +122,57 @@ public final class PictureIndexer
 	 */
 	public static final String TAG_INDEX_FIELD = "tag";
 
+	/**
+	 * Name of the field used to index the creation timestamp of the picture.
+	 */
+	public static final String CREATION_TIMESTAMP_INDEX_FIELD = "creation_timestamp";
+
+	/**
+	 * Name of the field used to index the adding timestamp of the picture.
+	 */
+	public static final String ADDING_TIMESTAMP_INDEX_FIELD = "adding_timestamp";
+
+	/**
+	 * Name of the field used to index the modified timestamp of the picture.
+	 */
+	public static final String MODIFIED_TIMESTAMP_INDEX_FIELD = "modified_timestamp";
+
+	/**
+	 * Version of the content of the documents, increased when it changes so
+	 * that the pictures indexed before are indexed again.
+	 */
+	private static final String INDEX_VERSION = "2";
+
+	/**
+	 * Key of the version of the content of the documents in the user data of
+	 * the commits.
+	 */
+	private static final String INDEX_VERSION_KEY = "version";
+
+	/**
+	 * Logger object.
+	 */
+	protected static final Logger LOGGER = LoggerFactory
+			.getLogger(PictureIndexer.class);
+
+	/**
+	 * Number of results of the search warming a new {@link IndexSearcher}.
+	 */
+	private static final int WARMING_RESULT_COUNT = 100;
+
+	/**
+	 * Maximum number of seconds to wait for the running refresh and searches
+	 * when closing the index.
+	 */
+	private static final long CLOSE_TIMEOUT_SECONDS = 30;
+
+	/**
+	 * Names of the fields having {@link DocValues}.
+	 */
+	private static final String[] DOC_VALUES_FIELDS = { ID_INDEX_FIELD,
+			GRADE_INDEX_FIELD, CREATION_TIMESTAMP_INDEX_FIELD,
+			ADDING_TIMESTAMP_INDEX_FIELD };
+
 	/**
 	 * The configuration.
 	 */
@@ -103,34 +184,50 @@ public final class PictureIndexer
 	private final IndexWriter _indexWriter;
 
 	/**
-	 * Object used to protect the access to the reader.
+	 * {@link SnapshotDeletionPolicy} keeping the files of the commits being
+	 * backed up.
+	 */
+	private final SnapshotDeletionPolicy _snapshotPolicy;
+
+	/**
+	 * {@link SearcherManager} sharing the {@link IndexSearcher}s between the
+	 * searches, each search holding a reference on the searcher it uses.
 	 */
-	private final Object _readerLock = new Object();
+	private final SearcherManager _searcherManager;
 
 	/**
-	 * {@link IndexReader} used to write the indexes.
+	 * {@link ExecutorService} searching the segments of the index in
+	 * parallel, null to search them in the calling thread.
 	 */
-	private IndexReader _indexReader;
+	private final ExecutorService _searchExecutor;
 
 	/**
-	 * {@link IndexSearcher} used to search the indexes.
+	 * {@link ScheduledExecutorService} refreshing the searcher in the
+	 * background, null to refresh it before each search.
 	 */
-	private IndexSearcher _indexSearcher;
+	private final ScheduledExecutorService _refreshExecutor;
 
 	/**
-	 * Boolean telling whether the {@link IndexReader} needs to be updated or
-	 * not.
+	 * Whether the index holds pictures indexed with a previous version of the
+	 * content of the documents, which must be indexed again.
 	 */
-	private boolean _bReaderNeedsUpdate;
+	private volatile boolean _bOutdated;
 
 	/**
 	 * Creates a new {@link PictureIndexer}.
 	 * 
 	 * @param conf
 	 *            the configuration.
+	 * @param iRefreshInterval
+	 *            number of milliseconds between two refreshes of the
+	 *            searcher, 0 to refresh it before each search.
+	 * @param iSearchThreads
+	 *            number of threads searching the segments of the index in
+	 *            parallel, 0 to search them in the calling thread.
 	 * @throws IOException
 	 */
-	public PictureIndexer(final ISQLFilePictureBankConfiguration conf)
+	public PictureIndexer(final ISQLFilePictureBankConfiguration conf,
+			final int iRefreshInterval, final int iSearchThreads)
 			throws IOException
 	{
 		_conf = conf;
@@ -142,14 +239,53 @@ public final class PictureIndexer
 		final IndexWriterConfig iwConf = new IndexWriterConfig(
 				Version.LUCENE_40, null);
 		iwConf.setOpenMode(OpenMode.CREATE_OR_APPEND);
+		_snapshotPolicy = new SnapshotDeletionPolicy(
+				new KeepOnlyLastCommitDeletionPolicy());
+		iwConf.setIndexDeletionPolicy(_snapshotPolicy);
 
+		_bOutdated = DirectoryReader.indexExists(dir)
+				&& !INDEX_VERSION.equals(readVersion(dir));
 		_indexWriter = new IndexWriter(dir, iwConf);
 
-		synchronized (_readerLock)
+		// near real time searcher, warmed before being published
+		_searchExecutor = (iSearchThreads > 0) ? Executors
+				.newFixedThreadPool(iSearchThreads) : null;
+		_searcherManager = new SearcherManager(_indexWriter, true,
+				new SearcherFactory()
+				{
+					@Override
+					public IndexSearcher newSearcher(final IndexReader reader)
+							throws IOException
+					{
+						final IndexSearcher searcher = (_searchExecutor == null) ? new IndexSearcher(
+								reader) : new IndexSearcher(reader,
+								_searchExecutor);
+						warm(searcher);
+						return searcher;
+					}
+				});
+		if (iRefreshInterval > 0)
 		{
-			_indexReader = DirectoryReader.open(_indexWriter, true);
-			_indexSearcher = new IndexSearcher(_indexReader);
-			_bReaderNeedsUpdate = false;
+			_refreshExecutor = Executors.newSingleThreadScheduledExecutor();
+			_refreshExecutor.scheduleWithFixedDelay(new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					try
+					{
+						_searcherManager.maybeRefresh();
+					}
+					catch (final IOException e)
+					{
+						LOGGER.error("Can't refresh the index searcher.", e);
+					}
+				}
+			}, iRefreshInterval, iRefreshInterval, TimeUnit.MILLISECONDS);
+		}
+		else
+		{
+			_refreshExecutor = null;
 		}
 	}
 
@@ -170,10 +306,159 @@ public final class PictureIndexer
 		final Document doc = createDocument(picture);
 
 		_indexWriter.updateDocument(currDoc, doc);
-		synchronized (_readerLock)
+	}
+
+	/**
+	 * Index the specified {@link IPicture}s and commit the index once for all
+	 * of them.
+	 * 
+	 * @param pictures
+	 *            the {@link IPicture}s to index.
+	 * @throws CorruptIndexException
+	 *             if the index is corrupted.
+	 * @throws IOException
+	 *             if there is an I/O error while writing the index.
+	 */
+	public void indexPictures(final Collection<? extends IPicture> pictures)
+			throws CorruptIndexException, IOException
+	{
+		indexPictures(pictures, true);
+	}
+
+	/**
+	 * Index the specified {@link IPicture}s, optionally committing the index.
+	 * 
+	 * @param pictures
+	 *            the {@link IPicture}s to index.
+	 * @param bCommit
+	 *            whether to commit the index, otherwise the changes are
+	 *            committed by the next call to {@link #commit()}.
+	 * @throws CorruptIndexException
+	 *             if the index is corrupted.
+	 * @throws IOException
+	 *             if there is an I/O error while writing the index.
+	 */
+	public void indexPictures(final Collection<? extends IPicture> pictures,
+			final boolean bCommit) throws CorruptIndexException, IOException
+	{
+		for (final IPicture picture : pictures)
+		{
+			_indexWriter.updateDocument(
+					new Term(ID_INDEX_FIELD, picture.getId()),
+					createDocument(picture));
+		}
+		if (bCommit)
+		{
+			_indexWriter.commit(getCommitData());
+		}
+	}
+
+	/**
+	 * Commit the pending changes of the index.
+	 * 
+	 * @throws CorruptIndexException
+	 *             if the index is corrupted.
+	 * @throws IOException
+	 *             if there is an I/O error while writing the index.
+	 */
+	public void commit() throws CorruptIndexException, IOException
+	{
+		_indexWriter.commit(getCommitData());
+	}
+
+	/**
+	 * Tell whether the index holds pictures indexed with a previous version of
+	 * the content of the documents, which must be indexed again.
+	 * 
+	 * @return true if the pictures must be indexed again.
+	 */
+	public boolean isOutdated()
+	{
+		return _bOutdated;
+	}
+
+	/**
+	 * Record that all the pictures have been indexed again, and commit the
+	 * index with the current version.
+	 * 
+	 * @throws CorruptIndexException
+	 *             if the index is corrupted.
+	 * @throws IOException
+	 *             if there is an I/O error while writing the index.
+	 */
+	public void setUpToDate() throws CorruptIndexException, IOException
+	{
+		_bOutdated = false;
+		commit();
+	}
+
+	/**
+	 * Get the user data of the commits : the version of the content of the
+	 * documents, unless some pictures haven't been indexed with it yet.
+	 * 
+	 * @return the user data of the commits.
+	 */
+	private Map<String, String> getCommitData()
+	{
+		if (_bOutdated)
 		{
-			_bReaderNeedsUpdate = true;
+			return Collections.emptyMap();
 		}
+		return Collections.singletonMap(INDEX_VERSION_KEY, INDEX_VERSION);
+	}
+
+	/**
+	 * Read the version of the content of the documents of the last commit of
+	 * an index.
+	 * 
+	 * @param dir
+	 *            the {@link Directory} of the index.
+	 * @return the version of the content of the documents, null if it isn't
+	 *         recorded.
+	 * @throws IOException
+	 *             if the commits can't be read.
+	 */
+	private static String readVersion(final Directory dir) throws IOException
+	{
+		final List<IndexCommit> commits = DirectoryReader.listCommits(dir);
+		return commits.get(commits.size() - 1).getUserData()
+				.get(INDEX_VERSION_KEY);
+	}
+
+	/**
+	 * Commit the pending changes of the index and take a snapshot of the
+	 * commit : its files aren't deleted until the snapshot is released with
+	 * {@link #releaseSnapshot(String)}, so that they can be copied while the
+	 * index is modified.
+	 * 
+	 * @param strSnapshotId
+	 *            the id of the snapshot.
+	 * @return the {@link IndexCommit} whose files can be copied.
+	 * @throws CorruptIndexException
+	 *             if the index is corrupted.
+	 * @throws IOException
+	 *             if there is an I/O error while writing the index.
+	 */
+	public IndexCommit snapshot(final String strSnapshotId)
+			throws CorruptIndexException, IOException
+	{
+		_indexWriter.commit(getCommitData());
+		return _snapshotPolicy.snapshot(strSnapshotId);
+	}
+
+	/**
+	 * Release a snapshot taken with {@link #snapshot(String)}, allowing the
+	 * deletion of its files.
+	 * 
+	 * @param strSnapshotId
+	 *            the id of the snapshot.
+	 * @throws IOException
+	 *             if there is an I/O error while deleting the files.
+	 */
+	public void releaseSnapshot(final String strSnapshotId) throws IOException
+	{
+		_snapshotPolicy.release(strSnapshotId);
+		_indexWriter.deleteUnusedFiles();
 	}
 
 	/**
@@ -200,6 +485,21 @@ public final class PictureIndexer
 		}
 		// informations
 		final PictureInformation info = picture.getPictureInformation();
+		// values read for each result and used to sort the results
+		doc.add(new StraightBytesDocValuesField(ID_INDEX_FIELD, new BytesRef(
+				picture.getId()), true));
+		doc.add(new IntDocValuesField(GRADE_INDEX_FIELD, picture
+				.getPictureGrade()));
+		doc.add(new LongDocValuesField(CREATION_TIMESTAMP_INDEX_FIELD, info
+				.getCreationTimestamp()));
+		doc.add(new LongDocValuesField(ADDING_TIMESTAMP_INDEX_FIELD, picture
+				.getAddingTimestamp()));
+		doc.add(new LongField(CREATION_TIMESTAMP_INDEX_FIELD, info
+				.getCreationTimestamp(), Field.Store.NO));
+		doc.add(new LongField(ADDING_TIMESTAMP_INDEX_FIELD, picture
+				.getAddingTimestamp(), Field.Store.NO));
+		doc.add(new LongField(MODIFIED_TIMESTAMP_INDEX_FIELD, picture
+				.getModifiedTimestamp(), Field.Store.NO));
 		doc.add(new IntField(ORIENTATION_INDEX_FIELD, info.getOrientation(),
 				Field.Store.NO));
 		doc.add(new IntField(HEIGHT_INDEX_FIELD, info.getHeight(),
@@ -215,29 +515,64 @@ public final class PictureIndexer
 			doc.add(new StringField(MODEL_INDEX_FIELD, info.getModel(),
 					Field.Store.NO));
 		}
-		if (info.getExposureTime() != null)
-		{
-			doc.add(new StringField(PICTURE_EXPOSURE_INDEX_FIELD, info
-					.getExposureTime(), Field.Store.NO));
-		}
-		if (info.getRelativeAperture() != null)
+		addDoubleField(doc, PICTURE_EXPOSURE_INDEX_FIELD,
+				info.getExposureTimeValue());
+		addDoubleField(doc, MODEL_RELATIVE_APERTURE_FIELD,
+				info.getRelativeApertureValue());
+		addDoubleField(doc, FOCAL_LENGTH_INDEX_FIELD,
+				info.getFocalLengthValue());
+		return doc;
+	}
+
+	/**
+	 * Add a numeric field to a {@link Document}, if its value is known.
+	 * 
+	 * @param doc
+	 *            the {@link Document}.
+	 * @param strField
+	 *            name of the field.
+	 * @param dValue
+	 *            value of the field, {@link Double#NaN} if it's unknown.
+	 */
+	private static void addDoubleField(final Document doc,
+			final String strField, final double dValue)
+	{
+		if (!Double.isNaN(dValue) && !Double.isInfinite(dValue))
 		{
-			doc.add(new StringField(MODEL_RELATIVE_APERTURE_FIELD, info
-					.getRelativeAperture(), Field.Store.NO));
+			doc.add(new DoubleField(strField, dValue, Field.Store.NO));
 		}
-		if (info.getFocalLength() != null)
+	}
+
+	/**
+	 * Warm a new {@link IndexSearcher} before it's used by the searches, by
+	 * loading the {@link DocValues} of its segments and running a search on
+	 * all the pictures.
+	 * 
+	 * @param searcher
+	 *            the new {@link IndexSearcher}.
+	 * @throws IOException
+	 *             if an error occurs during the search.
+	 */
+	static void warm(final IndexSearcher searcher) throws IOException
+	{
+		for (final AtomicReaderContext leaf : searcher.getIndexReader()
+				.leaves())
 		{
-			doc.add(new StringField(FOCAL_LENGTH_INDEX_FIELD, info
-					.getFocalLength(), Field.Store.NO));
+			for (final String strField : DOC_VALUES_FIELDS)
+			{
+				final DocValues values = leaf.reader().docValues(strField);
+				if (values != null)
+				{
+					values.getSource();
+				}
+			}
 		}
-
-		// doc.add(new IntField("",
-		// info.getCreationTimestamp(), Field.Store.NO));
-		return doc;
+		searcher.search(new MatchAllDocsQuery(), WARMING_RESULT_COUNT);
 	}
 
 	/**
-	 * Closes the {@link IndexWriter}.
+	 * Closes the {@link SearcherManager} and the {@link IndexWriter}, once the
+	 * running refresh and searches are done.
 	 * 
 	 * @throws CorruptIndexException
 	 *             if the index is corrupted.
@@ -246,15 +581,50 @@ public final class PictureIndexer
 	 */
 	public void close() throws CorruptIndexException, IOException
 	{
+		if (_refreshExecutor != null)
+		{
+			_refreshExecutor.shutdownNow();
+			awaitTermination(_refreshExecutor, "refresh");
+		}
+		if (_searchExecutor != null)
+		{
+			_searchExecutor.shutdown();
+			awaitTermination(_searchExecutor, "search");
+		}
+		_searcherManager.close();
 		_indexWriter.close();
-		synchronized (_readerLock)
+	}
+
+	/**
+	 * Wait for the tasks of a shut down {@link ExecutorService} to finish.
+	 * 
+	 * @param executor
+	 *            the {@link ExecutorService}.
+	 * @param strName
+	 *            the name of the tasks, for the log.
+	 */
+	private static void awaitTermination(final ExecutorService executor,
+			final String strName)
+	{
+		try
+		{
+			if (!executor.awaitTermination(CLOSE_TIMEOUT_SECONDS,
+					TimeUnit.SECONDS))
+			{
+				LOGGER.error("Timeout while waiting for the index " + strName
+						+ " to stop.");
+			}
+		}
+		catch (final InterruptedException e)
 		{
-			_indexReader.close();
+			LOGGER.error(e.getMessage(), e);
 		}
 	}
 
 	/**
-	 * Search picture id corresponding to the specified query.
+	 * Search picture id corresponding to the specified query, in order of
+	 * relevance. The search doesn't see the pictures indexed since the last
+	 * refresh of the searcher.
 	 * 
 	 * @param query
 	 *            the query.
@@ -267,25 +637,137 @@ public final class PictureIndexer
 	public List<String> searchPicture(final Query query, final int iLimit)
 			throws IOException
 	{
-		synchronized (_readerLock)
+		return searchPicture(query, iLimit, PictureSortField.RELEVANCE, false);
+	}
+
+	/**
+	 * Search picture id corresponding to the specified query, sorted by the
+	 * specified field. The search doesn't see the pictures indexed since the
+	 * last refresh of the searcher.
+	 * 
+	 * @param query
+	 *            the query.
+	 * @param iLimit
+	 *            maximum number of result.
+	 * @param sortField
+	 *            the value by which the pictures are sorted.
+	 * @param bReverse
+	 *            true to sort the pictures in decreasing order of the value,
+	 *            ignored for the relevance which is always decreasing.
+	 * @return a {@link List} of the matching picture id.
+	 * @throws IOException
+	 *             if an error occurs during the search.
+	 */
+	public List<String> searchPicture(final Query query, final int iLimit,
+			final PictureSortField sortField, final boolean bReverse)
+			throws IOException
+	{
+		if (_refreshExecutor == null)
+		{
+			_searcherManager.maybeRefresh();
+		}
+		final IndexSearcher searcher = _searcherManager.acquire();
+		try
 		{
-			if (_bReaderNeedsUpdate)
+			final TopDocs topDocs;
+			if (sortField == PictureSortField.RELEVANCE)
+			{
+				topDocs = searcher.search(query, iLimit);
+			}
+			else
 			{
-				_indexReader.close();
-				_indexReader = DirectoryReader.open(_indexWriter, true);
-				_indexSearcher = new IndexSearcher(_indexReader);
-				_bReaderNeedsUpdate = false;
+				topDocs = searcher.search(query, iLimit, new Sort(
+						createSortField(sortField, bReverse)));
 			}
-			final ScoreDoc[] searchResult = _indexSearcher
-					.search(query, iLimit).scoreDocs;
-			final ArrayList<String> result = new ArrayList<>();
-			result.ensureCapacity(searchResult.length);
-			for (final ScoreDoc scoreDoc : searchResult)
+			return getPictureIds(searcher, topDocs.scoreDocs);
+		}
+		finally
+		{
+			_searcherManager.release(searcher);
+		}
+	}
+
+	/**
+	 * Create the {@link SortField} sorting the pictures by the specified
+	 * field, using its {@link DocValues}.
+	 * 
+	 * @param sortField
+	 *            the value by which the pictures are sorted, other than the
+	 *            relevance.
+	 * @param bReverse
+	 *            true to sort the pictures in decreasing order of the value.
+	 * @return the {@link SortField}.
+	 */
+	private static SortField createSortField(
+			final PictureSortField sortField, final boolean bReverse)
+	{
+		final SortField luceneSortField;
+		switch (sortField)
+		{
+		case GRADE:
+			luceneSortField = new SortField(GRADE_INDEX_FIELD,
+					SortField.Type.INT, bReverse);
+			break;
+		case CREATION_DATE:
+			luceneSortField = new SortField(CREATION_TIMESTAMP_INDEX_FIELD,
+					SortField.Type.LONG, bReverse);
+			break;
+		case ADDING_DATE:
+			luceneSortField = new SortField(ADDING_TIMESTAMP_INDEX_FIELD,
+					SortField.Type.LONG, bReverse);
+			break;
+		default:
+			throw new IllegalArgumentException("Can't sort by " + sortField);
+		}
+		luceneSortField.setUseIndexValues(true);
+		return luceneSortField;
+	}
+
+	/**
+	 * Get the ids of the pictures found by a search from the
+	 * {@link DocValues} of the segments, without loading the stored fields.
+	 * 
+	 * @param searcher
+	 *            the {@link IndexSearcher} used by the search.
+	 * @param hits
+	 *            the documents found by the search.
+	 * @return the ids of the pictures, in the order of the documents.
+	 * @throws IOException
+	 *             if the {@link DocValues} or the documents can't be read.
+	 */
+	private static List<String> getPictureIds(final IndexSearcher searcher,
+			final ScoreDoc[] hits) throws IOException
+	{
+		final List<AtomicReaderContext> leaves = searcher.getIndexReader()
+				.leaves();
+		final DocValues.Source[] sources = new DocValues.Source[leaves.size()];
+		for (int i = 0; i < sources.length; i++)
+		{
+			final DocValues values = leaves.get(i).reader()
+					.docValues(ID_INDEX_FIELD);
+			if (values != null)
+			{
+				sources[i] = values.getSource();
+			}
+		}
+		final List<String> result = new ArrayList<>(hits.length);
+		final BytesRef bytes = new BytesRef();
+		for (final ScoreDoc hit : hits)
+		{
+			final int iLeaf = ReaderUtil.subIndex(hit.doc, leaves);
+			if (sources[iLeaf] != null)
 			{
-				result.add(_indexReader.document(scoreDoc.doc)
-						.get("picture_id"));
+				sources[iLeaf].getBytes(hit.doc - leaves.get(iLeaf).docBase,
+						bytes);
+				// empty for the documents indexed without the value
+				if (bytes.length > 0 && bytes.bytes[bytes.offset] != 0)
+				{
+					result.add(bytes.utf8ToString());
+					continue;
+				}
 			}
-			return result;
+			result.add(searcher.doc(hit.doc).get(ID_INDEX_FIELD));
 		}
+		return result;
 	}
 }
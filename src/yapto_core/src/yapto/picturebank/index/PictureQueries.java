@@ -0,0 +1,166 @@
+package yapto.picturebank.index;
+
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.NumericRangeQuery;
+import org.apache.lucene.search.Query;
+
+/**
+ * Builders of the {@link Query}s selecting the pictures whose numeric values
+ * are in a range, run on the {@link PictureIndexer} index without loading the
+ * pictures.
+ * 
+ * The bounds of the ranges are included, a null bound leaves the range open
+ * on its side. Pictures whose exif value is unknown are never selected by a
+ * range on this value.
+ * 
+ * @author benobiwan
+ * 
+ */
+public final class PictureQueries
+{
+	/**
+	 * Private constructor, only static methods.
+	 */
+	private PictureQueries()
+	{
+		// nothing to do
+	}
+
+	/**
+	 * Create a {@link Query} selecting the pictures whose grade is in a range.
+	 * 
+	 * @param iMin
+	 *            the lowest grade, null for no lower bound.
+	 * @param iMax
+	 *            the highest grade, null for no upper bound.
+	 * @return the {@link Query}.
+	 */
+	public static Query gradeRange(final Integer iMin, final Integer iMax)
+	{
+		return NumericRangeQuery.newIntRange(PictureIndexer.GRADE_INDEX_FIELD,
+				iMin, iMax, true, true);
+	}
+
+	/**
+	 * Create a {@link Query} selecting the pictures taken in a range of time.
+	 * 
+	 * @param lFrom
+	 *            the earliest creation timestamp, null for no lower bound.
+	 * @param lTo
+	 *            the latest creation timestamp, null for no upper bound.
+	 * @return the {@link Query}.
+	 */
+	public static Query creationDateRange(final Long lFrom, final Long lTo)
+	{
+		return NumericRangeQuery.newLongRange(
+				PictureIndexer.CREATION_TIMESTAMP_INDEX_FIELD, lFrom, lTo, true,
+				true);
+	}
+
+	/**
+	 * Create a {@link Query} selecting the pictures added to their bank in a
+	 * range of time.
+	 * 
+	 * @param lFrom
+	 *            the earliest adding timestamp, null for no lower bound.
+	 * @param lTo
+	 *            the latest adding timestamp, null for no upper bound.
+	 * @return the {@link Query}.
+	 */
+	public static Query addingDateRange(final Long lFrom, final Long lTo)
+	{
+		return NumericRangeQuery.newLongRange(
+				PictureIndexer.ADDING_TIMESTAMP_INDEX_FIELD, lFrom, lTo, true,
+				true);
+	}
+
+	/**
+	 * Create a {@link Query} selecting the pictures last modified in a range
+	 * of time.
+	 * 
+	 * @param lFrom
+	 *            the earliest modified timestamp, null for no lower bound.
+	 * @param lTo
+	 *            the latest modified timestamp, null for no upper bound.
+	 * @return the {@link Query}.
+	 */
+	public static Query modifiedDateRange(final Long lFrom, final Long lTo)
+	{
+		return NumericRangeQuery.newLongRange(
+				PictureIndexer.MODIFIED_TIMESTAMP_INDEX_FIELD, lFrom, lTo, true,
+				true);
+	}
+
+	/**
+	 * Create a {@link Query} selecting the pictures whose exif 'exposure' is
+	 * in a range.
+	 * 
+	 * @param dMin
+	 *            the shortest exposure, in seconds, null for no lower bound.
+	 * @param dMax
+	 *            the longest exposure, in seconds, null for no upper bound.
+	 * @return the {@link Query}.
+	 */
+	public static Query exposureTimeRange(final Double dMin, final Double dMax)
+	{
+		return NumericRangeQuery.newDoubleRange(
+				PictureIndexer.PICTURE_EXPOSURE_INDEX_FIELD, dMin, dMax, true,
+				true);
+	}
+
+	/**
+	 * Create a {@link Query} selecting the pictures whose exif 'relative
+	 * aperture' is in a range. The aperture wider than f/2.8 is the range from
+	 * null to 2.8.
+	 * 
+	 * @param dMin
+	 *            the lowest f-number, null for no lower bound.
+	 * @param dMax
+	 *            the highest f-number, null for no upper bound.
+	 * @return the {@link Query}.
+	 */
+	public static Query relativeApertureRange(final Double dMin,
+			final Double dMax)
+	{
+		return NumericRangeQuery.newDoubleRange(
+				PictureIndexer.MODEL_RELATIVE_APERTURE_FIELD, dMin, dMax, true,
+				true);
+	}
+
+	/**
+	 * Create a {@link Query} selecting the pictures whose exif 'focal length'
+	 * is in a range.
+	 * 
+	 * @param dMin
+	 *            the shortest focal length, in millimeters, null for no lower
+	 *            bound.
+	 * @param dMax
+	 *            the longest focal length, in millimeters, null for no upper
+	 *            bound.
+	 * @return the {@link Query}.
+	 */
+	public static Query focalLengthRange(final Double dMin, final Double dMax)
+	{
+		return NumericRangeQuery.newDoubleRange(
+				PictureIndexer.FOCAL_LENGTH_INDEX_FIELD, dMin, dMax, true, true);
+	}
+
+	/**
+	 * Create a {@link Query} selecting the pictures selected by all the
+	 * specified {@link Query}s.
+	 * 
+	 * @param queries
+	 *            the {@link Query}s.
+	 * @return the {@link Query}.
+	 */
+	public static Query all(final Query... queries)
+	{
+		final BooleanQuery query = new BooleanQuery();
+		for (final Query q : queries)
+		{
+			query.add(q, BooleanClause.Occur.MUST);
+		}
+		return query;
+	}
+}
@@ -0,0 +1,158 @@
+package yapto.picturebank.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageInputStreamImpl;
+
+/**
+ * An {@link ImageInputStream} reading a file through a {@link FileChannel},
+ * using positional reads into a large buffer.
+ * 
+ * @author benobiwan
+ * 
+ */
+public final class FileChannelImageInputStream extends ImageInputStreamImpl
+{
+	/**
+	 * Size of the read buffer.
+	 */
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * The file being read.
+	 */
+	private final RandomAccessFile _file;
+
+	/**
+	 * The channel of the file.
+	 */
+	private final FileChannel _channel;
+
+	/**
+	 * The buffer holding the bytes of the file starting at _lBufferStart.
+	 */
+	private final ByteBuffer _buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+	/**
+	 * Position in the file of the first byte of the buffer.
+	 */
+	private long _lBufferStart = 0;
+
+	/**
+	 * Creates a new FileChannelImageInputStream.
+	 * 
+	 * @param file
+	 *            the file to read.
+	 * @throws IOException
+	 *             if the file can't be opened.
+	 */
+	public FileChannelImageInputStream(final File file) throws IOException
+	{
+		_file = new RandomAccessFile(file, "r");
+		_channel = _file.getChannel();
+		_buffer.limit(0);
+	}
+
+	/**
+	 * Make sure the buffer contains the byte at the current stream position.
+	 * 
+	 * @return false if the end of the file has been reached.
+	 * @throws IOException
+	 *             if an error occurs during reading.
+	 */
+	private boolean fillBuffer() throws IOException
+	{
+		if (streamPos >= _lBufferStart
+				&& streamPos < _lBufferStart + _buffer.limit())
+		{
+			return true;
+		}
+		_buffer.clear();
+		_lBufferStart = streamPos;
+		int iRead = 0;
+		while (iRead == 0)
+		{
+			iRead = _channel.read(_buffer, _lBufferStart);
+		}
+		_buffer.flip();
+		return iRead > 0;
+	}
+
+	@Override
+	public int read() throws IOException
+	{
+		checkClosed();
+		bitOffset = 0;
+		if (!fillBuffer())
+		{
+			return -1;
+		}
+		final int iValue = _buffer.get((int) (streamPos - _lBufferStart)) & 0xff;
+		streamPos++;
+		return iValue;
+	}
+
+	@Override
+	public int read(final byte[] b, final int off, final int len)
+			throws IOException
+	{
+		checkClosed();
+		if (off < 0 || len < 0 || off + len > b.length)
+		{
+			throw new IndexOutOfBoundsException();
+		}
+		if (len == 0)
+		{
+			return 0;
+		}
+		bitOffset = 0;
+		final boolean bInBuffer = streamPos >= _lBufferStart
+				&& streamPos < _lBufferStart + _buffer.limit();
+		if (!bInBuffer && len >= BUFFER_SIZE)
+		{
+			// big read, bypass the buffer
+			final int iRead = _channel.read(ByteBuffer.wrap(b, off, len),
+					streamPos);
+			if (iRead > 0)
+			{
+				streamPos += iRead;
+			}
+			return iRead;
+		}
+		if (!fillBuffer())
+		{
+			return -1;
+		}
+		final int iOffsetInBuffer = (int) (streamPos - _lBufferStart);
+		final int iRead = Math.min(len, _buffer.limit() - iOffsetInBuffer);
+		_buffer.position(iOffsetInBuffer);
+		_buffer.get(b, off, iRead);
+		streamPos += iRead;
+		return iRead;
+	}
+
+	@Override
+	public long length()
+	{
+		try
+		{
+			return _channel.size();
+		}
+		catch (final IOException e)
+		{
+			return -1L;
+		}
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		super.close();
+		_file.close();
+	}
+}
@@ -0,0 +1,182 @@
+package yapto.picturebank.io;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Factory for the {@link ImageInputStream}s used to read picture files.
+ * 
+ * @author benobiwan
+ * 
+ */
+public final class ImageInputStreams
+{
+	/**
+	 * Logger object.
+	 */
+	protected static final Logger LOGGER = LoggerFactory
+			.getLogger(ImageInputStreams.class);
+
+	/**
+	 * Minimum size of a file for it to be memory mapped. Mapping small files,
+	 * like thumbnails, costs more than it saves.
+	 */
+	public static final long MIN_MAPPED_FILE_SIZE = 256 * 1024;
+
+	/**
+	 * Private constructor, only static methods.
+	 */
+	private ImageInputStreams()
+	{
+		// nothing to do
+	}
+
+	/**
+	 * Open an {@link ImageInputStream} on the specified file. Big files are
+	 * memory mapped, other files or files which can't be mapped are read
+	 * through a buffered {@link FileChannelImageInputStream}.
+	 * 
+	 * @param file
+	 *            the file to read.
+	 * @return an {@link ImageInputStream} on the file.
+	 * @throws IOException
+	 *             if the file can't be opened.
+	 */
+	public static ImageInputStream open(final File file) throws IOException
+	{
+		if (file.length() >= MIN_MAPPED_FILE_SIZE)
+		{
+			try
+			{
+				return new MappedFileImageInputStream(file);
+			}
+			catch (final IOException e)
+			{
+				if (LOGGER.isDebugEnabled())
+				{
+					LOGGER.debug("Can't map file " + file
+							+ ", falling back to channel reads.", e);
+				}
+			}
+		}
+		return new FileChannelImageInputStream(file);
+	}
+
+	/**
+	 * Compute the subsampling factor to use to decode a picture so that it's
+	 * still at least as big as the target dimension. The factor is rounded
+	 * down to a power of two to limit the number of cached resolutions.
+	 * 
+	 * @param iWidth
+	 *            the width of the picture.
+	 * @param iHeight
+	 *            the height of the picture.
+	 * @param iTargetWidth
+	 *            the width at which the picture will be displayed.
+	 * @param iTargetHeight
+	 *            the height at which the picture will be displayed.
+	 * @return the subsampling factor, 1 if the picture must be decoded at
+	 *         full resolution.
+	 */
+	public static int computeSubsampling(final int iWidth, final int iHeight,
+			final int iTargetWidth, final int iTargetHeight)
+	{
+		if (iWidth <= 0 || iHeight <= 0 || iTargetWidth <= 0
+				|| iTargetHeight <= 0)
+		{
+			return 1;
+		}
+		final int iRatio = Math.min(iWidth / iTargetWidth, iHeight
+				/ iTargetHeight);
+		if (iRatio <= 1)
+		{
+			return 1;
+		}
+		return Integer.highestOneBit(iRatio);
+	}
+
+	/**
+	 * Decode the specified picture file.
+	 * 
+	 * @param file
+	 *            the file to decode.
+	 * @param iSubsampling
+	 *            the subsampling factor, 1 to decode the picture at full
+	 *            resolution.
+	 * @return the decoded picture.
+	 * @throws IOException
+	 *             if the file can't be read or decoded.
+	 */
+	public static BufferedImage readImage(final File file,
+			final int iSubsampling) throws IOException
+	{
+		return readImage(file, null, iSubsampling);
+	}
+
+	/**
+	 * Decode a region of the specified picture file. Only the requested region
+	 * is kept in memory, which allows to display pictures too big to be
+	 * decoded at once.
+	 * 
+	 * @param file
+	 *            the file to decode.
+	 * @param region
+	 *            the region of the picture to decode, in picture coordinates,
+	 *            null to decode the whole picture.
+	 * @param iSubsampling
+	 *            the subsampling factor, 1 to decode the region at full
+	 *            resolution.
+	 * @return the decoded region of the picture.
+	 * @throws IOException
+	 *             if the file can't be read or decoded.
+	 */
+	public static BufferedImage readImage(final File file,
+			final Rectangle region, final int iSubsampling) throws IOException
+	{
+		final ImageInputStream stream = open(file);
+		try
+		{
+			final Iterator<ImageReader> readers = ImageIO
+					.getImageReaders(stream);
+			if (!readers.hasNext())
+			{
+				throw new IOException("No reader for picture " + file);
+			}
+			final ImageReader reader = readers.next();
+			try
+			{
+				reader.setInput(stream, true, true);
+				final ImageReadParam param = reader.getDefaultReadParam();
+				if (region != null)
+				{
+					param.setSourceRegion(region);
+				}
+				if (iSubsampling > 1)
+				{
+					param.setSourceSubsampling(iSubsampling, iSubsampling, 0,
+							0);
+				}
+				return reader.read(0, param);
+			}
+			finally
+			{
+				reader.dispose();
+			}
+		}
+		finally
+		{
+			stream.close();
+		}
+	}
+}
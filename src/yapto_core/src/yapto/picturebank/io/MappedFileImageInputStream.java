@@ -0,0 +1,189 @@
+package yapto.picturebank.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageInputStreamImpl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An {@link ImageInputStream} reading a file through a {@link MappedByteBuffer}
+ * . Reads and seeks are plain memory accesses, and the operating system takes
+ * care of the read-ahead.
+ * 
+ * The file must be smaller than 2GB. The mapping is released when the stream
+ * is closed, without waiting for the buffer to be garbage collected.
+ * 
+ * @author benobiwan
+ * 
+ */
+public final class MappedFileImageInputStream extends ImageInputStreamImpl
+{
+	/**
+	 * Logger object.
+	 */
+	protected static final Logger LOGGER = LoggerFactory
+			.getLogger(MappedFileImageInputStream.class);
+
+	/**
+	 * The buffer mapping the whole file, unmapped once the stream is closed.
+	 */
+	private final MappedByteBuffer _buffer;
+
+	/**
+	 * The length of the file.
+	 */
+	private final long _lLength;
+
+	/**
+	 * Creates a new MappedFileImageInputStream.
+	 * 
+	 * @param file
+	 *            the file to read.
+	 * @throws IOException
+	 *             if the file can't be opened or mapped.
+	 */
+	public MappedFileImageInputStream(final File file) throws IOException
+	{
+		final RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try
+		{
+			final FileChannel channel = raf.getChannel();
+			final long lSize = channel.size();
+			if (lSize > Integer.MAX_VALUE)
+			{
+				throw new IOException("File too big to be mapped : " + file);
+			}
+			// the mapping stays valid once the channel is closed
+			_buffer = channel.map(MapMode.READ_ONLY, 0, lSize);
+			_lLength = lSize;
+		}
+		finally
+		{
+			raf.close();
+		}
+	}
+
+	@Override
+	public int read() throws IOException
+	{
+		checkClosed();
+		if (streamPos >= _buffer.limit())
+		{
+			return -1;
+		}
+		bitOffset = 0;
+		return _buffer.get((int) streamPos++) & 0xff;
+	}
+
+	@Override
+	public int read(final byte[] b, final int off, final int len)
+			throws IOException
+	{
+		checkClosed();
+		if (off < 0 || len < 0 || off + len > b.length)
+		{
+			throw new IndexOutOfBoundsException();
+		}
+		if (len == 0)
+		{
+			return 0;
+		}
+		bitOffset = 0;
+		final long lRemaining = _buffer.limit() - streamPos;
+		if (lRemaining <= 0)
+		{
+			return -1;
+		}
+		final int iRead = (int) Math.min(len, lRemaining);
+		_buffer.position((int) streamPos);
+		_buffer.get(b, off, iRead);
+		streamPos += iRead;
+		return iRead;
+	}
+
+	@Override
+	public long length()
+	{
+		// the buffer can't be read once unmapped
+		return _lLength;
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		// fails if the stream is already closed, the buffer is unmapped once
+		super.close();
+		// the reads check that the stream is open before accessing the buffer
+		unmap(_buffer);
+	}
+
+	/**
+	 * Release the mapping of the specified buffer, which must not be accessed
+	 * anymore. There's no public API for it, so the cleaner of the buffer is
+	 * called through reflection. If it fails, the mapping is released when
+	 * the buffer is garbage collected.
+	 * 
+	 * @param buffer
+	 *            the buffer to unmap.
+	 */
+	private static void unmap(final MappedByteBuffer buffer)
+	{
+		try
+		{
+			final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			try
+			{
+				// java 9 and later
+				final Method invokeCleaner = unsafeClass.getMethod(
+						"invokeCleaner", ByteBuffer.class);
+				final Field unsafeField = unsafeClass
+						.getDeclaredField("theUnsafe");
+				unsafeField.setAccessible(true);
+				invokeCleaner.invoke(unsafeField.get(null), buffer);
+			}
+			catch (final NoSuchMethodException e)
+			{
+				// java 7 and 8
+				final Method cleanerMethod = buffer.getClass().getMethod(
+						"cleaner");
+				cleanerMethod.setAccessible(true);
+				final Object cleaner = cleanerMethod.invoke(buffer);
+				if (cleaner != null)
+				{
+					cleaner.getClass().getMethod("clean").invoke(cleaner);
+				}
+			}
+		}
+		catch (final ReflectiveOperationException | RuntimeException e)
+		{
+			if (LOGGER.isDebugEnabled())
+			{
+				LOGGER.debug("Can't unmap buffer, it will be released by the"
+						+ " garbage collector.", e);
+			}
+		}
+	}
+
+	@Override
+	public boolean isCached()
+	{
+		return true;
+	}
+
+	@Override
+	public boolean isCachedMemory()
+	{
+		return true;
+	}
+}
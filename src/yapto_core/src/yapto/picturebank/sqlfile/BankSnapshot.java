@@ -0,0 +1,341 @@
+package yapto.picturebank.sqlfile;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import yapto.picturebank.sqlfile.schema.SchemaMigrator;
+import yapto.picturebank.tag.ITag;
+
+/**
+ * Binary copy of the list of the picture ids and of the tree of the
+ * {@link ITag}s of a {@link SQLFilePictureBank}, written when the bank is
+ * closed and read instead of the database when it's opened.
+ * 
+ * The file holds the version of its format, the version of the schema of the
+ * database and the change counter of the database when it was written, and
+ * ends with a checksum of its content. It's only used if the change counter
+ * hasn't changed since, that is if no picture has been added or removed and
+ * no tag has been modified, and if its checksum is valid. It's written to a
+ * temporary file, then moved over the previous one.
+ * 
+ * @author benobiwan
+ * 
+ */
+public final class BankSnapshot
+{
+	/**
+	 * Logger object.
+	 */
+	protected static final Logger LOGGER = LoggerFactory
+			.getLogger(BankSnapshot.class);
+
+	/**
+	 * Magic number at the beginning of a snapshot file.
+	 */
+	private static final int MAGIC = 0x59455331;
+
+	/**
+	 * Version of the format of the snapshot file.
+	 */
+	private static final int FORMAT_VERSION = 1;
+
+	/**
+	 * Suffix of the temporary file written before replacing the snapshot
+	 * file.
+	 */
+	private static final String TEMPORARY_SUFFIX = ".tmp";
+
+	/**
+	 * Charset used to write the strings.
+	 */
+	private static final Charset CHARSET = Charset.forName("UTF-8");
+
+	/**
+	 * The ids of the pictures, in the order of the list of the bank.
+	 */
+	private final List<String> _pictureIds;
+
+	/**
+	 * The {@link TagRecord}s of the {@link ITag}s, the root tag excepted.
+	 */
+	private final List<TagRecord> _tags;
+
+	/**
+	 * Creates a new BankSnapshot.
+	 * 
+	 * @param pictureIds
+	 *            the ids of the pictures.
+	 * @param tags
+	 *            the {@link TagRecord}s of the {@link ITag}s.
+	 */
+	private BankSnapshot(final List<String> pictureIds,
+			final List<TagRecord> tags)
+	{
+		_pictureIds = Collections.unmodifiableList(pictureIds);
+		_tags = Collections.unmodifiableList(tags);
+	}
+
+	/**
+	 * Get the ids of the pictures.
+	 * 
+	 * @return the ids of the pictures.
+	 */
+	public List<String> getPictureIds()
+	{
+		return _pictureIds;
+	}
+
+	/**
+	 * Get the {@link TagRecord}s of the {@link ITag}s, the root tag excepted.
+	 * 
+	 * @return the {@link TagRecord}s of the {@link ITag}s.
+	 */
+	public List<TagRecord> getTags()
+	{
+		return _tags;
+	}
+
+	/**
+	 * Read a snapshot file, if it's valid for the current state of the
+	 * database.
+	 * 
+	 * @param snapshotFile
+	 *            the snapshot file.
+	 * @param lChangeCounter
+	 *            the current change counter of the database.
+	 * @return the {@link BankSnapshot} read, or null if the file doesn't
+	 *         exist, is corrupted or is outdated.
+	 */
+	public static BankSnapshot read(final Path snapshotFile,
+			final long lChangeCounter)
+	{
+		if (!Files.isRegularFile(snapshotFile))
+		{
+			return null;
+		}
+		try
+		{
+			final long lFileSize = Files.size(snapshotFile);
+			final CheckedInputStream checkedIn = new CheckedInputStream(
+					new BufferedInputStream(Files.newInputStream(snapshotFile)),
+					new CRC32());
+			final DataInputStream in = new DataInputStream(checkedIn);
+			try
+			{
+				if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION
+						|| in.readInt() != new SchemaMigrator()
+								.getLatestVersion())
+				{
+					LOGGER.info("Ignoring the snapshot of another version : "
+							+ snapshotFile);
+					return null;
+				}
+				if (in.readLong() != lChangeCounter)
+				{
+					LOGGER.info("Ignoring the outdated snapshot : "
+							+ snapshotFile);
+					return null;
+				}
+				final int iPictureCount = readCount(in, lFileSize);
+				final List<String> pictureIds = new ArrayList<>(iPictureCount);
+				for (int i = 0; i < iPictureCount; i++)
+				{
+					pictureIds.add(readString(in, lFileSize));
+				}
+				final int iTagCount = readCount(in, lFileSize);
+				final List<TagRecord> tags = new ArrayList<>(iTagCount);
+				for (int i = 0; i < iTagCount; i++)
+				{
+					final int iTagId = in.readInt();
+					final int iParentId = in.readInt();
+					final String strName = readString(in, lFileSize);
+					final String strDescription = readString(in, lFileSize);
+					final boolean bSelectable = in.readBoolean();
+					tags.add(new TagRecord(iTagId, iParentId, strName,
+							strDescription, bSelectable));
+				}
+				final long lChecksum = checkedIn.getChecksum().getValue();
+				if (in.readLong() != lChecksum || in.read() != -1)
+				{
+					LOGGER.warn("Ignoring the corrupted snapshot : "
+							+ snapshotFile);
+					return null;
+				}
+				return new BankSnapshot(pictureIds, tags);
+			}
+			finally
+			{
+				in.close();
+			}
+		}
+		catch (final IOException e)
+		{
+			LOGGER.warn("Can't read the snapshot " + snapshotFile, e);
+			return null;
+		}
+	}
+
+	/**
+	 * Write a snapshot file.
+	 * 
+	 * @param snapshotFile
+	 *            the snapshot file.
+	 * @param lChangeCounter
+	 *            the current change counter of the database.
+	 * @param pictureIds
+	 *            the ids of the pictures.
+	 * @param tags
+	 *            the {@link ITag}s, the root tag being skipped.
+	 * @throws IOException
+	 *             if an error occurred while writing the snapshot file.
+	 */
+	public static void write(final Path snapshotFile,
+			final long lChangeCounter, final List<String> pictureIds,
+			final Collection<ITag> tags) throws IOException
+	{
+		final Path temporaryFile = snapshotFile.resolveSibling(snapshotFile
+				.getFileName() + TEMPORARY_SUFFIX);
+		final FileOutputStream fileOut = new FileOutputStream(
+				temporaryFile.toFile());
+		final CheckedOutputStream checkedOut = new CheckedOutputStream(
+				new BufferedOutputStream(fileOut), new CRC32());
+		final DataOutputStream out = new DataOutputStream(checkedOut);
+		try
+		{
+			out.writeInt(MAGIC);
+			out.writeInt(FORMAT_VERSION);
+			out.writeInt(new SchemaMigrator().getLatestVersion());
+			out.writeLong(lChangeCounter);
+			out.writeInt(pictureIds.size());
+			for (final String strId : pictureIds)
+			{
+				writeString(out, strId);
+			}
+			final List<ITag> writtenTags = new ArrayList<>(tags.size());
+			for (final ITag tag : tags)
+			{
+				if (tag.getTagId() != 0)
+				{
+					writtenTags.add(tag);
+				}
+			}
+			out.writeInt(writtenTags.size());
+			for (final ITag tag : writtenTags)
+			{
+				out.writeInt(tag.getTagId());
+				out.writeInt(tag.getParentId());
+				writeString(out, tag.getName());
+				writeString(out, tag.getDescription());
+				out.writeBoolean(tag.isSelectable());
+			}
+			out.writeLong(checkedOut.getChecksum().getValue());
+			out.flush();
+			fileOut.getFD().sync();
+		}
+		finally
+		{
+			out.close();
+		}
+		Files.move(temporaryFile, snapshotFile,
+				StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Read a number of elements, which can't be greater than the size of the
+	 * file.
+	 * 
+	 * @param in
+	 *            the stream to read from.
+	 * @param lFileSize
+	 *            the size of the snapshot file.
+	 * @return the number of elements.
+	 * @throws IOException
+	 *             if an error occurred while reading, or if the number is
+	 *             invalid.
+	 */
+	private static int readCount(final DataInputStream in,
+			final long lFileSize) throws IOException
+	{
+		final int iCount = in.readInt();
+		if (iCount < 0 || iCount > lFileSize)
+		{
+			throw new EOFException("invalid count " + iCount);
+		}
+		return iCount;
+	}
+
+	/**
+	 * Read a string, written with
+	 * {@link #writeString(DataOutputStream, String)}.
+	 * 
+	 * @param in
+	 *            the stream to read from.
+	 * @param lFileSize
+	 *            the size of the snapshot file.
+	 * @return the string read, possibly null.
+	 * @throws IOException
+	 *             if an error occurred while reading.
+	 */
+	private static String readString(final DataInputStream in,
+			final long lFileSize) throws IOException
+	{
+		final int iLength = in.readInt();
+		if (iLength == -1)
+		{
+			return null;
+		}
+		if (iLength < 0 || iLength > lFileSize)
+		{
+			throw new EOFException("invalid string length " + iLength);
+		}
+		final byte[] bytes = new byte[iLength];
+		in.readFully(bytes);
+		return new String(bytes, CHARSET);
+	}
+
+	/**
+	 * Write a possibly null string, as its length in bytes followed by its
+	 * bytes.
+	 * 
+	 * @param out
+	 *            the stream to write to.
+	 * @param str
+	 *            the string to write.
+	 * @throws IOException
+	 *             if an error occurred while writing.
+	 */
+	private static void writeString(final DataOutputStream out,
+			final String str) throws IOException
+	{
+		if (str == null)
+		{
+			out.writeInt(-1);
+		}
+		else
+		{
+			final byte[] bytes = str.getBytes(CHARSET);
+			out.writeInt(bytes.length);
+			out.write(bytes);
+		}
+	}
+}
@@ -1,9 +1,13 @@
 package yapto.picturebank.sqlfile;
 
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
-import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
 
-import javax.imageio.ImageIO;
+import yapto.picturebank.io.ImageInputStreams;
 
 import com.google.common.cache.CacheLoader;
 
@@ -21,26 +25,70 @@ public final class BufferedImageCacheLoader extends
 	 */
 	private final IBufferedImageCacheLoaderConfiguration _cacheLoaderConf;
 
+	/**
+	 * Object locating the files of the pictures.
+	 */
+	private final PictureFileLocator _fileLocator;
+
 	/**
 	 * Creates a new BufferedImageCacheLoader.
 	 * 
 	 * @param cacheLoaderConf
 	 *            the configuration of this BufferedImageCacheLoader.
+	 * @param fileLocator
+	 *            object locating the files of the pictures.
 	 */
 	public BufferedImageCacheLoader(
-			final IBufferedImageCacheLoaderConfiguration cacheLoaderConf)
+			final IBufferedImageCacheLoaderConfiguration cacheLoaderConf,
+			final PictureFileLocator fileLocator)
 	{
 		_cacheLoaderConf = cacheLoaderConf;
+		_fileLocator = fileLocator;
 	}
 
 	@Override
 	public BufferedImage load(final String key) throws Exception
 	{
-		final char[] subdir = new char[3];
-		key.getChars(0, 2, subdir, 0);
-		subdir[2] = File.separatorChar;
-		final File imagePath = new File(_cacheLoaderConf.getPictureDirectory(),
-				new String(subdir) + key);
-		return ImageIO.read(imagePath);
+		return readImage(_cacheLoaderConf, _fileLocator, key, null, 1);
+	}
+
+	/**
+	 * Decode a region of the file holding the specified picture. If the file
+	 * is moved by a {@link DirectoryLayoutMigration} between the time it's
+	 * located and the time it's opened, it's located again.
+	 * 
+	 * @param cacheLoaderConf
+	 *            the configuration giving the picture directory.
+	 * @param fileLocator
+	 *            object locating the files of the pictures.
+	 * @param key
+	 *            the id of the picture.
+	 * @param region
+	 *            the region of the picture to decode, in picture coordinates,
+	 *            null to decode the whole picture.
+	 * @param iSubsampling
+	 *            the subsampling factor, 1 to decode the picture at full
+	 *            resolution.
+	 * @return the decoded region of the picture.
+	 * @throws IOException
+	 *             if the file can't be read or decoded.
+	 */
+	static BufferedImage readImage(
+			final IBufferedImageCacheLoaderConfiguration cacheLoaderConf,
+			final PictureFileLocator fileLocator, final String key,
+			final Rectangle region, final int iSubsampling) throws IOException
+	{
+		try
+		{
+			return ImageInputStreams.readImage(fileLocator.locate(
+					Paths.get(cacheLoaderConf.getPictureDirectory()), key)
+					.toFile(), region, iSubsampling);
+		}
+		catch (final FileNotFoundException | NoSuchFileException e)
+		{
+			return ImageInputStreams.readImage(fileLocator.locate(
+					Paths.get(cacheLoaderConf.getPictureDirectory()), key)
+					.toFile(), region, iSubsampling);
+		}
 	}
 }
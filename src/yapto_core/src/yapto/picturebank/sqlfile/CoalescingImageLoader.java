@@ -0,0 +1,227 @@
+package yapto.picturebank.sqlfile;
+
+import java.awt.image.BufferedImage;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+
+/**
+ * Object running asynchronous loads of {@link BufferedImage}, making sure a
+ * given image is loaded only once even if it is requested several times
+ * concurrently.
+ * 
+ * Each requester gets its own {@link ListenableFuture} which it can cancel.
+ * The underlying load is cancelled when every requester has cancelled its
+ * future, and removed from the queue of the executor so that it doesn't take
+ * the place of another load; a load which has already started is run to
+ * completion so that its result is cached.
+ * 
+ * @author benobiwan
+ * 
+ * @param <KEY>
+ *            type of the key identifying an image.
+ */
+public final class CoalescingImageLoader<KEY>
+{
+	/**
+	 * {@link ListeningExecutorService} running the loads.
+	 */
+	private final ListeningExecutorService _executor;
+
+	/**
+	 * {@link ThreadPoolExecutor} of the {@link ListeningExecutorService},
+	 * purged of the cancelled loads.
+	 */
+	private final ThreadPoolExecutor _threadPool;
+
+	/**
+	 * Map of the pending loads by key.
+	 */
+	private final Map<KEY, PendingLoad> _pendingMap = new HashMap<>();
+
+	/**
+	 * Creates a new CoalescingImageLoader.
+	 * 
+	 * @param executor
+	 *            {@link ListeningExecutorService} running the loads.
+	 * @param threadPool
+	 *            {@link ThreadPoolExecutor} decorated by the
+	 *            {@link ListeningExecutorService}.
+	 */
+	public CoalescingImageLoader(final ListeningExecutorService executor,
+			final ThreadPoolExecutor threadPool)
+	{
+		_executor = executor;
+		_threadPool = threadPool;
+	}
+
+	/**
+	 * Load asynchronously the image with the specified key, or join the
+	 * pending load of this image if there is one.
+	 * 
+	 * @param key
+	 *            the key of the image.
+	 * @param loader
+	 *            the {@link Callable} loading the image, used if no load of
+	 *            this image is pending.
+	 * @return a {@link ListenableFuture} giving the image.
+	 */
+	public ListenableFuture<BufferedImage> load(final KEY key,
+			final Callable<BufferedImage> loader)
+	{
+		synchronized (_pendingMap)
+		{
+			PendingLoad pending = _pendingMap.get(key);
+			if (pending == null)
+			{
+				final ListenableFuture<BufferedImage> task;
+				try
+				{
+					task = _executor.submit(loader);
+				}
+				catch (final RejectedExecutionException e)
+				{
+					return Futures.immediateFailedFuture(e);
+				}
+				pending = new PendingLoad(key, task);
+				_pendingMap.put(key, pending);
+				task.addListener(pending, MoreExecutors.sameThreadExecutor());
+			}
+			return pending.subscribe();
+		}
+	}
+
+	/**
+	 * A load shared by several requesters.
+	 * 
+	 * @author benobiwan
+	 * 
+	 */
+	private final class PendingLoad implements Runnable
+	{
+		/**
+		 * The key of the loaded image.
+		 */
+		private final KEY _key;
+
+		/**
+		 * The {@link ListenableFuture} of the load.
+		 */
+		private final ListenableFuture<BufferedImage> _task;
+
+		/**
+		 * Number of requesters still waiting for this load, protected by the
+		 * lock on the map of pending loads.
+		 */
+		private int _iSubscriberCount = 0;
+
+		/**
+		 * Creates a new PendingLoad.
+		 * 
+		 * @param key
+		 *            the key of the loaded image.
+		 * @param task
+		 *            the {@link ListenableFuture} of the load.
+		 */
+		public PendingLoad(final KEY key,
+				final ListenableFuture<BufferedImage> task)
+		{
+			_key = key;
+			_task = task;
+		}
+
+		/**
+		 * Add a requester to this load.
+		 * 
+		 * @return the {@link ListenableFuture} of the new requester.
+		 */
+		public ListenableFuture<BufferedImage> subscribe()
+		{
+			final SettableFuture<BufferedImage> requester = SettableFuture
+					.create();
+			synchronized (_pendingMap)
+			{
+				_iSubscriberCount++;
+			}
+			Futures.addCallback(_task, new FutureCallback<BufferedImage>()
+			{
+				@Override
+				public void onSuccess(final BufferedImage result)
+				{
+					requester.set(result);
+				}
+
+				@Override
+				public void onFailure(final Throwable t)
+				{
+					requester.setException(t);
+				}
+			});
+			requester.addListener(new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					if (requester.isCancelled())
+					{
+						unsubscribe();
+					}
+				}
+			}, MoreExecutors.sameThreadExecutor());
+			return requester;
+		}
+
+		/**
+		 * Remove a requester from this load, and cancel the load if no
+		 * requester remains. A cancelled load which hasn't started is removed
+		 * from the queue of the executor.
+		 */
+		private void unsubscribe()
+		{
+			synchronized (_pendingMap)
+			{
+				_iSubscriberCount--;
+				if (_iSubscriberCount > 0)
+				{
+					return;
+				}
+				removeFromPendingMap();
+			}
+			if (_task.cancel(false))
+			{
+				_threadPool.purge();
+			}
+		}
+
+		@Override
+		public void run()
+		{
+			// the load is over, later requests must start a new one
+			synchronized (_pendingMap)
+			{
+				removeFromPendingMap();
+			}
+		}
+
+		/**
+		 * Remove this load from the map of pending loads. Must be called while
+		 * holding the lock on the map.
+		 */
+		private void removeFromPendingMap()
+		{
+			if (_pendingMap.get(_key) == this)
+			{
+				_pendingMap.remove(_key);
+			}
+		}
+	}
+}
@@ -0,0 +1,223 @@
+package yapto.picturebank.sqlfile;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Layout of the files of the pictures, or of the thumbnails, in their
+ * directory : each file is in a tree of sub-directories named after the
+ * first characters of the id of its picture, several characters per level.
+ * 
+ * The default layout, one level of two characters, spreads the files in 256
+ * sub-directories. Two levels of two characters spread them in 65536.
+ * 
+ * @author benobiwan
+ * 
+ */
+public final class DirectoryLayout
+{
+	/**
+	 * Layout of the banks created before the layout was configurable.
+	 */
+	public static final DirectoryLayout DEFAULT = new DirectoryLayout(1, 2);
+
+	/**
+	 * Name of the file recording the layout of the files in the picture and
+	 * thumbnail directories, in the picture directory.
+	 */
+	public static final String LAYOUT_FILE_NAME = "layout";
+
+	/**
+	 * Charset of the file recording the layout.
+	 */
+	private static final Charset CHARSET = Charset.forName("UTF-8");
+
+	/**
+	 * Number of levels of sub-directories.
+	 */
+	private final int _iLevels;
+
+	/**
+	 * Number of characters of the picture id naming the sub-directories of
+	 * each level.
+	 */
+	private final int _iLevelWidth;
+
+	/**
+	 * Creates a new DirectoryLayout.
+	 * 
+	 * @param iLevels
+	 *            number of levels of sub-directories.
+	 * @param iLevelWidth
+	 *            number of characters of the picture id naming the
+	 *            sub-directories of each level.
+	 */
+	public DirectoryLayout(final int iLevels, final int iLevelWidth)
+	{
+		if (iLevels < 1 || iLevelWidth < 1)
+		{
+			throw new IllegalArgumentException("Invalid directory layout : "
+					+ iLevels + " levels of " + iLevelWidth + " characters.");
+		}
+		_iLevels = iLevels;
+		_iLevelWidth = iLevelWidth;
+	}
+
+	/**
+	 * Get the number of levels of sub-directories.
+	 * 
+	 * @return the number of levels of sub-directories.
+	 */
+	public int getLevels()
+	{
+		return _iLevels;
+	}
+
+	/**
+	 * Get the number of characters of the picture id naming the
+	 * sub-directories of each level.
+	 * 
+	 * @return the number of characters naming the sub-directories of each
+	 *         level.
+	 */
+	public int getLevelWidth()
+	{
+		return _iLevelWidth;
+	}
+
+	/**
+	 * Get the path of the file of a picture relative to its directory.
+	 * 
+	 * @param strPictureId
+	 *            the id of the picture.
+	 * @return the relative path of the file of the picture.
+	 */
+	public Path getRelativePath(final String strPictureId)
+	{
+		final String[] names = new String[_iLevels];
+		for (int i = 1; i < _iLevels; i++)
+		{
+			names[i - 1] = strPictureId.substring(i * _iLevelWidth,
+					(i + 1) * _iLevelWidth);
+		}
+		names[_iLevels - 1] = strPictureId;
+		return Paths.get(strPictureId.substring(0, _iLevelWidth), names);
+	}
+
+	/**
+	 * Check if a directory is one of the sub-directories of this layout.
+	 * 
+	 * @param relativeDirectory
+	 *            the path of the directory relative to the picture, or
+	 *            thumbnail, directory.
+	 * @return true if the directory is one of the sub-directories of this
+	 *         layout.
+	 */
+	public boolean isSubDirectory(final Path relativeDirectory)
+	{
+		if (relativeDirectory.getNameCount() > _iLevels)
+		{
+			return false;
+		}
+		for (final Path name : relativeDirectory)
+		{
+			if (name.toString().length() != _iLevelWidth)
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Read a layout recorded in a file.
+	 * 
+	 * @param layoutFile
+	 *            the file.
+	 * @param defaultLayout
+	 *            the layout to return if the file doesn't exist.
+	 * @return the layout recorded in the file, or the default one.
+	 * @throws IOException
+	 *             if the recorded layout can't be read.
+	 */
+	public static DirectoryLayout read(final Path layoutFile,
+			final DirectoryLayout defaultLayout) throws IOException
+	{
+		if (!Files.exists(layoutFile))
+		{
+			return defaultLayout;
+		}
+		final List<String> lines = Files.readAllLines(layoutFile, CHARSET);
+		try
+		{
+			final String[] values = lines.get(0).trim().split("x");
+			return new DirectoryLayout(Integer.parseInt(values[0]),
+					Integer.parseInt(values[1]));
+		}
+		catch (final IndexOutOfBoundsException | IllegalArgumentException e)
+		{
+			throw new IOException("Invalid directory layout in " + layoutFile,
+					e);
+		}
+	}
+
+	/**
+	 * Record this layout in a file, replacing its content.
+	 * 
+	 * @param layoutFile
+	 *            the file.
+	 * @throws IOException
+	 *             if the layout can't be written.
+	 */
+	public void write(final Path layoutFile) throws IOException
+	{
+		final Path temporaryFile = layoutFile.resolveSibling(layoutFile
+				.getFileName() + ".tmp");
+		Files.write(temporaryFile, Collections.singletonList(toString()),
+				CHARSET);
+		Files.move(temporaryFile, layoutFile,
+				StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	@Override
+	public int hashCode()
+	{
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + _iLevels;
+		result = prime * result + _iLevelWidth;
+		return result;
+	}
+
+	@Override
+	public boolean equals(final Object obj)
+	{
+		if (this == obj)
+		{
+			return true;
+		}
+		if (obj == null)
+		{
+			return false;
+		}
+		if (getClass() != obj.getClass())
+		{
+			return false;
+		}
+		final DirectoryLayout other = (DirectoryLayout) obj;
+		return _iLevels == other._iLevels && _iLevelWidth == other._iLevelWidth;
+	}
+
+	@Override
+	public String toString()
+	{
+		return _iLevels + "x" + _iLevelWidth;
+	}
+}
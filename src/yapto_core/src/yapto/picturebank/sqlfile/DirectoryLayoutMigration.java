@@ -0,0 +1,293 @@
+package yapto.picturebank.sqlfile;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Task moving the files of the pictures and of the thumbnails of a
+ * {@link SQLFilePictureBank} from one {@link DirectoryLayout} to another,
+ * while the bank is used.
+ * 
+ * The target layout is recorded in a file of the picture directory for the
+ * whole migration, and replaces the recorded layout of the bank once every
+ * file has been moved. A migration which didn't finish, because the bank was
+ * closed, is resumed at the next opening of the bank : the files which have
+ * already been moved are skipped. In the meantime, the
+ * {@link PictureFileLocator} of the bank looks for each file in both layouts,
+ * and the new files are written in the target layout.
+ * 
+ * @author benobiwan
+ * 
+ */
+public final class DirectoryLayoutMigration implements Callable<Integer>
+{
+	/**
+	 * Logger object.
+	 */
+	protected static final Logger LOGGER = LoggerFactory
+			.getLogger(DirectoryLayoutMigration.class);
+
+	/**
+	 * Name of the file recording the target layout of a migration in
+	 * progress, in the picture directory.
+	 */
+	public static final String MIGRATION_FILE_NAME = "layout.migration";
+
+	/**
+	 * Object locating the files of the pictures, giving the layouts to
+	 * migrate from and to.
+	 */
+	private final PictureFileLocator _fileLocator;
+
+	/**
+	 * The ids of the pictures to move.
+	 */
+	private final List<String> _pictureIds;
+
+	/**
+	 * The picture directory.
+	 */
+	private final Path _pictureDirectory;
+
+	/**
+	 * The thumbnail directory.
+	 */
+	private final Path _thumbnailDirectory;
+
+	/**
+	 * Creates a new DirectoryLayoutMigration.
+	 * 
+	 * @param fileLocator
+	 *            object locating the files of the pictures, whose previous
+	 *            layout is the one to migrate from.
+	 * @param pictureIds
+	 *            the ids of the pictures to move, the pictures added during
+	 *            the migration being already in the target layout.
+	 * @param pictureDirectory
+	 *            the picture directory.
+	 * @param thumbnailDirectory
+	 *            the thumbnail directory.
+	 */
+	public DirectoryLayoutMigration(final PictureFileLocator fileLocator,
+			final List<String> pictureIds, final Path pictureDirectory,
+			final Path thumbnailDirectory)
+	{
+		_fileLocator = fileLocator;
+		_pictureIds = pictureIds;
+		_pictureDirectory = pictureDirectory;
+		_thumbnailDirectory = thumbnailDirectory;
+	}
+
+	/**
+	 * Create the {@link PictureFileLocator} of a bank, from the layout
+	 * recorded in its picture directory, the migration in progress if any,
+	 * and the configured layout.
+	 * 
+	 * @param pictureDirectory
+	 *            the picture directory.
+	 * @param configuredLayout
+	 *            the configured layout of the bank.
+	 * @return the {@link PictureFileLocator} of the bank, with a previous
+	 *         layout if a migration has to be run.
+	 * @throws IOException
+	 *             if the recorded layouts can't be read.
+	 */
+	public static PictureFileLocator createLocator(
+			final Path pictureDirectory, final DirectoryLayout configuredLayout)
+			throws IOException
+	{
+		final DirectoryLayout layout = DirectoryLayout.read(
+				pictureDirectory.resolve(DirectoryLayout.LAYOUT_FILE_NAME),
+				DirectoryLayout.DEFAULT);
+		final Path migrationFile = pictureDirectory
+				.resolve(MIGRATION_FILE_NAME);
+		final DirectoryLayout targetLayout = DirectoryLayout.read(
+				migrationFile, null);
+		if (targetLayout != null && !targetLayout.equals(layout))
+		{
+			// the files are split between both layouts
+			if (!targetLayout.equals(configuredLayout))
+			{
+				LOGGER.warn("Resuming the migration of " + pictureDirectory
+						+ " to the layout " + targetLayout
+						+ ", the configured layout " + configuredLayout
+						+ " will be used at the next opening.");
+			}
+			return new PictureFileLocator(targetLayout, layout);
+		}
+		// the migration ended before the file was removed
+		Files.deleteIfExists(migrationFile);
+		if (!configuredLayout.equals(layout))
+		{
+			return new PictureFileLocator(configuredLayout, layout);
+		}
+		return new PictureFileLocator(layout, null);
+	}
+
+	/**
+	 * Move the files.
+	 * 
+	 * @return the number of moved pictures.
+	 * @throws IOException
+	 *             if an error occurred while moving the files.
+	 * @throws InterruptedException
+	 *             if the migration was interrupted, in which case it will be
+	 *             resumed at the next opening of the bank.
+	 */
+	@Override
+	public Integer call() throws IOException, InterruptedException
+	{
+		final DirectoryLayout previousLayout = _fileLocator
+				.getPreviousLayout();
+		final DirectoryLayout layout = _fileLocator.getLayout();
+		LOGGER.info("Migrating " + _pictureDirectory + " from the layout "
+				+ previousLayout + " to the layout " + layout);
+		final Path migrationFile = _pictureDirectory
+				.resolve(MIGRATION_FILE_NAME);
+
+		int iMovedPictures = 0;
+		try
+		{
+			layout.write(migrationFile);
+			for (final String strId : _pictureIds)
+			{
+				if (Thread.interrupted())
+				{
+					LOGGER.info("Migration of " + _pictureDirectory
+							+ " interrupted after " + iMovedPictures
+							+ " pictures.");
+					throw new InterruptedException();
+				}
+				if (move(_pictureDirectory, strId, previousLayout, layout))
+				{
+					iMovedPictures++;
+				}
+				move(_thumbnailDirectory, strId, previousLayout, layout);
+			}
+			removeEmptyDirectories(_pictureDirectory, layout);
+			removeEmptyDirectories(_thumbnailDirectory, layout);
+
+			layout.write(_pictureDirectory
+					.resolve(DirectoryLayout.LAYOUT_FILE_NAME));
+			Files.delete(migrationFile);
+		}
+		catch (final IOException e)
+		{
+			// nobody waits for the result of the migration
+			LOGGER.error("Migration of " + _pictureDirectory + " failed after "
+					+ iMovedPictures + " pictures.", e);
+			throw e;
+		}
+		_fileLocator.migrationDone();
+		LOGGER.info("Migration of " + _pictureDirectory + " done, "
+				+ iMovedPictures + " pictures moved.");
+		return Integer.valueOf(iMovedPictures);
+	}
+
+	/**
+	 * Move the file of a picture from one layout to another, if it hasn't
+	 * been moved yet. If a file has already been written in the new layout,
+	 * like a regenerated thumbnail, it's kept and the old file is removed.
+	 * 
+	 * @param directory
+	 *            the picture, or thumbnail, directory.
+	 * @param strPictureId
+	 *            the id of the picture.
+	 * @param previousLayout
+	 *            the layout to move the file from.
+	 * @param layout
+	 *            the layout to move the file to.
+	 * @return true if the file has been moved.
+	 * @throws IOException
+	 *             if the file can't be moved.
+	 */
+	private static boolean move(final Path directory,
+			final String strPictureId, final DirectoryLayout previousLayout,
+			final DirectoryLayout layout) throws IOException
+	{
+		final Path source = directory.resolve(previousLayout
+				.getRelativePath(strPictureId));
+		if (!Files.exists(source))
+		{
+			return false;
+		}
+		final Path target = directory.resolve(layout
+				.getRelativePath(strPictureId));
+		if (Files.exists(target))
+		{
+			Files.deleteIfExists(source);
+			return false;
+		}
+		Files.createDirectories(target.getParent());
+		Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+		return true;
+	}
+
+	/**
+	 * Remove the empty sub-directories of a directory which aren't part of
+	 * its layout, the others being possibly created for a new file.
+	 * 
+	 * @param directory
+	 *            the directory.
+	 * @param layout
+	 *            the layout of the directory.
+	 * @throws IOException
+	 *             if the directories can't be listed or removed.
+	 */
+	private static void removeEmptyDirectories(final Path directory,
+			final DirectoryLayout layout) throws IOException
+	{
+		Files.walkFileTree(directory, new SimpleFileVisitor<Path>()
+		{
+			@Override
+			public FileVisitResult postVisitDirectory(final Path dir,
+					final IOException exc) throws IOException
+			{
+				if (exc != null)
+				{
+					throw exc;
+				}
+				if (!dir.equals(directory)
+						&& !layout.isSubDirectory(directory.relativize(dir))
+						&& isEmpty(dir))
+				{
+					Files.delete(dir);
+				}
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+
+	/**
+	 * Check if a directory is empty.
+	 * 
+	 * @param directory
+	 *            the directory.
+	 * @return true if the directory is empty.
+	 * @throws IOException
+	 *             if the directory can't be listed.
+	 */
+	private static boolean isEmpty(final Path directory) throws IOException
+	{
+		final DirectoryStream<Path> stream = Files
+				.newDirectoryStream(directory);
+		try
+		{
+			return !stream.iterator().hasNext();
+		}
+		finally
+		{
+			stream.close();
+		}
+	}
+}
@@ -0,0 +1,452 @@
+package yapto.picturebank.sqlfile;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Append-only journal of the edits of the {@link FsPicture}s, covering the
+ * time between a modification and its write to the database.
+ * 
+ * Each modification appends the whole {@link PictureState} of the picture to
+ * a memory-mapped file, so a record is never lost when the application is
+ * killed, and the file is synchronized to the disk in batches by a background
+ * thread. When every modified picture has been written, the journal is reset
+ * by starting a new generation : the records of the previous generations are
+ * then ignored, as their checksum includes their generation. When pictures
+ * stay modified, because they keep being edited or their write keeps
+ * failing, the journal is compacted once it grows past a threshold : a new
+ * generation is started with only the latest record of each modified picture.
+ * 
+ * The records found when opening the journal are the edits which may not
+ * have been written before the last shutdown, the last record of a picture
+ * being its latest state. They are written back in a new generation, so that
+ * they survive another crash until they have been replayed.
+ * 
+ * @author benobiwan
+ * 
+ */
+public final class EditJournal
+{
+	/**
+	 * Logger object.
+	 */
+	protected static final Logger LOGGER = LoggerFactory
+			.getLogger(EditJournal.class);
+
+	/**
+	 * Magic number at the beginning of a journal file.
+	 */
+	private static final int MAGIC = 0x59454A31;
+
+	/**
+	 * Size of the header of the journal file : the magic number, an unused
+	 * int and the generation.
+	 */
+	private static final int HEADER_SIZE = 16;
+
+	/**
+	 * Offset of the generation in the header of the journal file.
+	 */
+	private static final int GENERATION_OFFSET = 8;
+
+	/**
+	 * Size of the header of a record : the length of its payload and its
+	 * checksum.
+	 */
+	private static final int RECORD_HEADER_SIZE = 8;
+
+	/**
+	 * Initial size of the mapped region of the journal file.
+	 */
+	private static final int INITIAL_CAPACITY = 1024 * 1024;
+
+	/**
+	 * Step by which the mapped region of the journal file grows. The previous
+	 * mapping is only released by the garbage collector, so the region grows
+	 * by large steps to remap rarely.
+	 */
+	private static final long GROWTH_STEP = 16L * 1024 * 1024;
+
+	/**
+	 * Minimum size of the records of the journal for it to be compacted.
+	 */
+	private static final int COMPACTION_THRESHOLD = 8 * 1024 * 1024;
+
+	/**
+	 * Charset used to write the picture ids.
+	 */
+	private static final Charset CHARSET = Charset.forName("UTF-8");
+
+	/**
+	 * {@link FileChannel} of the journal file.
+	 */
+	private final FileChannel _channel;
+
+	/**
+	 * {@link ScheduledExecutorService} synchronizing the journal to the disk.
+	 */
+	private final ScheduledExecutorService _syncExecutor;
+
+	/**
+	 * The edits found when opening the journal, by picture id.
+	 */
+	private final Map<String, PictureState> _journaledEdits;
+
+	/**
+	 * Mapped region of the journal file, positioned after the last record.
+	 */
+	private MappedByteBuffer _buffer;
+
+	/**
+	 * Generation of the records currently appended.
+	 */
+	private long _lGeneration;
+
+	/**
+	 * Latest state of the modified pictures not yet written to the database,
+	 * by picture id.
+	 */
+	private final Map<String, PictureState> _unsavedStates = new HashMap<>();
+
+	/**
+	 * Size of the journal after its last compaction. The journal is compacted
+	 * again once it has doubled, so that a journal with many modified
+	 * pictures isn't compacted on each edit.
+	 */
+	private int _iCompactedSize = 0;
+
+	/**
+	 * Whether the edits found when opening the journal have been replayed.
+	 * Until then, they are kept by the compaction.
+	 */
+	private boolean _bReplayed = false;
+
+	/**
+	 * Whether records have been appended since the last synchronization.
+	 */
+	private boolean _bDirty = false;
+
+	/**
+	 * Whether this journal has been closed.
+	 */
+	private boolean _bClosed = false;
+
+	/**
+	 * Creates a new EditJournal, reading the edits already in the journal
+	 * file.
+	 * 
+	 * @param journalFile
+	 *            the journal file, created if it doesn't exist.
+	 * @param lSyncIntervalMillis
+	 *            number of milliseconds between two synchronizations of the
+	 *            journal to the disk.
+	 * @throws IOException
+	 *             if the journal file can't be opened.
+	 */
+	public EditJournal(final Path journalFile, final long lSyncIntervalMillis)
+			throws IOException
+	{
+		_channel = FileChannel.open(journalFile, StandardOpenOption.READ,
+				StandardOpenOption.WRITE, StandardOpenOption.CREATE);
+		_buffer = _channel.map(MapMode.READ_WRITE, 0,
+				Math.max(INITIAL_CAPACITY, _channel.size()));
+		_journaledEdits = Collections.unmodifiableMap(readRecords());
+		// the records of an interrupted write may follow the last valid one
+		reset();
+		for (final Entry<String, PictureState> entry : _journaledEdits
+				.entrySet())
+		{
+			append(entry.getKey(), entry.getValue());
+		}
+		_syncExecutor = Executors.newSingleThreadScheduledExecutor();
+		_syncExecutor.scheduleWithFixedDelay(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				sync();
+			}
+		}, lSyncIntervalMillis, lSyncIntervalMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Get the edits found when opening the journal.
+	 * 
+	 * @return the latest journaled {@link PictureState} by picture id.
+	 */
+	public Map<String, PictureState> getJournaledEdits()
+	{
+		return _journaledEdits;
+	}
+
+	/**
+	 * Record the current state of a picture after a modification.
+	 * 
+	 * @param picture
+	 *            the modified picture.
+	 */
+	public synchronized void recordEdit(final FsPicture picture)
+	{
+		if (_bClosed)
+		{
+			return;
+		}
+		// the state is read under the lock, so a later record is always a
+		// later state
+		final PictureState state = picture.getState();
+		_unsavedStates.put(picture.getId(), state);
+		try
+		{
+			append(picture.getId(), state);
+			if (_buffer.position() >= Math.max(COMPACTION_THRESHOLD,
+					2 * _iCompactedSize))
+			{
+				compact();
+			}
+		}
+		catch (final IOException e)
+		{
+			LOGGER.error("can't journal the edit of " + picture.getId(), e);
+		}
+	}
+
+	/**
+	 * Record that all the modifications of a picture have been written to
+	 * the database. The journal is reset once every modified picture has been
+	 * written.
+	 * 
+	 * @param picture
+	 *            the written picture.
+	 */
+	public synchronized void recordSaved(final FsPicture picture)
+	{
+		_unsavedStates.remove(picture.getId());
+		checkpoint();
+	}
+
+	/**
+	 * Record that the edits found when opening the journal have been
+	 * replayed, and reset the journal if every modified picture has been
+	 * written to the database.
+	 */
+	public synchronized void replayDone()
+	{
+		_bReplayed = true;
+		checkpoint();
+	}
+
+	/**
+	 * Reset the journal if every modified picture has been written to the
+	 * database.
+	 */
+	private void checkpoint()
+	{
+		if (!_bClosed && _bReplayed && _unsavedStates.isEmpty())
+		{
+			reset();
+		}
+	}
+
+	/**
+	 * Start a new generation with only the latest record of each modified
+	 * picture, and of each edit found when opening the journal if they
+	 * haven't been replayed yet. Must be called while holding the lock on
+	 * this journal.
+	 * 
+	 * @throws IOException
+	 *             if the journal file can't be extended.
+	 */
+	private void compact() throws IOException
+	{
+		final Map<String, PictureState> states = new HashMap<>();
+		if (!_bReplayed)
+		{
+			states.putAll(_journaledEdits);
+		}
+		states.putAll(_unsavedStates);
+		reset();
+		for (final Entry<String, PictureState> entry : states.entrySet())
+		{
+			append(entry.getKey(), entry.getValue());
+		}
+		_iCompactedSize = _buffer.position();
+		if (LOGGER.isDebugEnabled())
+		{
+			LOGGER.debug("Journal compacted to " + states.size()
+					+ " records.");
+		}
+	}
+
+	/**
+	 * Synchronize the journal to the disk and close it.
+	 * 
+	 * @throws IOException
+	 *             if an error occurred while closing the journal file.
+	 */
+	public void close() throws IOException
+	{
+		_syncExecutor.shutdownNow();
+		synchronized (this)
+		{
+			_bClosed = true;
+			_buffer.force();
+		}
+		_channel.close();
+	}
+
+	/**
+	 * Read the valid records of the journal file.
+	 * 
+	 * @return the latest state of each picture, by picture id.
+	 */
+	private Map<String, PictureState> readRecords()
+	{
+		final Map<String, PictureState> edits = new LinkedHashMap<>();
+		if (_buffer.getInt(0) != MAGIC)
+		{
+			return edits;
+		}
+		_lGeneration = _buffer.getLong(GENERATION_OFFSET);
+		int iPosition = HEADER_SIZE;
+		while (iPosition + RECORD_HEADER_SIZE <= _buffer.capacity())
+		{
+			final int iLength = _buffer.getInt(iPosition);
+			final int iPayload = iPosition + RECORD_HEADER_SIZE;
+			if (iLength <= 0 || iLength > _buffer.capacity() - iPayload)
+			{
+				break;
+			}
+			final byte[] payload = new byte[iLength];
+			_buffer.position(iPayload);
+			_buffer.get(payload);
+			if (_buffer.getInt(iPosition + 4) != checksum(payload))
+			{
+				break;
+			}
+			final ByteBuffer record = ByteBuffer.wrap(payload);
+			final byte[] id = new byte[record.getShort()];
+			record.get(id);
+			final int iPictureGrade = record.getInt();
+			final long lModifiedTimestamp = record.getLong();
+			final int[] tagIds = new int[record.getInt()];
+			for (int i = 0; i < tagIds.length; i++)
+			{
+				tagIds[i] = record.getInt();
+			}
+			final String strId = new String(id, CHARSET);
+			// keep the pictures in the order of their last edit
+			edits.remove(strId);
+			edits.put(strId, new PictureState(iPictureGrade,
+					lModifiedTimestamp, tagIds));
+			iPosition = iPayload + iLength;
+		}
+		return edits;
+	}
+
+	/**
+	 * Start a new generation of records at the beginning of the journal.
+	 */
+	private void reset()
+	{
+		_lGeneration++;
+		_buffer.putInt(0, MAGIC);
+		_buffer.putLong(GENERATION_OFFSET, _lGeneration);
+		_buffer.position(HEADER_SIZE);
+		_bDirty = true;
+	}
+
+	/**
+	 * Append a record to the journal. Must be called while holding the lock
+	 * on this journal.
+	 * 
+	 * @param strPictureId
+	 *            the id of the picture.
+	 * @param state
+	 *            the state of the picture.
+	 * @throws IOException
+	 *             if the journal file can't be extended.
+	 */
+	private void append(final String strPictureId, final PictureState state)
+			throws IOException
+	{
+		final byte[] id = strPictureId.getBytes(CHARSET);
+		final int[] tagIds = state.getTagIds();
+		final ByteBuffer record = ByteBuffer.allocate(2 + id.length + 4 + 8
+				+ 4 + 4 * tagIds.length);
+		record.putShort((short) id.length);
+		record.put(id);
+		record.putInt(state.getPictureGrade());
+		record.putLong(state.getModifiedTimestamp());
+		record.putInt(tagIds.length);
+		for (final int iTagId : tagIds)
+		{
+			record.putInt(iTagId);
+		}
+		final byte[] payload = record.array();
+		if (_buffer.remaining() < RECORD_HEADER_SIZE + payload.length)
+		{
+			final int iPosition = _buffer.position();
+			final long lRequired = iPosition + RECORD_HEADER_SIZE
+					+ payload.length;
+			_buffer = _channel.map(MapMode.READ_WRITE, 0,
+					(lRequired / GROWTH_STEP + 1) * GROWTH_STEP);
+			_buffer.position(iPosition);
+		}
+		_buffer.putInt(payload.length);
+		_buffer.putInt(checksum(payload));
+		_buffer.put(payload);
+		_bDirty = true;
+	}
+
+	/**
+	 * Compute the checksum of a record of the current generation.
+	 * 
+	 * @param payload
+	 *            the payload of the record.
+	 * @return the checksum of the record.
+	 */
+	private int checksum(final byte[] payload)
+	{
+		final CRC32 crc = new CRC32();
+		crc.update(ByteBuffer.allocate(8).putLong(_lGeneration).array());
+		crc.update(payload);
+		return (int) crc.getValue();
+	}
+
+	/**
+	 * Synchronize the appended records to the disk.
+	 */
+	void sync()
+	{
+		final MappedByteBuffer buffer;
+		synchronized (this)
+		{
+			if (!_bDirty || _bClosed)
+			{
+				return;
+			}
+			_bDirty = false;
+			buffer = _buffer;
+		}
+		// outside of the lock, the edits aren't blocked by the disk
+		buffer.force();
+	}
+}
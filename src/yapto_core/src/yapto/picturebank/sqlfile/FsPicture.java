@@ -1,20 +1,33 @@
 package yapto.picturebank.sqlfile;
 
+import java.awt.Dimension;
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
-import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicReference;
 
 import yapto.picturebank.IPicture;
 import yapto.picturebank.IPictureBank;
 import yapto.picturebank.PictureInformation;
 import yapto.picturebank.tag.ITag;
 
+import com.google.common.util.concurrent.ListenableFuture;
+
 /**
  * Implementation of the {@link IPicture} interface.
  * 
+ * The editable state of the picture is held as an immutable
+ * {@link PictureState} snapshot. Readers never block. Editors replace the
+ * snapshot while holding the lock on the picture, together with its pin and
+ * the journaling of the edit, so an edit waits for a concurrent edit of the
+ * same picture and for the append to the {@link EditJournal}, but never for
+ * the write of the picture to the database.
+ * 
  * @author benobiwan
  * 
  */
@@ -26,10 +39,15 @@ public final class FsPicture implements IPicture
 	private final String _strId;
 
 	/**
-	 * Set containing all the {@link ITag}s associated with this
-	 * {@link FsPicture}.
+	 * The key of the picture in the database.
+	 */
+	private final int _iKey;
+
+	/**
+	 * The current {@link PictureState} of this picture, read without lock and
+	 * changed while holding the lock on this picture.
 	 */
-	private final Set<ITag> _tagSet = new ConcurrentSkipListSet<>();
+	private final AtomicReference<PictureState> _state;
 
 	/**
 	 * The {@link IPictureBank} from which this {@link IPicture} is coming.
@@ -41,31 +59,16 @@ public final class FsPicture implements IPicture
 	 */
 	private final ImageLoader _imageLoader;
 
-	/**
-	 * The timestamp of the last modification of this picture.
-	 */
-	private long _lModifiedTimestamp;
-
 	/**
 	 * The timestamp of the addition of this picture to the {@link IPictureBank}
 	 * .
 	 */
 	private final long _lAddingTimestamp;
 
-	/**
-	 * The grade of this picture.
-	 */
-	private int _iPictureGrade;
-
-	/**
-	 * Boolean telling whether this FsPicture has been modified or not.
-	 */
-	private boolean _bModified = false;
-
 	/**
 	 * The {@link PictureInformation} of this picture.
 	 */
-	private PictureInformation _pictureInformation;
+	private final PictureInformation _pictureInformation;
 
 	/**
 	 * Creates a new FsPicture.
@@ -78,6 +81,8 @@ public final class FsPicture implements IPicture
 	 *            coming.
 	 * @param strId
 	 *            the id of the picture.
+	 * @param iKey
+	 *            the key of the picture in the database.
 	 * @param lModifiedTimestamp
 	 *            the timestamp of the last modification of this picture.
 	 * @param lAddingTimestamp
@@ -88,18 +93,18 @@ public final class FsPicture implements IPicture
 	 */
 	public FsPicture(final ImageLoader imageLoader,
 			final SQLFilePictureBank pictureBank, final String strId,
-			final long lModifiedTimestamp, final long lAddingTimestamp,
+			final int iKey, final long lModifiedTimestamp,
+			final long lAddingTimestamp,
 			final PictureInformation pictureInformation)
 	{
 		_strId = strId;
+		_iKey = iKey;
 		_imageLoader = imageLoader;
 		_pictureBank = pictureBank;
 		_lAddingTimestamp = lAddingTimestamp;
-		synchronized (this)
-		{
-			_lModifiedTimestamp = lModifiedTimestamp;
-			_pictureInformation = pictureInformation;
-		}
+		_pictureInformation = pictureInformation;
+		_state = new AtomicReference<>(new PictureState(0,
+				lModifiedTimestamp, PictureState.NO_TAG));
 	}
 
 	/**
@@ -113,6 +118,8 @@ public final class FsPicture implements IPicture
 	 *            coming.
 	 * @param strId
 	 *            the id of the picture.
+	 * @param iKey
+	 *            the key of the picture in the database.
 	 * @param lModifiedTimestamp
 	 *            the timestamp of the last modification of this picture.
 	 * @param lAddingTimestamp
@@ -127,18 +134,19 @@ public final class FsPicture implements IPicture
 	 */
 	public FsPicture(final ImageLoader imageLoader,
 			final SQLFilePictureBank pictureBank, final String strId,
-			final long lModifiedTimestamp, final long lAddingTimestamp,
-			final int iPictureGrade,
+			final int iKey, final long lModifiedTimestamp,
+			final long lAddingTimestamp, final int iPictureGrade,
 			final PictureInformation pictureInformation,
 			final List<ITag> tagList)
 	{
-		this(imageLoader, pictureBank, strId, lModifiedTimestamp,
-				lAddingTimestamp, pictureInformation);
-		_tagSet.addAll(tagList);
-		synchronized (this)
-		{
-			_iPictureGrade = iPictureGrade;
-		}
+		_strId = strId;
+		_iKey = iKey;
+		_imageLoader = imageLoader;
+		_pictureBank = pictureBank;
+		_lAddingTimestamp = lAddingTimestamp;
+		_pictureInformation = pictureInformation;
+		_state = new AtomicReference<>(new PictureState(iPictureGrade,
+				lModifiedTimestamp, toSortedIds(tagList)));
 	}
 
 	/**
@@ -152,6 +160,8 @@ public final class FsPicture implements IPicture
 	 *            coming.
 	 * @param strId
 	 *            the id of the picture.
+	 * @param iKey
+	 *            the key of the picture in the database.
 	 * @param lModifiedTimestamp
 	 *            the timestamp of the last modification of this picture.
 	 * @param lAddingTimestamp
@@ -184,15 +194,16 @@ public final class FsPicture implements IPicture
 	 */
 	public FsPicture(final ImageLoader imageLoader,
 			final SQLFilePictureBank pictureBank, final String strId,
-			final long lModifiedTimestamp, final long lAddingTimestamp,
-			final int iPictureGrade, final String strOriginalFileName,
-			final int iWidth, final int iHeight, final long lCreationTimestamp,
+			final int iKey, final long lModifiedTimestamp,
+			final long lAddingTimestamp, final int iPictureGrade,
+			final String strOriginalFileName, final int iWidth,
+			final int iHeight, final long lCreationTimestamp,
 			final int iOrientation, final String strMake,
 			final String strModel, final String strExposureTime,
 			final String strRelativeAperture, final String strFocalLength,
 			final List<ITag> tagList)
 	{
-		this(imageLoader, pictureBank, strId, lModifiedTimestamp,
+		this(imageLoader, pictureBank, strId, iKey, lModifiedTimestamp,
 				lAddingTimestamp, iPictureGrade, new PictureInformation(
 						strOriginalFileName, iWidth, iHeight,
 						lCreationTimestamp, iOrientation, strMake, strModel,
@@ -206,10 +217,84 @@ public final class FsPicture implements IPicture
 		return _strId;
 	}
 
+	/**
+	 * Get the key of this picture in the database, used instead of its id by
+	 * the relational tables.
+	 * 
+	 * @return the key of this picture in the database.
+	 */
+	public int getKey()
+	{
+		return _iKey;
+	}
+
 	@Override
 	public Set<ITag> getTagSet()
 	{
-		return Collections.unmodifiableSet(_tagSet);
+		final Set<ITag> tagSet = new TreeSet<>();
+		for (final int iTagId : getTagIds())
+		{
+			final ITag tag = _pictureBank.getTag(iTagId);
+			// the tag may have been removed from the repository
+			if (tag != null)
+			{
+				tagSet.add(tag);
+			}
+		}
+		return Collections.unmodifiableSet(tagSet);
+	}
+
+	/**
+	 * Get the ids of the {@link ITag}s associated with this {@link FsPicture}
+	 * .
+	 * 
+	 * @return the sorted ids of the {@link ITag}s associated with this
+	 *         {@link FsPicture}.
+	 */
+	public int[] getTagIds()
+	{
+		return _state.get().getTagIds();
+	}
+
+	/**
+	 * Get the current {@link PictureState} of this picture.
+	 * 
+	 * @return the current {@link PictureState} of this picture.
+	 */
+	public PictureState getState()
+	{
+		return _state.get();
+	}
+
+	/**
+	 * Get the sorted array of the ids of the specified {@link ITag}s, without
+	 * duplicates.
+	 * 
+	 * @param tags
+	 *            the {@link ITag}s.
+	 * @return the sorted array of their ids.
+	 */
+	private static int[] toSortedIds(final List<ITag> tags)
+	{
+		if (tags.isEmpty())
+		{
+			return PictureState.NO_TAG;
+		}
+		final int[] ids = new int[tags.size()];
+		for (int i = 0; i < ids.length; i++)
+		{
+			ids[i] = tags.get(i).getTagId();
+		}
+		Arrays.sort(ids);
+		int iCount = 1;
+		for (int i = 1; i < ids.length; i++)
+		{
+			if (ids[i] != ids[iCount - 1])
+			{
+				ids[iCount++] = ids[i];
+			}
+		}
+		return (iCount == ids.length) ? ids : Arrays.copyOf(ids, iCount);
 	}
 
 	@Override
@@ -218,19 +303,61 @@ public final class FsPicture implements IPicture
 		return _imageLoader.getImageData(_strId);
 	}
 
+	@Override
+	public BufferedImage getImageData(final Dimension targetDimension)
+			throws IOException
+	{
+		final PictureInformation info = getPictureInformation();
+		if (info == null)
+		{
+			return getImageData();
+		}
+		return _imageLoader.getImageData(_strId, info.getDimension(),
+				targetDimension);
+	}
+
+	@Override
+	public ListenableFuture<BufferedImage> getImageDataAsync()
+	{
+		return _imageLoader.getImageDataAsync(_strId);
+	}
+
+	@Override
+	public ListenableFuture<BufferedImage> getImageDataAsync(
+			final Dimension targetDimension)
+	{
+		final PictureInformation info = getPictureInformation();
+		if (info == null)
+		{
+			return getImageDataAsync();
+		}
+		return _imageLoader.getImageDataAsync(_strId, info.getDimension(),
+				targetDimension);
+	}
+
 	@Override
 	public BufferedImage getThumbnailData() throws IOException
 	{
 		return _imageLoader.getThumbnailData(_strId);
 	}
 
+	@Override
+	public ListenableFuture<BufferedImage> getThumbnailDataAsync()
+	{
+		return _imageLoader.getThumbnailDataAsync(_strId);
+	}
+
+	@Override
+	public ListenableFuture<BufferedImage> getImageTileAsync(
+			final Rectangle region, final int iSubsampling)
+	{
+		return _imageLoader.getImageTileAsync(_strId, region, iSubsampling);
+	}
+
 	@Override
 	public long getModifiedTimestamp()
 	{
-		synchronized (this)
-		{
-			return _lModifiedTimestamp;
-		}
+		return _state.get().getModifiedTimestamp();
 	}
 
 	@Override
@@ -248,45 +375,45 @@ public final class FsPicture implements IPicture
 	@Override
 	public void addTag(final ITag newTag)
 	{
-		if (!_tagSet.contains(newTag))
+		synchronized (this)
 		{
-			synchronized (this)
+			final PictureState current = _state.get();
+			if (!modified(current, current.withTag(newTag.getTagId())))
 			{
-				_lModifiedTimestamp = System.currentTimeMillis();
-				_bModified = true;
-				_pictureBank.setPictureForUpdating(this);
+				return;
 			}
-			_tagSet.add(newTag);
 		}
+		setPictureForUpdating();
 	}
 
 	@Override
 	public void removeTag(final ITag tag)
 	{
-		if (_tagSet.contains(tag))
+		synchronized (this)
 		{
-			synchronized (this)
+			final PictureState current = _state.get();
+			if (!modified(current, current.withoutTag(tag.getTagId())))
 			{
-				_lModifiedTimestamp = System.currentTimeMillis();
-				_bModified = true;
-				_pictureBank.setPictureForUpdating(this);
+				return;
 			}
-			_tagSet.remove(tag);
 		}
+		setPictureForUpdating();
 	}
 
 	@Override
 	public void setTagList(final List<ITag> tags)
 	{
-		if (_tagSet.retainAll(tags) | _tagSet.addAll(tags))
+		final int[] newIds = toSortedIds(tags);
+		synchronized (this)
 		{
-			synchronized (this)
+			final PictureState current = _state.get();
+			if (current.hasSameTags(newIds)
+					|| !modified(current, current.withTagIds(newIds)))
 			{
-				_lModifiedTimestamp = System.currentTimeMillis();
-				_bModified = true;
-				_pictureBank.setPictureForUpdating(this);
+				return;
 			}
 		}
+		setPictureForUpdating();
 	}
 
 	/**
@@ -295,31 +422,100 @@ public final class FsPicture implements IPicture
 	 * @return true if this FsPicture has been modified.
 	 */
 	public boolean hasBeenModified()
+	{
+		return _state.get().isModified();
+	}
+
+	/**
+	 * Record that the specified {@link PictureState} has been written to the
+	 * database. The picture is unpinned if it has no other modification.
+	 * 
+	 * @param saved
+	 *            the {@link PictureState} written to the database.
+	 */
+	public void setSaved(final PictureState saved)
 	{
 		synchronized (this)
 		{
-			return _bModified;
+			final PictureState current = _state.get();
+			final PictureState next = current.withSaved(saved);
+			if (next == current)
+			{
+				return;
+			}
+			_state.set(next);
+			// under the lock, a concurrent modification can't pin the
+			// picture before it is unpinned
+			if (current.isModified() && !next.isModified())
+			{
+				_pictureBank.unpinPicture(this);
+				_pictureBank.journalSaved(this);
+			}
 		}
 	}
 
 	/**
-	 * Change the modified status of this {@link FsPicture} to unmodified.
+	 * Restore the grade and the tags of this picture recorded in the edit
+	 * journal. The restored state is then written like any modification.
+	 * 
+	 * @param restored
+	 *            the {@link PictureState} recorded in the edit journal.
 	 */
-	public void unsetModified()
+	void restoreState(final PictureState restored)
 	{
 		synchronized (this)
 		{
-			_bModified = false;
+			final PictureState current = _state.get();
+			if (!modified(current, current.withRestored(restored)))
+			{
+				return;
+			}
 		}
+		setPictureForUpdating();
 	}
 
-	@Override
-	public int getPictureGrade()
+	/**
+	 * Replace the {@link PictureState} of this picture after a modification
+	 * and journal it. The picture is pinned in memory until its modifications
+	 * have been written. Must be called while holding the lock on this
+	 * picture, so the pin is ordered with the unpin of
+	 * {@link #setSaved(PictureState)}.
+	 * 
+	 * @param current
+	 *            the current {@link PictureState}.
+	 * @param next
+	 *            the modified {@link PictureState}.
+	 * @return false if the modification didn't change the state.
+	 */
+	private boolean modified(final PictureState current,
+			final PictureState next)
 	{
-		synchronized (this)
+		if (next == current)
 		{
-			return _iPictureGrade;
+			return false;
 		}
+		_state.set(next);
+		final boolean bFirstEdit = !current.isModified();
+		if (bFirstEdit)
+		{
+			_pictureBank.pinPicture(this);
+		}
+		_pictureBank.journalEdit(this);
+		return true;
+	}
+
+	/**
+	 * Schedule the update of this {@link FsPicture} after a modification.
+	 */
+	private void setPictureForUpdating()
+	{
+		_pictureBank.setPictureForUpdating(this);
+	}
+
+	@Override
+	public int getPictureGrade()
+	{
+		return _state.get().getPictureGrade();
 	}
 
 	@Override
@@ -327,23 +523,18 @@ public final class FsPicture implements IPicture
 	{
 		synchronized (this)
 		{
-			if (_iPictureGrade != iPictureGrade)
+			final PictureState current = _state.get();
+			if (current.getPictureGrade() == iPictureGrade
+					|| !modified(current,
+							current.withPictureGrade(iPictureGrade)))
 			{
-				_lModifiedTimestamp = System.currentTimeMillis();
-				_bModified = true;
-				_iPictureGrade = iPictureGrade;
-				_pictureBank.setPictureForUpdating(this);
+				return;
 			}
 		}
+		setPictureForUpdating();
 	}
 
-	/**
-	 * Get the timestamp of the addition of this picture to the
-	 * {@link IPictureBank}.
-	 * 
-	 * @return the timestamp of the addition of this picture to the
-	 *         {@link IPictureBank}.
-	 */
+	@Override
 	public long getAddingTimestamp()
 	{
 		return _lAddingTimestamp;
@@ -1,8 +1,11 @@
 package yapto.picturebank.sqlfile;
 
 import java.awt.image.BufferedImage;
-import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
 
 import yapto.picturebank.IPictureBank;
 import yapto.picturebank.tag.ITag;
@@ -19,10 +22,9 @@ import com.google.common.cache.CacheLoader;
 public final class FsPictureCacheLoader extends CacheLoader<String, FsPicture>
 {
 	/**
-	 * Object holding the connection to the database and the prepared
-	 * statements.
+	 * The {@link IMetadataStore} from which the pictures are loaded.
 	 */
-	private final SQLFileListConnection _fileListConnection;
+	private final IMetadataStore _store;
 
 	/**
 	 * {@link ImageLoader} used to load the {@link BufferedImage}.
@@ -42,9 +44,9 @@ public final class FsPictureCacheLoader extends CacheLoader<String, FsPicture>
 	/**
 	 * Creates a new FsPictureCacheLoader.
 	 * 
-	 * @param fileListConnection
-	 *            object holding the connection to the database and the prepared
-	 *            statements.
+	 * @param store
+	 *            the {@link IMetadataStore} from which the pictures are
+	 *            loaded.
 	 * @param imageLoader
 	 *            {@link ImageLoader} used to load the {@link BufferedImage}.
 	 * @param tagRepository
@@ -52,11 +54,11 @@ public final class FsPictureCacheLoader extends CacheLoader<String, FsPicture>
 	 * @param pictureBank
 	 *            {@link IPictureBank} of this FsPictureCacheLoader.
 	 */
-	public FsPictureCacheLoader(final SQLFileListConnection fileListConnection,
+	public FsPictureCacheLoader(final IMetadataStore store,
 			final ImageLoader imageLoader, final ITagRepository tagRepository,
 			final SQLFilePictureBank pictureBank)
 	{
-		_fileListConnection = fileListConnection;
+		_store = store;
 		_imageLoader = imageLoader;
 		_tagRepository = tagRepository;
 		_pictureBank = pictureBank;
@@ -65,59 +67,66 @@ public final class FsPictureCacheLoader extends CacheLoader<String, FsPicture>
 	@Override
 	public FsPicture load(final String key) throws Exception
 	{
-		ResultSet pictureRes = null;
-		try
+		// a pinned picture must not be loaded twice
+		final FsPicture pinned = _pictureBank.getPinnedPicture(key);
+		if (pinned != null)
 		{
-			pictureRes = _fileListConnection.loadPicture(key);
-			if (pictureRes != null)
-			{
-				final Integer[] tagIds = _fileListConnection
-						.loadTagsOfPicture(key);
-				final LinkedList<ITag> tagList = new LinkedList<>();
-				for (final Integer tagId : tagIds)
-				{
-					tagList.add(_tagRepository.getTag(tagId));
-				}
-				return new FsPicture(
-						_imageLoader,
-						_pictureBank,
-						key,
-						pictureRes
-								.getLong(SQLFileListConnection.PICTURE_MODIFIED_TIMESTAMP_COLUMN_NAME),
-						pictureRes
-								.getLong(SQLFileListConnection.PICTURE_ADDING_TIMESTAMP_COLUMN_NAME),
-						pictureRes
-								.getInt(SQLFileListConnection.PICTURE_GRADE_COLUMN_NAME),
-						pictureRes
-								.getString(SQLFileListConnection.PICTURE_ORIGINAL_NAME),
-						pictureRes
-								.getInt(SQLFileListConnection.PICTURE_WIDTH_COLUMN_NAME),
-						pictureRes
-								.getInt(SQLFileListConnection.PICTURE_HEIGTH_COLUMN_NAME),
-						pictureRes
-								.getLong(SQLFileListConnection.PICTURE_CREATION_TIMESTAMP_COLUMN_NAME),
-						pictureRes
-								.getInt(SQLFileListConnection.PICTURE_ORIENTATION_COLUMN_NAME),
-						pictureRes
-								.getString(SQLFileListConnection.PICTURE_MAKE_COLUMN_NAME),
-						pictureRes
-								.getString(SQLFileListConnection.PICTURE_MODEL_COLUMN_NAME),
-						pictureRes
-								.getString(SQLFileListConnection.PICTURE_EXPOSURE_COLUMN_NAME),
-						pictureRes
-								.getString(SQLFileListConnection.PICTURE_RELATIVE_APERTURE_COLUMN_NAME),
-						pictureRes
-								.getString(SQLFileListConnection.PICTURE_FOCAL_LENGTH_COLUMN_NAME),
-						tagList);
-			}
-			return null;
+			return pinned;
 		}
-		finally
+		final PictureRecord record = _store.loadPicture(key);
+		if (record != null)
 		{
-			if (pictureRes != null)
+			return createPicture(record);
+		}
+		return null;
+	}
+
+	@Override
+	public Map<String, FsPicture> loadAll(final Iterable<? extends String> keys)
+			throws Exception
+	{
+		final Map<String, FsPicture> result = new HashMap<>();
+		final List<String> toLoad = new ArrayList<>();
+		for (final String key : keys)
+		{
+			final FsPicture pinned = _pictureBank.getPinnedPicture(key);
+			if (pinned != null)
 			{
-				pictureRes.close();
+				result.put(key, pinned);
 			}
+			else
+			{
+				toLoad.add(key);
+			}
+		}
+		if (toLoad.isEmpty())
+		{
+			return result;
+		}
+		for (final PictureRecord record : _store.loadPictures(toLoad))
+		{
+			result.put(record.getId(), createPicture(record));
+		}
+		return result;
+	}
+
+	/**
+	 * Create an {@link FsPicture} from a {@link PictureRecord}.
+	 * 
+	 * @param record
+	 *            the {@link PictureRecord} of the picture.
+	 * @return the created {@link FsPicture}.
+	 */
+	private FsPicture createPicture(final PictureRecord record)
+	{
+		final LinkedList<ITag> tagList = new LinkedList<>();
+		for (final int iTagId : record.getTagIds())
+		{
+			tagList.add(_tagRepository.getTag(iTagId));
 		}
+		return new FsPicture(_imageLoader, _pictureBank, record.getId(),
+				record.getKey(), record.getModifiedTimestamp(),
+				record.getAddingTimestamp(), record.getGrade(),
+				record.getInformation(), tagList);
 	}
 }
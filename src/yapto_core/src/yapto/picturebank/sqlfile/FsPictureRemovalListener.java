@@ -33,6 +33,6 @@ public final class FsPictureRemovalListener implements
 	public void onRemoval(
 			final RemovalNotification<String, FsPicture> notification)
 	{
-		_pictureBank.updatePicture(notification.getValue(), true);
+		_pictureBank.updatePicture(notification.getValue());
 	}
 }
@@ -0,0 +1,187 @@
+package yapto.picturebank.sqlfile;
+
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import yapto.picturebank.PictureInformation;
+import yapto.picturebank.tag.ITag;
+
+/**
+ * Storage of the metadata of a {@link SQLFilePictureBank} : the pictures, the
+ * {@link ITag}s, the {@link ITag}s of each picture and the picture counts of
+ * the {@link ITag}s.
+ * 
+ * The files of the pictures and the index aren't part of the store. An
+ * implementation must be safe for use by several threads, and each write
+ * must be atomic : after a crash, a write is either complete or absent.
+ * 
+ * @author benobiwan
+ * 
+ */
+public interface IMetadataStore
+{
+	/**
+	 * Insert a picture.
+	 * 
+	 * @param strPictureId
+	 *            the id of the picture to insert.
+	 * @param lAddingTimestamp
+	 *            the timestamp of the addition of the picture, also used as
+	 *            the timestamp of its last modification.
+	 * @param info
+	 *            the {@link PictureInformation} of the picture.
+	 * @return the key of the inserted picture.
+	 * @throws MetadataStoreException
+	 *             if the picture can't be inserted.
+	 */
+	int insertPicture(String strPictureId, long lAddingTimestamp,
+			PictureInformation info) throws MetadataStoreException;
+
+	/**
+	 * Load a picture and the ids of its {@link ITag}s.
+	 * 
+	 * @param strPictureId
+	 *            the id of the picture.
+	 * @return the {@link PictureRecord} of the picture, null if there is no
+	 *         such picture.
+	 * @throws MetadataStoreException
+	 *             if the picture can't be read.
+	 */
+	PictureRecord loadPicture(String strPictureId)
+			throws MetadataStoreException;
+
+	/**
+	 * Load several pictures and the ids of their {@link ITag}s.
+	 * 
+	 * @param pictureIds
+	 *            the ids of the pictures.
+	 * @return the {@link PictureRecord}s of the pictures found, in no
+	 *         particular order.
+	 * @throws MetadataStoreException
+	 *             if the pictures can't be read.
+	 */
+	List<PictureRecord> loadPictures(List<String> pictureIds)
+			throws MetadataStoreException;
+
+	/**
+	 * Open a cursor over the ids of all the pictures, in the order of their
+	 * addition.
+	 * 
+	 * @return a cursor over the ids of the pictures, which must be closed.
+	 * @throws MetadataStoreException
+	 *             if the pictures can't be read.
+	 */
+	IStoreCursor<String> openPictureIdCursor() throws MetadataStoreException;
+
+	/**
+	 * Update the grade, the modification timestamp and the {@link ITag}s of
+	 * several pictures and the picture counts of the {@link ITag}s, in a
+	 * single write.
+	 * 
+	 * @param stateMap
+	 *            map of the {@link PictureState}s to write by picture key.
+	 * @param countDeltas
+	 *            the deltas of the picture count and of the subtree count to
+	 *            add to the counts of the {@link ITag}s, by tag id.
+	 * @throws MetadataStoreException
+	 *             if the update failed, in which case none of the pictures is
+	 *             updated.
+	 */
+	void updatePictures(Map<Integer, PictureState> stateMap,
+			Map<Integer, int[]> countDeltas) throws MetadataStoreException;
+
+	/**
+	 * Save a new {@link ITag}, with picture counts of zero.
+	 * 
+	 * @param tag
+	 *            the {@link ITag} to save.
+	 * @throws MetadataStoreException
+	 *             if the {@link ITag} can't be saved.
+	 */
+	void saveTag(ITag tag) throws MetadataStoreException;
+
+	/**
+	 * Save the modifications of an {@link ITag}.
+	 * 
+	 * @param tag
+	 *            the modified {@link ITag}.
+	 * @throws MetadataStoreException
+	 *             if the {@link ITag} can't be saved.
+	 */
+	void modifyTag(ITag tag) throws MetadataStoreException;
+
+	/**
+	 * Remove an {@link ITag}, from the pictures having it too.
+	 * 
+	 * @param iTagId
+	 *            the id of the {@link ITag} to remove.
+	 * @throws MetadataStoreException
+	 *             if the {@link ITag} can't be removed.
+	 */
+	void removeTag(int iTagId) throws MetadataStoreException;
+
+	/**
+	 * Load all the {@link ITag}s.
+	 * 
+	 * @return the {@link TagRecord}s of all the {@link ITag}s.
+	 * @throws MetadataStoreException
+	 *             if the {@link ITag}s can't be read.
+	 */
+	List<TagRecord> loadTags() throws MetadataStoreException;
+
+	/**
+	 * Load the picture counts of all the {@link ITag}s.
+	 * 
+	 * @return the picture count and the subtree count of the {@link ITag}s,
+	 *         by tag id.
+	 * @throws MetadataStoreException
+	 *             if the counts can't be read.
+	 */
+	Map<Integer, int[]> loadTagCounts() throws MetadataStoreException;
+
+	/**
+	 * Recount the distinct pictures having each of the specified {@link ITag}s
+	 * or one of its descendants, after a change in the tree of the
+	 * {@link ITag}s.
+	 * 
+	 * @param tagIds
+	 *            the ids of the {@link ITag}s to recount.
+	 * @throws MetadataStoreException
+	 *             if the recount failed, in which case none of the counts is
+	 *             updated.
+	 */
+	void recountTagSubtrees(Collection<Integer> tagIds)
+			throws MetadataStoreException;
+
+	/**
+	 * Get the change counter of the store, incremented each time a picture is
+	 * added or removed, or a {@link ITag} is added, modified or removed.
+	 * 
+	 * @return the change counter of the store.
+	 * @throws MetadataStoreException
+	 *             if the counter can't be read.
+	 */
+	long getChangeCounter() throws MetadataStoreException;
+
+	/**
+	 * Write a consistent copy of the store to a file, without blocking the
+	 * writes for the whole copy if possible.
+	 * 
+	 * @param backupFile
+	 *            the file to copy the store to, replaced if it exists.
+	 * @return the ids of the pictures in the copy.
+	 * @throws MetadataStoreException
+	 *             if the copy failed.
+	 */
+	List<String> backup(Path backupFile) throws MetadataStoreException;
+
+	/**
+	 * Close the store.
+	 * 
+	 * @throws MetadataStoreException
+	 *             if an error occurred during the closing.
+	 */
+	void close() throws MetadataStoreException;
+}
@@ -0,0 +1,41 @@
+package yapto.picturebank.sqlfile;
+
+/**
+ * Cursor over the elements of an {@link IMetadataStore}, read one at a time
+ * instead of being loaded in a single list. A cursor must be closed once
+ * read.
+ * 
+ * @author benobiwan
+ * 
+ * @param <T>
+ *            the type of the elements.
+ */
+public interface IStoreCursor<T>
+{
+	/**
+	 * Move to the next element.
+	 * 
+	 * @return true if there is a next element, false if all the elements
+	 *         have been read.
+	 * @throws MetadataStoreException
+	 *             if the next element can't be read.
+	 */
+	boolean next() throws MetadataStoreException;
+
+	/**
+	 * Get the current element.
+	 * 
+	 * @return the current element.
+	 * @throws MetadataStoreException
+	 *             if the current element can't be read.
+	 */
+	T get() throws MetadataStoreException;
+
+	/**
+	 * Close this cursor and release its resources.
+	 * 
+	 * @throws MetadataStoreException
+	 *             if an error occurred during the closing.
+	 */
+	void close() throws MetadataStoreException;
+}
@@ -1,15 +1,27 @@
 package yapto.picturebank.sqlfile;
 
+import java.awt.Dimension;
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import yapto.picturebank.IPicture;
+import yapto.picturebank.io.ImageInputStreams;
 import yapto.picturebank.sqlfile.config.ISQLFilePictureBankConfiguration;
 
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
+import com.google.common.cache.Weigher;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
 
 /**
  * Class used to load {@link BufferedImage} from the file system.
@@ -19,6 +31,27 @@ import com.google.common.cache.LoadingCache;
  */
 public final class ImageLoader
 {
+	/**
+	 * Number of threads used to load images asynchronously.
+	 */
+	private static final int DECODE_THREAD_COUNT = 2;
+
+	/**
+	 * Maximum number of asynchronous loads waiting for a thread.
+	 */
+	private static final int MAX_PENDING_DECODES = 64;
+
+	/**
+	 * Maximum number of bytes used by the decoded tiles kept in the cache.
+	 */
+	private static final long MAX_TILE_CACHE_BYTES = 64 * 1024 * 1024;
+
+	/**
+	 * Maximum number of bytes used by the images decoded at a reduced
+	 * resolution kept in the cache.
+	 */
+	private static final long MAX_SUBSAMPLED_CACHE_BYTES = 128 * 1024 * 1024;
+
 	/**
 	 * {@link LoadingCache} used to load the {@link BufferedImage}.
 	 */
@@ -29,23 +62,102 @@ public final class ImageLoader
 	 */
 	private final LoadingCache<String, BufferedImage> _thumbnailCache;
 
+	/**
+	 * {@link LoadingCache} used to load the {@link BufferedImage} decoded at a
+	 * reduced resolution.
+	 */
+	private final LoadingCache<SubsampledImageKey, BufferedImage> _subsampledImageCache;
+
+	/**
+	 * {@link LoadingCache} used to load the tiles of the {@link BufferedImage}
+	 * too big to be decoded at once.
+	 */
+	private final LoadingCache<ImageTileKey, BufferedImage> _tileCache;
+
+	/**
+	 * {@link ListeningExecutorService} used to load images asynchronously.
+	 */
+	private final ListeningExecutorService _decodeExecutor;
+
+	/**
+	 * {@link CoalescingImageLoader} used to load main images asynchronously,
+	 * at full or reduced resolution.
+	 */
+	private final CoalescingImageLoader<SubsampledImageKey> _asyncMainLoader;
+
+	/**
+	 * {@link CoalescingImageLoader} used to load thumbnails asynchronously.
+	 */
+	private final CoalescingImageLoader<String> _asyncThumbnailLoader;
+
+	/**
+	 * {@link CoalescingImageLoader} used to load tiles asynchronously.
+	 */
+	private final CoalescingImageLoader<ImageTileKey> _asyncTileLoader;
+
 	/**
 	 * Creates a new ImageLoader.
 	 * 
 	 * @param conf
 	 *            the configuration of this {@link ImageLoader}.
+	 * @param fileLocator
+	 *            object locating the files of the pictures.
 	 */
-	public ImageLoader(final ISQLFilePictureBankConfiguration conf)
+	public ImageLoader(final ISQLFilePictureBankConfiguration conf,
+			final PictureFileLocator fileLocator)
 	{
 		// image cache
 		final CacheLoader<String, BufferedImage> imageLoader = new BufferedImageCacheLoader(
-				conf.getMainPictureLoaderConfiguration());
+				conf.getMainPictureLoaderConfiguration(), fileLocator);
 		_mainImageCache = CacheBuilder.newBuilder().build(imageLoader);
 
 		// thumbnail cache
 		final CacheLoader<String, BufferedImage> thumbnailLoader = new BufferedImageCacheLoader(
-				conf.getThumbnailPictureLoaderConfiguration());
+				conf.getThumbnailPictureLoaderConfiguration(), fileLocator);
 		_thumbnailCache = CacheBuilder.newBuilder().build(thumbnailLoader);
+
+		// subsampled image cache, bounded by the memory used by the images
+		final CacheLoader<SubsampledImageKey, BufferedImage> subsampledLoader = new SubsampledImageCacheLoader(
+				conf.getMainPictureLoaderConfiguration(), fileLocator);
+		_subsampledImageCache = CacheBuilder.newBuilder()
+				.maximumWeight(MAX_SUBSAMPLED_CACHE_BYTES)
+				.weigher(new Weigher<SubsampledImageKey, BufferedImage>()
+				{
+					@Override
+					public int weigh(final SubsampledImageKey key,
+							final BufferedImage value)
+					{
+						return SubsampledImageKey.getWeight(value);
+					}
+				}).build(subsampledLoader);
+
+		// tile cache, bounded by the memory used by the tiles
+		final CacheLoader<ImageTileKey, BufferedImage> tileLoader = new ImageTileCacheLoader(
+				conf.getMainPictureLoaderConfiguration(), fileLocator);
+		_tileCache = CacheBuilder.newBuilder()
+				.maximumWeight(MAX_TILE_CACHE_BYTES)
+				.weigher(new Weigher<ImageTileKey, BufferedImage>()
+				{
+					@Override
+					public int weigh(final ImageTileKey key,
+							final BufferedImage value)
+					{
+						return ImageTileKey.getWeight(value);
+					}
+				}).build(tileLoader);
+
+		// asynchronous loading
+		final ThreadPoolExecutor decodeThreadPool = new ThreadPoolExecutor(
+				DECODE_THREAD_COUNT, DECODE_THREAD_COUNT, 0L,
+				TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(
+						MAX_PENDING_DECODES));
+		_decodeExecutor = MoreExecutors.listeningDecorator(decodeThreadPool);
+		_asyncMainLoader = new CoalescingImageLoader<>(_decodeExecutor,
+				decodeThreadPool);
+		_asyncThumbnailLoader = new CoalescingImageLoader<>(_decodeExecutor,
+				decodeThreadPool);
+		_asyncTileLoader = new CoalescingImageLoader<>(_decodeExecutor,
+				decodeThreadPool);
 	}
 
 	/**
@@ -69,6 +181,49 @@ public final class ImageLoader
 		}
 	}
 
+	/**
+	 * Get the data of the main image of the specified {@link IPicture},
+	 * decoded at the smallest resolution still at least as big as the target
+	 * dimension.
+	 * 
+	 * @param strId
+	 *            the id of the image to get.
+	 * @param pictureDimension
+	 *            the full {@link Dimension} of the image.
+	 * @param targetDimension
+	 *            the {@link Dimension} at which the image will be displayed.
+	 * @return the data of the main image of the specified {@link IPicture}.
+	 * @throws IOException
+	 *             if an error occurs during reading.
+	 */
+	public BufferedImage getImageData(final String strId,
+			final Dimension pictureDimension, final Dimension targetDimension)
+			throws IOException
+	{
+		final int iSubsampling = ImageInputStreams.computeSubsampling(
+				pictureDimension.width, pictureDimension.height,
+				targetDimension.width, targetDimension.height);
+		if (iSubsampling == 1)
+		{
+			return getImageData(strId);
+		}
+		// reuse the full resolution image if it has already been decoded
+		final BufferedImage fullImage = _mainImageCache.getIfPresent(strId);
+		if (fullImage != null)
+		{
+			return fullImage;
+		}
+		try
+		{
+			return _subsampledImageCache.get(new SubsampledImageKey(strId,
+					iSubsampling));
+		}
+		catch (final ExecutionException e)
+		{
+			throw new IOException(e);
+		}
+	}
+
 	/**
 	 * Get the data of the thumbnail image of the specified {@link IPicture}.
 	 * 
@@ -91,4 +246,153 @@ public final class ImageLoader
 			throw new IOException(e);
 		}
 	}
+
+	/**
+	 * Get asynchronously the data of the main image of the specified
+	 * {@link IPicture}.
+	 * 
+	 * @param strId
+	 *            the id of the image to get.
+	 * @return a {@link ListenableFuture} giving the data of the main image of
+	 *         the specified {@link IPicture}.
+	 */
+	public ListenableFuture<BufferedImage> getImageDataAsync(final String strId)
+	{
+		final BufferedImage image = _mainImageCache.getIfPresent(strId);
+		if (image != null)
+		{
+			return Futures.immediateFuture(image);
+		}
+		return _asyncMainLoader.load(new SubsampledImageKey(strId, 1),
+				new Callable<BufferedImage>()
+				{
+					@Override
+					public BufferedImage call() throws IOException
+					{
+						return getImageData(strId);
+					}
+				});
+	}
+
+	/**
+	 * Get asynchronously the data of the main image of the specified
+	 * {@link IPicture}, decoded at the smallest resolution still at least as
+	 * big as the target dimension.
+	 * 
+	 * @param strId
+	 *            the id of the image to get.
+	 * @param pictureDimension
+	 *            the full {@link Dimension} of the image.
+	 * @param targetDimension
+	 *            the {@link Dimension} at which the image will be displayed.
+	 * @return a {@link ListenableFuture} giving the data of the main image of
+	 *         the specified {@link IPicture}.
+	 */
+	public ListenableFuture<BufferedImage> getImageDataAsync(
+			final String strId, final Dimension pictureDimension,
+			final Dimension targetDimension)
+	{
+		final int iSubsampling = ImageInputStreams.computeSubsampling(
+				pictureDimension.width, pictureDimension.height,
+				targetDimension.width, targetDimension.height);
+		if (iSubsampling == 1)
+		{
+			return getImageDataAsync(strId);
+		}
+		BufferedImage image = _mainImageCache.getIfPresent(strId);
+		if (image == null)
+		{
+			image = _subsampledImageCache.getIfPresent(new SubsampledImageKey(
+					strId, iSubsampling));
+		}
+		if (image != null)
+		{
+			return Futures.immediateFuture(image);
+		}
+		return _asyncMainLoader.load(new SubsampledImageKey(strId,
+				iSubsampling), new Callable<BufferedImage>()
+		{
+			@Override
+			public BufferedImage call() throws IOException
+			{
+				return getImageData(strId, pictureDimension, targetDimension);
+			}
+		});
+	}
+
+	/**
+	 * Get asynchronously the data of the thumbnail image of the specified
+	 * {@link IPicture}.
+	 * 
+	 * @param strId
+	 *            the id of the image to get.
+	 * @return a {@link ListenableFuture} giving the data of the thumbnail image
+	 *         of the specified {@link IPicture}.
+	 */
+	public ListenableFuture<BufferedImage> getThumbnailDataAsync(
+			final String strId)
+	{
+		final BufferedImage image = _thumbnailCache.getIfPresent(strId);
+		if (image != null)
+		{
+			return Futures.immediateFuture(image);
+		}
+		return _asyncThumbnailLoader.load(strId, new Callable<BufferedImage>()
+		{
+			@Override
+			public BufferedImage call() throws IOException
+			{
+				return getThumbnailData(strId);
+			}
+		});
+	}
+
+	/**
+	 * Get asynchronously a tile of the main image of the specified
+	 * {@link IPicture}.
+	 * 
+	 * @param strId
+	 *            the id of the image to get.
+	 * @param region
+	 *            the region of the image covered by the tile, in image
+	 *            coordinates.
+	 * @param iSubsampling
+	 *            the subsampling factor, 1 to decode the tile at full
+	 *            resolution.
+	 * @return a {@link ListenableFuture} giving the decoded tile.
+	 */
+	public ListenableFuture<BufferedImage> getImageTileAsync(
+			final String strId, final Rectangle region, final int iSubsampling)
+	{
+		final ImageTileKey key = new ImageTileKey(strId, region, iSubsampling);
+		final BufferedImage tile = _tileCache.getIfPresent(key);
+		if (tile != null)
+		{
+			return Futures.immediateFuture(tile);
+		}
+		return _asyncTileLoader.load(key, new Callable<BufferedImage>()
+		{
+			@Override
+			public BufferedImage call() throws IOException
+			{
+				try
+				{
+					return _tileCache.get(key);
+				}
+				catch (final ExecutionException e)
+				{
+					throw new IOException(e);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Stop the threads used to load images asynchronously. Pending loads are
+	 * cancelled.
+	 */
+	public void shutdown()
+	{
+		_decodeExecutor.shutdownNow();
+	}
 }
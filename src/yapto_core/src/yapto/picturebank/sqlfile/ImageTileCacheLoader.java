@@ -0,0 +1,53 @@
+package yapto.picturebank.sqlfile;
+
+import java.awt.image.BufferedImage;
+
+import javax.imageio.ImageReadParam;
+
+import com.google.common.cache.CacheLoader;
+
+/**
+ * A {@link CacheLoader} decoding tiles of pictures from the file system,
+ * using the source region and the source subsampling of the
+ * {@link ImageReadParam}.
+ * 
+ * @author benobiwan
+ * 
+ */
+public final class ImageTileCacheLoader extends
+		CacheLoader<ImageTileKey, BufferedImage>
+{
+	/**
+	 * The configuration of this ImageTileCacheLoader.
+	 */
+	private final IBufferedImageCacheLoaderConfiguration _cacheLoaderConf;
+
+	/**
+	 * Object locating the files of the pictures.
+	 */
+	private final PictureFileLocator _fileLocator;
+
+	/**
+	 * Creates a new ImageTileCacheLoader.
+	 * 
+	 * @param cacheLoaderConf
+	 *            the configuration of this ImageTileCacheLoader.
+	 * @param fileLocator
+	 *            object locating the files of the pictures.
+	 */
+	public ImageTileCacheLoader(
+			final IBufferedImageCacheLoaderConfiguration cacheLoaderConf,
+			final PictureFileLocator fileLocator)
+	{
+		_cacheLoaderConf = cacheLoaderConf;
+		_fileLocator = fileLocator;
+	}
+
+	@Override
+	public BufferedImage load(final ImageTileKey key) throws Exception
+	{
+		return BufferedImageCacheLoader.readImage(_cacheLoaderConf,
+				_fileLocator, key.getId(), key.getRegion(),
+				key.getSubsampling());
+	}
+}
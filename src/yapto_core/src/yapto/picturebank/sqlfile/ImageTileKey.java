@@ -0,0 +1,142 @@
+package yapto.picturebank.sqlfile;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+
+/**
+ * Key of a tile of a picture in the cache, made of the id of the picture, of
+ * the region of the picture covered by the tile and of the subsampling factor
+ * used to decode it.
+ * 
+ * @author benobiwan
+ * 
+ */
+public final class ImageTileKey
+{
+	/**
+	 * The id of the picture.
+	 */
+	private final String _strId;
+
+	/**
+	 * The region of the picture covered by the tile, in picture coordinates.
+	 */
+	private final Rectangle _region;
+
+	/**
+	 * The subsampling factor.
+	 */
+	private final int _iSubsampling;
+
+	/**
+	 * Creates a new ImageTileKey.
+	 * 
+	 * @param strId
+	 *            the id of the picture.
+	 * @param region
+	 *            the region of the picture covered by the tile, in picture
+	 *            coordinates.
+	 * @param iSubsampling
+	 *            the subsampling factor.
+	 */
+	public ImageTileKey(final String strId, final Rectangle region,
+			final int iSubsampling)
+	{
+		_strId = strId;
+		_region = new Rectangle(region);
+		_iSubsampling = iSubsampling;
+	}
+
+	/**
+	 * Get the id of the picture.
+	 * 
+	 * @return the id of the picture.
+	 */
+	public String getId()
+	{
+		return _strId;
+	}
+
+	/**
+	 * Get the region of the picture covered by the tile.
+	 * 
+	 * @return a copy of the region of the picture covered by the tile, in
+	 *         picture coordinates.
+	 */
+	public Rectangle getRegion()
+	{
+		return new Rectangle(_region);
+	}
+
+	/**
+	 * Get the subsampling factor.
+	 * 
+	 * @return the subsampling factor.
+	 */
+	public int getSubsampling()
+	{
+		return _iSubsampling;
+	}
+
+	/**
+	 * Get the number of bytes used by the decoded tile, used to bound the size
+	 * of the tile cache.
+	 * 
+	 * @param tile
+	 *            the decoded tile.
+	 * @return the number of bytes used by the decoded tile.
+	 */
+	public static int getWeight(final BufferedImage tile)
+	{
+		return tile.getWidth() * tile.getHeight() * 4;
+	}
+
+	@Override
+	public int hashCode()
+	{
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + _iSubsampling;
+		result = prime * result + _region.hashCode();
+		result = prime * result + ((_strId == null) ? 0 : _strId.hashCode());
+		return result;
+	}
+
+	@Override
+	public boolean equals(final Object obj)
+	{
+		if (this == obj)
+		{
+			return true;
+		}
+		if (obj == null)
+		{
+			return false;
+		}
+		if (getClass() != obj.getClass())
+		{
+			return false;
+		}
+		final ImageTileKey other = (ImageTileKey) obj;
+		if (_iSubsampling != other._iSubsampling)
+		{
+			return false;
+		}
+		if (!_region.equals(other._region))
+		{
+			return false;
+		}
+		if (_strId == null)
+		{
+			return other._strId == null;
+		}
+		return _strId.equals(other._strId);
+	}
+
+	@Override
+	public String toString()
+	{
+		return _strId + '[' + _region.x + ',' + _region.y + ' '
+				+ _region.width + 'x' + _region.height + "]@" + _iSubsampling;
+	}
+}
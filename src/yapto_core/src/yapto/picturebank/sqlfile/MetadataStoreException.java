@@ -0,0 +1,52 @@
+package yapto.picturebank.sqlfile;
+
+import java.io.IOException;
+
+/**
+ * Thrown when an {@link IMetadataStore} can't read or write its data.
+ * 
+ * @author benobiwan
+ */
+public final class MetadataStoreException extends IOException
+{
+	/**
+	 * serialVersionUID for Serialization.
+	 */
+	private static final long serialVersionUID = -3417702556212408693L;
+
+	/**
+	 * Creates a new MetadataStoreException.
+	 * 
+	 * @param strMessage
+	 *            the message of this exception.
+	 */
+	public MetadataStoreException(final String strMessage)
+	{
+		super(strMessage);
+	}
+
+	/**
+	 * Creates a new MetadataStoreException.
+	 * 
+	 * @param strMessage
+	 *            the message of this exception.
+	 * @param cause
+	 *            the cause of this exception.
+	 */
+	public MetadataStoreException(final String strMessage,
+			final Throwable cause)
+	{
+		super(strMessage, cause);
+	}
+
+	/**
+	 * Creates a new MetadataStoreException.
+	 * 
+	 * @param cause
+	 *            the cause of this exception.
+	 */
+	public MetadataStoreException(final Throwable cause)
+	{
+		super(cause);
+	}
+}
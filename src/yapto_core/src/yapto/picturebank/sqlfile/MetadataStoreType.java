@@ -0,0 +1,103 @@
+package yapto.picturebank.sqlfile;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+
+import yapto.picturebank.sqlfile.config.ISQLFilePictureBankConfiguration;
+import yapto.picturebank.sqlfile.kv.LogStructuredMetadataStore;
+
+/**
+ * Enum describing the different implementations of {@link IMetadataStore},
+ * chosen for each {@link SQLFilePictureBank} by its configuration.
+ * 
+ * @author benobiwan
+ */
+public enum MetadataStoreType
+{
+	/**
+	 * SQLite database, the default.
+	 */
+	SQLITE(0),
+
+	/**
+	 * Embedded log-structured key-value store, for high write rates.
+	 */
+	LOG_STRUCTURED(1);
+
+	/**
+	 * Value of this type in the configuration.
+	 */
+	private final int _iValue;
+
+	/**
+	 * Creates a new MetadataStoreType.
+	 * 
+	 * @param iValue
+	 *            value of this type in the configuration.
+	 */
+	private MetadataStoreType(final int iValue)
+	{
+		_iValue = iValue;
+	}
+
+	/**
+	 * Get the value of this type in the configuration.
+	 * 
+	 * @return the value of this type in the configuration.
+	 */
+	public int getValue()
+	{
+		return _iValue;
+	}
+
+	/**
+	 * Get the type having the specified value in the configuration.
+	 * 
+	 * @param iValue
+	 *            the value of the type in the configuration.
+	 * @return the type having the specified value.
+	 * @throws IllegalArgumentException
+	 *             if no type has this value.
+	 */
+	public static MetadataStoreType fromValue(final int iValue)
+	{
+		for (final MetadataStoreType type : values())
+		{
+			if (type._iValue == iValue)
+			{
+				return type;
+			}
+		}
+		throw new IllegalArgumentException("Unknown metadata store type : "
+				+ iValue);
+	}
+
+	/**
+	 * Open a store of this type on the database file of a configuration.
+	 * 
+	 * @param conf
+	 *            configuration of the {@link SQLFilePictureBank}.
+	 * @return the opened {@link IMetadataStore}.
+	 * @throws SQLException
+	 *             if an SQL error occurred during the connection to an SQLite
+	 *             database.
+	 * @throws ClassNotFoundException
+	 *             if the database driver class can't be found.
+	 * @throws IOException
+	 *             if the store can't be opened.
+	 */
+	public IMetadataStore open(final ISQLFilePictureBankConfiguration conf)
+			throws ClassNotFoundException, SQLException, IOException
+	{
+		switch (this)
+		{
+		case LOG_STRUCTURED:
+			return new LogStructuredMetadataStore(Paths.get(conf
+					.getDatabaseFileName()), conf.getDatabaseSynchronous());
+		case SQLITE:
+		default:
+			return new SQLiteMetadataStore(conf);
+		}
+	}
+}
@@ -0,0 +1,440 @@
+package yapto.picturebank.sqlfile;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+import org.apache.lucene.index.IndexCommit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import yapto.picturebank.index.PictureIndexer;
+import yapto.picturebank.sqlfile.config.ISQLFilePictureBankConfiguration;
+
+/**
+ * Task backing up a {@link SQLFilePictureBank} while it's used.
+ * 
+ * The index is copied from a snapshot of its last commit, whose files are
+ * kept by the {@link PictureIndexer} until the copy ends. The
+ * {@link IMetadataStore} is then copied, with the SQLite online backup API
+ * for an SQLite database, and the pictures and thumbnails of the copied store
+ * are copied last. The pictures added while
+ * the backup runs may be missing from the copy of the index, never the
+ * reverse.
+ * 
+ * The backup is incremental : the index files and the pictures, which never
+ * change once written, are only copied if they aren't already in the backup
+ * directory. The ids of the copied pictures are appended to a list in the
+ * backup directory once their files have been copied. Each file is copied to
+ * a temporary file, then moved to its place, and the copies are throttled to
+ * the configured rate.
+ * 
+ * The backup directory holds the file of the store, the index in the 'index'
+ * directory and the pictures and thumbnails in the 'pictures' and
+ * 'thumbnails' directories, so that a bank can be restored by configuring
+ * it to use them. The pictures are copied with the {@link DirectoryLayout}
+ * of the bank at the first backup, recorded in the 'pictures' directory.
+ * 
+ * @author benobiwan
+ * 
+ */
+public final class PictureBankBackup implements Callable<Integer>
+{
+	/**
+	 * Logger object.
+	 */
+	protected static final Logger LOGGER = LoggerFactory
+			.getLogger(PictureBankBackup.class);
+
+	/**
+	 * Name of the directory of the index in the backup directory.
+	 */
+	public static final String INDEX_DIRECTORY_NAME = "index";
+
+	/**
+	 * Name of the directory of the pictures in the backup directory.
+	 */
+	public static final String PICTURE_DIRECTORY_NAME = "pictures";
+
+	/**
+	 * Name of the directory of the thumbnails in the backup directory.
+	 */
+	public static final String THUMBNAIL_DIRECTORY_NAME = "thumbnails";
+
+	/**
+	 * Name of the list of the copied pictures in the backup directory.
+	 */
+	public static final String PICTURE_LIST_FILE_NAME = "pictures.lst";
+
+	/**
+	 * Suffix of the temporary files written before being moved to their
+	 * place.
+	 */
+	private static final String TEMPORARY_SUFFIX = ".tmp";
+
+	/**
+	 * Size of the buffer used to copy the files.
+	 */
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * Charset of the list of the copied pictures.
+	 */
+	private static final Charset CHARSET = Charset.forName("UTF-8");
+
+	/**
+	 * Configuration of the {@link SQLFilePictureBank}.
+	 */
+	private final ISQLFilePictureBankConfiguration _conf;
+
+	/**
+	 * The {@link IMetadataStore} holding the metadata of the pictures.
+	 */
+	private final IMetadataStore _store;
+
+	/**
+	 * Object used to interact with the index.
+	 */
+	private final PictureIndexer _indexer;
+
+	/**
+	 * Object locating the files of the pictures and of the thumbnails.
+	 */
+	private final PictureFileLocator _fileLocator;
+
+	/**
+	 * The backup directory.
+	 */
+	private final Path _backupDirectory;
+
+	/**
+	 * Maximum number of bytes copied per second, 0 for no limit.
+	 */
+	private final long _lBytesPerSecond;
+
+	/**
+	 * Time in nanoseconds at which the copies started.
+	 */
+	private long _lStartTime;
+
+	/**
+	 * Number of bytes copied since the start of the copies.
+	 */
+	private long _lCopiedBytes;
+
+	/**
+	 * Creates a new PictureBankBackup.
+	 * 
+	 * @param conf
+	 *            configuration of the {@link SQLFilePictureBank}.
+	 * @param store
+	 *            the {@link IMetadataStore} holding the metadata of the
+	 *            pictures.
+	 * @param indexer
+	 *            object used to interact with the index.
+	 * @param fileLocator
+	 *            object locating the files of the pictures and of the
+	 *            thumbnails.
+	 * @param backupDirectory
+	 *            the backup directory, created if it doesn't exist.
+	 * @param iRate
+	 *            maximum number of KiB copied per second, 0 for no limit.
+	 */
+	public PictureBankBackup(final ISQLFilePictureBankConfiguration conf,
+			final IMetadataStore store, final PictureIndexer indexer,
+			final PictureFileLocator fileLocator, final Path backupDirectory,
+			final int iRate)
+	{
+		_conf = conf;
+		_store = store;
+		_indexer = indexer;
+		_fileLocator = fileLocator;
+		_backupDirectory = backupDirectory;
+		_lBytesPerSecond = iRate * 1024L;
+	}
+
+	/**
+	 * Back up the bank.
+	 * 
+	 * @return the number of pictures copied by this backup.
+	 * @throws IOException
+	 *             if an error occurred while copying the files or the store.
+	 * @throws InterruptedException
+	 *             if the backup was interrupted.
+	 */
+	@Override
+	public Integer call() throws IOException, InterruptedException
+	{
+		LOGGER.info("Starting the backup to " + _backupDirectory);
+		Files.createDirectories(_backupDirectory);
+		_lStartTime = System.nanoTime();
+		_lCopiedBytes = 0;
+
+		final String strSnapshotId = "backup-" + System.currentTimeMillis();
+		final IndexCommit commit = _indexer.snapshot(strSnapshotId);
+		try
+		{
+			backupIndex(commit.getFileNames(), commit.getSegmentsFileName());
+		}
+		finally
+		{
+			_indexer.releaseSnapshot(strSnapshotId);
+		}
+
+		final int iCopiedPictures = backupPictures(backupStore());
+		LOGGER.info("Backup to " + _backupDirectory + " done, "
+				+ iCopiedPictures + " new pictures, " + _lCopiedBytes
+				+ " bytes copied.");
+		return Integer.valueOf(iCopiedPictures);
+	}
+
+	/**
+	 * Copy the files of a commit of the index which aren't in the backup yet,
+	 * then delete the files of the previous commits. The segments file of the
+	 * commit is copied last : the index opens the backup at its last segments
+	 * file, which only refers to files already copied.
+	 * 
+	 * @param fileNames
+	 *            the names of the files of the commit.
+	 * @param strSegmentsFileName
+	 *            the name of the segments file of the commit.
+	 * @throws IOException
+	 *             if an error occurred while copying the files.
+	 * @throws InterruptedException
+	 *             if the backup was interrupted.
+	 */
+	private void backupIndex(final Collection<String> fileNames,
+			final String strSegmentsFileName) throws IOException,
+			InterruptedException
+	{
+		final Path indexDirectory = Paths.get(_conf.getIndexDirectory());
+		final Path backupIndexDirectory = _backupDirectory
+				.resolve(INDEX_DIRECTORY_NAME);
+		Files.createDirectories(backupIndexDirectory);
+		for (final String strFileName : fileNames)
+		{
+			final Path target = backupIndexDirectory.resolve(strFileName);
+			if (!strFileName.equals(strSegmentsFileName)
+					&& !Files.exists(target))
+			{
+				copy(indexDirectory.resolve(strFileName), target);
+			}
+		}
+		final Path segmentsTarget = backupIndexDirectory
+				.resolve(strSegmentsFileName);
+		if (!Files.exists(segmentsTarget))
+		{
+			copy(indexDirectory.resolve(strSegmentsFileName), segmentsTarget);
+		}
+		// the previous commit stays complete until the new one is
+		final DirectoryStream<Path> stream = Files
+				.newDirectoryStream(backupIndexDirectory);
+		try
+		{
+			for (final Path file : stream)
+			{
+				if (!fileNames.contains(file.getFileName().toString()))
+				{
+					Files.delete(file);
+				}
+			}
+		}
+		finally
+		{
+			stream.close();
+		}
+	}
+
+	/**
+	 * Copy the store to the backup directory, replacing the previous copy once
+	 * the new one is complete.
+	 * 
+	 * @return the ids of the pictures of the copy of the store.
+	 * @throws IOException
+	 *             if an error occurred during the copy or while moving it.
+	 */
+	private List<String> backupStore() throws IOException
+	{
+		final Path target = _backupDirectory.resolve(Paths.get(
+				_conf.getDatabaseFileName()).getFileName());
+		final Path temporaryFile = target.resolveSibling(target.getFileName()
+				+ TEMPORARY_SUFFIX);
+		final List<String> pictureIds = _store.backup(temporaryFile);
+		Files.move(temporaryFile, target, StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+		return pictureIds;
+	}
+
+	/**
+	 * Copy the pictures and thumbnails which aren't in the backup yet.
+	 * 
+	 * @param pictureIds
+	 *            the ids of the pictures of the copy of the store.
+	 * @return the number of copied pictures.
+	 * @throws IOException
+	 *             if an error occurred while copying the files.
+	 * @throws InterruptedException
+	 *             if the backup was interrupted.
+	 */
+	private int backupPictures(final List<String> pictureIds)
+			throws IOException, InterruptedException
+	{
+		final Path pictureListFile = _backupDirectory
+				.resolve(PICTURE_LIST_FILE_NAME);
+		final Set<String> copiedIds = new HashSet<>();
+		if (Files.exists(pictureListFile))
+		{
+			copiedIds.addAll(Files.readAllLines(pictureListFile, CHARSET));
+		}
+		final Path pictureDirectory = Paths.get(_conf
+				.getMainPictureLoaderConfiguration().getPictureDirectory());
+		final Path thumbnailDirectory = Paths.get(_conf
+				.getThumbnailPictureLoaderConfiguration()
+				.getPictureDirectory());
+		final Path backupPictureDirectory = _backupDirectory
+				.resolve(PICTURE_DIRECTORY_NAME);
+		final Path backupThumbnailDirectory = _backupDirectory
+				.resolve(THUMBNAIL_DIRECTORY_NAME);
+		// the backup keeps the layout it was started with
+		final Path backupLayoutFile = backupPictureDirectory
+				.resolve(DirectoryLayout.LAYOUT_FILE_NAME);
+		final DirectoryLayout backupLayout;
+		if (copiedIds.isEmpty())
+		{
+			backupLayout = _fileLocator.getLayout();
+			Files.createDirectories(backupPictureDirectory);
+			backupLayout.write(backupLayoutFile);
+		}
+		else
+		{
+			backupLayout = DirectoryLayout.read(backupLayoutFile,
+					DirectoryLayout.DEFAULT);
+		}
+		int iCopiedPictures = 0;
+		final BufferedWriter writer = Files.newBufferedWriter(
+				pictureListFile, CHARSET, StandardOpenOption.CREATE,
+				StandardOpenOption.APPEND);
+		try
+		{
+			for (final String strId : pictureIds)
+			{
+				if (copiedIds.contains(strId))
+				{
+					continue;
+				}
+				final Path relativePath = backupLayout.getRelativePath(strId);
+				final Path picture = _fileLocator.locate(pictureDirectory,
+						strId);
+				if (!Files.exists(picture))
+				{
+					LOGGER.warn("Missing picture " + picture
+							+ ", not backed up.");
+					continue;
+				}
+				copy(picture, backupPictureDirectory.resolve(relativePath));
+				// a missing thumbnail can be created again
+				final Path thumbnail = _fileLocator.locate(
+						thumbnailDirectory, strId);
+				if (Files.exists(thumbnail))
+				{
+					copy(thumbnail,
+							backupThumbnailDirectory.resolve(relativePath));
+				}
+				writer.write(strId);
+				writer.newLine();
+				writer.flush();
+				iCopiedPictures++;
+			}
+		}
+		finally
+		{
+			writer.close();
+		}
+		return iCopiedPictures;
+	}
+
+	/**
+	 * Copy a file through a temporary file, at the configured rate.
+	 * 
+	 * @param source
+	 *            the file to copy.
+	 * @param target
+	 *            the copy, replaced if it exists.
+	 * @throws IOException
+	 *             if an error occurred while copying the file.
+	 * @throws InterruptedException
+	 *             if the backup was interrupted.
+	 */
+	private void copy(final Path source, final Path target)
+			throws IOException, InterruptedException
+	{
+		Files.createDirectories(target.getParent());
+		final Path temporaryFile = target.resolveSibling(target.getFileName()
+				+ TEMPORARY_SUFFIX);
+		final byte[] buffer = new byte[BUFFER_SIZE];
+		final InputStream in = Files.newInputStream(source);
+		try
+		{
+			final OutputStream out = Files.newOutputStream(temporaryFile);
+			try
+			{
+				int iRead;
+				while ((iRead = in.read(buffer)) != -1)
+				{
+					out.write(buffer, 0, iRead);
+					throttle(iRead);
+				}
+			}
+			finally
+			{
+				out.close();
+			}
+		}
+		finally
+		{
+			in.close();
+		}
+		Files.move(temporaryFile, target, StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Account for copied bytes, and wait if the copies are faster than the
+	 * configured rate.
+	 * 
+	 * @param iBytes
+	 *            the number of bytes just copied.
+	 * @throws InterruptedException
+	 *             if the backup was interrupted.
+	 */
+	private void throttle(final int iBytes) throws InterruptedException
+	{
+		if (Thread.interrupted())
+		{
+			throw new InterruptedException("backup interrupted");
+		}
+		_lCopiedBytes += iBytes;
+		if (_lBytesPerSecond > 0)
+		{
+			final long lAheadMillis = _lCopiedBytes * 1000 / _lBytesPerSecond
+					- (System.nanoTime() - _lStartTime) / 1000000;
+			if (lAheadMillis > 0)
+			{
+				Thread.sleep(lAheadMillis);
+			}
+		}
+	}
+}
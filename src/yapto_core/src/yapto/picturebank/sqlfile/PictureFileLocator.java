@@ -0,0 +1,113 @@
+package yapto.picturebank.sqlfile;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Object locating the files of the pictures and of the thumbnails of a
+ * {@link SQLFilePictureBank} in their directories.
+ * 
+ * New files are always written with the {@link DirectoryLayout} of the bank.
+ * While a {@link DirectoryLayoutMigration} moves the existing files from the
+ * previous layout, a file which isn't in its new place yet is looked for in
+ * its previous place.
+ * 
+ * @author benobiwan
+ * 
+ */
+public final class PictureFileLocator
+{
+	/**
+	 * The layout of the bank.
+	 */
+	private final DirectoryLayout _layout;
+
+	/**
+	 * The layout the files are moved from, null if there is no migration in
+	 * progress.
+	 */
+	private volatile DirectoryLayout _previousLayout;
+
+	/**
+	 * Creates a new PictureFileLocator.
+	 * 
+	 * @param layout
+	 *            the layout of the bank.
+	 * @param previousLayout
+	 *            the layout the files are moved from, null if there is no
+	 *            migration in progress.
+	 */
+	public PictureFileLocator(final DirectoryLayout layout,
+			final DirectoryLayout previousLayout)
+	{
+		_layout = layout;
+		_previousLayout = previousLayout;
+	}
+
+	/**
+	 * Get the layout of the bank.
+	 * 
+	 * @return the layout of the bank.
+	 */
+	public DirectoryLayout getLayout()
+	{
+		return _layout;
+	}
+
+	/**
+	 * Get the layout the files are moved from.
+	 * 
+	 * @return the layout the files are moved from, null if there is no
+	 *         migration in progress.
+	 */
+	public DirectoryLayout getPreviousLayout()
+	{
+		return _previousLayout;
+	}
+
+	/**
+	 * Get the path where the file of a picture is written.
+	 * 
+	 * @param directory
+	 *            the picture, or thumbnail, directory.
+	 * @param strPictureId
+	 *            the id of the picture.
+	 * @return the path of the file of the picture in the layout of the bank.
+	 */
+	public Path getPath(final Path directory, final String strPictureId)
+	{
+		return directory.resolve(_layout.getRelativePath(strPictureId));
+	}
+
+	/**
+	 * Get the path where the file of a picture is read.
+	 * 
+	 * @param directory
+	 *            the picture, or thumbnail, directory.
+	 * @param strPictureId
+	 *            the id of the picture.
+	 * @return the path of the file of the picture in its previous layout if
+	 *         it hasn't been moved yet, in the layout of the bank otherwise.
+	 */
+	public Path locate(final Path directory, final String strPictureId)
+	{
+		final Path path = getPath(directory, strPictureId);
+		final DirectoryLayout previousLayout = _previousLayout;
+		if (previousLayout == null || Files.exists(path))
+		{
+			return path;
+		}
+		final Path previousPath = directory.resolve(previousLayout
+				.getRelativePath(strPictureId));
+		return Files.exists(previousPath) ? previousPath : path;
+	}
+
+	/**
+	 * Record the end of the migration : all the files are in the layout of
+	 * the bank.
+	 */
+	void migrationDone()
+	{
+		_previousLayout = null;
+	}
+}
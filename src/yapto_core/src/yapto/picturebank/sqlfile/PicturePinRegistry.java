@@ -0,0 +1,132 @@
+package yapto.picturebank.sqlfile;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Registry of the {@link FsPicture}s which must stay in memory, because they
+ * are currently displayed or have modifications not yet written to the
+ * database.
+ * 
+ * A pinned picture can still be evicted from the picture cache, but it's then
+ * given back by the cache loader instead of being reloaded from the database,
+ * so that there is never two instances of the same picture. Pins are counted,
+ * a picture stays pinned until it has been unpinned as many times as it has
+ * been pinned.
+ * 
+ * @author benobiwan
+ * 
+ */
+public final class PicturePinRegistry
+{
+	/**
+	 * Map of the pinned pictures by id.
+	 */
+	private final Map<String, PinnedPicture> _pinnedMap = new HashMap<>();
+
+	/**
+	 * Pin the specified picture.
+	 * 
+	 * @param picture
+	 *            the picture to pin.
+	 */
+	public void pin(final FsPicture picture)
+	{
+		synchronized (_pinnedMap)
+		{
+			final PinnedPicture pinned = _pinnedMap.get(picture.getId());
+			if (pinned == null)
+			{
+				_pinnedMap.put(picture.getId(), new PinnedPicture(picture));
+			}
+			else
+			{
+				pinned._iPinCount++;
+			}
+		}
+	}
+
+	/**
+	 * Unpin the specified picture.
+	 * 
+	 * @param picture
+	 *            the picture to unpin.
+	 */
+	public void unpin(final FsPicture picture)
+	{
+		synchronized (_pinnedMap)
+		{
+			final PinnedPicture pinned = _pinnedMap.get(picture.getId());
+			if (pinned != null && --pinned._iPinCount <= 0)
+			{
+				_pinnedMap.remove(picture.getId());
+			}
+		}
+	}
+
+	/**
+	 * Get the pinned picture with the specified id.
+	 * 
+	 * @param strId
+	 *            the id of the picture.
+	 * @return the pinned picture, or null if the picture isn't pinned.
+	 */
+	public FsPicture getPinnedPicture(final String strId)
+	{
+		synchronized (_pinnedMap)
+		{
+			final PinnedPicture pinned = _pinnedMap.get(strId);
+			return (pinned == null) ? null : pinned._picture;
+		}
+	}
+
+	/**
+	 * Get all the pinned pictures.
+	 * 
+	 * @return a copy of the list of the pinned pictures.
+	 */
+	public List<FsPicture> getPinnedPictures()
+	{
+		synchronized (_pinnedMap)
+		{
+			final List<FsPicture> list = new ArrayList<>(_pinnedMap.size());
+			for (final PinnedPicture pinned : _pinnedMap.values())
+			{
+				list.add(pinned._picture);
+			}
+			return list;
+		}
+	}
+
+	/**
+	 * A pinned picture and its number of pins.
+	 * 
+	 * @author benobiwan
+	 * 
+	 */
+	private static final class PinnedPicture
+	{
+		/**
+		 * The pinned picture.
+		 */
+		final FsPicture _picture;
+
+		/**
+		 * The number of pins of the picture.
+		 */
+		int _iPinCount = 1;
+
+		/**
+		 * Creates a new PinnedPicture.
+		 * 
+		 * @param picture
+		 *            the pinned picture.
+		 */
+		PinnedPicture(final FsPicture picture)
+		{
+			_picture = picture;
+		}
+	}
+}
@@ -0,0 +1,166 @@
+package yapto.picturebank.sqlfile;
+
+import yapto.picturebank.PictureInformation;
+import yapto.picturebank.tag.ITag;
+
+/**
+ * The attributes of a picture and the ids of its {@link ITag}s, read from an
+ * {@link IMetadataStore}.
+ * 
+ * @author benobiwan
+ * 
+ */
+public final class PictureRecord
+{
+	/**
+	 * The key of the picture in the {@link IMetadataStore}.
+	 */
+	private final int _iKey;
+
+	/**
+	 * The id of the picture.
+	 */
+	private final String _strId;
+
+	/**
+	 * The grade of the picture.
+	 */
+	private final int _iGrade;
+
+	/**
+	 * The timestamp of the last modification of the picture.
+	 */
+	private final long _lModifiedTimestamp;
+
+	/**
+	 * The timestamp of the addition of the picture.
+	 */
+	private final long _lAddingTimestamp;
+
+	/**
+	 * The {@link PictureInformation} of the picture.
+	 */
+	private final PictureInformation _information;
+
+	/**
+	 * The ids of the {@link ITag}s of the picture.
+	 */
+	private final int[] _tagIds;
+
+	/**
+	 * Creates a new PictureRecord.
+	 * 
+	 * @param iKey
+	 *            the key of the picture in the {@link IMetadataStore}.
+	 * @param strId
+	 *            the id of the picture.
+	 * @param iGrade
+	 *            the grade of the picture.
+	 * @param lModifiedTimestamp
+	 *            the timestamp of the last modification of the picture.
+	 * @param lAddingTimestamp
+	 *            the timestamp of the addition of the picture.
+	 * @param information
+	 *            the {@link PictureInformation} of the picture.
+	 * @param tagIds
+	 *            the ids of the {@link ITag}s of the picture.
+	 */
+	public PictureRecord(final int iKey, final String strId,
+			final int iGrade, final long lModifiedTimestamp,
+			final long lAddingTimestamp, final PictureInformation information,
+			final int[] tagIds)
+	{
+		_iKey = iKey;
+		_strId = strId;
+		_iGrade = iGrade;
+		_lModifiedTimestamp = lModifiedTimestamp;
+		_lAddingTimestamp = lAddingTimestamp;
+		_information = information;
+		_tagIds = tagIds;
+	}
+
+	/**
+	 * Get the key of the picture in the {@link IMetadataStore}.
+	 * 
+	 * @return the key of the picture.
+	 */
+	public int getKey()
+	{
+		return _iKey;
+	}
+
+	/**
+	 * Get the id of the picture.
+	 * 
+	 * @return the id of the picture.
+	 */
+	public String getId()
+	{
+		return _strId;
+	}
+
+	/**
+	 * Get the grade of the picture.
+	 * 
+	 * @return the grade of the picture.
+	 */
+	public int getGrade()
+	{
+		return _iGrade;
+	}
+
+	/**
+	 * Get the timestamp of the last modification of the picture.
+	 * 
+	 * @return the timestamp of the last modification of the picture.
+	 */
+	public long getModifiedTimestamp()
+	{
+		return _lModifiedTimestamp;
+	}
+
+	/**
+	 * Get the timestamp of the addition of the picture.
+	 * 
+	 * @return the timestamp of the addition of the picture.
+	 */
+	public long getAddingTimestamp()
+	{
+		return _lAddingTimestamp;
+	}
+
+	/**
+	 * Get the {@link PictureInformation} of the picture.
+	 * 
+	 * @return the {@link PictureInformation} of the picture.
+	 */
+	public PictureInformation getInformation()
+	{
+		return _information;
+	}
+
+	/**
+	 * Get the ids of the {@link ITag}s of the picture. The returned array
+	 * must not be modified.
+	 * 
+	 * @return the ids of the {@link ITag}s of the picture.
+	 */
+	public int[] getTagIds()
+	{
+		return _tagIds;
+	}
+
+	/**
+	 * Get the {@link PictureState} writing the grade and the {@link ITag}s of
+	 * this record to an {@link IMetadataStore} in which the picture has just
+	 * been inserted, without grade nor tag. The ids of the {@link ITag}s of
+	 * this record must be sorted.
+	 * 
+	 * @return the {@link PictureState} to write.
+	 */
+	public PictureState toInsertedState()
+	{
+		return new PictureState(0, _lAddingTimestamp, PictureState.NO_TAG)
+				.withPictureGrade(_iGrade).withTagIds(_tagIds);
+	}
+}
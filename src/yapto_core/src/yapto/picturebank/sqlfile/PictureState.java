@@ -0,0 +1,368 @@
+package yapto.picturebank.sqlfile;
+
+import java.util.Arrays;
+
+/**
+ * Immutable snapshot of the editable state of a {@link FsPicture} : its grade,
+ * its tags and the timestamp of its last modification.
+ * 
+ * Each modification creates a new snapshot with an incremented version. The
+ * version and the tags of the last snapshot written to the database are
+ * carried along, so that a snapshot knows whether it has been saved and which
+ * tags have been added or removed since.
+ * 
+ * @author benobiwan
+ * 
+ */
+public final class PictureState
+{
+	/**
+	 * Empty array of tag ids, shared by the pictures without tag.
+	 */
+	static final int[] NO_TAG = new int[0];
+
+	/**
+	 * The version of this snapshot.
+	 */
+	private final long _lVersion;
+
+	/**
+	 * The version of the last snapshot written to the database.
+	 */
+	private final long _lSavedVersion;
+
+	/**
+	 * The grade of the picture.
+	 */
+	private final int _iPictureGrade;
+
+	/**
+	 * The timestamp of the last modification of the picture.
+	 */
+	private final long _lModifiedTimestamp;
+
+	/**
+	 * Sorted array of the ids of the tags of the picture, never modified.
+	 */
+	private final int[] _tagIds;
+
+	/**
+	 * Sorted array of the ids of the tags of the picture in the database,
+	 * never modified.
+	 */
+	private final int[] _savedTagIds;
+
+	/**
+	 * Creates a new PictureState.
+	 * 
+	 * @param lVersion
+	 *            the version of this snapshot.
+	 * @param lSavedVersion
+	 *            the version of the last snapshot written to the database.
+	 * @param iPictureGrade
+	 *            the grade of the picture.
+	 * @param lModifiedTimestamp
+	 *            the timestamp of the last modification of the picture.
+	 * @param tagIds
+	 *            sorted array of the ids of the tags of the picture, which
+	 *            mustn't be modified afterwards.
+	 * @param savedTagIds
+	 *            sorted array of the ids of the tags of the picture in the
+	 *            database, which mustn't be modified afterwards.
+	 */
+	private PictureState(final long lVersion, final long lSavedVersion,
+			final int iPictureGrade, final long lModifiedTimestamp,
+			final int[] tagIds, final int[] savedTagIds)
+	{
+		_lVersion = lVersion;
+		_lSavedVersion = lSavedVersion;
+		_iPictureGrade = iPictureGrade;
+		_lModifiedTimestamp = lModifiedTimestamp;
+		_tagIds = tagIds;
+		_savedTagIds = savedTagIds;
+	}
+
+	/**
+	 * Creates a new PictureState for a picture as stored in the database.
+	 * 
+	 * @param iPictureGrade
+	 *            the grade of the picture.
+	 * @param lModifiedTimestamp
+	 *            the timestamp of the last modification of the picture.
+	 * @param tagIds
+	 *            sorted array of the ids of the tags of the picture, which
+	 *            mustn't be modified afterwards.
+	 */
+	PictureState(final int iPictureGrade,
+			final long lModifiedTimestamp, final int[] tagIds)
+	{
+		this(0, 0, iPictureGrade, lModifiedTimestamp, tagIds, tagIds);
+	}
+
+	/**
+	 * Get the version of this snapshot.
+	 * 
+	 * @return the version of this snapshot.
+	 */
+	public long getVersion()
+	{
+		return _lVersion;
+	}
+
+	/**
+	 * Check whether this snapshot has modifications not yet written to the
+	 * database.
+	 * 
+	 * @return true if this snapshot has modifications not yet written.
+	 */
+	public boolean isModified()
+	{
+		return _lSavedVersion != _lVersion;
+	}
+
+	/**
+	 * Get the grade of the picture.
+	 * 
+	 * @return the grade of the picture.
+	 */
+	public int getPictureGrade()
+	{
+		return _iPictureGrade;
+	}
+
+	/**
+	 * Get the timestamp of the last modification of the picture.
+	 * 
+	 * @return the timestamp of the last modification of the picture.
+	 */
+	public long getModifiedTimestamp()
+	{
+		return _lModifiedTimestamp;
+	}
+
+	/**
+	 * Get the ids of the tags of the picture.
+	 * 
+	 * @return a copy of the sorted ids of the tags of the picture.
+	 */
+	public int[] getTagIds()
+	{
+		return _tagIds.clone();
+	}
+
+	/**
+	 * Get the ids of the tags of the picture in the database.
+	 * 
+	 * @return a copy of the sorted ids of the tags of the picture in the
+	 *         database.
+	 */
+	public int[] getSavedTagIds()
+	{
+		return _savedTagIds.clone();
+	}
+
+	/**
+	 * Get the number of tags of the picture.
+	 * 
+	 * @return the number of tags of the picture.
+	 */
+	public int getTagCount()
+	{
+		return _tagIds.length;
+	}
+
+	/**
+	 * Check whether the picture has the specified tag.
+	 * 
+	 * @param iTagId
+	 *            the id of the tag.
+	 * @return true if the picture has the tag.
+	 */
+	public boolean hasTag(final int iTagId)
+	{
+		return Arrays.binarySearch(_tagIds, iTagId) >= 0;
+	}
+
+	/**
+	 * Create the snapshot following this one with the specified grade.
+	 * 
+	 * @param iPictureGrade
+	 *            the new grade.
+	 * @return the new snapshot.
+	 */
+	PictureState withPictureGrade(final int iPictureGrade)
+	{
+		return new PictureState(_lVersion + 1, _lSavedVersion, iPictureGrade,
+				System.currentTimeMillis(), _tagIds, _savedTagIds);
+	}
+
+	/**
+	 * Create the snapshot following this one with the specified tags.
+	 * 
+	 * @param tagIds
+	 *            sorted array of the ids of the new tags, which mustn't be
+	 *            modified afterwards.
+	 * @return the new snapshot.
+	 */
+	PictureState withTagIds(final int[] tagIds)
+	{
+		return new PictureState(_lVersion + 1, _lSavedVersion, _iPictureGrade,
+				System.currentTimeMillis(), tagIds, _savedTagIds);
+	}
+
+	/**
+	 * Create the snapshot following this one with the specified tag added.
+	 * 
+	 * @param iTagId
+	 *            the id of the tag to add.
+	 * @return the new snapshot, or this one if the picture already has the
+	 *         tag.
+	 */
+	PictureState withTag(final int iTagId)
+	{
+		final int iIndex = Arrays.binarySearch(_tagIds, iTagId);
+		if (iIndex >= 0)
+		{
+			return this;
+		}
+		final int iInsert = -iIndex - 1;
+		final int[] newIds = new int[_tagIds.length + 1];
+		System.arraycopy(_tagIds, 0, newIds, 0, iInsert);
+		newIds[iInsert] = iTagId;
+		System.arraycopy(_tagIds, iInsert, newIds, iInsert + 1,
+				_tagIds.length - iInsert);
+		return withTagIds(newIds);
+	}
+
+	/**
+	 * Create the snapshot following this one with the specified tag removed.
+	 * 
+	 * @param iTagId
+	 *            the id of the tag to remove.
+	 * @return the new snapshot, or this one if the picture hasn't the tag.
+	 */
+	PictureState withoutTag(final int iTagId)
+	{
+		final int iIndex = Arrays.binarySearch(_tagIds, iTagId);
+		if (iIndex < 0)
+		{
+			return this;
+		}
+		final int[] newIds = (_tagIds.length == 1) ? NO_TAG
+				: new int[_tagIds.length - 1];
+		System.arraycopy(_tagIds, 0, newIds, 0, iIndex);
+		System.arraycopy(_tagIds, iIndex + 1, newIds, iIndex, _tagIds.length
+				- iIndex - 1);
+		return withTagIds(newIds);
+	}
+
+	/**
+	 * Create the snapshot following this one with the grade, the tags and the
+	 * timestamp of the specified snapshot, restored from the edit journal.
+	 * 
+	 * @param restored
+	 *            the restored snapshot.
+	 * @return the new snapshot, or this one if it has the same grade and tags.
+	 */
+	PictureState withRestored(final PictureState restored)
+	{
+		if (_iPictureGrade == restored._iPictureGrade
+				&& Arrays.equals(_tagIds, restored._tagIds))
+		{
+			return this;
+		}
+		return new PictureState(_lVersion + 1, _lSavedVersion,
+				restored._iPictureGrade, restored._lModifiedTimestamp,
+				restored._tagIds, _savedTagIds);
+	}
+
+	/**
+	 * Create a copy of this snapshot recording that the specified snapshot has
+	 * been written to the database.
+	 * 
+	 * @param saved
+	 *            the snapshot written to the database.
+	 * @return the new snapshot, or this one if a later version had already
+	 *         been recorded.
+	 */
+	PictureState withSaved(final PictureState saved)
+	{
+		if (saved._lVersion <= _lSavedVersion)
+		{
+			return this;
+		}
+		return new PictureState(_lVersion, saved._lVersion, _iPictureGrade,
+				_lModifiedTimestamp, _tagIds, saved._tagIds);
+	}
+
+	/**
+	 * Check whether the tags of the picture differ from the tags in the
+	 * database.
+	 * 
+	 * @return true if tags have been added or removed since the last write.
+	 */
+	public boolean hasTagChanges()
+	{
+		return _tagIds != _savedTagIds && !Arrays.equals(_tagIds, _savedTagIds);
+	}
+
+	/**
+	 * Get the ids of the tags added since the last write to the database.
+	 * 
+	 * @return the sorted ids of the added tags.
+	 */
+	public int[] getAddedTagIds()
+	{
+		return difference(_tagIds, _savedTagIds);
+	}
+
+	/**
+	 * Get the ids of the tags removed since the last write to the database.
+	 * 
+	 * @return the sorted ids of the removed tags.
+	 */
+	public int[] getRemovedTagIds()
+	{
+		return difference(_savedTagIds, _tagIds);
+	}
+
+	/**
+	 * Compute the ids of the first array missing from the second one.
+	 * 
+	 * @param ids
+	 *            sorted array of ids.
+	 * @param otherIds
+	 *            other sorted array of ids.
+	 * @return the sorted ids of the first array missing from the second one.
+	 */
+	private static int[] difference(final int[] ids, final int[] otherIds)
+	{
+		final int[] result = new int[ids.length];
+		int iCount = 0;
+		int j = 0;
+		for (final int iId : ids)
+		{
+			while (j < otherIds.length && otherIds[j] < iId)
+			{
+				j++;
+			}
+			if (j >= otherIds.length || otherIds[j] != iId)
+			{
+				result[iCount++] = iId;
+			}
+		}
+		return Arrays.copyOf(result, iCount);
+	}
+
+	/**
+	 * Check whether the specified tag ids are the tags of this snapshot.
+	 * 
+	 * @param tagIds
+	 *            sorted array of tag ids.
+	 * @return true if they are the tags of this snapshot.
+	 */
+	boolean hasSameTags(final int[] tagIds)
+	{
+		return Arrays.equals(_tagIds, tagIds);
+	}
+}
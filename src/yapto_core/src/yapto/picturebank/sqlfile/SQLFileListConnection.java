@@ -6,12 +6,24 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import yapto.picturebank.IPicture;
 import yapto.picturebank.IPictureBank;
 import yapto.picturebank.PictureInformation;
 import yapto.picturebank.sqlfile.config.ISQLFilePictureBankConfiguration;
+import yapto.picturebank.sqlfile.schema.SchemaMigrator;
 import yapto.picturebank.tag.ITag;
 
 /**
@@ -22,6 +34,18 @@ import yapto.picturebank.tag.ITag;
  */
 public final class SQLFileListConnection
 {
+	/**
+	 * Logger object.
+	 */
+	protected static final Logger LOGGER = LoggerFactory
+			.getLogger(SQLFileListConnection.class);
+
+	/**
+	 * Maximum number of parameters of a single query, kept below the SQLite
+	 * limit of 999 host parameters.
+	 */
+	public static final int MAX_QUERY_PARAMETERS = 500;
+
 	/**
 	 * Configuration for this {@link SQLFilePictureBank}.
 	 */
@@ -64,6 +88,12 @@ public final class SQLFileListConnection
 	 */
 	public static final String PICTURE_TABLE_NAME = "picture";
 
+	/**
+	 * Name for the 'picture_key' column of the 'picture' table, the integer
+	 * key of the pictures in the relational tables.
+	 */
+	public static final String PICTURE_KEY_COLUMN_NAME = "picture_key";
+
 	/**
 	 * Name for the 'id' column of the 'picture' table.
 	 */
@@ -147,9 +177,50 @@ public final class SQLFileListConnection
 	public static final String PICTURE_TAG_TAG_ID_COLUMN_NAME = "tagId";
 
 	/**
-	 * Name for the 'pictureId' column of the 'picture_tag' table.
+	 * Name for the 'pictureKey' column of the 'picture_tag' table.
 	 */
-	public static final String PICTURE_TAG_PICTURE_ID_COLUMN_NAME = "pictureId";
+	public static final String PICTURE_TAG_PICTURE_KEY_COLUMN_NAME = "pictureKey";
+
+	// tag_count table
+	/**
+	 * Name for the 'tag_count' table.
+	 */
+	public static final String TAG_COUNT_TABLE_NAME = "tag_count";
+
+	/**
+	 * Name for the 'tagId' column of the 'tag_count' table.
+	 */
+	public static final String TAG_COUNT_TAG_ID_COLUMN_NAME = "tagId";
+
+	/**
+	 * Name for the 'pictureCount' column of the 'tag_count' table, the number
+	 * of pictures having the tag.
+	 */
+	public static final String TAG_COUNT_PICTURE_COUNT_COLUMN_NAME = "pictureCount";
+
+	/**
+	 * Name for the 'subtreeCount' column of the 'tag_count' table, the number
+	 * of distinct pictures having the tag or one of its descendants.
+	 */
+	public static final String TAG_COUNT_SUBTREE_COUNT_COLUMN_NAME = "subtreeCount";
+
+	// bank_state table
+	/**
+	 * Name for the 'bank_state' table.
+	 */
+	public static final String BANK_STATE_TABLE_NAME = "bank_state";
+
+	/**
+	 * Name for the 'id' column of the 'bank_state' table, holding a single
+	 * row.
+	 */
+	public static final String BANK_STATE_ID_COLUMN_NAME = "id";
+
+	/**
+	 * Name for the 'changeCounter' column of the 'bank_state' table,
+	 * incremented each time the list of pictures or the tree of tags changes.
+	 */
+	public static final String BANK_STATE_CHANGE_COUNTER_COLUMN_NAME = "changeCounter";
 
 	/**
 	 * Connection to the database.
@@ -200,19 +271,9 @@ public final class SQLFileListConnection
 	private final PreparedStatement _psInsertTagForPicture;
 
 	/**
-	 * Statement to remove all the {@link ITag}s of an {@link IPicture}.
+	 * Statement to remove a {@link ITag} from an {@link IPicture}.
 	 */
-	private final PreparedStatement _psRemoveTagsForPicture;
-
-	/**
-	 * Statement to load a picture.
-	 */
-	private final PreparedStatement _psLoadPicture;
-
-	/**
-	 * Statement to load all the {@link ITag}s of an {@link IPicture}.
-	 */
-	private final PreparedStatement _psLoadTagsOfPicture;
+	private final PreparedStatement _psRemoveTagForPicture;
 
 	/**
 	 * Statement to load a {@link ITag}.
@@ -234,6 +295,52 @@ public final class SQLFileListConnection
 	 */
 	private final PreparedStatement _psRemoveTagFromAllPictures;
 
+	/**
+	 * Statement to insert the picture counts of a {@link ITag}.
+	 */
+	private final PreparedStatement _psInsertTagCount;
+
+	/**
+	 * Statement to add deltas to the picture counts of a {@link ITag}.
+	 */
+	private final PreparedStatement _psUpdateTagCount;
+
+	/**
+	 * Statement to recount the distinct pictures having a {@link ITag} or one
+	 * of its descendants.
+	 */
+	private final PreparedStatement _psRecountTagSubtree;
+
+	/**
+	 * Statement to remove the picture counts of a {@link ITag}.
+	 */
+	private final PreparedStatement _psRemoveTagCount;
+
+	/**
+	 * Lock serializing the writes on the connection, so the transaction of a
+	 * write doesn't include the statements of a concurrent one. Also protects
+	 * the statements used by the writes.
+	 */
+	private final Object _writeLock = new Object();
+
+	/**
+	 * Idle read connections, protected by the lock on the list of read
+	 * connections.
+	 */
+	private final Deque<SQLFileReadConnection> _idleReaders = new ArrayDeque<>();
+
+	/**
+	 * All the read connections opened and not closed yet, idle or acquired,
+	 * protected by its own lock.
+	 */
+	private final List<SQLFileReadConnection> _readers = new ArrayList<>();
+
+	/**
+	 * Whether this connection has been closed, protected by the lock on the
+	 * list of read connections.
+	 */
+	private boolean _bClosed = false;
+
 	/**
 	 * creates a new SQLFileListConnection.
 	 * 
@@ -252,7 +359,21 @@ public final class SQLFileListConnection
 		Class.forName("org.sqlite.JDBC");
 		_connection = DriverManager.getConnection("jdbc:sqlite:"
 				+ _conf.getDatabaseFileName());
-		createTables();
+		final Statement pragmaStatement = _connection.createStatement();
+		try
+		{
+			// in WAL mode the readers don't block the writer, and a commit
+			// only needs to sync the log
+			pragmaStatement.execute("PRAGMA journal_mode = WAL");
+			pragmaStatement.execute("PRAGMA synchronous = "
+					+ _conf.getDatabaseSynchronous());
+			SQLFileReadConnection.applyCachePragmas(pragmaStatement, _conf);
+		}
+		finally
+		{
+			pragmaStatement.close();
+		}
+		new SchemaMigrator().migrate(_connection);
 
 		_psInsertTag = _connection.prepareStatement("INSERT INTO "
 				+ TAG_TABLE_NAME + " (" + TAG_ID_COLUMN_NAME + ", "
@@ -265,13 +386,17 @@ public final class SQLFileListConnection
 				+ TAG_PARENT_ID_COLUMN_NAME + "=?, "
 				+ TAG_SELECTABLE_COLUMN_NAME + "=? WHERE " + TAG_ID_COLUMN_NAME
 				+ "=?");
-		_psCountPicturesByTag = _connection.prepareStatement("SELECT COUNT("
-				+ PICTURE_TAG_PICTURE_ID_COLUMN_NAME + ") FROM "
-				+ PICTURE_TAG_TABLE_NAME + " WHERE "
-				+ PICTURE_TAG_TAG_ID_COLUMN_NAME + "=?");
+		_psCountPicturesByTag = _connection.prepareStatement("SELECT "
+				+ TAG_COUNT_PICTURE_COUNT_COLUMN_NAME + " FROM "
+				+ TAG_COUNT_TABLE_NAME + " WHERE "
+				+ TAG_COUNT_TAG_ID_COLUMN_NAME + "=?");
 		_psSelectPicturesByTag = _connection.prepareStatement("SELECT "
-				+ PICTURE_TAG_PICTURE_ID_COLUMN_NAME + " FROM "
-				+ PICTURE_TAG_TABLE_NAME + " WHERE "
+				+ PICTURE_TABLE_NAME + "." + PICTURE_ID_COLUMN_NAME + " FROM "
+				+ PICTURE_TAG_TABLE_NAME + " JOIN " + PICTURE_TABLE_NAME
+				+ " ON " + PICTURE_TABLE_NAME + "." + PICTURE_KEY_COLUMN_NAME
+				+ " = " + PICTURE_TAG_TABLE_NAME + "."
+				+ PICTURE_TAG_PICTURE_KEY_COLUMN_NAME + " WHERE "
+				+ PICTURE_TAG_TABLE_NAME + "."
 				+ PICTURE_TAG_TAG_ID_COLUMN_NAME + "=?");
 		_psCountPictures = _connection.prepareStatement("SELECT COUNT("
 				+ PICTURE_ID_COLUMN_NAME + ") FROM " + PICTURE_TABLE_NAME);
@@ -288,37 +413,21 @@ public final class SQLFileListConnection
 				+ ", " + PICTURE_EXPOSURE_COLUMN_NAME + ", "
 				+ PICTURE_RELATIVE_APERTURE_COLUMN_NAME + ", "
 				+ PICTURE_FOCAL_LENGTH_COLUMN_NAME
-				+ ") VALUES(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)");
+				+ ") VALUES(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)",
+				Statement.RETURN_GENERATED_KEYS);
 		_psUpdatePictureMarkAndTimestamp = _connection
 				.prepareStatement("UPDATE " + PICTURE_TABLE_NAME + " SET "
 						+ PICTURE_GRADE_COLUMN_NAME + "=?, "
 						+ PICTURE_MODIFIED_TIMESTAMP_COLUMN_NAME + "=? WHERE "
-						+ PICTURE_ID_COLUMN_NAME + "=?");
+						+ PICTURE_KEY_COLUMN_NAME + "=?");
 		_psInsertTagForPicture = _connection.prepareStatement("INSERT INTO "
 				+ PICTURE_TAG_TABLE_NAME + " ("
 				+ PICTURE_TAG_TAG_ID_COLUMN_NAME + ", "
-				+ PICTURE_TAG_PICTURE_ID_COLUMN_NAME + ") VALUES(?, ?)");
-		_psRemoveTagsForPicture = _connection.prepareStatement("DELETE FROM "
+				+ PICTURE_TAG_PICTURE_KEY_COLUMN_NAME + ") VALUES(?, ?)");
+		_psRemoveTagForPicture = _connection.prepareStatement("DELETE FROM "
 				+ PICTURE_TAG_TABLE_NAME + " WHERE "
-				+ PICTURE_TAG_PICTURE_ID_COLUMN_NAME + "=?");
-		_psLoadPicture = _connection.prepareStatement("SELECT "
-				+ PICTURE_GRADE_COLUMN_NAME + ", " + PICTURE_ORIGINAL_NAME
-				+ ", " + PICTURE_WIDTH_COLUMN_NAME + ", "
-				+ PICTURE_HEIGTH_COLUMN_NAME + ", "
-				+ PICTURE_MODIFIED_TIMESTAMP_COLUMN_NAME + ", "
-				+ PICTURE_CREATION_TIMESTAMP_COLUMN_NAME + ", "
-				+ PICTURE_ADDING_TIMESTAMP_COLUMN_NAME + ", "
-				+ PICTURE_ORIENTATION_COLUMN_NAME + ", "
-				+ PICTURE_MAKE_COLUMN_NAME + ", " + PICTURE_MODEL_COLUMN_NAME
-				+ ", " + PICTURE_EXPOSURE_COLUMN_NAME + ", "
-				+ PICTURE_RELATIVE_APERTURE_COLUMN_NAME + ", "
-				+ PICTURE_FOCAL_LENGTH_COLUMN_NAME + " FROM "
-				+ PICTURE_TABLE_NAME + " WHERE " + PICTURE_ID_COLUMN_NAME
-				+ " =?");
-		_psLoadTagsOfPicture = _connection.prepareStatement("SELECT "
-				+ PICTURE_TAG_TAG_ID_COLUMN_NAME + " FROM "
-				+ PICTURE_TAG_TABLE_NAME + " WHERE "
-				+ PICTURE_TAG_PICTURE_ID_COLUMN_NAME + " =?");
+				+ PICTURE_TAG_TAG_ID_COLUMN_NAME + "=? AND "
+				+ PICTURE_TAG_PICTURE_KEY_COLUMN_NAME + "=?");
 		_psLoadTag = _connection.prepareStatement("SELECT "
 				+ TAG_ID_COLUMN_NAME + ", " + TAG_NAME_COLUMN_NAME + ", "
 				+ TAG_DESCRIPTION_COLUMN_NAME + ", "
@@ -332,6 +441,35 @@ public final class SQLFileListConnection
 		_psRemoveTagFromAllPictures = _connection
 				.prepareStatement("DELETE FROM " + PICTURE_TAG_TABLE_NAME
 						+ " WHERE " + PICTURE_TAG_TAG_ID_COLUMN_NAME + "=?");
+		_psInsertTagCount = _connection
+				.prepareStatement("INSERT OR REPLACE INTO "
+						+ TAG_COUNT_TABLE_NAME + " ("
+						+ TAG_COUNT_TAG_ID_COLUMN_NAME + ", "
+						+ TAG_COUNT_PICTURE_COUNT_COLUMN_NAME + ", "
+						+ TAG_COUNT_SUBTREE_COUNT_COLUMN_NAME
+						+ ") VALUES(?, 0, 0)");
+		_psUpdateTagCount = _connection.prepareStatement("UPDATE "
+				+ TAG_COUNT_TABLE_NAME + " SET "
+				+ TAG_COUNT_PICTURE_COUNT_COLUMN_NAME + " = "
+				+ TAG_COUNT_PICTURE_COUNT_COLUMN_NAME + " + ?, "
+				+ TAG_COUNT_SUBTREE_COUNT_COLUMN_NAME + " = "
+				+ TAG_COUNT_SUBTREE_COUNT_COLUMN_NAME + " + ? WHERE "
+				+ TAG_COUNT_TAG_ID_COLUMN_NAME + "=?");
+		// the subtree of the tag is walked through the parent ids
+		_psRecountTagSubtree = _connection.prepareStatement("UPDATE "
+				+ TAG_COUNT_TABLE_NAME + " SET "
+				+ TAG_COUNT_SUBTREE_COUNT_COLUMN_NAME
+				+ " = (WITH RECURSIVE subtree (id) AS (VALUES (?) UNION SELECT "
+				+ TAG_TABLE_NAME + "." + TAG_ID_COLUMN_NAME + " FROM "
+				+ TAG_TABLE_NAME + " JOIN subtree ON " + TAG_TABLE_NAME + "."
+				+ TAG_PARENT_ID_COLUMN_NAME + " = subtree.id) SELECT COUNT("
+				+ "DISTINCT " + PICTURE_TAG_PICTURE_KEY_COLUMN_NAME + ") FROM "
+				+ PICTURE_TAG_TABLE_NAME + " WHERE "
+				+ PICTURE_TAG_TAG_ID_COLUMN_NAME + " IN subtree) WHERE "
+				+ TAG_COUNT_TAG_ID_COLUMN_NAME + "=?");
+		_psRemoveTagCount = _connection.prepareStatement("DELETE FROM "
+				+ TAG_COUNT_TABLE_NAME + " WHERE "
+				+ TAG_COUNT_TAG_ID_COLUMN_NAME + "=?");
 	}
 
 	/**
@@ -342,6 +480,25 @@ public final class SQLFileListConnection
 	 */
 	public void close() throws SQLException
 	{
+		synchronized (_readers)
+		{
+			_bClosed = true;
+			// the acquired read connections are closed when given back
+			try
+			{
+				for (final SQLFileReadConnection reader : _idleReaders)
+				{
+					_readers.remove(reader);
+					reader.close();
+				}
+			}
+			finally
+			{
+				_idleReaders.clear();
+				// the threads waiting for a read connection fail
+				_readers.notifyAll();
+			}
+		}
 		if (_psInsertTag != null)
 		{
 			_psInsertTag.close();
@@ -378,17 +535,9 @@ public final class SQLFileListConnection
 		{
 			_psInsertTagForPicture.close();
 		}
-		if (_psRemoveTagsForPicture != null)
-		{
-			_psRemoveTagsForPicture.close();
-		}
-		if (_psLoadPicture != null)
-		{
-			_psLoadPicture.close();
-		}
-		if (_psLoadTagsOfPicture != null)
+		if (_psRemoveTagForPicture != null)
 		{
-			_psLoadTagsOfPicture.close();
+			_psRemoveTagForPicture.close();
 		}
 		if (_psLoadTag != null)
 		{
@@ -398,12 +547,106 @@ public final class SQLFileListConnection
 		{
 			_psListPicture.close();
 		}
+		if (_psInsertTagCount != null)
+		{
+			_psInsertTagCount.close();
+		}
+		if (_psUpdateTagCount != null)
+		{
+			_psUpdateTagCount.close();
+		}
+		if (_psRecountTagSubtree != null)
+		{
+			_psRecountTagSubtree.close();
+		}
+		if (_psRemoveTagCount != null)
+		{
+			_psRemoveTagCount.close();
+		}
 		if (_connection != null)
 		{
 			_connection.close();
 		}
 	}
 
+	/**
+	 * Acquire a read connection from the pool, opening a new one if none is
+	 * idle and the configured number of read connections isn't reached. The
+	 * read connection must be given back with
+	 * {@link #releaseReader(SQLFileReadConnection)}.
+	 * 
+	 * @return a read connection.
+	 * @throws SQLException
+	 *             if an SQL error occurred during the opening of a read
+	 *             connection, if this connection is closed, or if the thread
+	 *             was interrupted while waiting for a read connection.
+	 */
+	public SQLFileReadConnection acquireReader() throws SQLException
+	{
+		synchronized (_readers)
+		{
+			while (true)
+			{
+				if (_bClosed)
+				{
+					throw new SQLException("connection closed");
+				}
+				final SQLFileReadConnection reader = _idleReaders.poll();
+				if (reader != null)
+				{
+					return reader;
+				}
+				if (_readers.size() < _conf.getDatabaseReadConnections())
+				{
+					final SQLFileReadConnection newReader = new SQLFileReadConnection(
+							_conf);
+					_readers.add(newReader);
+					return newReader;
+				}
+				try
+				{
+					_readers.wait();
+				}
+				catch (final InterruptedException e)
+				{
+					Thread.currentThread().interrupt();
+					throw new SQLException(
+							"interrupted while waiting for a reader", e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Give back a read connection acquired with {@link #acquireReader()}. The
+	 * read connection is closed if this connection has been closed in the
+	 * meantime.
+	 * 
+	 * @param reader
+	 *            the read connection.
+	 */
+	public void releaseReader(final SQLFileReadConnection reader)
+	{
+		synchronized (_readers)
+		{
+			if (!_bClosed)
+			{
+				_idleReaders.push(reader);
+				_readers.notify();
+				return;
+			}
+			_readers.remove(reader);
+		}
+		try
+		{
+			reader.close();
+		}
+		catch (final SQLException e)
+		{
+			LOGGER.error(e.getMessage(), e);
+		}
+	}
+
 	/**
 	 * Save the given {@link ITag} to the database.
 	 * 
@@ -415,7 +658,7 @@ public final class SQLFileListConnection
 	 */
 	public void saveTagToDatabase(final ITag tag) throws SQLException
 	{
-		synchronized (_psInsertTag)
+		synchronized (_writeLock)
 		{
 			_psInsertTag.clearParameters();
 			_psInsertTag.setInt(1, tag.getTagId());
@@ -431,6 +674,9 @@ public final class SQLFileListConnection
 			}
 			_psInsertTag.setBoolean(5, tag.isSelectable());
 			_psInsertTag.executeUpdate();
+			_psInsertTagCount.clearParameters();
+			_psInsertTagCount.setInt(1, tag.getTagId());
+			_psInsertTagCount.executeUpdate();
 		}
 	}
 
@@ -445,7 +691,7 @@ public final class SQLFileListConnection
 	 */
 	public void modifyTagIntoDatabase(final ITag tag) throws SQLException
 	{
-		synchronized (_psEditTag)
+		synchronized (_writeLock)
 		{
 			_psEditTag.clearParameters();
 			_psEditTag.setString(1, tag.getName());
@@ -458,57 +704,8 @@ public final class SQLFileListConnection
 	}
 
 	/**
-	 * Create the tables of this database.
-	 * 
-	 * @throws SQLException
-	 *             if an SQL error occurred during the creation of the tables.
-	 */
-	public void createTables() throws SQLException
-	{
-		Statement statement = null;
-		try
-		{
-			statement = _connection.createStatement();
-			// Tag table
-			statement.executeUpdate("create table if not exists "
-					+ TAG_TABLE_NAME + " (" + TAG_ID_COLUMN_NAME + " integer, "
-					+ TAG_NAME_COLUMN_NAME + " text, "
-					+ TAG_DESCRIPTION_COLUMN_NAME + " text, "
-					+ TAG_PARENT_ID_COLUMN_NAME + " integer, "
-					+ TAG_SELECTABLE_COLUMN_NAME + " boolean)");
-			// picture table
-			statement.executeUpdate("create table if not exists "
-					+ PICTURE_TABLE_NAME + " (" + PICTURE_ID_COLUMN_NAME
-					+ " text, " + PICTURE_GRADE_COLUMN_NAME + " integer, "
-					+ PICTURE_MODIFIED_TIMESTAMP_COLUMN_NAME + " integer, "
-					+ PICTURE_ADDING_TIMESTAMP_COLUMN_NAME + " integer, "
-					+ PICTURE_ORIGINAL_NAME + " text, "
-					+ PICTURE_WIDTH_COLUMN_NAME + " integer, "
-					+ PICTURE_HEIGTH_COLUMN_NAME + " integer, "
-					+ PICTURE_CREATION_TIMESTAMP_COLUMN_NAME + " integer, "
-					+ PICTURE_ORIENTATION_COLUMN_NAME + " integer, "
-					+ PICTURE_MAKE_COLUMN_NAME + " text, "
-					+ PICTURE_MODEL_COLUMN_NAME + " text, "
-					+ PICTURE_EXPOSURE_COLUMN_NAME + " text, "
-					+ PICTURE_RELATIVE_APERTURE_COLUMN_NAME + " text, "
-					+ PICTURE_FOCAL_LENGTH_COLUMN_NAME + " text)");
-			// picture_tag table
-			statement.executeUpdate("create table if not exists "
-					+ PICTURE_TAG_TABLE_NAME + " ("
-					+ PICTURE_TAG_TAG_ID_COLUMN_NAME + " integer, "
-					+ PICTURE_TAG_PICTURE_ID_COLUMN_NAME + " integer)");
-		}
-		finally
-		{
-			if (statement != null)
-			{
-				statement.close();
-			}
-		}
-	}
-
-	/**
-	 * Load the list of tags.
+	 * Load the list of tags, with the id of their parent. The statement of the
+	 * returned {@link ResultSet} must be closed by the caller.
 	 * 
 	 * @return a {@link ResultSet} containing the list of tags.
 	 * @throws SQLException
@@ -516,52 +713,40 @@ public final class SQLFileListConnection
 	 *             database.
 	 */
 	public ResultSet loadTagList() throws SQLException
-	{
-		final Statement statement = _connection.createStatement();
-		return statement
-				.executeQuery("select " + TAG_ID_COLUMN_NAME + ", "
-						+ TAG_NAME_COLUMN_NAME + ", "
-						+ TAG_DESCRIPTION_COLUMN_NAME + ", "
-						+ TAG_SELECTABLE_COLUMN_NAME + " from "
-						+ TAG_TABLE_NAME);
-	}
-
-	/**
-	 * Load the list of tag id and there parent id.
-	 * 
-	 * @return a {@link ResultSet} containing the list of tag id and there
-	 *         parent id.
-	 * @throws SQLException
-	 *             if an SQL error occurred during the interrogation of the
-	 *             database.
-	 */
-	public ResultSet loadParents() throws SQLException
 	{
 		final Statement statement = _connection.createStatement();
 		return statement.executeQuery("select " + TAG_ID_COLUMN_NAME + ", "
-				+ TAG_PARENT_ID_COLUMN_NAME + " from " + TAG_TABLE_NAME);
+				+ TAG_NAME_COLUMN_NAME + ", " + TAG_DESCRIPTION_COLUMN_NAME + ", "
+				+ TAG_PARENT_ID_COLUMN_NAME + ", " + TAG_SELECTABLE_COLUMN_NAME
+				+ " from " + TAG_TABLE_NAME);
 	}
 
 	/**
-	 * Insert a {@link FsPicture} in the database.
+	 * Insert a picture in the database.
 	 * 
-	 * @param picture
-	 *            the {@link FsPicture} to insert.
-	 * @return true if the picture was correctly inserted.
+	 * @param strPictureId
+	 *            the id of the picture to insert.
+	 * @param lAddingTimestamp
+	 *            the timestamp of the addition of the picture, also used as
+	 *            the timestamp of its last modification.
+	 * @param info
+	 *            the {@link PictureInformation} of the picture.
+	 * @return the key of the inserted picture.
 	 * @throws SQLException
 	 *             if an SQL error occurred during the insertion in the
 	 *             database.
 	 */
-	public boolean insertPicture(final FsPicture picture) throws SQLException
+	public int insertPicture(final String strPictureId,
+			final long lAddingTimestamp, final PictureInformation info)
+			throws SQLException
 	{
-		synchronized (_psInsertPicture)
+		synchronized (_writeLock)
 		{
 			_psInsertPicture.clearParameters();
-			_psInsertPicture.setString(1, picture.getId());
-			_psInsertPicture.setInt(2, picture.getPictureGrade());
-			_psInsertPicture.setLong(3, picture.getModifiedTimestamp());
-			_psInsertPicture.setLong(4, picture.getAddingTimestamp());
-			final PictureInformation info = picture.getPictureInformation();
+			_psInsertPicture.setString(1, strPictureId);
+			_psInsertPicture.setInt(2, 0);
+			_psInsertPicture.setLong(3, lAddingTimestamp);
+			_psInsertPicture.setLong(4, lAddingTimestamp);
 			if (info != null)
 			{
 				_psInsertPicture.setString(5, info.getOriginalFileName());
@@ -579,61 +764,250 @@ public final class SQLFileListConnection
 			{
 				// TODO throw exception here
 			}
-			return _psInsertPicture.executeUpdate() > 0;
+			_psInsertPicture.executeUpdate();
+			final ResultSet keys = _psInsertPicture.getGeneratedKeys();
+			try
+			{
+				if (keys.next())
+				{
+					return keys.getInt(1);
+				}
+				throw new SQLException("no key generated for " + strPictureId);
+			}
+			finally
+			{
+				keys.close();
+			}
 		}
 	}
 
 	/**
-	 * Update the {@link ITag} list of a {@link FsPicture}.
+	 * Update the meta-informations of the specified picture.
 	 * 
-	 * @param picture
-	 *            the {@link FsPicture} to update.
+	 * @param iPictureKey
+	 *            the key of the {@link FsPicture} to update.
+	 * @param state
+	 *            the {@link PictureState} to write.
+	 * @param countDeltas
+	 *            the deltas of the picture count and of the subtree count to
+	 *            add to the counts of the {@link ITag}s, by tag id.
 	 * @throws SQLException
 	 *             if an SQL error occurred during the insertion in the
 	 *             database.
 	 */
-	public void updateTags(final FsPicture picture) throws SQLException
+	public void updatePicture(final int iPictureKey, final PictureState state,
+			final Map<Integer, int[]> countDeltas) throws SQLException
+	{
+		updatePictures(Collections.singletonMap(Integer.valueOf(iPictureKey),
+				state), countDeltas);
+	}
+
+	/**
+	 * Update the meta-informations of the specified pictures and the picture
+	 * counts of the {@link ITag}s in a single transaction, using batches of
+	 * statements.
+	 * 
+	 * Only the tags added or removed since the last write of each picture are
+	 * written, the tag table isn't touched for a picture whose tags haven't
+	 * changed.
+	 * 
+	 * @param stateMap
+	 *            map of the {@link PictureState}s to write by picture key.
+	 * @param countDeltas
+	 *            the deltas of the picture count and of the subtree count to
+	 *            add to the counts of the {@link ITag}s, by tag id.
+	 * @throws SQLException
+	 *             if an SQL error occurred during the update, in which case
+	 *             none of the pictures is updated.
+	 */
+	public void updatePictures(final Map<Integer, PictureState> stateMap,
+			final Map<Integer, int[]> countDeltas) throws SQLException
 	{
-		synchronized (_psRemoveTagsForPicture)
+		synchronized (_writeLock)
 		{
-			_psRemoveTagsForPicture.clearParameters();
-			_psRemoveTagsForPicture.setString(1, picture.getId());
-			_psRemoveTagsForPicture.execute();
+			final boolean bAutoCommit = _connection.getAutoCommit();
+			_connection.setAutoCommit(false);
+			boolean bCommitted = false;
+			try
+			{
+				addPictureBatches(stateMap);
+				addTagCountBatch(countDeltas);
+				_psUpdatePictureMarkAndTimestamp.executeBatch();
+				_psRemoveTagForPicture.executeBatch();
+				_psInsertTagForPicture.executeBatch();
+				_psUpdateTagCount.executeBatch();
+				_connection.commit();
+				bCommitted = true;
+			}
+			finally
+			{
+				if (!bCommitted)
+				{
+					_psUpdatePictureMarkAndTimestamp.clearBatch();
+					_psRemoveTagForPicture.clearBatch();
+					_psInsertTagForPicture.clearBatch();
+					_psUpdateTagCount.clearBatch();
+					_connection.rollback();
+				}
+				_connection.setAutoCommit(bAutoCommit);
+			}
 		}
-		synchronized (_psInsertTagForPicture)
+	}
+
+	/**
+	 * Add the statements updating the specified pictures to the batches. Must
+	 * be called while holding the write lock.
+	 * 
+	 * @param stateMap
+	 *            map of the {@link PictureState}s to write by picture key.
+	 * @throws SQLException
+	 *             if an SQL error occurred.
+	 */
+	private void addPictureBatches(final Map<Integer, PictureState> stateMap)
+			throws SQLException
+	{
+		for (final Entry<Integer, PictureState> entry : stateMap.entrySet())
 		{
-			for (final ITag tag : picture.getTagSet())
+			final int iPictureKey = entry.getKey().intValue();
+			final PictureState state = entry.getValue();
+			_psUpdatePictureMarkAndTimestamp.setInt(1, state.getPictureGrade());
+			_psUpdatePictureMarkAndTimestamp.setLong(2,
+					state.getModifiedTimestamp());
+			_psUpdatePictureMarkAndTimestamp.setInt(3, iPictureKey);
+			_psUpdatePictureMarkAndTimestamp.addBatch();
+			if (!state.hasTagChanges())
 			{
-				_psInsertTagForPicture.clearParameters();
-				_psInsertTagForPicture.setInt(1, tag.getTagId());
-				_psInsertTagForPicture.setString(2, picture.getId());
-				_psInsertTagForPicture.executeUpdate();
+				continue;
+			}
+			for (final int iTagId : state.getRemovedTagIds())
+			{
+				_psRemoveTagForPicture.setInt(1, iTagId);
+				_psRemoveTagForPicture.setInt(2, iPictureKey);
+				_psRemoveTagForPicture.addBatch();
+			}
+			for (final int iTagId : state.getAddedTagIds())
+			{
+				_psInsertTagForPicture.setInt(1, iTagId);
+				_psInsertTagForPicture.setInt(2, iPictureKey);
+				_psInsertTagForPicture.addBatch();
 			}
 		}
 	}
 
 	/**
-	 * Update the meta-informations of the specified picture.
+	 * Add the statements updating the picture counts of the {@link ITag}s to
+	 * the batch. Must be called while holding the write lock.
 	 * 
-	 * @param picture
-	 *            the {@link FsPicture} to update.
+	 * @param countDeltas
+	 *            the deltas of the picture count and of the subtree count to
+	 *            add to the counts of the {@link ITag}s, by tag id.
 	 * @throws SQLException
-	 *             if an SQL error occurred during the insertion in the
+	 *             if an SQL error occurred.
+	 */
+	private void addTagCountBatch(final Map<Integer, int[]> countDeltas)
+			throws SQLException
+	{
+		for (final Entry<Integer, int[]> entry : countDeltas.entrySet())
+		{
+			_psUpdateTagCount.setInt(1, entry.getValue()[0]);
+			_psUpdateTagCount.setInt(2, entry.getValue()[1]);
+			_psUpdateTagCount.setInt(3, entry.getKey().intValue());
+			_psUpdateTagCount.addBatch();
+		}
+	}
+
+	/**
+	 * Recount the distinct pictures having each of the specified {@link ITag}s
+	 * or one of its descendants, after a change in the tree of the
+	 * {@link ITag}s.
+	 * 
+	 * @param tagIds
+	 *            the ids of the {@link ITag}s to recount.
+	 * @throws SQLException
+	 *             if an SQL error occurred during the update, in which case
+	 *             none of the counts is updated.
+	 */
+	public void recountTagSubtrees(final Collection<Integer> tagIds)
+			throws SQLException
+	{
+		synchronized (_writeLock)
+		{
+			final boolean bAutoCommit = _connection.getAutoCommit();
+			_connection.setAutoCommit(false);
+			boolean bCommitted = false;
+			try
+			{
+				for (final Integer tagId : tagIds)
+				{
+					_psRecountTagSubtree.setInt(1, tagId.intValue());
+					_psRecountTagSubtree.setInt(2, tagId.intValue());
+					_psRecountTagSubtree.executeUpdate();
+				}
+				_connection.commit();
+				bCommitted = true;
+			}
+			finally
+			{
+				if (!bCommitted)
+				{
+					_connection.rollback();
+				}
+				_connection.setAutoCommit(bAutoCommit);
+			}
+		}
+	}
+
+	/**
+	 * Get the change counter of the database, incremented each time a picture
+	 * is added or removed, or a {@link ITag} is added, modified or removed.
+	 * 
+	 * @return the change counter of the database.
+	 * @throws SQLException
+	 *             if an SQL error occurred during the interrogation of the
 	 *             database.
 	 */
-	public void updatePicture(final FsPicture picture) throws SQLException
+	public long getChangeCounter() throws SQLException
 	{
-		synchronized (_psUpdatePictureMarkAndTimestamp)
+		// the counter of a write not committed yet isn't read
+		synchronized (_writeLock)
 		{
-			_psUpdatePictureMarkAndTimestamp.clearParameters();
-			_psUpdatePictureMarkAndTimestamp.setInt(1,
-					picture.getPictureGrade());
-			_psUpdatePictureMarkAndTimestamp.setLong(2,
-					picture.getModifiedTimestamp());
-			_psUpdatePictureMarkAndTimestamp.setString(3, picture.getId());
-			_psUpdatePictureMarkAndTimestamp.executeUpdate();
+			final Statement statement = _connection.createStatement();
+			try
+			{
+				final ResultSet res = statement.executeQuery("select "
+						+ BANK_STATE_CHANGE_COUNTER_COLUMN_NAME + " from "
+						+ BANK_STATE_TABLE_NAME);
+				if (!res.next())
+				{
+					throw new SQLException("no row in the "
+							+ BANK_STATE_TABLE_NAME + " table");
+				}
+				return res.getLong(1);
+			}
+			finally
+			{
+				statement.close();
+			}
 		}
-		updateTags(picture);
+	}
+
+	/**
+	 * Load the picture counts of all the {@link ITag}s.
+	 * 
+	 * @return a {@link ResultSet} containing the picture counts of the
+	 *         {@link ITag}s.
+	 * @throws SQLException
+	 *             if an SQL error occurred during the interrogation of the
+	 *             database.
+	 */
+	public ResultSet loadTagCounts() throws SQLException
+	{
+		final Statement statement = _connection.createStatement();
+		return statement.executeQuery("select "
+				+ TAG_COUNT_TAG_ID_COLUMN_NAME + ", "
+				+ TAG_COUNT_PICTURE_COUNT_COLUMN_NAME + ", "
+				+ TAG_COUNT_SUBTREE_COUNT_COLUMN_NAME + " from "
+				+ TAG_COUNT_TABLE_NAME);
 	}
 
 	/**
@@ -658,7 +1032,7 @@ public final class SQLFileListConnection
 				res = _psCountPicturesByTag.executeQuery();
 				if (res.next())
 				{
-					return res.getInt(PICTURE_TAG_PICTURE_ID_COLUMN_NAME);
+					return res.getInt(TAG_COUNT_PICTURE_COUNT_COLUMN_NAME);
 				}
 				return 0;
 			}
@@ -727,8 +1101,7 @@ public final class SQLFileListConnection
 				response = _psSelectPicturesByTag.executeQuery();
 				while (response.next())
 				{
-					pictureList.add(response
-							.getString(PICTURE_TAG_PICTURE_ID_COLUMN_NAME));
+					pictureList.add(response.getString(PICTURE_ID_COLUMN_NAME));
 				}
 			}
 			finally
@@ -743,66 +1116,6 @@ public final class SQLFileListConnection
 		return pictureList.toArray(res);
 	}
 
-	/**
-	 * Load the information about the specified picture.
-	 * 
-	 * @param strPictureId
-	 *            the id of the picture.
-	 * @return the information about the specified picture.
-	 * @throws SQLException
-	 *             if an SQL error occurred during the interrogation of the
-	 *             database.
-	 */
-	public ResultSet loadPicture(final String strPictureId) throws SQLException
-	{
-		synchronized (_psLoadPicture)
-		{
-			_psLoadPicture.clearParameters();
-			_psLoadPicture.setString(1, strPictureId);
-			return _psLoadPicture.executeQuery();
-		}
-	}
-
-	/**
-	 * Load all the {@link ITag}s of an {@link IPicture}.
-	 * 
-	 * @param strPictureId
-	 *            the id of the picture.
-	 * @return the list of {@link ITag}s of the picture.
-	 * @throws SQLException
-	 *             if an SQL error occurred during the interrogation of the
-	 *             database.
-	 */
-	public Integer[] loadTagsOfPicture(final String strPictureId)
-			throws SQLException
-	{
-		final LinkedList<Integer> tagList = new LinkedList<>();
-		synchronized (_psLoadTagsOfPicture)
-		{
-			_psLoadTagsOfPicture.clearParameters();
-			_psLoadTagsOfPicture.setString(1, strPictureId);
-			ResultSet response = null;
-			try
-			{
-				response = _psLoadTagsOfPicture.executeQuery();
-				while (response.next())
-				{
-					tagList.add(Integer.valueOf(response
-							.getInt(PICTURE_TAG_TAG_ID_COLUMN_NAME)));
-				}
-			}
-			finally
-			{
-				if (response != null)
-				{
-					response.close();
-				}
-			}
-		}
-		final Integer[] res = new Integer[tagList.size()];
-		return tagList.toArray(res);
-	}
-
 	/**
 	 * Load the information about the specified {@link ITag}.
 	 * 
@@ -840,27 +1153,44 @@ public final class SQLFileListConnection
 	}
 
 	/**
-	 * Remove the specified {@link ITag} from the database.
+	 * Remove the specified {@link ITag} from the database, with its links to
+	 * the pictures and its picture counts, in a single transaction.
 	 * 
 	 * @param iTagId
 	 *            the id of the {@link ITag} to remove.
 	 * @throws SQLException
-	 *             if an SQL error occurred during the interrogation of the
-	 *             database.
+	 *             if an SQL error occurred during the update, in which case
+	 *             nothing is removed.
 	 */
 	public void removeTag(final int iTagId) throws SQLException
 	{
-		synchronized (_psRemoveTagFromAllPictures)
+		synchronized (_writeLock)
 		{
-			_psRemoveTag.clearParameters();
-			_psRemoveTag.setInt(1, iTagId);
-			_psRemoveTag.execute();
-		}
-		synchronized (_psRemoveTagFromAllPictures)
-		{
-			_psRemoveTagFromAllPictures.clearParameters();
-			_psRemoveTagFromAllPictures.setInt(1, iTagId);
-			_psRemoveTagFromAllPictures.execute();
+			final boolean bAutoCommit = _connection.getAutoCommit();
+			_connection.setAutoCommit(false);
+			boolean bCommitted = false;
+			try
+			{
+				_psRemoveTag.clearParameters();
+				_psRemoveTag.setInt(1, iTagId);
+				_psRemoveTag.execute();
+				_psRemoveTagFromAllPictures.clearParameters();
+				_psRemoveTagFromAllPictures.setInt(1, iTagId);
+				_psRemoveTagFromAllPictures.execute();
+				_psRemoveTagCount.clearParameters();
+				_psRemoveTagCount.setInt(1, iTagId);
+				_psRemoveTagCount.execute();
+				_connection.commit();
+				bCommitted = true;
+			}
+			finally
+			{
+				if (!bCommitted)
+				{
+					_connection.rollback();
+				}
+				_connection.setAutoCommit(bAutoCommit);
+			}
 		}
 	}
 }
@@ -12,16 +12,23 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
-import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.EnumSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Random;
 import java.util.Set;
 import java.util.Vector;
-import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.lucene.index.CorruptIndexException;
 import org.apache.lucene.search.Query;
@@ -35,6 +42,7 @@ import yapto.picturebank.PictureAddException;
 import yapto.picturebank.PictureAddExceptionType;
 import yapto.picturebank.PictureAddResult;
 import yapto.picturebank.PictureInformation;
+import yapto.picturebank.PictureSortField;
 import yapto.picturebank.index.PictureIndexer;
 import yapto.picturebank.process.PictureProcessor;
 import yapto.picturebank.sqlfile.config.IGlobalSQLFilePictureBankConfiguration;
@@ -42,11 +50,14 @@ import yapto.picturebank.sqlfile.config.ISQLFilePictureBankConfiguration;
 import yapto.picturebank.tag.ITag;
 import yapto.picturebank.tag.IWritableTagRepository;
 import yapto.picturebank.tag.TagAddException;
+import yapto.picturebank.tag.TagRepositoryChangedEvent;
 
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
 import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalListeners;
+import com.google.common.collect.Lists;
 import com.google.common.eventbus.EventBus;
 
 /**
@@ -64,6 +75,40 @@ public class SQLFilePictureBank implements IPictureBank<FsPicture>
 	protected static transient final Logger LOGGER = LoggerFactory
 			.getLogger(SQLFilePictureBank.class);
 
+	/**
+	 * Number of threads used to prefetch pictures.
+	 */
+	private static final int PREFETCH_THREAD_COUNT = 2;
+
+	/**
+	 * Minimum number of pictures prefetched by the browsers in the direction
+	 * of the navigation.
+	 */
+	private static final int MIN_PREFETCH_DEPTH = 1;
+
+	/**
+	 * Maximum number of pictures prefetched by the browsers in the direction
+	 * of the navigation.
+	 */
+	private static final int MAX_PREFETCH_DEPTH = 4;
+
+	/**
+	 * Maximum number of bytes used by each browser for speculatively decoded
+	 * pictures.
+	 */
+	private static final long MAX_SPECULATIVE_BYTES = 256L * 1024 * 1024;
+
+	/**
+	 * Maximum number of {@link FsPicture} kept in the picture cache.
+	 */
+	private static final long PICTURE_CACHE_SIZE = 2000;
+
+	/**
+	 * Time in minutes after which an {@link FsPicture} which hasn't been
+	 * accessed is removed from the picture cache.
+	 */
+	private static final long PICTURE_CACHE_EXPIRATION = 30;
+
 	/**
 	 * List of all picture id.
 	 */
@@ -84,16 +129,33 @@ public class SQLFilePictureBank implements IPictureBank<FsPicture>
 	 */
 	protected final LoadingCache<String, FsPicture> _pictureCache;
 
+	/**
+	 * {@link CacheLoader} used to load the {@link FsPicture}.
+	 */
+	private final CacheLoader<String, FsPicture> _pictureLoader;
+
+	/**
+	 * {@link PicturePinRegistry} holding the pictures which must stay in
+	 * memory.
+	 */
+	private final PicturePinRegistry _pinRegistry = new PicturePinRegistry();
+
+	/**
+	 * {@link ExecutorService} used to write the pictures removed from the
+	 * picture cache.
+	 */
+	private final ExecutorService _writeBackExecutor;
+
 	/**
 	 * {@link ImageLoader} used to load the {@link BufferedImage}.
 	 */
 	private final ImageLoader _imageLoader;
 
 	/**
-	 * Object holding the connection to the database and the prepared
-	 * statements.
+	 * The {@link IMetadataStore} holding the metadata of the pictures and the
+	 * {@link ITag}s.
 	 */
-	private final SQLFileListConnection _fileListConnection;
+	private final IMetadataStore _store;
 
 	/**
 	 * {@link EventBus} used to signal registered objects of changes in the
@@ -107,29 +169,57 @@ public class SQLFilePictureBank implements IPictureBank<FsPicture>
 	private final PictureIndexer _indexer;
 
 	/**
-	 * Queue holding all the {@link FsPicture} to update.
+	 * {@link EditJournal} recording the modifications not yet written.
 	 */
-	protected final BlockingQueue<FsPicture> _updateQueue = new LinkedBlockingQueue<>();
+	private final EditJournal _journal;
 
 	/**
-	 * {@link Runnable} used to update modified {@link FsPicture}.
+	 * {@link WriteBehindScheduler} used to update modified {@link FsPicture}.
 	 */
-	private final PictureUpdater _updater;
+	private final WriteBehindScheduler _updater;
+
+	/**
+	 * Lock serializing the writes of the pictures to the database, never
+	 * taken by the threads reading or modifying the pictures.
+	 */
+	private final Object _writeLock = new Object();
 
 	/**
 	 * {@link PictureProcessor} used to execute external commands on pictures.
 	 */
 	private final PictureProcessor _processor;
 
+	/**
+	 * {@link ExecutorService} used by the browsers to prefetch pictures.
+	 */
+	private final ExecutorService _prefetchExecutor;
+
+	/**
+	 * {@link ExecutorService} running the backups and the migrations of the
+	 * directory layout, one at a time.
+	 */
+	private final ExecutorService _backupExecutor;
+
 	/**
 	 * {@link IWritableTagRepository} used to load and save {@link ITag}s.
 	 */
 	private final IWritableTagRepository _tagRepository;
 
 	/**
-	 * Time to wait before writing picture information to the database.
+	 * {@link TagPictureCounter} keeping the number of pictures of each
+	 * {@link ITag}, updated with the pictures.
+	 */
+	private final TagPictureCounter _tagPictureCounter;
+
+	/**
+	 * Object locating the files of the pictures and of the thumbnails.
 	 */
-	private final long _lWaitBeforeWrite;
+	private final PictureFileLocator _fileLocator;
+
+	/**
+	 * Path of the {@link BankSnapshot} file, written when this bank is closed.
+	 */
+	private final Path _snapshotFile;
 
 	/**
 	 * Random number generator.
@@ -164,25 +254,52 @@ public class SQLFilePictureBank implements IPictureBank<FsPicture>
 		_bus = bus;
 		_conf = conf;
 		_globalConfiguration = globalConfiguration;
-		_fileListConnection = new SQLFileListConnection(_conf);
-		_indexer = new PictureIndexer(_conf);
-		_lWaitBeforeWrite = _globalConfiguration.getWaitBeforeWrite() * 1000;
+		_store = MetadataStoreType.fromValue(_conf.getMetadataStoreType())
+				.open(_conf);
+		_journal = new EditJournal(FileSystems.getDefault().getPath(
+				_conf.getDatabaseFileName() + ".edits"),
+				_globalConfiguration.getJournalSyncInterval());
+		_indexer = new PictureIndexer(_conf,
+				_globalConfiguration.getIndexRefreshInterval(),
+				_globalConfiguration.getIndexSearchThreads());
 		_processor = new PictureProcessor(
 				_globalConfiguration.getMaxConcurrentIdentifyTask(),
 				_globalConfiguration.getMaxConcurrentOtherTask());
+		_prefetchExecutor = Executors
+				.newFixedThreadPool(PREFETCH_THREAD_COUNT);
+		_backupExecutor = Executors.newSingleThreadExecutor();
+		// the snapshot of the last clean close replaces the full load if
+		// nothing changed since
+		_snapshotFile = FileSystems.getDefault().getPath(
+				_conf.getDatabaseFileName() + ".snapshot");
+		final BankSnapshot snapshot = BankSnapshot.read(_snapshotFile,
+				_store.getChangeCounter());
 
 		// tag repository
-		_tagRepository = new SQLFileTagRepository(_conf, _fileListConnection,
-				_bus);
-
-		_imageLoader = new ImageLoader(_conf);
-		// picture cache
-		final CacheLoader<String, FsPicture> pictureLoader = new FsPictureCacheLoader(
-				_fileListConnection, _imageLoader, _tagRepository, this);
-		final RemovalListener<String, FsPicture> pictureListener = new FsPictureRemovalListener(
-				this);
+		final SQLFileTagRepository tagRepository = new SQLFileTagRepository(
+				_conf, _store, _bus, snapshot);
+		_tagRepository = tagRepository;
+		_tagPictureCounter = tagRepository.getPictureCounter();
+
+		// files of the pictures, moved in the background if the configured
+		// layout changed
+		_fileLocator = DirectoryLayoutMigration.createLocator(FileSystems
+				.getDefault().getPath(
+						_conf.getMainPictureLoaderConfiguration()
+								.getPictureDirectory()), new DirectoryLayout(
+				_conf.getDirectoryLevels(), _conf.getDirectoryLevelWidth()));
+		_imageLoader = new ImageLoader(_conf, _fileLocator);
+		// picture cache, removed pictures are written by another thread
+		_pictureLoader = new FsPictureCacheLoader(_store, _imageLoader,
+				_tagRepository, this);
+		_writeBackExecutor = Executors.newSingleThreadExecutor();
+		final RemovalListener<String, FsPicture> pictureListener = RemovalListeners
+				.asynchronous(new FsPictureRemovalListener(this),
+						_writeBackExecutor);
 		_pictureCache = CacheBuilder.newBuilder()
-				.removalListener(pictureListener).build(pictureLoader);
+				.maximumSize(PICTURE_CACHE_SIZE)
+				.expireAfterAccess(PICTURE_CACHE_EXPIRATION, TimeUnit.MINUTES)
+				.removalListener(pictureListener).build(_pictureLoader);
 
 		if (!checkAndCreateDirectories())
 		{
@@ -191,12 +308,33 @@ public class SQLFilePictureBank implements IPictureBank<FsPicture>
 							+ _conf.getMainPictureLoaderConfiguration()
 									.getPictureDirectory());
 		}
-		_fileListConnection.createTables();
 
-		loadPictureIdList();
-		_updater = new PictureUpdater();
+		if (snapshot != null)
+		{
+			_pictureIdList.addAll(snapshot.getPictureIds());
+		}
+		else
+		{
+			loadPictureIdList();
+		}
+		_updater = new WriteBehindScheduler(this,
+				_globalConfiguration.getWaitBeforeWrite() * 1000,
+				_globalConfiguration.getWriteBatchSize(),
+				_globalConfiguration.getWriteBatchLatency());
 		final Thread t = new Thread(_updater, "picture updater");
 		t.start();
+		replayJournal();
+		if (_fileLocator.getPreviousLayout() != null)
+		{
+			_backupExecutor.submit(new DirectoryLayoutMigration(_fileLocator,
+					new ArrayList<>(_pictureIdList), getPictureDirectory(),
+					getThumbnailDirectory()));
+		}
+		if (_indexer.isOutdated())
+		{
+			_backupExecutor.submit(new ReIndexTask(new ArrayList<>(
+					_pictureIdList)));
+		}
 	}
 
 	@Override
@@ -288,13 +426,11 @@ public class SQLFilePictureBank implements IPictureBank<FsPicture>
 					PictureAddExceptionType.IDENTIFY_EXECUTION_ERROR, e);
 		}
 		// copy file
-		final Path destPath = FileSystems.getDefault()
-				.getPath(
-						_conf.getMainPictureLoaderConfiguration()
-								.getPictureDirectory(),
-						strPictureId.substring(0, 2), strPictureId);
+		final Path destPath = _fileLocator.getPath(getPictureDirectory(),
+				strPictureId);
 		try
 		{
+			Files.createDirectories(destPath.getParent());
 			Files.copy(pictureFile, destPath);
 		}
 		catch (final FileAlreadyExistsException e)
@@ -307,22 +443,29 @@ public class SQLFilePictureBank implements IPictureBank<FsPicture>
 			throw new PictureAddException(strPictureId,
 					PictureAddExceptionType.COPY_ERROR, e);
 		}
+		// insert to base, which gives the key of the picture
+		final int iPictureKey;
+		try
+		{
+			iPictureKey = _store.insertPicture(strPictureId, lAddedTimestamp,
+					info);
+		}
+		catch (final MetadataStoreException e)
+		{
+			throw new PictureAddException(strPictureId,
+					PictureAddExceptionType.SQL_INSERT_ERROR, e);
+		}
 		// create object
 		final FsPicture picture = new FsPicture(_imageLoader, this,
-				strPictureId, lAddedTimestamp, lAddedTimestamp, info);
+				strPictureId, iPictureKey, lAddedTimestamp, lAddedTimestamp,
+				info);
 		// create thumbnail
 		createThumbnail(picture);
-		// insert to base and index
+		// index
 		try
 		{
-			_fileListConnection.insertPicture(picture);
 			_indexer.indexPicture(picture);
 		}
-		catch (final SQLException e)
-		{
-			throw new PictureAddException(strPictureId,
-					PictureAddExceptionType.SQL_INSERT_ERROR, e);
-		}
 		catch (final CorruptIndexException e)
 		{
 			throw new PictureAddException(strPictureId,
@@ -362,15 +505,20 @@ public class SQLFilePictureBank implements IPictureBank<FsPicture>
 	@Override
 	public void createThumbnail(final FsPicture picture)
 	{
-		final String subDir = picture.getId().substring(0, 2);
-		final Path picturePath = FileSystems
-				.getDefault()
-				.getPath(
-						_conf.getMainPictureLoaderConfiguration()
-								.getPictureDirectory(), subDir, picture.getId());
-		final Path thumbnailPath = FileSystems.getDefault().getPath(
-				_conf.getThumbnailPictureLoaderConfiguration()
-						.getPictureDirectory(), subDir, picture.getId());
+		final Path picturePath = _fileLocator.locate(getPictureDirectory(),
+				picture.getId());
+		final Path thumbnailPath = _fileLocator.getPath(
+				getThumbnailDirectory(), picture.getId());
+		try
+		{
+			Files.createDirectories(thumbnailPath.getParent());
+		}
+		catch (final IOException e)
+		{
+			LOGGER.error("Can't create the directory of the thumbnail "
+					+ thumbnailPath, e);
+			return;
+		}
 		_processor.asyncCreatePictureThumbnail(128, picturePath, thumbnailPath);
 	}
 
@@ -380,9 +528,42 @@ public class SQLFilePictureBank implements IPictureBank<FsPicture>
 		return _conf.getPictureBankId();
 	}
 
+	@Override
+	public Future<Integer> backup(final Path backupDirectory)
+	{
+		return _backupExecutor.submit(new PictureBankBackup(_conf, _store,
+				_indexer, _fileLocator, backupDirectory, _globalConfiguration
+						.getBackupRate()));
+	}
+
+	/**
+	 * Get the picture directory.
+	 * 
+	 * @return the picture directory.
+	 */
+	private Path getPictureDirectory()
+	{
+		return FileSystems.getDefault().getPath(
+				_conf.getMainPictureLoaderConfiguration().getPictureDirectory());
+	}
+
+	/**
+	 * Get the thumbnail directory.
+	 * 
+	 * @return the thumbnail directory.
+	 */
+	private Path getThumbnailDirectory()
+	{
+		return FileSystems.getDefault().getPath(
+				_conf.getThumbnailPictureLoaderConfiguration()
+						.getPictureDirectory());
+	}
+
 	/**
 	 * Check the existence of all the required directories, and creates them if
-	 * they don't exists. Also check if they are readable and writable.
+	 * they don't exists. Also check if they are readable and writable. The
+	 * sub-directories of the picture and thumbnail directories are created
+	 * with the first file they hold.
 	 * 
 	 * @return true if every required directory exists.
 	 */
@@ -390,39 +571,10 @@ public class SQLFilePictureBank implements IPictureBank<FsPicture>
 	{
 		boolean bRes = true;
 		bRes &= checkDirectory(new File(_conf.getIndexDirectory()));
-		final File fPictureBaseDirectory = new File(_conf
-				.getMainPictureLoaderConfiguration().getPictureDirectory());
-		bRes &= checkDirectory(fPictureBaseDirectory);
-		if (bRes)
-		{
-			for (int i = 0; i < 256; i++)
-			{
-				String strFileName = Integer.toHexString(i).toUpperCase();
-				if (strFileName.length() == 1)
-				{
-					strFileName = '0' + strFileName;
-				}
-				bRes &= checkDirectory(new File(fPictureBaseDirectory,
-						strFileName));
-			}
-		}
-		final File fThumbnailBaseDirectory = new File(_conf
-				.getThumbnailPictureLoaderConfiguration().getPictureDirectory());
-		bRes &= checkDirectory(fThumbnailBaseDirectory);
-		if (bRes)
-		{
-			for (int i = 0; i < 256; i++)
-			{
-				String strFileName = Integer.toHexString(i).toUpperCase();
-				if (strFileName.length() == 1)
-				{
-					strFileName = '0' + strFileName;
-				}
-				bRes &= checkDirectory(new File(fThumbnailBaseDirectory,
-						strFileName));
-			}
-		}
-
+		bRes &= checkDirectory(new File(_conf
+				.getMainPictureLoaderConfiguration().getPictureDirectory()));
+		bRes &= checkDirectory(new File(_conf
+				.getThumbnailPictureLoaderConfiguration().getPictureDirectory()));
 		return bRes;
 	}
 
@@ -452,10 +604,54 @@ public class SQLFilePictureBank implements IPictureBank<FsPicture>
 	@Override
 	public void close()
 	{
+		final long lDeadline = System.nanoTime()
+				+ TimeUnit.SECONDS.toNanos(_globalConfiguration
+						.getShutdownTimeout());
 		_updater.stop();
-		_pictureCache.invalidateAll();
+		_prefetchExecutor.shutdownNow();
+		_backupExecutor.shutdownNow();
+		_imageLoader.shutdown();
+		// the evicted pictures waiting to be written are still pinned
+		_writeBackExecutor.shutdownNow();
+		writeModifiedPictures(lDeadline);
+		try
+		{
+			if (!_writeBackExecutor.awaitTermination(
+					Math.max(0, lDeadline - System.nanoTime()),
+					TimeUnit.NANOSECONDS))
+			{
+				LOGGER.error("Timeout while waiting for the picture writer.");
+			}
+		}
+		catch (final InterruptedException e)
+		{
+			LOGGER.error(e.getMessage(), e);
+		}
+		try
+		{
+			_journal.close();
+		}
+		catch (final IOException e)
+		{
+			LOGGER.error(e.getMessage(), e);
+		}
+		writeSnapshot();
 		_processor.shutdown();
 		try
+		{
+			// the backup uses the index and the database
+			if (!_backupExecutor.awaitTermination(
+					Math.max(0, lDeadline - System.nanoTime()),
+					TimeUnit.NANOSECONDS))
+			{
+				LOGGER.error("Timeout while waiting for the backup to stop.");
+			}
+		}
+		catch (final InterruptedException e)
+		{
+			LOGGER.error(e.getMessage(), e);
+		}
+		try
 		{
 			_indexer.close();
 		}
@@ -465,9 +661,9 @@ public class SQLFilePictureBank implements IPictureBank<FsPicture>
 		}
 		try
 		{
-			_fileListConnection.close();
+			_store.close();
 		}
-		catch (final SQLException e)
+		catch (final MetadataStoreException e)
 		{
 			LOGGER.error(e.getMessage(), e);
 		}
@@ -484,7 +680,16 @@ public class SQLFilePictureBank implements IPictureBank<FsPicture>
 	public IPictureBrowser<FsPicture> filterPictures(final Query query,
 			final int iLimit) throws IOException, ExecutionException
 	{
-		final List<String> list = _indexer.searchPicture(query, iLimit);
+		return filterPictures(query, iLimit, PictureSortField.RELEVANCE, false);
+	}
+
+	@Override
+	public IPictureBrowser<FsPicture> filterPictures(final Query query,
+			final int iLimit, final PictureSortField sortField,
+			final boolean bReverse) throws IOException, ExecutionException
+	{
+		final List<String> list = _indexer.searchPicture(query, iLimit,
+				sortField, bReverse);
 		return new PictureIterator(query, list);
 	}
 
@@ -519,86 +724,306 @@ public class SQLFilePictureBank implements IPictureBank<FsPicture>
 	}
 
 	/**
-	 * Load picture id list from the database.
+	 * Load picture id list from the store.
 	 * 
-	 * @throws SQLException
-	 *             if an SQL error occurred during the interrogation of the
-	 *             database.
+	 * @throws MetadataStoreException
+	 *             if an error occurred during the interrogation of the store.
 	 */
-	private void loadPictureIdList() throws SQLException
+	private void loadPictureIdList() throws MetadataStoreException
 	{
-		final ResultSet resLoad = _fileListConnection.loadPictureList();
-		while (resLoad.next())
+		final IStoreCursor<String> cursor = _store.openPictureIdCursor();
+		try
 		{
-			final String strId = resLoad
-					.getString(SQLFileListConnection.PICTURE_ID_COLUMN_NAME);
-			_pictureIdList.add(strId);
+			while (cursor.next())
+			{
+				_pictureIdList.add(cursor.get());
+			}
+		}
+		finally
+		{
+			cursor.close();
 		}
 	}
 
 	/**
-	 * Update the picture in the database and the index. A configured amount of
-	 * time between picture update sand writing can be configured.
-	 * 
-	 * @param picture
-	 *            the picture to update.
-	 * @param bImmediat
-	 *            true if the picture has to be updated right now.
+	 * Write the {@link BankSnapshot} of the picture id list and of the
+	 * {@link ITag}s, read instead of the database at the next opening.
 	 */
-	public void updatePicture(final FsPicture picture, final boolean bImmediat)
+	private void writeSnapshot()
 	{
-		synchronized (picture)
+		try
 		{
-			if (picture.hasBeenModified())
+			BankSnapshot.write(_snapshotFile,
+					_store.getChangeCounter(), new ArrayList<>(_pictureIdList),
+					_tagRepository.getTagSet());
+		}
+		catch (final IOException e)
+		{
+			LOGGER.error("Can't write the snapshot " + _snapshotFile, e);
+		}
+	}
+
+	/**
+	 * Write the edits found in the {@link EditJournal}, which may not have
+	 * been written before the last shutdown, to the database and the index.
+	 */
+	private void replayJournal()
+	{
+		final Map<String, PictureState> edits = _journal.getJournaledEdits();
+		if (!edits.isEmpty())
+		{
+			LOGGER.info("Replaying " + edits.size() + " journaled edits.");
+			final List<FsPicture> restored = new ArrayList<>(edits.size());
+			for (final Entry<String, PictureState> entry : edits.entrySet())
 			{
-				if (!bImmediat)
+				try
 				{
-					final long waitTime = picture.getModifiedTimestamp()
-							+ _lWaitBeforeWrite - System.currentTimeMillis();
-					if (waitTime > 0)
-					{
-						if (LOGGER.isDebugEnabled())
-						{
-							LOGGER.debug("Waiting for : " + waitTime
-									+ " before updating.");
-						}
-						try
-						{
-							picture.wait(waitTime);
-						}
-						catch (final InterruptedException e1)
-						{
-							// nothing to do
-						}
-					}
+					final FsPicture picture = _pictureCache.get(entry.getKey());
+					picture.restoreState(entry.getValue());
+					restored.add(picture);
 				}
-				if (LOGGER.isDebugEnabled())
+				catch (final ExecutionException | RuntimeException e)
 				{
-					LOGGER.debug("Updating picture, id : " + picture.getId());
+					LOGGER.error("can't replay the edit of " + entry.getKey(),
+							e);
 				}
-				try
+			}
+			updatePictures(restored);
+		}
+		// nothing to write if the edits had been written before the shutdown
+		_journal.replayDone();
+	}
+
+	/**
+	 * Write all the modified pictures to the database and the index when
+	 * closing, signaling the progress with {@link WriteBackProgressEvent}s.
+	 * 
+	 * The pictures are written in batches until the deadline, the index being
+	 * committed once at the end. The modifications still not written at the
+	 * deadline are kept in the {@link EditJournal}, they will be written on
+	 * the next opening.
+	 * 
+	 * @param lDeadline
+	 *            the deadline, as given by {@link System#nanoTime()}.
+	 */
+	private void writeModifiedPictures(final long lDeadline)
+	{
+		// a modified picture is pinned until it has been written
+		final List<FsPicture> modifiedList = new ArrayList<>();
+		for (final FsPicture picture : _pinRegistry.getPinnedPictures())
+		{
+			if (picture.hasBeenModified())
+			{
+				modifiedList.add(picture);
+			}
+		}
+		if (modifiedList.isEmpty())
+		{
+			return;
+		}
+		LOGGER.info("Writing " + modifiedList.size() + " modified pictures.");
+		int iWritten = 0;
+		try
+		{
+			for (final List<FsPicture> batch : Lists.partition(modifiedList,
+					Math.max(1, _globalConfiguration.getWriteBatchSize())))
+			{
+				if (lDeadline - System.nanoTime() < 0)
 				{
-					_fileListConnection.updatePicture(picture);
-					_indexer.indexPicture(picture);
-					picture.unsetModified();
+					LOGGER.error("Timeout while writing the modified pictures, "
+							+ (modifiedList.size() - iWritten)
+							+ " pictures will be written on the next opening.");
+					break;
 				}
-				catch (final SQLException | IOException e)
+				writePictures(batch, false);
+				iWritten += batch.size();
+				_bus.post(new WriteBackProgressEvent(iWritten, modifiedList
+						.size()));
+			}
+		}
+		finally
+		{
+			try
+			{
+				_indexer.commit();
+			}
+			catch (final IOException e)
+			{
+				LOGGER.error(e.getMessage(), e);
+			}
+		}
+	}
+
+	/**
+	 * Update the picture in the database and the index.
+	 * 
+	 * The current {@link PictureState} of the picture is written, without
+	 * blocking the threads reading or modifying the picture.
+	 * 
+	 * @param picture
+	 *            the picture to update.
+	 */
+	public void updatePicture(final FsPicture picture)
+	{
+		updatePictures(Collections.singletonList(picture));
+	}
+
+	/**
+	 * Update the specified pictures in the database in a single transaction,
+	 * then in the index with a single commit.
+	 * 
+	 * The current {@link PictureState} of each picture is written, without
+	 * blocking the threads reading or modifying the pictures.
+	 * 
+	 * @param pictures
+	 *            the pictures to update.
+	 */
+	public void updatePictures(final List<FsPicture> pictures)
+	{
+		writePictures(pictures, true);
+	}
+
+	/**
+	 * Write the specified pictures to the database in a single transaction,
+	 * then to the index.
+	 * 
+	 * @param pictures
+	 *            the pictures to write.
+	 * @param bCommitIndex
+	 *            whether to commit the index after the pictures have been
+	 *            indexed.
+	 */
+	private void writePictures(final List<FsPicture> pictures,
+			final boolean bCommitIndex)
+	{
+		synchronized (_writeLock)
+		{
+			final Map<Integer, PictureState> stateMap = new LinkedHashMap<>();
+			final List<FsPicture> modifiedList = new ArrayList<>(
+					pictures.size());
+			for (final FsPicture picture : pictures)
+			{
+				final PictureState state = picture.getState();
+				// already written by another thread otherwise
+				if (state.isModified()
+						&& stateMap.put(Integer.valueOf(picture.getKey()),
+								state) == null)
 				{
-					LOGGER.error(e.getMessage(), e);
+					modifiedList.add(picture);
 				}
 			}
+			if (modifiedList.isEmpty())
+			{
+				return;
+			}
+			if (LOGGER.isDebugEnabled())
+			{
+				LOGGER.debug("Updating " + modifiedList.size() + " pictures.");
+			}
+			final Set<Integer> countChangedTagIds;
+			try
+			{
+				countChangedTagIds = _tagPictureCounter.writePictures(stateMap);
+			}
+			catch (final MetadataStoreException e)
+			{
+				LOGGER.error(e.getMessage(), e);
+				// the pictures are still modified, retry after the delay
+				for (final FsPicture picture : modifiedList)
+				{
+					setPictureForUpdating(picture);
+				}
+				return;
+			}
+			try
+			{
+				_indexer.indexPictures(modifiedList, bCommitIndex);
+			}
+			catch (final IOException e)
+			{
+				// the database is the reference, the index can be rebuilt
+				LOGGER.error(e.getMessage(), e);
+			}
+			for (final FsPicture picture : modifiedList)
+			{
+				picture.setSaved(stateMap.get(Integer.valueOf(picture
+						.getKey())));
+			}
+			if (!countChangedTagIds.isEmpty())
+			{
+				_bus.post(new TagRepositoryChangedEvent(countChangedTagIds));
+			}
 		}
 	}
 
 	/**
-	 * Add a {@link FsPicture} to the list of pictures needing an update.
+	 * Schedule the update of a {@link FsPicture} after the configured delay,
+	 * postponing its pending update if there is one.
 	 * 
 	 * @param picture
 	 *            the {@link FsPicture} needing an update.
 	 */
 	public void setPictureForUpdating(final FsPicture picture)
 	{
-		_updateQueue.add(picture);
+		_updater.schedule(picture);
+	}
+
+	/**
+	 * Record the modification of a picture in the {@link EditJournal}.
+	 * 
+	 * @param picture
+	 *            the modified picture.
+	 */
+	public void journalEdit(final FsPicture picture)
+	{
+		_journal.recordEdit(picture);
+	}
+
+	/**
+	 * Record in the {@link EditJournal} that all the modifications of a
+	 * picture have been written.
+	 * 
+	 * @param picture
+	 *            the written picture.
+	 */
+	public void journalSaved(final FsPicture picture)
+	{
+		_journal.recordSaved(picture);
+	}
+
+	/**
+	 * Pin the specified picture in memory, it will be given back by the
+	 * picture cache until it's unpinned.
+	 * 
+	 * @param picture
+	 *            the picture to pin.
+	 */
+	public void pinPicture(final FsPicture picture)
+	{
+		_pinRegistry.pin(picture);
+	}
+
+	/**
+	 * Unpin the specified picture.
+	 * 
+	 * @param picture
+	 *            the picture to unpin.
+	 */
+	public void unpinPicture(final FsPicture picture)
+	{
+		_pinRegistry.unpin(picture);
+	}
+
+	/**
+	 * Get the pinned picture with the specified id.
+	 * 
+	 * @param strId
+	 *            the id of the picture.
+	 * @return the pinned picture, or null if the picture isn't pinned.
+	 */
+	public FsPicture getPinnedPicture(final String strId)
+	{
+		return _pinRegistry.getPinnedPicture(strId);
 	}
 
 	/**
@@ -614,17 +1039,26 @@ public class SQLFilePictureBank implements IPictureBank<FsPicture>
 	public void reIndexPicture(final String strPicId)
 			throws CorruptIndexException, IOException
 	{
-		try
+		// don't fill the picture cache with pictures only read once
+		FsPicture picture = _pictureCache.getIfPresent(strPicId);
+		if (picture == null)
 		{
-			final FsPicture picture = _pictureCache.get(strPicId);
-			synchronized (picture)
+			try
 			{
-				_indexer.indexPicture(picture);
+				picture = _pictureLoader.load(strPicId);
+			}
+			catch (final Exception e)
+			{
+				LOGGER.error(e.getMessage(), e);
+				return;
 			}
 		}
-		catch (final ExecutionException e)
+		if (picture != null)
 		{
-			LOGGER.error(e.getMessage(), e);
+			synchronized (picture)
+			{
+				_indexer.indexPicture(picture);
+			}
 		}
 	}
 
@@ -644,6 +1078,64 @@ public class SQLFilePictureBank implements IPictureBank<FsPicture>
 		}
 	}
 
+	/**
+	 * Task indexing again the pictures of an index written with a previous
+	 * version of the content of the documents.
+	 * 
+	 * @author benobiwan
+	 * 
+	 */
+	private final class ReIndexTask implements Callable<Void>
+	{
+		/**
+		 * The ids of the pictures to index again.
+		 */
+		private final List<String> _pictureIds;
+
+		/**
+		 * Creates a new ReIndexTask.
+		 * 
+		 * @param pictureIds
+		 *            the ids of the pictures to index again, the pictures
+		 *            added in the meantime being indexed with the current
+		 *            version.
+		 */
+		public ReIndexTask(final List<String> pictureIds)
+		{
+			_pictureIds = pictureIds;
+		}
+
+		@Override
+		public Void call() throws CorruptIndexException, IOException
+		{
+			LOGGER.info("Indexing again the " + _pictureIds.size()
+					+ " pictures of the bank " + _conf.getPictureBankId()
+					+ ".");
+			try
+			{
+				for (final String strPicId : _pictureIds)
+				{
+					if (Thread.currentThread().isInterrupted())
+					{
+						// the index will be outdated at the next opening
+						return null;
+					}
+					reIndexPicture(strPicId);
+				}
+				_indexer.setUpToDate();
+			}
+			catch (final IOException e)
+			{
+				// nobody waits for the result of the task
+				LOGGER.error(e.getMessage(), e);
+				throw e;
+			}
+			LOGGER.info("Pictures of the bank " + _conf.getPictureBankId()
+					+ " indexed again.");
+			return null;
+		}
+	}
+
 	/**
 	 * {@link IPictureBrowser} on the list of {@ink FsPicture}.
 	 * 
@@ -669,7 +1161,9 @@ public class SQLFilePictureBank implements IPictureBank<FsPicture>
 				throws ExecutionException
 		{
 			super(SQLFilePictureBank.this, query, SQLFilePictureBank.this._bus,
-					idList);
+					idList, SQLFilePictureBank.this._prefetchExecutor,
+					MIN_PREFETCH_DEPTH, MAX_PREFETCH_DEPTH,
+					MAX_SPECULATIVE_BYTES);
 		}
 
 		@Override
@@ -678,63 +1172,34 @@ public class SQLFilePictureBank implements IPictureBank<FsPicture>
 		{
 			return _pictureCache.get(pictureId);
 		}
-	}
-
-	/**
-	 * {@link Runnable} used to update the modified {@link FsPicture}.
-	 * 
-	 * @author benobiwan
-	 * 
-	 */
-	private final class PictureUpdater implements Runnable
-	{
-		/**
-		 * Boolean used to stop the {@link PictureUpdater}.
-		 */
-		private volatile boolean _bStop = false;
-
-		/**
-		 * Thread used to run the {@link PictureUpdater}.
-		 */
-		private volatile Thread _workingThread;
-
-		/**
-		 * Creates a new {@link PictureUpdater}.
-		 */
-		public PictureUpdater()
-		{
-			// nothing to do
-		}
 
-		/**
-		 * Function used to stop the {@link PictureUpdater}.
-		 */
-		public void stop()
+		@Override
+		protected List<FsPicture> getPictures(final List<String> pictureIds)
+				throws ExecutionException
 		{
-			_bStop = true;
-			if (_workingThread != null)
+			final Map<String, FsPicture> pictureMap = _pictureCache
+					.getAll(pictureIds);
+			final List<FsPicture> pictures = new ArrayList<>(
+					pictureIds.size());
+			for (final String strId : pictureIds)
 			{
-				synchronized (_workingThread)
-				{
-					_workingThread.interrupt();
-				}
+				pictures.add(pictureMap.get(strId));
 			}
+			return pictures;
 		}
 
 		@Override
-		public void run()
+		protected void currentPictureChanged(final FsPicture previous,
+				final FsPicture current)
 		{
-			_workingThread = Thread.currentThread();
-			while (!_bStop)
+			// the displayed picture stays in memory
+			if (current != null)
 			{
-				try
-				{
-					updatePicture(_updateQueue.take(), false);
-				}
-				catch (final InterruptedException e)
-				{
-					// nothing to do there
-				}
+				pinPicture(current);
+			}
+			if (previous != null)
+			{
+				unpinPicture(previous);
 			}
 		}
 	}
@@ -751,6 +1216,18 @@ public class SQLFilePictureBank implements IPictureBank<FsPicture>
 		return _tagRepository.getRootTag();
 	}
 
+	@Override
+	public int getPictureCount(final int iTagId)
+	{
+		return _tagRepository.getPictureCount(iTagId);
+	}
+
+	@Override
+	public int getPictureCountWithDescendants(final int iTagId)
+	{
+		return _tagRepository.getPictureCountWithDescendants(iTagId);
+	}
+
 	@Override
 	public ITag getTag(final int iTagId)
 	{
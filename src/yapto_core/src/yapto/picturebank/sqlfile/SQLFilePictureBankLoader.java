@@ -41,7 +41,10 @@ public final class SQLFilePictureBankLoader
 	{
 		_globalConf = new GlobalSQLFilePictureBankConfigurationImpl(null,
 				ManagementFactory.getPlatformMBeanServer(), Integer.valueOf(4),
-				Integer.valueOf(4), Integer.valueOf(3));
+				Integer.valueOf(4), Integer.valueOf(3), Integer.valueOf(200),
+				Integer.valueOf(500), Integer.valueOf(200),
+				Integer.valueOf(30), Integer.valueOf(20480),
+				Integer.valueOf(1000), Integer.valueOf(0));
 	}
 
 	@Override
@@ -54,7 +57,9 @@ public final class SQLFilePictureBankLoader
 				"local", "/home/benobiwan/images/photoDB/photoDB.sqlite",
 				"/home/benobiwan/images/photoDB/photos/",
 				"/home/benobiwan/images/photoDB/thumbnails/",
-				"/home/benobiwan/images/photoDB/index/"));
+				"/home/benobiwan/images/photoDB/index/", Integer.valueOf(8192),
+				Integer.valueOf(64), Integer.valueOf(1), Integer.valueOf(4),
+				Integer.valueOf(0), Integer.valueOf(1), Integer.valueOf(2)));
 		return Collections.unmodifiableSet(confSet);
 	}
 
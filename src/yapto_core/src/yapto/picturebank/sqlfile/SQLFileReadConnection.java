@@ -0,0 +1,414 @@
+package yapto.picturebank.sqlfile;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import yapto.picturebank.IPicture;
+import yapto.picturebank.sqlfile.config.ISQLFilePictureBankConfiguration;
+import yapto.picturebank.tag.ITag;
+
+/**
+ * Read-only connection to the database with its own prepared statements.
+ * 
+ * Read connections are pooled by the {@link SQLFileListConnection} : a read
+ * connection is used by a single thread at a time, between
+ * {@link SQLFileListConnection#acquireReader()} and
+ * {@link SQLFileListConnection#releaseReader(SQLFileReadConnection)}, so its
+ * statements don't need any lock. With the database in WAL mode, readers
+ * don't block the writer and aren't blocked by it.
+ * 
+ * @author benobiwan
+ * 
+ */
+public final class SQLFileReadConnection
+{
+	/**
+	 * The columns of the 'picture' table read to create a picture.
+	 */
+	private static final String PICTURE_COLUMNS = SQLFileListConnection.PICTURE_KEY_COLUMN_NAME
+			+ ", "
+			+ SQLFileListConnection.PICTURE_ID_COLUMN_NAME
+			+ ", "
+			+ SQLFileListConnection.PICTURE_GRADE_COLUMN_NAME
+			+ ", "
+			+ SQLFileListConnection.PICTURE_ORIGINAL_NAME
+			+ ", "
+			+ SQLFileListConnection.PICTURE_WIDTH_COLUMN_NAME
+			+ ", "
+			+ SQLFileListConnection.PICTURE_HEIGTH_COLUMN_NAME
+			+ ", "
+			+ SQLFileListConnection.PICTURE_MODIFIED_TIMESTAMP_COLUMN_NAME
+			+ ", "
+			+ SQLFileListConnection.PICTURE_CREATION_TIMESTAMP_COLUMN_NAME
+			+ ", "
+			+ SQLFileListConnection.PICTURE_ADDING_TIMESTAMP_COLUMN_NAME
+			+ ", "
+			+ SQLFileListConnection.PICTURE_ORIENTATION_COLUMN_NAME
+			+ ", "
+			+ SQLFileListConnection.PICTURE_MAKE_COLUMN_NAME
+			+ ", "
+			+ SQLFileListConnection.PICTURE_MODEL_COLUMN_NAME
+			+ ", "
+			+ SQLFileListConnection.PICTURE_EXPOSURE_COLUMN_NAME
+			+ ", "
+			+ SQLFileListConnection.PICTURE_RELATIVE_APERTURE_COLUMN_NAME
+			+ ", " + SQLFileListConnection.PICTURE_FOCAL_LENGTH_COLUMN_NAME;
+
+	/**
+	 * Connection to the database.
+	 */
+	private final Connection _connection;
+
+	/**
+	 * Statement to load a picture.
+	 */
+	private final PreparedStatement _psLoadPicture;
+
+	/**
+	 * Statement to load all the {@link ITag}s of an {@link IPicture}.
+	 */
+	private final PreparedStatement _psLoadTagsOfPicture;
+
+	/**
+	 * Creates a new SQLFileReadConnection.
+	 * 
+	 * @param conf
+	 *            configuration of the database.
+	 * @throws SQLException
+	 *             if an SQL error occurred during the connection to the
+	 *             database.
+	 */
+	SQLFileReadConnection(final ISQLFilePictureBankConfiguration conf)
+			throws SQLException
+	{
+		_connection = DriverManager.getConnection("jdbc:sqlite:"
+				+ conf.getDatabaseFileName());
+		final Statement statement = _connection.createStatement();
+		try
+		{
+			statement.execute("PRAGMA query_only = ON");
+			applyCachePragmas(statement, conf);
+		}
+		finally
+		{
+			statement.close();
+		}
+		_psLoadPicture = _connection.prepareStatement("SELECT "
+				+ PICTURE_COLUMNS + " FROM "
+				+ SQLFileListConnection.PICTURE_TABLE_NAME + " WHERE "
+				+ SQLFileListConnection.PICTURE_ID_COLUMN_NAME + " =?");
+		_psLoadTagsOfPicture = _connection.prepareStatement("SELECT "
+				+ SQLFileListConnection.PICTURE_TAG_TAG_ID_COLUMN_NAME
+				+ " FROM " + SQLFileListConnection.PICTURE_TAG_TABLE_NAME
+				+ " WHERE "
+				+ SQLFileListConnection.PICTURE_TAG_PICTURE_KEY_COLUMN_NAME
+				+ " =?");
+	}
+
+	/**
+	 * Apply the configured page cache size and memory-mapped I/O size to a
+	 * connection.
+	 * 
+	 * @param statement
+	 *            a {@link Statement} of the connection.
+	 * @param conf
+	 *            configuration of the database.
+	 * @throws SQLException
+	 *             if an SQL error occurred.
+	 */
+	static void applyCachePragmas(final Statement statement,
+			final ISQLFilePictureBankConfiguration conf) throws SQLException
+	{
+		// a negative cache size is a number of KiB instead of pages
+		statement.execute("PRAGMA cache_size = -"
+				+ conf.getDatabaseCacheSize());
+		statement.execute("PRAGMA mmap_size = "
+				+ (long) conf.getDatabaseMmapSize() * 1024 * 1024);
+	}
+
+	/**
+	 * Load the information about the specified picture. The returned
+	 * {@link ResultSet} must be closed before this connection is released.
+	 * 
+	 * @param strPictureId
+	 *            the id of the picture.
+	 * @return the information about the specified picture.
+	 * @throws SQLException
+	 *             if an SQL error occurred during the interrogation of the
+	 *             database.
+	 */
+	public ResultSet loadPicture(final String strPictureId) throws SQLException
+	{
+		_psLoadPicture.clearParameters();
+		_psLoadPicture.setString(1, strPictureId);
+		return _psLoadPicture.executeQuery();
+	}
+
+	/**
+	 * Load the information about the specified pictures in a single query.
+	 * The statement of the returned {@link ResultSet} must be closed by the
+	 * caller before this connection is released.
+	 * 
+	 * @param pictureIds
+	 *            the ids of the pictures, at most
+	 *            {@link SQLFileListConnection#MAX_QUERY_PARAMETERS}.
+	 * @return the information about the specified pictures, including their
+	 *         id and their key.
+	 * @throws SQLException
+	 *             if an SQL error occurred during the interrogation of the
+	 *             database.
+	 */
+	public ResultSet loadPictures(final List<String> pictureIds)
+			throws SQLException
+	{
+		final PreparedStatement ps = _connection.prepareStatement("SELECT "
+				+ PICTURE_COLUMNS + " FROM "
+				+ SQLFileListConnection.PICTURE_TABLE_NAME + " WHERE "
+				+ SQLFileListConnection.PICTURE_ID_COLUMN_NAME + " IN ("
+				+ createParameterList(pictureIds.size()) + ")");
+		try
+		{
+			for (int i = 0; i < pictureIds.size(); i++)
+			{
+				ps.setString(i + 1, pictureIds.get(i));
+			}
+			return ps.executeQuery();
+		}
+		catch (final SQLException e)
+		{
+			ps.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Load all the {@link ITag}s of an {@link IPicture}.
+	 * 
+	 * @param iPictureKey
+	 *            the key of the picture.
+	 * @return the list of {@link ITag}s of the picture.
+	 * @throws SQLException
+	 *             if an SQL error occurred during the interrogation of the
+	 *             database.
+	 */
+	public Integer[] loadTagsOfPicture(final int iPictureKey)
+			throws SQLException
+	{
+		final LinkedList<Integer> tagList = new LinkedList<>();
+		_psLoadTagsOfPicture.clearParameters();
+		_psLoadTagsOfPicture.setInt(1, iPictureKey);
+		ResultSet response = null;
+		try
+		{
+			response = _psLoadTagsOfPicture.executeQuery();
+			while (response.next())
+			{
+				tagList.add(Integer.valueOf(response
+						.getInt(SQLFileListConnection.PICTURE_TAG_TAG_ID_COLUMN_NAME)));
+			}
+		}
+		finally
+		{
+			if (response != null)
+			{
+				response.close();
+			}
+		}
+		final Integer[] res = new Integer[tagList.size()];
+		return tagList.toArray(res);
+	}
+
+	/**
+	 * Load all the {@link ITag}s of the specified pictures in a single query.
+	 * 
+	 * @param pictureIds
+	 *            the ids of the pictures, at most
+	 *            {@link SQLFileListConnection#MAX_QUERY_PARAMETERS}.
+	 * @return a {@link Map} of the ids of the {@link ITag}s by picture key.
+	 *         Pictures without any {@link ITag} aren't in the {@link Map}.
+	 * @throws SQLException
+	 *             if an SQL error occurred during the interrogation of the
+	 *             database.
+	 */
+	public Map<Integer, List<Integer>> loadTagsOfPictures(
+			final List<String> pictureIds) throws SQLException
+	{
+		final Map<Integer, List<Integer>> tagMap = new HashMap<>();
+		final PreparedStatement ps = _connection.prepareStatement("SELECT "
+				+ SQLFileListConnection.PICTURE_TAG_TABLE_NAME + "."
+				+ SQLFileListConnection.PICTURE_TAG_PICTURE_KEY_COLUMN_NAME
+				+ ", " + SQLFileListConnection.PICTURE_TAG_TABLE_NAME + "."
+				+ SQLFileListConnection.PICTURE_TAG_TAG_ID_COLUMN_NAME
+				+ " FROM " + SQLFileListConnection.PICTURE_TABLE_NAME
+				+ " JOIN " + SQLFileListConnection.PICTURE_TAG_TABLE_NAME
+				+ " ON " + SQLFileListConnection.PICTURE_TAG_TABLE_NAME + "."
+				+ SQLFileListConnection.PICTURE_TAG_PICTURE_KEY_COLUMN_NAME
+				+ " = " + SQLFileListConnection.PICTURE_TABLE_NAME + "."
+				+ SQLFileListConnection.PICTURE_KEY_COLUMN_NAME + " WHERE "
+				+ SQLFileListConnection.PICTURE_TABLE_NAME + "."
+				+ SQLFileListConnection.PICTURE_ID_COLUMN_NAME + " IN ("
+				+ createParameterList(pictureIds.size()) + ")");
+		try
+		{
+			for (int i = 0; i < pictureIds.size(); i++)
+			{
+				ps.setString(i + 1, pictureIds.get(i));
+			}
+			final ResultSet response = ps.executeQuery();
+			while (response.next())
+			{
+				final Integer pictureKey = Integer.valueOf(response
+						.getInt(SQLFileListConnection.PICTURE_TAG_PICTURE_KEY_COLUMN_NAME));
+				List<Integer> tagList = tagMap.get(pictureKey);
+				if (tagList == null)
+				{
+					tagList = new ArrayList<>();
+					tagMap.put(pictureKey, tagList);
+				}
+				tagList.add(Integer.valueOf(response
+						.getInt(SQLFileListConnection.PICTURE_TAG_TAG_ID_COLUMN_NAME)));
+			}
+		}
+		finally
+		{
+			ps.close();
+		}
+		return tagMap;
+	}
+
+	/**
+	 * Copy the database to a file with the SQLite online backup API. The copy
+	 * is made in a single read transaction, so it's consistent and, with the
+	 * database in WAL mode, doesn't block the writer.
+	 * 
+	 * @param backupFile
+	 *            the file to copy the database to, replaced if it exists.
+	 * @throws SQLException
+	 *             if an SQL error occurred during the backup.
+	 */
+	public void backup(final Path backupFile) throws SQLException
+	{
+		final Statement statement = _connection.createStatement();
+		try
+		{
+			statement.executeUpdate("backup to "
+					+ quoteFileName(backupFile.toAbsolutePath().toString()));
+		}
+		finally
+		{
+			statement.close();
+		}
+	}
+
+	/**
+	 * Quote a file name for the backup command of the driver. The driver
+	 * only strips the quotes around the name, without unescaping it, so the
+	 * name is quoted with a quote character it doesn't contain.
+	 * 
+	 * @param strFileName
+	 *            the file name.
+	 * @return the quoted file name.
+	 * @throws SQLException
+	 *             if the file name contains both quote characters.
+	 */
+	private static String quoteFileName(final String strFileName)
+			throws SQLException
+	{
+		if (strFileName.indexOf('"') < 0)
+		{
+			return '"' + strFileName + '"';
+		}
+		if (strFileName.indexOf('\'') < 0)
+		{
+			return '\'' + strFileName + '\'';
+		}
+		throw new SQLException("Can't backup the database to " + strFileName
+				+ " : its name contains both quote characters.");
+	}
+
+	/**
+	 * Load the ids of the pictures of another database file, such as a
+	 * backup.
+	 * 
+	 * @param databaseFile
+	 *            the database file.
+	 * @return the ids of the pictures of the database file.
+	 * @throws SQLException
+	 *             if an SQL error occurred during the interrogation of the
+	 *             database.
+	 */
+	public static List<String> loadPictureIds(final Path databaseFile)
+			throws SQLException
+	{
+		final List<String> pictureIds = new ArrayList<>();
+		final Connection connection = DriverManager
+				.getConnection("jdbc:sqlite:" + databaseFile.toAbsolutePath());
+		try
+		{
+			final Statement statement = connection.createStatement();
+			final ResultSet res = statement.executeQuery("SELECT "
+					+ SQLFileListConnection.PICTURE_ID_COLUMN_NAME + " FROM "
+					+ SQLFileListConnection.PICTURE_TABLE_NAME);
+			while (res.next())
+			{
+				pictureIds.add(res
+						.getString(SQLFileListConnection.PICTURE_ID_COLUMN_NAME));
+			}
+		}
+		finally
+		{
+			connection.close();
+		}
+		return pictureIds;
+	}
+
+	/**
+	 * Create the list of parameters of an 'IN' clause.
+	 * 
+	 * @param iSize
+	 *            the number of parameters.
+	 * @return the list of parameters, separated by commas.
+	 */
+	private static String createParameterList(final int iSize)
+	{
+		final StringBuilder sb = new StringBuilder(iSize * 3);
+		for (int i = 0; i < iSize; i++)
+		{
+			if (i > 0)
+			{
+				sb.append(", ");
+			}
+			sb.append('?');
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Close this connection and its statements.
+	 * 
+	 * @throws SQLException
+	 *             if a error occurs during the closing of the connection.
+	 */
+	void close() throws SQLException
+	{
+		try
+		{
+			_psLoadPicture.close();
+			_psLoadTagsOfPicture.close();
+		}
+		finally
+		{
+			_connection.close();
+		}
+	}
+}
@@ -1,9 +1,9 @@
 package yapto.picturebank.sqlfile;
 
-import java.sql.ResultSet;
-import java.sql.SQLException;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
@@ -43,10 +43,9 @@ public final class SQLFileTagRepository implements IWritableTagRepository
 	private final ISQLFilePictureBankConfiguration _conf;
 
 	/**
-	 * Object holding the connection to the database and the prepared
-	 * statements.
+	 * The {@link IMetadataStore} in which the {@link ITag}s are saved.
 	 */
-	private final SQLFileListConnection _fileListConnection;
+	private final IMetadataStore _store;
 
 	/**
 	 * Set containing all the {@link ITag}s.
@@ -79,34 +78,75 @@ public final class SQLFileTagRepository implements IWritableTagRepository
 	 */
 	private final EventBus _bus;
 
+	/**
+	 * {@link TagPictureCounter} keeping the number of pictures of each
+	 * {@link ITag}.
+	 */
+	private final TagPictureCounter _pictureCounter;
+
 	/**
 	 * Creates a new SQLFileTagRepository.
 	 * 
 	 * @param conf
 	 *            configuration of the parent {@link SQLFilePictureBank}.
-	 * @param fileListConnection
-	 *            object holding the connection to the database and the prepared
-	 *            statements.
+	 * @param store
+	 *            the {@link IMetadataStore} in which the {@link ITag}s are
+	 *            saved.
 	 * @param bus
 	 *            the {@link EventBus} used to signal registered objects of
 	 *            changes in this {@link SQLFileTagRepository}.
-	 * @throws SQLException
-	 *             if an SQL error occurred during the loading of the tags from
-	 *             the database.
+	 * @param snapshot
+	 *            the {@link BankSnapshot} from which the {@link ITag}s are
+	 *            loaded, null to load them from the store.
+	 * @throws MetadataStoreException
+	 *             if an error occurred during the loading of the tags from
+	 *             the store.
 	 */
 	public SQLFileTagRepository(final ISQLFilePictureBankConfiguration conf,
-			final SQLFileListConnection fileListConnection, final EventBus bus)
-			throws SQLException
+			final IMetadataStore store, final EventBus bus,
+			final BankSnapshot snapshot) throws MetadataStoreException
 	{
 		_conf = conf;
-		_fileListConnection = fileListConnection;
+		_store = store;
 		_bus = bus;
 		final ITag rootTag = new UneditableTag(conf.getPictureBankId(), this,
 				0, -1, "/", "Root tag.", false);
 		_tagSet.add(rootTag);
 		_tagIdMap.put(Integer.valueOf(rootTag.getTagId()), rootTag);
 		_tagNameMap.put(rootTag.getName(), rootTag);
-		loadTags();
+		if (snapshot != null)
+		{
+			loadTags(snapshot.getTags());
+		}
+		else
+		{
+			loadTags(_store.loadTags());
+		}
+		_pictureCounter = new TagPictureCounter(store, this);
+		_pictureCounter.load();
+	}
+
+	/**
+	 * Get the {@link TagPictureCounter} keeping the number of pictures of each
+	 * {@link ITag}.
+	 * 
+	 * @return the {@link TagPictureCounter} of this repository.
+	 */
+	public TagPictureCounter getPictureCounter()
+	{
+		return _pictureCounter;
+	}
+
+	@Override
+	public int getPictureCount(final int iTagId)
+	{
+		return _pictureCounter.getPictureCount(iTagId);
+	}
+
+	@Override
+	public int getPictureCountWithDescendants(final int iTagId)
+	{
+		return _pictureCounter.getPictureCountWithDescendants(iTagId);
 	}
 
 	@Override
@@ -175,7 +215,8 @@ public final class SQLFileTagRepository implements IWritableTagRepository
 		}
 		try
 		{
-			_fileListConnection.saveTagToDatabase(newTag);
+			_store.saveTag(newTag);
+			_pictureCounter.addTag(newTag.getTagId());
 			_tagSet.add(newTag);
 			_tagIdMap.put(Integer.valueOf(_iNextTagId), newTag);
 			_tagNameMap.put(strName, newTag);
@@ -192,7 +233,7 @@ public final class SQLFileTagRepository implements IWritableTagRepository
 			_iNextTagId++;
 			_bus.post(new TagRepositoryChangedEvent());
 		}
-		catch (final SQLException e)
+		catch (final MetadataStoreException e)
 		{
 			throw new TagAddException(TagAddExceptionType.SQL_INSERT_ERROR, e);
 		}
@@ -205,80 +246,69 @@ public final class SQLFileTagRepository implements IWritableTagRepository
 	}
 
 	/**
-	 * Load {@link ITag}s from the database.
+	 * Load {@link ITag}s from the store or from a {@link BankSnapshot}.
 	 * 
-	 * @throws SQLException
-	 *             if an SQL error occurred during the interrogation of the
-	 *             database.
+	 * @param records
+	 *            the {@link TagRecord}s of the {@link ITag}s.
 	 */
-	private void loadTags() throws SQLException
+	private void loadTags(final List<TagRecord> records)
 	{
-		ResultSet resLoad = null;
-		ResultSet resParent = null;
-		ITag tag = null;
-		try
+		synchronized (_lockNextTag)
 		{
-			synchronized (_lockNextTag)
+			for (final TagRecord record : records)
 			{
-				resLoad = _fileListConnection.loadTagList();
-				while (resLoad.next())
-				{
-					final int iTagId = resLoad
-							.getInt(SQLFileListConnection.TAG_ID_COLUMN_NAME);
-					final String strName = resLoad
-							.getString(SQLFileListConnection.TAG_NAME_COLUMN_NAME);
-					final String strDescription = resLoad
-							.getString(SQLFileListConnection.TAG_DESCRIPTION_COLUMN_NAME);
-					final boolean bSelectable = resLoad
-							.getBoolean(SQLFileListConnection.TAG_SELECTABLE_COLUMN_NAME);
-					tag = new EditableTag(_conf.getPictureBankId(), this,
-							iTagId, strName, strDescription, bSelectable);
-					_tagSet.add(tag);
-					_tagIdMap.put(Integer.valueOf(iTagId), tag);
-					_tagNameMap.put(tag.getName(), tag);
-					if (iTagId >= _iNextTagId)
-					{
-						_iNextTagId = iTagId + 1;
-					}
-				}
+				registerLoadedTag(new EditableTag(_conf.getPictureBankId(),
+						this, record.getTagId(), record.getName(),
+						record.getDescription(), record.isSelectable()));
 			}
 		}
-		finally
+		// the parents are set once all the tags exist
+		for (final TagRecord record : records)
 		{
-			if (resLoad != null)
-			{
-				resLoad.close();
-			}
+			attachLoadedTag(record.getTagId(), record.getParentId());
 		}
-		try
+	}
+
+	/**
+	 * Register a loaded {@link ITag}, and make sure the id of the next tag is
+	 * greater than its id. Must be called while holding the lock on the next
+	 * tag id.
+	 * 
+	 * @param tag
+	 *            the loaded {@link ITag}.
+	 */
+	private void registerLoadedTag(final ITag tag)
+	{
+		_tagSet.add(tag);
+		_tagIdMap.put(Integer.valueOf(tag.getTagId()), tag);
+		_tagNameMap.put(tag.getName(), tag);
+		if (tag.getTagId() >= _iNextTagId)
 		{
-			resParent = _fileListConnection.loadParents();
-			while (resParent.next())
-			{
-				final Integer iId = Integer.valueOf(resParent
-						.getInt(SQLFileListConnection.TAG_ID_COLUMN_NAME));
-				final int iParentId = resParent
-						.getInt(SQLFileListConnection.TAG_PARENT_ID_COLUMN_NAME);
-				tag = _tagIdMap.get(iId);
-				tag.setParent(iParentId);
-				final ITag parentTag = _tagIdMap
-						.get(Integer.valueOf(iParentId));
-				if (parentTag != null)
-				{
-					parentTag.addChild(tag);
-				}
-				else
-				{
-					_tagIdMap.get(Integer.valueOf(0)).addChild(tag);
-				}
-			}
+			_iNextTagId = tag.getTagId() + 1;
+		}
+	}
+
+	/**
+	 * Attach a loaded {@link ITag} to its parent, or to the root tag if its
+	 * parent doesn't exist.
+	 * 
+	 * @param iTagId
+	 *            the id of the loaded {@link ITag}.
+	 * @param iParentId
+	 *            the id of its parent.
+	 */
+	private void attachLoadedTag(final int iTagId, final int iParentId)
+	{
+		final ITag tag = _tagIdMap.get(Integer.valueOf(iTagId));
+		tag.setParent(iParentId);
+		final ITag parentTag = _tagIdMap.get(Integer.valueOf(iParentId));
+		if (parentTag != null)
+		{
+			parentTag.addChild(tag);
 		}
-		finally
+		else
 		{
-			if (resParent != null)
-			{
-				resParent.close();
-			}
+			_tagIdMap.get(Integer.valueOf(0)).addChild(tag);
 		}
 	}
 
@@ -303,6 +333,15 @@ public final class SQLFileTagRepository implements IWritableTagRepository
 		final boolean bSameSelectableStatus = (currentTag.isSelectable() == bSelectable);
 		final boolean bSameParent = (currentTag.getParentId() == parent
 				.getTagId());
+		// the subtrees of the old and new ancestors change with the parent
+		final Set<Integer> recountedTagIds = new HashSet<>();
+		if (!bSameParent)
+		{
+			recountedTagIds.addAll(_pictureCounter.getAncestors(currentTag
+					.getParentId()));
+			recountedTagIds.addAll(_pictureCounter.getAncestors(parent
+					.getTagId()));
+		}
 		// check if another tag has the same name
 		if (!bSameName && _tagNameMap.containsKey(strName))
 		{
@@ -328,17 +367,19 @@ public final class SQLFileTagRepository implements IWritableTagRepository
 			if (!bSameParent)
 			{
 				editTag.getParent().removeChild(editTag);
-				editTag.setParent(parent.getParentId());
+				editTag.setParent(parent.getTagId());
+				parent.addChild(editTag);
 			}
 			if (!bSameName || !bSameDescription || !bSameSelectableStatus
 					|| !bSameParent)
 			{
 				try
 				{
-					_fileListConnection.modifyTagIntoDatabase(editTag);
+					_store.modifyTag(editTag);
+					_pictureCounter.recount(recountedTagIds);
 					_bus.post(new TagRepositoryChangedEvent());
 				}
-				catch (final SQLException e)
+				catch (final MetadataStoreException e)
 				{
 					throw new TagAddException(
 							TagAddExceptionType.SQL_INSERT_ERROR, e);
@@ -376,21 +417,32 @@ public final class SQLFileTagRepository implements IWritableTagRepository
 		final ITag tagToRemove = _tagIdMap.get(Integer.valueOf(iTagId));
 		if (tagToRemove != null)
 		{
+			final Set<Integer> recountedTagIds = _pictureCounter
+					.getAncestors(tagToRemove.getParentId());
+			final ITag parentTag = tagToRemove.getParent();
+			if (parentTag != null)
+			{
+				parentTag.removeChild(tagToRemove);
+			}
 			// parent of children changed to root tag
 			for (final ITag tag : tagToRemove.getChildren())
 			{
 				tag.setParent(0);
+				getRootTag().addChild(tag);
 			}
 			// remove tag from repository
 			_tagSet.remove(tagToRemove);
 			_tagIdMap.remove(Integer.valueOf(iTagId));
 			_tagNameMap.remove(tagToRemove.getName());
-			// remove tag from database
+			// remove tag from the store
 			try
 			{
-				_fileListConnection.removeTag(iTagId);
+				_store.removeTag(iTagId);
+				_pictureCounter.removeTag(iTagId);
+				_pictureCounter.recount(recountedTagIds);
+				_bus.post(new TagRepositoryChangedEvent());
 			}
-			catch (final SQLException e)
+			catch (final MetadataStoreException e)
 			{
 				throw new TagAddException(
 						TagAddExceptionType.SQL_REMOVAL_ERROR, e);
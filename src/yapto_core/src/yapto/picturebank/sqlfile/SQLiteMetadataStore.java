@@ -0,0 +1,447 @@
+package yapto.picturebank.sqlfile;
+
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import yapto.picturebank.PictureInformation;
+import yapto.picturebank.sqlfile.config.ISQLFilePictureBankConfiguration;
+import yapto.picturebank.tag.ITag;
+
+import com.google.common.collect.Lists;
+
+/**
+ * {@link IMetadataStore} keeping the metadata in an SQLite database, through
+ * a {@link SQLFileListConnection} and its pool of
+ * {@link SQLFileReadConnection}s.
+ * 
+ * @author benobiwan
+ * 
+ */
+public final class SQLiteMetadataStore implements IMetadataStore
+{
+	/**
+	 * Object holding the connection to the database and the prepared
+	 * statements.
+	 */
+	private final SQLFileListConnection _fileListConnection;
+
+	/**
+	 * Creates a new SQLiteMetadataStore.
+	 * 
+	 * @param conf
+	 *            configuration of the database.
+	 * @throws SQLException
+	 *             if an SQL error occurred during the connection to the
+	 *             database.
+	 * @throws ClassNotFoundException
+	 *             if the database driver class can't be found.
+	 */
+	public SQLiteMetadataStore(final ISQLFilePictureBankConfiguration conf)
+			throws ClassNotFoundException, SQLException
+	{
+		_fileListConnection = new SQLFileListConnection(conf);
+	}
+
+	@Override
+	public int insertPicture(final String strPictureId,
+			final long lAddingTimestamp, final PictureInformation info)
+			throws MetadataStoreException
+	{
+		try
+		{
+			return _fileListConnection.insertPicture(strPictureId,
+					lAddingTimestamp, info);
+		}
+		catch (final SQLException e)
+		{
+			throw new MetadataStoreException(e);
+		}
+	}
+
+	@Override
+	public PictureRecord loadPicture(final String strPictureId)
+			throws MetadataStoreException
+	{
+		try
+		{
+			final SQLFileReadConnection reader = _fileListConnection
+					.acquireReader();
+			try
+			{
+				final ResultSet pictureRes = reader.loadPicture(strPictureId);
+				try
+				{
+					if (!pictureRes.next())
+					{
+						return null;
+					}
+					final Integer[] tagIds = reader
+							.loadTagsOfPicture(pictureRes
+									.getInt(SQLFileListConnection.PICTURE_KEY_COLUMN_NAME));
+					return createRecord(pictureRes, Arrays.asList(tagIds));
+				}
+				finally
+				{
+					pictureRes.close();
+				}
+			}
+			finally
+			{
+				_fileListConnection.releaseReader(reader);
+			}
+		}
+		catch (final SQLException e)
+		{
+			throw new MetadataStoreException(e);
+		}
+	}
+
+	@Override
+	public List<PictureRecord> loadPictures(final List<String> pictureIds)
+			throws MetadataStoreException
+	{
+		final List<PictureRecord> records = new ArrayList<>(pictureIds.size());
+		try
+		{
+			final SQLFileReadConnection reader = _fileListConnection
+					.acquireReader();
+			try
+			{
+				// one query for the pictures and one for their tags per chunk
+				for (final List<String> chunk : Lists.partition(pictureIds,
+						SQLFileListConnection.MAX_QUERY_PARAMETERS))
+				{
+					final Map<Integer, List<Integer>> tagMap = reader
+							.loadTagsOfPictures(chunk);
+					final ResultSet pictureRes = reader.loadPictures(chunk);
+					try
+					{
+						while (pictureRes.next())
+						{
+							List<Integer> tagIds = tagMap.get(Integer
+									.valueOf(pictureRes
+											.getInt(SQLFileListConnection.PICTURE_KEY_COLUMN_NAME)));
+							if (tagIds == null)
+							{
+								tagIds = Collections.emptyList();
+							}
+							records.add(createRecord(pictureRes, tagIds));
+						}
+					}
+					finally
+					{
+						pictureRes.getStatement().close();
+					}
+				}
+			}
+			finally
+			{
+				_fileListConnection.releaseReader(reader);
+			}
+		}
+		catch (final SQLException e)
+		{
+			throw new MetadataStoreException(e);
+		}
+		return records;
+	}
+
+	@Override
+	public IStoreCursor<String> openPictureIdCursor()
+			throws MetadataStoreException
+	{
+		try
+		{
+			final ResultSet resLoad = _fileListConnection.loadPictureList();
+			return new IStoreCursor<String>()
+			{
+				@Override
+				public boolean next() throws MetadataStoreException
+				{
+					try
+					{
+						return resLoad.next();
+					}
+					catch (final SQLException e)
+					{
+						throw new MetadataStoreException(e);
+					}
+				}
+
+				@Override
+				public String get() throws MetadataStoreException
+				{
+					try
+					{
+						return resLoad
+								.getString(SQLFileListConnection.PICTURE_ID_COLUMN_NAME);
+					}
+					catch (final SQLException e)
+					{
+						throw new MetadataStoreException(e);
+					}
+				}
+
+				@Override
+				public void close() throws MetadataStoreException
+				{
+					try
+					{
+						resLoad.close();
+					}
+					catch (final SQLException e)
+					{
+						throw new MetadataStoreException(e);
+					}
+				}
+			};
+		}
+		catch (final SQLException e)
+		{
+			throw new MetadataStoreException(e);
+		}
+	}
+
+	@Override
+	public void updatePictures(final Map<Integer, PictureState> stateMap,
+			final Map<Integer, int[]> countDeltas)
+			throws MetadataStoreException
+	{
+		try
+		{
+			_fileListConnection.updatePictures(stateMap, countDeltas);
+		}
+		catch (final SQLException e)
+		{
+			throw new MetadataStoreException(e);
+		}
+	}
+
+	@Override
+	public void saveTag(final ITag tag) throws MetadataStoreException
+	{
+		try
+		{
+			_fileListConnection.saveTagToDatabase(tag);
+		}
+		catch (final SQLException e)
+		{
+			throw new MetadataStoreException(e);
+		}
+	}
+
+	@Override
+	public void modifyTag(final ITag tag) throws MetadataStoreException
+	{
+		try
+		{
+			_fileListConnection.modifyTagIntoDatabase(tag);
+		}
+		catch (final SQLException e)
+		{
+			throw new MetadataStoreException(e);
+		}
+	}
+
+	@Override
+	public void removeTag(final int iTagId) throws MetadataStoreException
+	{
+		try
+		{
+			_fileListConnection.removeTag(iTagId);
+		}
+		catch (final SQLException e)
+		{
+			throw new MetadataStoreException(e);
+		}
+	}
+
+	@Override
+	public List<TagRecord> loadTags() throws MetadataStoreException
+	{
+		final List<TagRecord> tags = new ArrayList<>();
+		try
+		{
+			final ResultSet resLoad = _fileListConnection.loadTagList();
+			try
+			{
+				while (resLoad.next())
+				{
+					tags.add(new TagRecord(
+							resLoad.getInt(SQLFileListConnection.TAG_ID_COLUMN_NAME),
+							resLoad.getInt(SQLFileListConnection.TAG_PARENT_ID_COLUMN_NAME),
+							resLoad.getString(SQLFileListConnection.TAG_NAME_COLUMN_NAME),
+							resLoad.getString(SQLFileListConnection.TAG_DESCRIPTION_COLUMN_NAME),
+							resLoad.getBoolean(SQLFileListConnection.TAG_SELECTABLE_COLUMN_NAME)));
+				}
+			}
+			finally
+			{
+				resLoad.getStatement().close();
+			}
+		}
+		catch (final SQLException e)
+		{
+			throw new MetadataStoreException(e);
+		}
+		return tags;
+	}
+
+	@Override
+	public Map<Integer, int[]> loadTagCounts() throws MetadataStoreException
+	{
+		final Map<Integer, int[]> counts = new HashMap<>();
+		try
+		{
+			final ResultSet res = _fileListConnection.loadTagCounts();
+			try
+			{
+				while (res.next())
+				{
+					counts.put(
+							Integer.valueOf(res
+									.getInt(SQLFileListConnection.TAG_COUNT_TAG_ID_COLUMN_NAME)),
+							new int[] {
+									res.getInt(SQLFileListConnection.TAG_COUNT_PICTURE_COUNT_COLUMN_NAME),
+									res.getInt(SQLFileListConnection.TAG_COUNT_SUBTREE_COUNT_COLUMN_NAME) });
+				}
+			}
+			finally
+			{
+				res.getStatement().close();
+			}
+		}
+		catch (final SQLException e)
+		{
+			throw new MetadataStoreException(e);
+		}
+		return counts;
+	}
+
+	@Override
+	public void recountTagSubtrees(final Collection<Integer> tagIds)
+			throws MetadataStoreException
+	{
+		try
+		{
+			_fileListConnection.recountTagSubtrees(tagIds);
+		}
+		catch (final SQLException e)
+		{
+			throw new MetadataStoreException(e);
+		}
+	}
+
+	@Override
+	public long getChangeCounter() throws MetadataStoreException
+	{
+		try
+		{
+			return _fileListConnection.getChangeCounter();
+		}
+		catch (final SQLException e)
+		{
+			throw new MetadataStoreException(e);
+		}
+	}
+
+	@Override
+	public List<String> backup(final Path backupFile)
+			throws MetadataStoreException
+	{
+		try
+		{
+			final SQLFileReadConnection reader = _fileListConnection
+					.acquireReader();
+			try
+			{
+				reader.backup(backupFile);
+			}
+			finally
+			{
+				_fileListConnection.releaseReader(reader);
+			}
+			return SQLFileReadConnection.loadPictureIds(backupFile);
+		}
+		catch (final SQLException e)
+		{
+			throw new MetadataStoreException(e);
+		}
+	}
+
+	@Override
+	public void close() throws MetadataStoreException
+	{
+		try
+		{
+			_fileListConnection.close();
+		}
+		catch (final SQLException e)
+		{
+			throw new MetadataStoreException(e);
+		}
+	}
+
+	/**
+	 * Create a {@link PictureRecord} from the current row of the specified
+	 * {@link ResultSet}.
+	 * 
+	 * @param pictureRes
+	 *            the {@link ResultSet} positioned on the row of the picture.
+	 * @param tagIds
+	 *            the ids of the {@link ITag}s of the picture.
+	 * @return the created {@link PictureRecord}.
+	 * @throws SQLException
+	 *             if the row can't be read.
+	 */
+	private static PictureRecord createRecord(final ResultSet pictureRes,
+			final List<Integer> tagIds) throws SQLException
+	{
+		final int[] tagIdArray = new int[tagIds.size()];
+		for (int i = 0; i < tagIdArray.length; i++)
+		{
+			tagIdArray[i] = tagIds.get(i).intValue();
+		}
+		return new PictureRecord(
+				pictureRes
+						.getInt(SQLFileListConnection.PICTURE_KEY_COLUMN_NAME),
+				pictureRes
+						.getString(SQLFileListConnection.PICTURE_ID_COLUMN_NAME),
+				pictureRes
+						.getInt(SQLFileListConnection.PICTURE_GRADE_COLUMN_NAME),
+				pictureRes
+						.getLong(SQLFileListConnection.PICTURE_MODIFIED_TIMESTAMP_COLUMN_NAME),
+				pictureRes
+						.getLong(SQLFileListConnection.PICTURE_ADDING_TIMESTAMP_COLUMN_NAME),
+				new PictureInformation(
+						pictureRes
+								.getString(SQLFileListConnection.PICTURE_ORIGINAL_NAME),
+						pictureRes
+								.getInt(SQLFileListConnection.PICTURE_WIDTH_COLUMN_NAME),
+						pictureRes
+								.getInt(SQLFileListConnection.PICTURE_HEIGTH_COLUMN_NAME),
+						pictureRes
+								.getLong(SQLFileListConnection.PICTURE_CREATION_TIMESTAMP_COLUMN_NAME),
+						pictureRes
+								.getInt(SQLFileListConnection.PICTURE_ORIENTATION_COLUMN_NAME),
+						pictureRes
+								.getString(SQLFileListConnection.PICTURE_MAKE_COLUMN_NAME),
+						pictureRes
+								.getString(SQLFileListConnection.PICTURE_MODEL_COLUMN_NAME),
+						pictureRes
+								.getString(SQLFileListConnection.PICTURE_EXPOSURE_COLUMN_NAME),
+						pictureRes
+								.getString(SQLFileListConnection.PICTURE_RELATIVE_APERTURE_COLUMN_NAME),
+						pictureRes
+								.getString(SQLFileListConnection.PICTURE_FOCAL_LENGTH_COLUMN_NAME)),
+				tagIdArray);
+	}
+}
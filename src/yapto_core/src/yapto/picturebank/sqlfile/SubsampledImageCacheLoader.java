@@ -0,0 +1,52 @@
+package yapto.picturebank.sqlfile;
+
+import java.awt.image.BufferedImage;
+
+import javax.imageio.ImageReader;
+
+import com.google.common.cache.CacheLoader;
+
+/**
+ * A {@link CacheLoader} decoding {@link BufferedImage} from the file system at
+ * a reduced resolution, using the source subsampling of the
+ * {@link ImageReader}.
+ * 
+ * @author benobiwan
+ * 
+ */
+public final class SubsampledImageCacheLoader extends
+		CacheLoader<SubsampledImageKey, BufferedImage>
+{
+	/**
+	 * The configuration of this SubsampledImageCacheLoader.
+	 */
+	private final IBufferedImageCacheLoaderConfiguration _cacheLoaderConf;
+
+	/**
+	 * Object locating the files of the pictures.
+	 */
+	private final PictureFileLocator _fileLocator;
+
+	/**
+	 * Creates a new SubsampledImageCacheLoader.
+	 * 
+	 * @param cacheLoaderConf
+	 *            the configuration of this SubsampledImageCacheLoader.
+	 * @param fileLocator
+	 *            object locating the files of the pictures.
+	 */
+	public SubsampledImageCacheLoader(
+			final IBufferedImageCacheLoaderConfiguration cacheLoaderConf,
+			final PictureFileLocator fileLocator)
+	{
+		_cacheLoaderConf = cacheLoaderConf;
+		_fileLocator = fileLocator;
+	}
+
+	@Override
+	public BufferedImage load(final SubsampledImageKey key) throws Exception
+	{
+		return BufferedImageCacheLoader.readImage(_cacheLoaderConf,
+				_fileLocator, key.getId(), null, key.getSubsampling());
+	}
+}
@@ -0,0 +1,113 @@
+package yapto.picturebank.sqlfile;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Key of a subsampled {@link BufferedImage} in the cache, made of the id of
+ * the picture and of the subsampling factor used to decode it.
+ * 
+ * @author benobiwan
+ * 
+ */
+public final class SubsampledImageKey
+{
+	/**
+	 * The id of the picture.
+	 */
+	private final String _strId;
+
+	/**
+	 * The subsampling factor, a power of two.
+	 */
+	private final int _iSubsampling;
+
+	/**
+	 * Creates a new SubsampledImageKey.
+	 * 
+	 * @param strId
+	 *            the id of the picture.
+	 * @param iSubsampling
+	 *            the subsampling factor, a power of two.
+	 */
+	public SubsampledImageKey(final String strId, final int iSubsampling)
+	{
+		_strId = strId;
+		_iSubsampling = iSubsampling;
+	}
+
+	/**
+	 * Get the id of the picture.
+	 * 
+	 * @return the id of the picture.
+	 */
+	public String getId()
+	{
+		return _strId;
+	}
+
+	/**
+	 * Get the subsampling factor.
+	 * 
+	 * @return the subsampling factor.
+	 */
+	public int getSubsampling()
+	{
+		return _iSubsampling;
+	}
+
+	/**
+	 * Get the number of bytes used by the decoded image, used to bound the
+	 * size of the subsampled image cache.
+	 * 
+	 * @param image
+	 *            the decoded image.
+	 * @return the number of bytes used by the decoded image.
+	 */
+	public static int getWeight(final BufferedImage image)
+	{
+		return image.getWidth() * image.getHeight() * 4;
+	}
+
+	@Override
+	public int hashCode()
+	{
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + _iSubsampling;
+		result = prime * result + ((_strId == null) ? 0 : _strId.hashCode());
+		return result;
+	}
+
+	@Override
+	public boolean equals(final Object obj)
+	{
+		if (this == obj)
+		{
+			return true;
+		}
+		if (obj == null)
+		{
+			return false;
+		}
+		if (getClass() != obj.getClass())
+		{
+			return false;
+		}
+		final SubsampledImageKey other = (SubsampledImageKey) obj;
+		if (_iSubsampling != other._iSubsampling)
+		{
+			return false;
+		}
+		if (_strId == null)
+		{
+			return other._strId == null;
+		}
+		return _strId.equals(other._strId);
+	}
+
+	@Override
+	public String toString()
+	{
+		return _strId + '@' + _iSubsampling;
+	}
+}
@@ -0,0 +1,335 @@
+package yapto.picturebank.sqlfile;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import yapto.picturebank.tag.ITag;
+import yapto.picturebank.tag.ITagRepository;
+
+/**
+ * Object keeping the number of pictures of each {@link ITag}, directly and
+ * including its descendants, in memory and in the {@link IMetadataStore}.
+ * 
+ * The counts are read without any lock. They are updated incrementally in the
+ * write of the pictures, from the tags of each picture before and after the
+ * write : a picture is counted once in the subtree of a tag whatever the
+ * number of its tags in this subtree. Only a change in the tree of the
+ * {@link ITag}s needs a recount, limited to the tags whose subtree has
+ * changed. The updates are serialized by the lock on this object, so that the
+ * counts in memory always match the store.
+ * 
+ * @author benobiwan
+ * 
+ */
+public final class TagPictureCounter
+{
+	/**
+	 * The {@link IMetadataStore} holding the pictures and the counts.
+	 */
+	private final IMetadataStore _store;
+
+	/**
+	 * The {@link ITagRepository} holding the tree of the {@link ITag}s.
+	 */
+	private final ITagRepository _tagRepository;
+
+	/**
+	 * Number of pictures having each {@link ITag}, by tag id.
+	 */
+	private final ConcurrentMap<Integer, Integer> _pictureCounts = new ConcurrentHashMap<>();
+
+	/**
+	 * Number of distinct pictures having each {@link ITag} or one of its
+	 * descendants, by tag id.
+	 */
+	private final ConcurrentMap<Integer, Integer> _subtreeCounts = new ConcurrentHashMap<>();
+
+	/**
+	 * Creates a new TagPictureCounter.
+	 * 
+	 * @param store
+	 *            the {@link IMetadataStore} holding the pictures and the
+	 *            counts.
+	 * @param tagRepository
+	 *            the {@link ITagRepository} holding the tree of the
+	 *            {@link ITag}s.
+	 */
+	public TagPictureCounter(final IMetadataStore store,
+			final ITagRepository tagRepository)
+	{
+		_store = store;
+		_tagRepository = tagRepository;
+	}
+
+	/**
+	 * Load the counts of all the {@link ITag}s from the store.
+	 * 
+	 * @throws MetadataStoreException
+	 *             if an error occurred during the interrogation of the store.
+	 */
+	public synchronized void load() throws MetadataStoreException
+	{
+		for (final Entry<Integer, int[]> entry : _store.loadTagCounts()
+				.entrySet())
+		{
+			_pictureCounts.put(entry.getKey(),
+					Integer.valueOf(entry.getValue()[0]));
+			_subtreeCounts.put(entry.getKey(),
+					Integer.valueOf(entry.getValue()[1]));
+		}
+	}
+
+	/**
+	 * Get the number of pictures having the specified {@link ITag}.
+	 * 
+	 * @param iTagId
+	 *            the id of the {@link ITag}.
+	 * @return the number of pictures having the {@link ITag}, 0 for an
+	 *         unknown {@link ITag}.
+	 */
+	public int getPictureCount(final int iTagId)
+	{
+		final Integer count = _pictureCounts.get(Integer.valueOf(iTagId));
+		return (count == null) ? 0 : count.intValue();
+	}
+
+	/**
+	 * Get the number of distinct pictures having the specified {@link ITag} or
+	 * one of its descendants.
+	 * 
+	 * @param iTagId
+	 *            the id of the {@link ITag}.
+	 * @return the number of distinct pictures having the {@link ITag} or one
+	 *         of its descendants, 0 for an unknown {@link ITag}.
+	 */
+	public int getPictureCountWithDescendants(final int iTagId)
+	{
+		final Integer count = _subtreeCounts.get(Integer.valueOf(iTagId));
+		return (count == null) ? 0 : count.intValue();
+	}
+
+	/**
+	 * Write the specified pictures to the store and update the counts of
+	 * their {@link ITag}s in the same write.
+	 * 
+	 * @param stateMap
+	 *            map of the {@link PictureState}s to write by picture key.
+	 * @return the ids of the {@link ITag}s whose counts have changed.
+	 * @throws MetadataStoreException
+	 *             if an error occurred during the update, in which case
+	 *             neither the pictures nor the counts are updated.
+	 */
+	public synchronized Set<Integer> writePictures(
+			final Map<Integer, PictureState> stateMap)
+			throws MetadataStoreException
+	{
+		final Map<Integer, int[]> countDeltas = computeDeltas(stateMap
+				.values());
+		_store.updatePictures(stateMap, countDeltas);
+		final Set<Integer> changedTagIds = new HashSet<>();
+		for (final Entry<Integer, int[]> entry : countDeltas.entrySet())
+		{
+			if (addToCount(_pictureCounts, entry.getKey(), entry.getValue()[0])
+					| addToCount(_subtreeCounts, entry.getKey(),
+							entry.getValue()[1]))
+			{
+				changedTagIds.add(entry.getKey());
+			}
+		}
+		return changedTagIds;
+	}
+
+	/**
+	 * Start counting the pictures of a new {@link ITag}, whose counts have
+	 * been inserted in the store.
+	 * 
+	 * @param iTagId
+	 *            the id of the new {@link ITag}.
+	 */
+	public synchronized void addTag(final int iTagId)
+	{
+		_pictureCounts.put(Integer.valueOf(iTagId), Integer.valueOf(0));
+		_subtreeCounts.put(Integer.valueOf(iTagId), Integer.valueOf(0));
+	}
+
+	/**
+	 * Stop counting the pictures of a removed {@link ITag}.
+	 * 
+	 * @param iTagId
+	 *            the id of the removed {@link ITag}.
+	 */
+	public synchronized void removeTag(final int iTagId)
+	{
+		_pictureCounts.remove(Integer.valueOf(iTagId));
+		_subtreeCounts.remove(Integer.valueOf(iTagId));
+	}
+
+	/**
+	 * Recount the distinct pictures in the subtree of each of the specified
+	 * {@link ITag}s, after a change in the tree of the {@link ITag}s has been
+	 * written to the store.
+	 * 
+	 * @param tagIds
+	 *            the ids of the {@link ITag}s whose subtree has changed.
+	 * @throws MetadataStoreException
+	 *             if an error occurred during the recount.
+	 */
+	public synchronized void recount(final Collection<Integer> tagIds)
+			throws MetadataStoreException
+	{
+		if (!tagIds.isEmpty())
+		{
+			_store.recountTagSubtrees(tagIds);
+			load();
+		}
+	}
+
+	/**
+	 * Get the specified {@link ITag} and all its ancestors, except the root
+	 * {@link ITag}.
+	 * 
+	 * @param iTagId
+	 *            the id of the {@link ITag}.
+	 * @return the ids of the {@link ITag} and all its ancestors.
+	 */
+	public Set<Integer> getAncestors(final int iTagId)
+	{
+		final Set<Integer> ancestors = new HashSet<>();
+		addAncestors(iTagId, ancestors);
+		return ancestors;
+	}
+
+	/**
+	 * Compute the deltas of the counts of the {@link ITag}s resulting from the
+	 * write of the specified pictures.
+	 * 
+	 * @param states
+	 *            the {@link PictureState}s to write.
+	 * @return the deltas of the picture count and of the subtree count, by
+	 *         tag id.
+	 */
+	private Map<Integer, int[]> computeDeltas(
+			final Collection<PictureState> states)
+	{
+		final Map<Integer, int[]> countDeltas = new HashMap<>();
+		for (final PictureState state : states)
+		{
+			if (!state.hasTagChanges())
+			{
+				continue;
+			}
+			for (final int iTagId : state.getRemovedTagIds())
+			{
+				addDelta(countDeltas, Integer.valueOf(iTagId), 0, -1);
+			}
+			for (final int iTagId : state.getAddedTagIds())
+			{
+				addDelta(countDeltas, Integer.valueOf(iTagId), 0, 1);
+			}
+			final Set<Integer> savedSubtrees = new HashSet<>();
+			for (final int iTagId : state.getSavedTagIds())
+			{
+				addAncestors(iTagId, savedSubtrees);
+			}
+			final Set<Integer> subtrees = new HashSet<>();
+			for (final int iTagId : state.getTagIds())
+			{
+				addAncestors(iTagId, subtrees);
+			}
+			for (final Integer tagId : subtrees)
+			{
+				if (!savedSubtrees.contains(tagId))
+				{
+					addDelta(countDeltas, tagId, 1, 1);
+				}
+			}
+			for (final Integer tagId : savedSubtrees)
+			{
+				if (!subtrees.contains(tagId))
+				{
+					addDelta(countDeltas, tagId, 1, -1);
+				}
+			}
+		}
+		return countDeltas;
+	}
+
+	/**
+	 * Add the specified {@link ITag} and all its ancestors, except the root
+	 * {@link ITag}, to a set.
+	 * 
+	 * @param iTagId
+	 *            the id of the {@link ITag}.
+	 * @param ancestors
+	 *            the set of tag ids.
+	 */
+	private void addAncestors(final int iTagId, final Set<Integer> ancestors)
+	{
+		int iId = iTagId;
+		while (iId != 0)
+		{
+			final ITag tag = _tagRepository.getTag(iId);
+			// an already visited tag ends the walk, even through a cycle
+			if (tag == null || !ancestors.add(Integer.valueOf(iId)))
+			{
+				return;
+			}
+			iId = tag.getParentId();
+		}
+	}
+
+	/**
+	 * Add a delta to a map of deltas.
+	 * 
+	 * @param countDeltas
+	 *            the deltas of the picture count and of the subtree count, by
+	 *            tag id.
+	 * @param tagId
+	 *            the id of the {@link ITag}.
+	 * @param iIndex
+	 *            0 for the picture count, 1 for the subtree count.
+	 * @param iDelta
+	 *            the delta to add.
+	 */
+	private static void addDelta(final Map<Integer, int[]> countDeltas,
+			final Integer tagId, final int iIndex, final int iDelta)
+	{
+		int[] deltas = countDeltas.get(tagId);
+		if (deltas == null)
+		{
+			deltas = new int[2];
+			countDeltas.put(tagId, deltas);
+		}
+		deltas[iIndex] += iDelta;
+	}
+
+	/**
+	 * Add a delta to the count of a {@link ITag}, if it's counted.
+	 * 
+	 * @param counts
+	 *            the counts by tag id.
+	 * @param tagId
+	 *            the id of the {@link ITag}.
+	 * @param iDelta
+	 *            the delta to add.
+	 * @return true if the count has changed.
+	 */
+	private static boolean addToCount(
+			final ConcurrentMap<Integer, Integer> counts, final Integer tagId,
+			final int iDelta)
+	{
+		final Integer count = counts.get(tagId);
+		if (iDelta == 0 || count == null)
+		{
+			return false;
+		}
+		counts.put(tagId, Integer.valueOf(count.intValue() + iDelta));
+		return true;
+	}
+}
@@ -0,0 +1,113 @@
+package yapto.picturebank.sqlfile;
+
+import yapto.picturebank.tag.ITag;
+
+/**
+ * The attributes of a {@link ITag} read from or written to an
+ * {@link IMetadataStore} or a {@link BankSnapshot}.
+ * 
+ * @author benobiwan
+ * 
+ */
+public final class TagRecord
+{
+	/**
+	 * The id of the {@link ITag}.
+	 */
+	private final int _iTagId;
+
+	/**
+	 * The id of the parent of the {@link ITag}.
+	 */
+	private final int _iParentId;
+
+	/**
+	 * The name of the {@link ITag}.
+	 */
+	private final String _strName;
+
+	/**
+	 * The description of the {@link ITag}.
+	 */
+	private final String _strDescription;
+
+	/**
+	 * Whether the {@link ITag} is selectable.
+	 */
+	private final boolean _bSelectable;
+
+	/**
+	 * Creates a new TagRecord.
+	 * 
+	 * @param iTagId
+	 *            the id of the {@link ITag}.
+	 * @param iParentId
+	 *            the id of the parent of the {@link ITag}.
+	 * @param strName
+	 *            the name of the {@link ITag}.
+	 * @param strDescription
+	 *            the description of the {@link ITag}.
+	 * @param bSelectable
+	 *            whether the {@link ITag} is selectable.
+	 */
+	public TagRecord(final int iTagId, final int iParentId,
+			final String strName, final String strDescription,
+			final boolean bSelectable)
+	{
+		_iTagId = iTagId;
+		_iParentId = iParentId;
+		_strName = strName;
+		_strDescription = strDescription;
+		_bSelectable = bSelectable;
+	}
+
+	/**
+	 * Get the id of the {@link ITag}.
+	 * 
+	 * @return the id of the {@link ITag}.
+	 */
+	public int getTagId()
+	{
+		return _iTagId;
+	}
+
+	/**
+	 * Get the id of the parent of the {@link ITag}.
+	 * 
+	 * @return the id of the parent of the {@link ITag}.
+	 */
+	public int getParentId()
+	{
+		return _iParentId;
+	}
+
+	/**
+	 * Get the name of the {@link ITag}.
+	 * 
+	 * @return the name of the {@link ITag}.
+	 */
+	public String getName()
+	{
+		return _strName;
+	}
+
+	/**
+	 * Get the description of the {@link ITag}.
+	 * 
+	 * @return the description of the {@link ITag}.
+	 */
+	public String getDescription()
+	{
+		return _strDescription;
+	}
+
+	/**
+	 * Check whether the {@link ITag} is selectable.
+	 * 
+	 * @return true if the {@link ITag} is selectable.
+	 */
+	public boolean isSelectable()
+	{
+		return _bSelectable;
+	}
+}
@@ -0,0 +1,56 @@
+package yapto.picturebank.sqlfile;
+
+/**
+ * Event used to signal the progress of the write of the modified pictures
+ * while an {@link SQLFilePictureBank} is closing.
+ * 
+ * @author benobiwan
+ * 
+ */
+public final class WriteBackProgressEvent
+{
+	/**
+	 * Number of pictures already written.
+	 */
+	private final int _iWrittenCount;
+
+	/**
+	 * Number of pictures to write.
+	 */
+	private final int _iTotalCount;
+
+	/**
+	 * Creates a new {@link WriteBackProgressEvent}.
+	 * 
+	 * @param iWrittenCount
+	 *            number of pictures already written.
+	 * @param iTotalCount
+	 *            number of pictures to write.
+	 */
+	public WriteBackProgressEvent(final int iWrittenCount,
+			final int iTotalCount)
+	{
+		_iWrittenCount = iWrittenCount;
+		_iTotalCount = iTotalCount;
+	}
+
+	/**
+	 * Get the number of pictures already written.
+	 * 
+	 * @return the number of pictures already written.
+	 */
+	public int getWrittenCount()
+	{
+		return _iWrittenCount;
+	}
+
+	/**
+	 * Get the number of pictures to write.
+	 * 
+	 * @return the number of pictures to write.
+	 */
+	public int getTotalCount()
+	{
+		return _iTotalCount;
+	}
+}
@@ -0,0 +1,358 @@
+package yapto.picturebank.sqlfile;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link Runnable} writing the modified {@link FsPicture}s to the database
+ * once they haven't been modified for a given delay.
+ * 
+ * Pending writes are kept in a queue ordered by deadline and de-duplicated by
+ * picture id : a picture modified several times has a single pending write,
+ * whose deadline is pushed back on each modification. Each write is
+ * dispatched as soon as its deadline expires, whatever the deadlines of the
+ * other pictures.
+ * 
+ * The expired writes are grouped to be written in a single transaction : a
+ * write can wait for a limited latency so that others join it, unless the
+ * maximum batch size is reached.
+ * 
+ * @author benobiwan
+ * 
+ */
+public final class WriteBehindScheduler implements Runnable
+{
+	/**
+	 * Logger object.
+	 */
+	protected static final Logger LOGGER = LoggerFactory
+			.getLogger(WriteBehindScheduler.class);
+
+	/**
+	 * The {@link SQLFilePictureBank} writing the pictures.
+	 */
+	private final SQLFilePictureBank _pictureBank;
+
+	/**
+	 * Delay without modification before a picture is written, in nanoseconds.
+	 */
+	private final long _lDelay;
+
+	/**
+	 * Maximum number of pictures written together.
+	 */
+	private final int _iMaxBatchSize;
+
+	/**
+	 * Maximum time an expired write waits for others to join it, in
+	 * nanoseconds.
+	 */
+	private final long _lMaxLatency;
+
+	/**
+	 * Map of the pending writes by picture id, also used as lock.
+	 */
+	private final Map<String, PendingWrite> _pendingMap = new HashMap<>();
+
+	/**
+	 * Pending writes ordered by deadline, protected by the lock on the map of
+	 * pending writes.
+	 */
+	private final TreeSet<PendingWrite> _deadlineQueue = new TreeSet<>();
+
+	/**
+	 * Sequence number of the next pending write, used to order the writes with
+	 * the same deadline.
+	 */
+	private long _lNextSequence = 0;
+
+	/**
+	 * Boolean used to stop the {@link WriteBehindScheduler}.
+	 */
+	private boolean _bStop = false;
+
+	/**
+	 * Creates a new WriteBehindScheduler.
+	 * 
+	 * @param pictureBank
+	 *            the {@link SQLFilePictureBank} writing the pictures.
+	 * @param lDelayMillis
+	 *            delay without modification before a picture is written, in
+	 *            milliseconds.
+	 * @param iMaxBatchSize
+	 *            maximum number of pictures written together.
+	 * @param lMaxLatencyMillis
+	 *            maximum time an expired write waits for others to join it, in
+	 *            milliseconds.
+	 */
+	public WriteBehindScheduler(final SQLFilePictureBank pictureBank,
+			final long lDelayMillis, final int iMaxBatchSize,
+			final long lMaxLatencyMillis)
+	{
+		_pictureBank = pictureBank;
+		_lDelay = TimeUnit.MILLISECONDS.toNanos(lDelayMillis);
+		_iMaxBatchSize = Math.max(1, iMaxBatchSize);
+		_lMaxLatency = TimeUnit.MILLISECONDS.toNanos(lMaxLatencyMillis);
+	}
+
+	/**
+	 * Schedule the write of the specified picture after the delay. If a write
+	 * of this picture is already pending, it's postponed.
+	 * 
+	 * @param picture
+	 *            the picture to write.
+	 */
+	public void schedule(final FsPicture picture)
+	{
+		synchronized (_pendingMap)
+		{
+			if (_bStop)
+			{
+				return;
+			}
+			final PendingWrite previous = _pendingMap.get(picture.getId());
+			if (previous != null)
+			{
+				_deadlineQueue.remove(previous);
+			}
+			final PendingWrite pending = new PendingWrite(picture,
+					System.nanoTime() + _lDelay, _lNextSequence++);
+			_pendingMap.put(picture.getId(), pending);
+			final boolean bFirst = _deadlineQueue.isEmpty()
+					|| pending.compareTo(_deadlineQueue.first()) < 0;
+			_deadlineQueue.add(pending);
+			if (bFirst || previous != null)
+			{
+				// the next deadline may have changed
+				_pendingMap.notifyAll();
+			}
+		}
+	}
+
+	/**
+	 * Get the number of pending writes.
+	 * 
+	 * @return the number of pending writes.
+	 */
+	public int getPendingCount()
+	{
+		synchronized (_pendingMap)
+		{
+			return _pendingMap.size();
+		}
+	}
+
+	/**
+	 * Stop the {@link WriteBehindScheduler}. The pending writes are dropped,
+	 * the modified pictures must be written by the caller.
+	 */
+	public void stop()
+	{
+		synchronized (_pendingMap)
+		{
+			_bStop = true;
+			_pendingMap.clear();
+			_deadlineQueue.clear();
+			_pendingMap.notifyAll();
+		}
+	}
+
+	@Override
+	public void run()
+	{
+		List<FsPicture> batch;
+		while ((batch = takeExpiredBatch()) != null)
+		{
+			try
+			{
+				_pictureBank.updatePictures(batch);
+			}
+			catch (final RuntimeException e)
+			{
+				LOGGER.error("can't write " + batch.size() + " pictures", e);
+			}
+		}
+	}
+
+	/**
+	 * Wait for a batch of expired writes and remove them from the pending
+	 * writes. The batch is taken once it's full, or once the first write has
+	 * waited for the maximum latency after its deadline.
+	 * 
+	 * @return the pictures to write, or null if the
+	 *         {@link WriteBehindScheduler} has been stopped or its thread
+	 *         interrupted. The modified pictures left are then written when
+	 *         the bank is closed.
+	 */
+	private List<FsPicture> takeExpiredBatch()
+	{
+		synchronized (_pendingMap)
+		{
+			while (!_bStop && !Thread.currentThread().isInterrupted())
+			{
+				if (_deadlineQueue.isEmpty())
+				{
+					waitOnPendingMap(0);
+					continue;
+				}
+				final long lNow = System.nanoTime();
+				final long lBatchDeadline = _deadlineQueue.first()._lDeadline
+						+ _lMaxLatency;
+				if (lBatchDeadline - lNow <= 0
+						|| countExpired(lNow) >= _iMaxBatchSize)
+				{
+					return pollExpired(lNow);
+				}
+				// wake up when the batch must be taken or when another write
+				// expires, which may fill the batch
+				long lWakeUp = lBatchDeadline;
+				for (final PendingWrite pending : _deadlineQueue)
+				{
+					if (pending._lDeadline - lNow > 0)
+					{
+						if (pending._lDeadline - lWakeUp < 0)
+						{
+							lWakeUp = pending._lDeadline;
+						}
+						break;
+					}
+				}
+				// wait(0) would wait forever
+				waitOnPendingMap(Math.max(1,
+						TimeUnit.NANOSECONDS.toMillis(lWakeUp - lNow)));
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * Count the expired writes, up to the maximum batch size. Must be called
+	 * while holding the lock on the map of pending writes.
+	 * 
+	 * @param lNow
+	 *            the current time, as given by {@link System#nanoTime()}.
+	 * @return the number of expired writes, at most the maximum batch size.
+	 */
+	private int countExpired(final long lNow)
+	{
+		int iCount = 0;
+		for (final PendingWrite pending : _deadlineQueue)
+		{
+			if (iCount >= _iMaxBatchSize || pending._lDeadline - lNow > 0)
+			{
+				break;
+			}
+			iCount++;
+		}
+		return iCount;
+	}
+
+	/**
+	 * Remove the expired writes, up to the maximum batch size. Must be called
+	 * while holding the lock on the map of pending writes.
+	 * 
+	 * @param lNow
+	 *            the current time, as given by {@link System#nanoTime()}.
+	 * @return the pictures to write.
+	 */
+	private List<FsPicture> pollExpired(final long lNow)
+	{
+		final List<FsPicture> batch = new ArrayList<>();
+		final Iterator<PendingWrite> it = _deadlineQueue.iterator();
+		while (it.hasNext() && batch.size() < _iMaxBatchSize)
+		{
+			final PendingWrite pending = it.next();
+			if (pending._lDeadline - lNow > 0)
+			{
+				break;
+			}
+			it.remove();
+			_pendingMap.remove(pending._picture.getId());
+			batch.add(pending._picture);
+		}
+		return batch;
+	}
+
+	/**
+	 * Wait on the lock of the map of pending writes, which must be held.
+	 * 
+	 * @param lTimeout
+	 *            the maximum time to wait in milliseconds, 0 to wait until
+	 *            notified.
+	 */
+	private void waitOnPendingMap(final long lTimeout)
+	{
+		try
+		{
+			_pendingMap.wait(lTimeout);
+		}
+		catch (final InterruptedException e)
+		{
+			// checked by the caller
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * A pending write of a picture.
+	 * 
+	 * @author benobiwan
+	 * 
+	 */
+	private static final class PendingWrite implements
+			Comparable<PendingWrite>
+	{
+		/**
+		 * The picture to write.
+		 */
+		final FsPicture _picture;
+
+		/**
+		 * The deadline of the write, as given by {@link System#nanoTime()}.
+		 */
+		final long _lDeadline;
+
+		/**
+		 * Sequence number of this pending write.
+		 */
+		private final long _lSequence;
+
+		/**
+		 * Creates a new PendingWrite.
+		 * 
+		 * @param picture
+		 *            the picture to write.
+		 * @param lDeadline
+		 *            the deadline of the write.
+		 * @param lSequence
+		 *            sequence number of this pending write.
+		 */
+		public PendingWrite(final FsPicture picture, final long lDeadline,
+				final long lSequence)
+		{
+			_picture = picture;
+			_lDeadline = lDeadline;
+			_lSequence = lSequence;
+		}
+
+		@Override
+		public int compareTo(final PendingWrite other)
+		{
+			// deadlines from System.nanoTime() must be compared by difference
+			final long lDiff = _lDeadline - other._lDeadline;
+			if (lDiff != 0)
+			{
+				return (lDiff < 0) ? -1 : 1;
+			}
+			return Long.compare(_lSequence, other._lSequence);
+		}
+	}
+}
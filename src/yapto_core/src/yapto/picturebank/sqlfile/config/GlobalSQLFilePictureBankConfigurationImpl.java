@@ -39,6 +39,49 @@ public final class GlobalSQLFilePictureBankConfigurationImpl extends
 	 */
 	private final ConfigurationInteger _leafWaitBeforeWrite;
 
+	/**
+	 * Leaf configuring the maximum number of pictures written to the database
+	 * in a single transaction.
+	 */
+	private final ConfigurationInteger _leafWriteBatchSize;
+
+	/**
+	 * Leaf configuring the maximum number of milliseconds a picture ready to
+	 * be written can wait for other pictures to be written in the same
+	 * transaction.
+	 */
+	private final ConfigurationInteger _leafWriteBatchLatency;
+
+	/**
+	 * Leaf configuring the number of milliseconds between two
+	 * synchronizations of the edit journal to the disk.
+	 */
+	private final ConfigurationInteger _leafJournalSyncInterval;
+
+	/**
+	 * Leaf configuring the maximum number of seconds spent writing the
+	 * modified pictures when closing a picture bank.
+	 */
+	private final ConfigurationInteger _leafShutdownTimeout;
+
+	/**
+	 * Leaf configuring the maximum number of KiB per second copied by a
+	 * backup, 0 for no limit.
+	 */
+	private final ConfigurationInteger _leafBackupRate;
+
+	/**
+	 * Leaf configuring the number of milliseconds between two refreshes of
+	 * the searchers of the indexes, 0 to refresh them before each search.
+	 */
+	private final ConfigurationInteger _leafIndexRefreshInterval;
+
+	/**
+	 * Leaf configuring the number of threads searching the segments of an
+	 * index in parallel, 0 to search them in the calling thread.
+	 */
+	private final ConfigurationInteger _leafIndexSearchThreads;
+
 	/**
 	 * Short description for the maximum number of identify task.
 	 */
@@ -84,6 +127,173 @@ public final class GlobalSQLFilePictureBankConfigurationImpl extends
 	 */
 	private final static String WAIT_BEFORE_WRITE_INVALID_MESSAGE = "Invalid waited before writing.";
 
+	/**
+	 * Short description for the write batch size.
+	 */
+	private final static String WRITE_BATCH_SIZE_SHORT_DESC = "Maximum number of pictures per write.";
+
+	/**
+	 * Long description for the write batch size.
+	 */
+	private final static String WRITE_BATCH_SIZE_LONG_DESC = "Maximum number of pictures written to the database in a single transaction.";
+
+	/**
+	 * Invalid message for the write batch size.
+	 */
+	private final static String WRITE_BATCH_SIZE_INVALID_MESSAGE = "Invalid maximum number of pictures per write.";
+
+	/**
+	 * Short description for the write batch latency.
+	 */
+	private final static String WRITE_BATCH_LATENCY_SHORT_DESC = "Maximum write batching latency.";
+
+	/**
+	 * Long description for the write batch latency.
+	 */
+	private final static String WRITE_BATCH_LATENCY_LONG_DESC = "Maximum number of milliseconds a picture ready to be written waits for other pictures to be written in the same transaction.";
+
+	/**
+	 * Invalid message for the write batch latency.
+	 */
+	private final static String WRITE_BATCH_LATENCY_INVALID_MESSAGE = "Invalid maximum write batching latency.";
+
+	/**
+	 * Short description for the number of milliseconds between two
+	 * synchronizations of the edit journal to the disk.
+	 */
+	private final static String JOURNAL_SYNC_INTERVAL_SHORT_DESC = "Edit journal synchronization interval.";
+
+	/**
+	 * Long description for the number of milliseconds between two
+	 * synchronizations of the edit journal to the disk.
+	 */
+	private final static String JOURNAL_SYNC_INTERVAL_LONG_DESC = "Number of milliseconds between two synchronizations of the edit journal to the disk.";
+
+	/**
+	 * Invalid message for the number of milliseconds between two
+	 * synchronizations of the edit journal to the disk.
+	 */
+	private final static String JOURNAL_SYNC_INTERVAL_INVALID_MESSAGE = "Invalid edit journal synchronization interval.";
+
+	/**
+	 * Short description for the maximum number of seconds spent writing the
+	 * modified pictures when closing a picture bank.
+	 */
+	private final static String SHUTDOWN_TIMEOUT_SHORT_DESC = "Shutdown write timeout.";
+
+	/**
+	 * Long description for the maximum number of seconds spent writing the
+	 * modified pictures when closing a picture bank.
+	 */
+	private final static String SHUTDOWN_TIMEOUT_LONG_DESC = "Maximum number of seconds spent writing the modified pictures when closing a picture bank, the remaining modifications are written from the edit journal on the next opening.";
+
+	/**
+	 * Invalid message for the maximum number of seconds spent writing the
+	 * modified pictures when closing a picture bank.
+	 */
+	private final static String SHUTDOWN_TIMEOUT_INVALID_MESSAGE = "Invalid shutdown write timeout.";
+
+	/**
+	 * Short description for the maximum number of KiB per second copied by a
+	 * backup, 0 for no limit.
+	 */
+	private final static String BACKUP_RATE_SHORT_DESC = "Backup rate.";
+
+	/**
+	 * Long description for the maximum number of KiB per second copied by a
+	 * backup, 0 for no limit.
+	 */
+	private final static String BACKUP_RATE_LONG_DESC = "Maximum number of KiB per second copied by a backup, 0 for no limit.";
+
+	/**
+	 * Invalid message for the maximum number of KiB per second copied by a
+	 * backup, 0 for no limit.
+	 */
+	private final static String BACKUP_RATE_INVALID_MESSAGE = "Invalid backup rate.";
+
+	/**
+	 * Short description for the number of milliseconds between two refreshes
+	 * of the searchers of the indexes, 0 to refresh them before each search.
+	 */
+	private final static String INDEX_REFRESH_INTERVAL_SHORT_DESC = "Index refresh interval";
+
+	/**
+	 * Long description for the number of milliseconds between two refreshes
+	 * of the searchers of the indexes, 0 to refresh them before each search.
+	 */
+	private final static String INDEX_REFRESH_INTERVAL_LONG_DESC = "Number of milliseconds between two refreshes of the searchers of the indexes, 0 to refresh them before each search.";
+
+	/**
+	 * Invalid message for the number of milliseconds between two refreshes
+	 * of the searchers of the indexes, 0 to refresh them before each search.
+	 */
+	private final static String INDEX_REFRESH_INTERVAL_INVALID_MESSAGE = "Index refresh interval must be positive.";
+
+	/**
+	 * Short description for the number of threads searching the segments of
+	 * an index in parallel, 0 to search them in the calling thread.
+	 */
+	private final static String INDEX_SEARCH_THREADS_SHORT_DESC = "Index search threads";
+
+	/**
+	 * Long description for the number of threads searching the segments of
+	 * an index in parallel, 0 to search them in the calling thread.
+	 */
+	private final static String INDEX_SEARCH_THREADS_LONG_DESC = "Number of threads searching the segments of an index in parallel, 0 to search them in the calling thread.";
+
+	/**
+	 * Invalid message for the number of threads searching the segments of an
+	 * index in parallel, 0 to search them in the calling thread.
+	 */
+	private final static String INDEX_SEARCH_THREADS_INVALID_MESSAGE = "Number of index search threads must be positive.";
+
+	/**
+	 * Default maximum number of pictures written in a single transaction.
+	 */
+	private final static Integer DEFAULT_WRITE_BATCH_SIZE = Integer
+			.valueOf(200);
+
+	/**
+	 * Default maximum write batching latency, in milliseconds.
+	 */
+	private final static Integer DEFAULT_WRITE_BATCH_LATENCY = Integer
+			.valueOf(500);
+
+	/**
+	 * Default number of milliseconds between two synchronizations of the
+	 * edit journal to the disk.
+	 */
+	private final static Integer DEFAULT_JOURNAL_SYNC_INTERVAL = Integer
+			.valueOf(200);
+
+	/**
+	 * Default maximum number of seconds spent writing the modified pictures
+	 * when closing a picture bank.
+	 */
+	private final static Integer DEFAULT_SHUTDOWN_TIMEOUT = Integer
+			.valueOf(30);
+
+	/**
+	 * Default maximum number of KiB per second copied by a backup, 0 for no
+	 * limit.
+	 */
+	private final static Integer DEFAULT_BACKUP_RATE = Integer
+			.valueOf(20480);
+
+	/**
+	 * Default number of milliseconds between two refreshes of the searchers
+	 * of the indexes, 0 to refresh them before each search.
+	 */
+	private final static Integer DEFAULT_INDEX_REFRESH_INTERVAL = Integer
+			.valueOf(1000);
+
+	/**
+	 * Default number of threads searching the segments of an index in
+	 * parallel, 0 to search them in the calling thread.
+	 */
+	private final static Integer DEFAULT_INDEX_SEARCH_THREADS = Integer
+			.valueOf(0);
+
 	/**
 	 * Creates a new GlobalSQLFilePictureBankConfigurationImpl using default
 	 * values.
@@ -112,9 +322,61 @@ public final class GlobalSQLFilePictureBankConfigurationImpl extends
 				WAIT_BEFORE_WRITE_LONG_DESC, WAIT_BEFORE_WRITE_INVALID_MESSAGE,
 				false, IntegerDisplayType.SPINNER, Integer.valueOf(0),
 				Integer.valueOf(Integer.MAX_VALUE), Integer.valueOf(0));
+		_leafWriteBatchSize = new ConfigurationInteger(this,
+				WRITE_BATCH_SIZE_TAG, WRITE_BATCH_SIZE_SHORT_DESC,
+				WRITE_BATCH_SIZE_LONG_DESC, WRITE_BATCH_SIZE_INVALID_MESSAGE,
+				false, IntegerDisplayType.SPINNER, Integer.valueOf(1),
+				Integer.valueOf(Integer.MAX_VALUE), DEFAULT_WRITE_BATCH_SIZE);
+		_leafWriteBatchLatency = new ConfigurationInteger(this,
+				WRITE_BATCH_LATENCY_TAG, WRITE_BATCH_LATENCY_SHORT_DESC,
+				WRITE_BATCH_LATENCY_LONG_DESC,
+				WRITE_BATCH_LATENCY_INVALID_MESSAGE, false,
+				IntegerDisplayType.SPINNER, Integer.valueOf(0),
+				Integer.valueOf(Integer.MAX_VALUE),
+				DEFAULT_WRITE_BATCH_LATENCY);
+		_leafJournalSyncInterval = new ConfigurationInteger(this,
+				JOURNAL_SYNC_INTERVAL_TAG, JOURNAL_SYNC_INTERVAL_SHORT_DESC,
+				JOURNAL_SYNC_INTERVAL_LONG_DESC,
+				JOURNAL_SYNC_INTERVAL_INVALID_MESSAGE, false,
+				IntegerDisplayType.SPINNER, Integer.valueOf(1),
+				Integer.valueOf(Integer.MAX_VALUE),
+				DEFAULT_JOURNAL_SYNC_INTERVAL);
+		_leafShutdownTimeout = new ConfigurationInteger(this,
+				SHUTDOWN_TIMEOUT_TAG, SHUTDOWN_TIMEOUT_SHORT_DESC,
+				SHUTDOWN_TIMEOUT_LONG_DESC,
+				SHUTDOWN_TIMEOUT_INVALID_MESSAGE, false,
+				IntegerDisplayType.SPINNER, Integer.valueOf(0),
+				Integer.valueOf(Integer.MAX_VALUE), DEFAULT_SHUTDOWN_TIMEOUT);
+		_leafBackupRate = new ConfigurationInteger(this,
+				BACKUP_RATE_TAG, BACKUP_RATE_SHORT_DESC,
+				BACKUP_RATE_LONG_DESC,
+				BACKUP_RATE_INVALID_MESSAGE, false,
+				IntegerDisplayType.SPINNER, Integer.valueOf(0),
+				Integer.valueOf(Integer.MAX_VALUE), DEFAULT_BACKUP_RATE);
+		_leafIndexRefreshInterval = new ConfigurationInteger(this,
+				INDEX_REFRESH_INTERVAL_TAG, INDEX_REFRESH_INTERVAL_SHORT_DESC,
+				INDEX_REFRESH_INTERVAL_LONG_DESC,
+				INDEX_REFRESH_INTERVAL_INVALID_MESSAGE, false,
+				IntegerDisplayType.SPINNER, Integer.valueOf(0),
+				Integer.valueOf(Integer.MAX_VALUE),
+				DEFAULT_INDEX_REFRESH_INTERVAL);
+		_leafIndexSearchThreads = new ConfigurationInteger(this,
+				INDEX_SEARCH_THREADS_TAG, INDEX_SEARCH_THREADS_SHORT_DESC,
+				INDEX_SEARCH_THREADS_LONG_DESC,
+				INDEX_SEARCH_THREADS_INVALID_MESSAGE, false,
+				IntegerDisplayType.SPINNER, Integer.valueOf(0),
+				Integer.valueOf(Integer.MAX_VALUE),
+				DEFAULT_INDEX_SEARCH_THREADS);
 		addLeaf(_leafMaxIdentifyTask);
 		addLeaf(_leafMaxOtherTask);
 		addLeaf(_leafWaitBeforeWrite);
+		addLeaf(_leafWriteBatchSize);
+		addLeaf(_leafWriteBatchLatency);
+		addLeaf(_leafJournalSyncInterval);
+		addLeaf(_leafShutdownTimeout);
+		addLeaf(_leafBackupRate);
+		addLeaf(_leafIndexRefreshInterval);
+		addLeaf(_leafIndexSearchThreads);
 	}
 
 	/**
@@ -136,6 +398,32 @@ public final class GlobalSQLFilePictureBankConfigurationImpl extends
 	 *            the value specified on the command line for the minimum number
 	 *            of seconds to wait between picture modification and saving to
 	 *            the database.
+	 * @param iCommandLineWriteBatchSize
+	 *            the value specified on the command line for the maximum number
+	 *            of pictures written to the database in a single transaction.
+	 * @param iCommandLineWriteBatchLatency
+	 *            the value specified on the command line for the maximum number
+	 *            of milliseconds a picture ready to be written can wait for
+	 *            other pictures to be written in the same transaction.
+	 * @param iCommandLineJournalSyncInterval
+	 *            the value specified on the command line for the number of
+	 *            milliseconds between two synchronizations of the edit journal
+	 *            to the disk.
+	 * @param iCommandLineShutdownTimeout
+	 *            the value specified on the command line for the maximum number
+	 *            of seconds spent writing the modified pictures when closing a
+	 *            picture bank.
+	 * @param iCommandLineBackupRate
+	 *            the value specified on the command line for the maximum number
+	 *            of KiB per second copied by a backup, 0 for no limit.
+	 * @param iCommandLineIndexRefreshInterval
+	 *            the value specified on the command line for the number of
+	 *            milliseconds between two refreshes of the searchers of the
+	 *            indexes, 0 to refresh them before each search.
+	 * @param iCommandLineIndexSearchThreads
+	 *            the value specified on the command line for the number of
+	 *            threads searching the segments of an index in parallel, 0 to
+	 *            search them in the calling thread.
 	 * @throws InvalidConfigurationException
 	 *             one of the given value is invalid.
 	 */
@@ -143,7 +431,14 @@ public final class GlobalSQLFilePictureBankConfigurationImpl extends
 			final IConfiguration parent, final MBeanServer mBeanServer,
 			final Integer iCommandLineMaxIdentifyTask,
 			final Integer iCommandLineMaxOtherTask,
-			final Integer iCommandLineWaitBeforeWrite)
+			final Integer iCommandLineWaitBeforeWrite,
+			final Integer iCommandLineWriteBatchSize,
+			final Integer iCommandLineWriteBatchLatency,
+			final Integer iCommandLineJournalSyncInterval,
+			final Integer iCommandLineShutdownTimeout,
+			final Integer iCommandLineBackupRate,
+			final Integer iCommandLineIndexRefreshInterval,
+			final Integer iCommandLineIndexSearchThreads)
 			throws InvalidConfigurationException
 	{
 		super(parent, GLOBAL_SQLFILE_PICTUREBANK_CONFIGURATION_TAG, mBeanServer);
@@ -165,9 +460,65 @@ public final class GlobalSQLFilePictureBankConfigurationImpl extends
 				false, IntegerDisplayType.SPINNER, Integer.valueOf(0),
 				Integer.valueOf(Integer.MAX_VALUE), Integer.valueOf(0),
 				iCommandLineWaitBeforeWrite);
+		_leafWriteBatchSize = new ConfigurationInteger(this,
+				WRITE_BATCH_SIZE_TAG, WRITE_BATCH_SIZE_SHORT_DESC,
+				WRITE_BATCH_SIZE_LONG_DESC, WRITE_BATCH_SIZE_INVALID_MESSAGE,
+				false, IntegerDisplayType.SPINNER, Integer.valueOf(1),
+				Integer.valueOf(Integer.MAX_VALUE), DEFAULT_WRITE_BATCH_SIZE,
+				iCommandLineWriteBatchSize);
+		_leafWriteBatchLatency = new ConfigurationInteger(this,
+				WRITE_BATCH_LATENCY_TAG, WRITE_BATCH_LATENCY_SHORT_DESC,
+				WRITE_BATCH_LATENCY_LONG_DESC,
+				WRITE_BATCH_LATENCY_INVALID_MESSAGE, false,
+				IntegerDisplayType.SPINNER, Integer.valueOf(0),
+				Integer.valueOf(Integer.MAX_VALUE), DEFAULT_WRITE_BATCH_LATENCY,
+				iCommandLineWriteBatchLatency);
+		_leafJournalSyncInterval = new ConfigurationInteger(this,
+				JOURNAL_SYNC_INTERVAL_TAG, JOURNAL_SYNC_INTERVAL_SHORT_DESC,
+				JOURNAL_SYNC_INTERVAL_LONG_DESC,
+				JOURNAL_SYNC_INTERVAL_INVALID_MESSAGE, false,
+				IntegerDisplayType.SPINNER, Integer.valueOf(1),
+				Integer.valueOf(Integer.MAX_VALUE),
+				DEFAULT_JOURNAL_SYNC_INTERVAL, iCommandLineJournalSyncInterval);
+		_leafShutdownTimeout = new ConfigurationInteger(this,
+				SHUTDOWN_TIMEOUT_TAG, SHUTDOWN_TIMEOUT_SHORT_DESC,
+				SHUTDOWN_TIMEOUT_LONG_DESC,
+				SHUTDOWN_TIMEOUT_INVALID_MESSAGE, false,
+				IntegerDisplayType.SPINNER, Integer.valueOf(0),
+				Integer.valueOf(Integer.MAX_VALUE), DEFAULT_SHUTDOWN_TIMEOUT,
+				iCommandLineShutdownTimeout);
+		_leafBackupRate = new ConfigurationInteger(this,
+				BACKUP_RATE_TAG, BACKUP_RATE_SHORT_DESC,
+				BACKUP_RATE_LONG_DESC,
+				BACKUP_RATE_INVALID_MESSAGE, false,
+				IntegerDisplayType.SPINNER, Integer.valueOf(0),
+				Integer.valueOf(Integer.MAX_VALUE), DEFAULT_BACKUP_RATE,
+				iCommandLineBackupRate);
+		_leafIndexRefreshInterval = new ConfigurationInteger(this,
+				INDEX_REFRESH_INTERVAL_TAG, INDEX_REFRESH_INTERVAL_SHORT_DESC,
+				INDEX_REFRESH_INTERVAL_LONG_DESC,
+				INDEX_REFRESH_INTERVAL_INVALID_MESSAGE, false,
+				IntegerDisplayType.SPINNER, Integer.valueOf(0),
+				Integer.valueOf(Integer.MAX_VALUE),
+				DEFAULT_INDEX_REFRESH_INTERVAL,
+				iCommandLineIndexRefreshInterval);
+		_leafIndexSearchThreads = new ConfigurationInteger(this,
+				INDEX_SEARCH_THREADS_TAG, INDEX_SEARCH_THREADS_SHORT_DESC,
+				INDEX_SEARCH_THREADS_LONG_DESC,
+				INDEX_SEARCH_THREADS_INVALID_MESSAGE, false,
+				IntegerDisplayType.SPINNER, Integer.valueOf(0),
+				Integer.valueOf(Integer.MAX_VALUE),
+				DEFAULT_INDEX_SEARCH_THREADS, iCommandLineIndexSearchThreads);
 		addLeaf(_leafMaxIdentifyTask);
 		addLeaf(_leafMaxOtherTask);
 		addLeaf(_leafWaitBeforeWrite);
+		addLeaf(_leafWriteBatchSize);
+		addLeaf(_leafWriteBatchLatency);
+		addLeaf(_leafJournalSyncInterval);
+		addLeaf(_leafShutdownTimeout);
+		addLeaf(_leafBackupRate);
+		addLeaf(_leafIndexRefreshInterval);
+		addLeaf(_leafIndexSearchThreads);
 	}
 
 	/**
@@ -189,6 +540,32 @@ public final class GlobalSQLFilePictureBankConfigurationImpl extends
 	 *            the value specified on the command line for the minimum number
 	 *            of seconds to wait between picture modification and saving to
 	 *            the database.
+	 * @param iCommandLineWriteBatchSize
+	 *            the value specified on the command line for the maximum number
+	 *            of pictures written to the database in a single transaction.
+	 * @param iCommandLineWriteBatchLatency
+	 *            the value specified on the command line for the maximum number
+	 *            of milliseconds a picture ready to be written can wait for
+	 *            other pictures to be written in the same transaction.
+	 * @param iCommandLineJournalSyncInterval
+	 *            the value specified on the command line for the number of
+	 *            milliseconds between two synchronizations of the edit journal
+	 *            to the disk.
+	 * @param iCommandLineShutdownTimeout
+	 *            the value specified on the command line for the maximum number
+	 *            of seconds spent writing the modified pictures when closing a
+	 *            picture bank.
+	 * @param iCommandLineBackupRate
+	 *            the value specified on the command line for the maximum number
+	 *            of KiB per second copied by a backup, 0 for no limit.
+	 * @param iCommandLineIndexRefreshInterval
+	 *            the value specified on the command line for the number of
+	 *            milliseconds between two refreshes of the searchers of the
+	 *            indexes, 0 to refresh them before each search.
+	 * @param iCommandLineIndexSearchThreads
+	 *            the value specified on the command line for the number of
+	 *            threads searching the segments of an index in parallel, 0 to
+	 *            search them in the calling thread.
 	 * @param iConfigurationMaxIdentifyTask
 	 *            the value specified in the configuration file for the maximum
 	 *            number of {@link IdentifyTask} to run at the same time.
@@ -200,6 +577,33 @@ public final class GlobalSQLFilePictureBankConfigurationImpl extends
 	 *            the value specified in the configuration file for the minimum
 	 *            number of seconds to wait between picture modification and
 	 *            saving to the database.
+	 * @param iConfigurationWriteBatchSize
+	 *            the value specified in the configuration file for the maximum
+	 *            number of pictures written to the database in a single
+	 *            transaction.
+	 * @param iConfigurationWriteBatchLatency
+	 *            the value specified in the configuration file for the maximum
+	 *            number of milliseconds a picture ready to be written can wait
+	 *            for other pictures to be written in the same transaction.
+	 * @param iConfigurationJournalSyncInterval
+	 *            the value specified in the configuration file for the number
+	 *            of milliseconds between two synchronizations of the edit
+	 *            journal to the disk.
+	 * @param iConfigurationShutdownTimeout
+	 *            the value specified in the configuration file for the maximum
+	 *            number of seconds spent writing the modified pictures when
+	 *            closing a picture bank.
+	 * @param iConfigurationBackupRate
+	 *            the value specified in the configuration file for the maximum
+	 *            number of KiB per second copied by a backup, 0 for no limit.
+	 * @param iConfigurationIndexRefreshInterval
+	 *            the value specified in the configuration file for the number
+	 *            of milliseconds between two refreshes of the searchers of the
+	 *            indexes, 0 to refresh them before each search.
+	 * @param iConfigurationIndexSearchThreads
+	 *            the value specified in the configuration file for the number
+	 *            of threads searching the segments of an index in parallel, 0
+	 *            to search them in the calling thread.
 	 * @throws InvalidConfigurationException
 	 *             one of the given value is invalid.
 	 */
@@ -208,18 +612,48 @@ public final class GlobalSQLFilePictureBankConfigurationImpl extends
 			final Integer iCommandLineMaxIdentifyTask,
 			final Integer iCommandLineMaxOtherTask,
 			final Integer iCommandLineWaitBeforeWrite,
+			final Integer iCommandLineWriteBatchSize,
+			final Integer iCommandLineWriteBatchLatency,
+			final Integer iCommandLineJournalSyncInterval,
+			final Integer iCommandLineShutdownTimeout,
+			final Integer iCommandLineBackupRate,
+			final Integer iCommandLineIndexRefreshInterval,
+			final Integer iCommandLineIndexSearchThreads,
 			final Integer iConfigurationMaxIdentifyTask,
 			final Integer iConfigurationMaxOtherTask,
-			final Integer iConfigurationWaitBeforeWrite)
+			final Integer iConfigurationWaitBeforeWrite,
+			final Integer iConfigurationWriteBatchSize,
+			final Integer iConfigurationWriteBatchLatency,
+			final Integer iConfigurationJournalSyncInterval,
+			final Integer iConfigurationShutdownTimeout,
+			final Integer iConfigurationBackupRate,
+			final Integer iConfigurationIndexRefreshInterval,
+			final Integer iConfigurationIndexSearchThreads)
 			throws InvalidConfigurationException
 	{
 		this(parent, mBeanServer, iCommandLineMaxIdentifyTask,
-				iCommandLineMaxOtherTask, iCommandLineWaitBeforeWrite);
+				iCommandLineMaxOtherTask, iCommandLineWaitBeforeWrite,
+				iCommandLineWriteBatchSize, iCommandLineWriteBatchLatency,
+				iCommandLineJournalSyncInterval, iCommandLineShutdownTimeout,
+				iCommandLineBackupRate, iCommandLineIndexRefreshInterval,
+				iCommandLineIndexSearchThreads);
 		_leafMaxIdentifyTask
 				.setConfigurationValue(iConfigurationMaxIdentifyTask);
 		_leafMaxOtherTask.setConfigurationValue(iConfigurationMaxOtherTask);
 		_leafWaitBeforeWrite
 				.setConfigurationValue(iConfigurationWaitBeforeWrite);
+		_leafWriteBatchSize.setConfigurationValue(iConfigurationWriteBatchSize);
+		_leafWriteBatchLatency
+				.setConfigurationValue(iConfigurationWriteBatchLatency);
+		_leafJournalSyncInterval
+				.setConfigurationValue(iConfigurationJournalSyncInterval);
+		_leafShutdownTimeout
+				.setConfigurationValue(iConfigurationShutdownTimeout);
+		_leafBackupRate.setConfigurationValue(iConfigurationBackupRate);
+		_leafIndexRefreshInterval
+				.setConfigurationValue(iConfigurationIndexRefreshInterval);
+		_leafIndexSearchThreads
+				.setConfigurationValue(iConfigurationIndexSearchThreads);
 	}
 
 	@Override
@@ -240,6 +674,48 @@ public final class GlobalSQLFilePictureBankConfigurationImpl extends
 		return _leafWaitBeforeWrite.getCurrentValue().intValue();
 	}
 
+	@Override
+	public int getWriteBatchSize()
+	{
+		return _leafWriteBatchSize.getCurrentValue().intValue();
+	}
+
+	@Override
+	public int getWriteBatchLatency()
+	{
+		return _leafWriteBatchLatency.getCurrentValue().intValue();
+	}
+
+	@Override
+	public int getJournalSyncInterval()
+	{
+		return _leafJournalSyncInterval.getCurrentValue().intValue();
+	}
+
+	@Override
+	public int getShutdownTimeout()
+	{
+		return _leafShutdownTimeout.getCurrentValue().intValue();
+	}
+
+	@Override
+	public int getBackupRate()
+	{
+		return _leafBackupRate.getCurrentValue().intValue();
+	}
+
+	@Override
+	public int getIndexRefreshInterval()
+	{
+		return _leafIndexRefreshInterval.getCurrentValue().intValue();
+	}
+
+	@Override
+	public int getIndexSearchThreads()
+	{
+		return _leafIndexSearchThreads.getCurrentValue().intValue();
+	}
+
 	@Override
 	public String getDescription()
 	{
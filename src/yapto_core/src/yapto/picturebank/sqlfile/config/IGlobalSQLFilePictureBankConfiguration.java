@@ -34,6 +34,48 @@ public interface IGlobalSQLFilePictureBankConfiguration
 	 */
 	String WAIT_BEFORE_WRITE_TAG = "WaitBeforeWrite";
 
+	/**
+	 * Tag for the maximum number of pictures written to the database in a
+	 * single transaction.
+	 */
+	String WRITE_BATCH_SIZE_TAG = "WriteBatchSize";
+
+	/**
+	 * Tag for the maximum number of milliseconds a picture ready to be written
+	 * can wait for other pictures to be written in the same transaction.
+	 */
+	String WRITE_BATCH_LATENCY_TAG = "WriteBatchLatency";
+
+	/**
+	 * Tag for the number of milliseconds between two synchronizations of the
+	 * edit journal to the disk.
+	 */
+	String JOURNAL_SYNC_INTERVAL_TAG = "JournalSyncInterval";
+
+	/**
+	 * Tag for the maximum number of seconds spent writing the modified
+	 * pictures when closing a picture bank.
+	 */
+	String SHUTDOWN_TIMEOUT_TAG = "ShutdownTimeout";
+
+	/**
+	 * Tag for the maximum number of KiB per second copied by a backup, 0 for
+	 * no limit.
+	 */
+	String BACKUP_RATE_TAG = "BackupRate";
+
+	/**
+	 * Tag for the number of milliseconds between two refreshes of the
+	 * searchers of the indexes, 0 to refresh them before each search.
+	 */
+	String INDEX_REFRESH_INTERVAL_TAG = "IndexRefreshInterval";
+
+	/**
+	 * Tag for the number of threads searching the segments of an index in
+	 * parallel, 0 to search them in the calling thread.
+	 */
+	String INDEX_SEARCH_THREADS_TAG = "IndexSearchThreads";
+
 	/**
 	 * Get the maximum number of {@link IdentifyTask} to run at the same time.
 	 * 
@@ -59,4 +101,67 @@ public interface IGlobalSQLFilePictureBankConfiguration
 	 *         modification and saving to the database.
 	 */
 	int getWaitBeforeWrite();
+
+	/**
+	 * Get the maximum number of pictures written to the database in a single
+	 * transaction.
+	 * 
+	 * @return the maximum number of pictures written to the database in a
+	 *         single transaction.
+	 */
+	int getWriteBatchSize();
+
+	/**
+	 * Get the maximum number of milliseconds a picture ready to be written can
+	 * wait for other pictures to be written in the same transaction.
+	 * 
+	 * @return the maximum number of milliseconds a picture ready to be written
+	 *         can wait for other pictures.
+	 */
+	int getWriteBatchLatency();
+
+	/**
+	 * Get the number of milliseconds between two synchronizations of the
+	 * edit journal to the disk.
+	 * 
+	 * @return the number of milliseconds between two synchronizations of the
+	 *         edit journal to the disk.
+	 */
+	int getJournalSyncInterval();
+
+	/**
+	 * Get the maximum number of seconds spent writing the modified pictures
+	 * when closing a picture bank.
+	 * 
+	 * @return the maximum number of seconds spent writing the modified
+	 *         pictures when closing a picture bank.
+	 */
+	int getShutdownTimeout();
+
+	/**
+	 * Get the maximum number of KiB per second copied by a backup, 0 for no
+	 * limit.
+	 * 
+	 * @return the maximum number of KiB per second copied by a backup, 0 for
+	 *         no limit.
+	 */
+	int getBackupRate();
+
+	/**
+	 * Get the number of milliseconds between two refreshes of the searchers
+	 * of the indexes, 0 to refresh them before each search.
+	 * 
+	 * @return the number of milliseconds between two refreshes of the
+	 *         searchers of the indexes, 0 to refresh them before each search.
+	 */
+	int getIndexRefreshInterval();
+
+	/**
+	 * Get the number of threads searching the segments of an index in
+	 * parallel, 0 to search them in the calling thread.
+	 * 
+	 * @return the number of threads searching the segments of an index in
+	 *         parallel, 0 to search them in the calling thread.
+	 */
+	int getIndexSearchThreads();
 }
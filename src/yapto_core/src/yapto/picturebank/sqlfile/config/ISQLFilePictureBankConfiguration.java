@@ -40,6 +40,43 @@ public interface ISQLFilePictureBankConfiguration extends
 	 */
 	String INDEX_DIRECTORY_TAG = "IndexDirectory";
 
+	/**
+	 * Tag for the size of the page cache of the database.
+	 */
+	String DATABASE_CACHE_SIZE_TAG = "DatabaseCacheSize";
+
+	/**
+	 * Tag for the size of the memory-mapped I/O of the database.
+	 */
+	String DATABASE_MMAP_SIZE_TAG = "DatabaseMmapSize";
+
+	/**
+	 * Tag for the synchronous level of the database.
+	 */
+	String DATABASE_SYNCHRONOUS_TAG = "DatabaseSynchronous";
+
+	/**
+	 * Tag for the number of read connections to the database.
+	 */
+	String DATABASE_READ_CONNECTIONS_TAG = "DatabaseReadConnections";
+
+	/**
+	 * Tag for the type of the metadata store.
+	 */
+	String METADATA_STORE_TYPE_TAG = "MetadataStoreType";
+
+	/**
+	 * Tag for the number of levels of sub-directories of the picture and
+	 * thumbnail directories.
+	 */
+	String DIRECTORY_LEVELS_TAG = "DirectoryLevels";
+
+	/**
+	 * Tag for the number of characters of the picture id naming the sub-
+	 * directories of each level.
+	 */
+	String DIRECTORY_LEVEL_WIDTH_TAG = "DirectoryLevelWidth";
+
 	/**
 	 * Get the file name of the database.
 	 * 
@@ -54,6 +91,36 @@ public interface ISQLFilePictureBankConfiguration extends
 	 */
 	String getIndexDirectory();
 
+	/**
+	 * Get the size of the page cache of each connection to the database.
+	 * 
+	 * @return the size of the page cache in KiB.
+	 */
+	int getDatabaseCacheSize();
+
+	/**
+	 * Get the size of the memory-mapped I/O of each connection to the
+	 * database.
+	 * 
+	 * @return the size of the memory-mapped I/O in MiB, 0 to disable it.
+	 */
+	int getDatabaseMmapSize();
+
+	/**
+	 * Get the synchronous level of the database : 0 (OFF), 1 (NORMAL), 2
+	 * (FULL) or 3 (EXTRA).
+	 * 
+	 * @return the synchronous level of the database.
+	 */
+	int getDatabaseSynchronous();
+
+	/**
+	 * Get the maximum number of read connections to the database.
+	 * 
+	 * @return the maximum number of read connections to the database.
+	 */
+	int getDatabaseReadConnections();
+
 	/**
 	 * Get the {@link IBufferedImageCacheLoaderConfiguration} for the picture
 	 * {@link CacheLoader}.
@@ -71,4 +138,29 @@ public interface ISQLFilePictureBankConfiguration extends
 	 *         thumbnails {@link CacheLoader}.
 	 */
 	IBufferedImageCacheLoaderConfiguration getThumbnailPictureLoaderConfiguration();
+
+	/**
+	 * Get the type of the metadata store.
+	 * 
+	 * @return the type of the metadata store.
+	 */
+	int getMetadataStoreType();
+
+	/**
+	 * Get the number of levels of sub-directories of the picture and thumbnail
+	 * directories.
+	 * 
+	 * @return the number of levels of sub-directories of the picture and
+	 *         thumbnail directories.
+	 */
+	int getDirectoryLevels();
+
+	/**
+	 * Get the number of characters of the picture id naming the sub-directories
+	 * of each level.
+	 * 
+	 * @return the number of characters of the picture id naming the sub-
+	 *         directories of each level.
+	 */
+	int getDirectoryLevelWidth();
 }
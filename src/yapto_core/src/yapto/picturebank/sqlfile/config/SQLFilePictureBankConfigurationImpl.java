@@ -53,6 +53,43 @@ public final class SQLFilePictureBankConfigurationImpl extends
 	 */
 	private final ConfigurationString _leafIndexDirectory;
 
+	/**
+	 * Leaf configuring the page cache size of the database.
+	 */
+	private final ConfigurationInteger _leafDatabaseCacheSize;
+
+	/**
+	 * Leaf configuring the memory-mapped I/O size of the database.
+	 */
+	private final ConfigurationInteger _leafDatabaseMmapSize;
+
+	/**
+	 * Leaf configuring the synchronous level of the database.
+	 */
+	private final ConfigurationInteger _leafDatabaseSynchronous;
+
+	/**
+	 * Leaf configuring the number of read connections to the database.
+	 */
+	private final ConfigurationInteger _leafDatabaseReadConnections;
+
+	/**
+	 * Leaf configuring the type of the metadata store.
+	 */
+	private final ConfigurationInteger _leafMetadataStoreType;
+
+	/**
+	 * Leaf configuring the number of levels of sub-directories of the picture
+	 * and thumbnail directories.
+	 */
+	private final ConfigurationInteger _leafDirectoryLevels;
+
+	/**
+	 * Leaf configuring the number of characters of the picture id naming the
+	 * sub-directories of each level.
+	 */
+	private final ConfigurationInteger _leafDirectoryLevelWidth;
+
 	/**
 	 * Short description for the {@link IPictureBank} id.
 	 */
@@ -143,6 +180,117 @@ public final class SQLFilePictureBankConfigurationImpl extends
 	 */
 	private final static String INDEX_DIRECTORY_INVALID_MESSAGE = "Invalid base directory for the indexes.";
 
+	/**
+	 * Short description for the page cache size of the database.
+	 */
+	private final static String DATABASE_CACHE_SIZE_SHORT_DESC = "Database cache size";
+
+	/**
+	 * Long description for the page cache size of the database.
+	 */
+	private final static String DATABASE_CACHE_SIZE_LONG_DESC = "Size of the page cache of each connection to the database, in KiB.";
+
+	/**
+	 * Invalid message for the page cache size of the database.
+	 */
+	private final static String DATABASE_CACHE_SIZE_INVALID_MESSAGE = "Invalid page cache size for the database.";
+
+	/**
+	 * Short description for the memory-mapped I/O size of the database.
+	 */
+	private final static String DATABASE_MMAP_SIZE_SHORT_DESC = "Database mmap size";
+
+	/**
+	 * Long description for the memory-mapped I/O size of the database.
+	 */
+	private final static String DATABASE_MMAP_SIZE_LONG_DESC = "Size of the memory-mapped I/O of each connection to the database, in MiB.";
+
+	/**
+	 * Invalid message for the memory-mapped I/O size of the database.
+	 */
+	private final static String DATABASE_MMAP_SIZE_INVALID_MESSAGE = "Invalid memory-mapped I/O size for the database.";
+
+	/**
+	 * Short description for the synchronous level of the database.
+	 */
+	private final static String DATABASE_SYNCHRONOUS_SHORT_DESC = "Database synchronous level";
+
+	/**
+	 * Long description for the synchronous level of the database.
+	 */
+	private final static String DATABASE_SYNCHRONOUS_LONG_DESC = "Synchronous level of the database : 0 (OFF), 1 (NORMAL), 2 (FULL) or 3 (EXTRA).";
+
+	/**
+	 * Invalid message for the synchronous level of the database.
+	 */
+	private final static String DATABASE_SYNCHRONOUS_INVALID_MESSAGE = "Invalid synchronous level for the database.";
+
+	/**
+	 * Short description for the number of read connections to the database.
+	 */
+	private final static String DATABASE_READ_CONNECTIONS_SHORT_DESC = "Database read connections";
+
+	/**
+	 * Long description for the number of read connections to the database.
+	 */
+	private final static String DATABASE_READ_CONNECTIONS_LONG_DESC = "Maximum number of read connections to the database.";
+
+	/**
+	 * Invalid message for the number of read connections to the database.
+	 */
+	private final static String DATABASE_READ_CONNECTIONS_INVALID_MESSAGE = "Invalid number of read connections to the database.";
+
+	/**
+	 * Short description for the type of the metadata store.
+	 */
+	private final static String METADATA_STORE_TYPE_SHORT_DESC = "Metadata store type";
+
+	/**
+	 * Long description for the type of the metadata store.
+	 */
+	private final static String METADATA_STORE_TYPE_LONG_DESC = "Type of the store of the metadata of the pictures : 0 (SQLite database) or 1 (log-structured key-value store). The database file must have been created by a store of the same type.";
+
+	/**
+	 * Invalid message for the type of the metadata store.
+	 */
+	private final static String METADATA_STORE_TYPE_INVALID_MESSAGE = "Invalid type for the metadata store.";
+
+	/**
+	 * Short description for the number of levels of sub-directories of the
+	 * picture and thumbnail directories.
+	 */
+	private final static String DIRECTORY_LEVELS_SHORT_DESC = "Directory levels";
+
+	/**
+	 * Long description for the number of levels of sub-directories of the
+	 * picture and thumbnail directories.
+	 */
+	private final static String DIRECTORY_LEVELS_LONG_DESC = "Number of levels of sub-directories the pictures and thumbnails are spread in.";
+
+	/**
+	 * Invalid message for the number of levels of sub-directories of the
+	 * picture and thumbnail directories.
+	 */
+	private final static String DIRECTORY_LEVELS_INVALID_MESSAGE = "Number of directory levels must be between 1 and 4.";
+
+	/**
+	 * Short description for the number of characters of the picture id naming
+	 * the sub-directories of each level.
+	 */
+	private final static String DIRECTORY_LEVEL_WIDTH_SHORT_DESC = "Directory level width";
+
+	/**
+	 * Long description for the number of characters of the picture id naming
+	 * the sub-directories of each level.
+	 */
+	private final static String DIRECTORY_LEVEL_WIDTH_LONG_DESC = "Number of hexadecimal characters of the picture id naming the sub-directories of each level : 1 for 16 sub-directories per level, 2 for 256.";
+
+	/**
+	 * Invalid message for the number of characters of the picture id naming the
+	 * sub-directories of each level.
+	 */
+	private final static String DIRECTORY_LEVEL_WIDTH_INVALID_MESSAGE = "Directory level width must be between 1 and 3.";
+
 	/**
 	 * {@link IBufferedImageCacheLoaderConfiguration} for the pictures.
 	 */
@@ -193,12 +341,61 @@ public final class SQLFilePictureBankConfigurationImpl extends
 				INDEX_DIRECTORY_TAG, INDEX_DIRECTORY_SHORT_DESC,
 				INDEX_DIRECTORY_LONG_DESC, INDEX_DIRECTORY_INVALID_MESSAGE,
 				false, StringDisplayType.TEXTFIELD, 0, "");
+		_leafDatabaseCacheSize = new ConfigurationInteger(this,
+				DATABASE_CACHE_SIZE_TAG, DATABASE_CACHE_SIZE_SHORT_DESC,
+				DATABASE_CACHE_SIZE_LONG_DESC,
+				DATABASE_CACHE_SIZE_INVALID_MESSAGE, false,
+				IntegerDisplayType.SPINNER, Integer.valueOf(1),
+				Integer.valueOf(Integer.MAX_VALUE), Integer.valueOf(8192));
+		_leafDatabaseMmapSize = new ConfigurationInteger(this,
+				DATABASE_MMAP_SIZE_TAG, DATABASE_MMAP_SIZE_SHORT_DESC,
+				DATABASE_MMAP_SIZE_LONG_DESC,
+				DATABASE_MMAP_SIZE_INVALID_MESSAGE, false,
+				IntegerDisplayType.SPINNER, Integer.valueOf(0),
+				Integer.valueOf(Integer.MAX_VALUE / 1024), Integer.valueOf(64));
+		_leafDatabaseSynchronous = new ConfigurationInteger(this,
+				DATABASE_SYNCHRONOUS_TAG, DATABASE_SYNCHRONOUS_SHORT_DESC,
+				DATABASE_SYNCHRONOUS_LONG_DESC,
+				DATABASE_SYNCHRONOUS_INVALID_MESSAGE, false,
+				IntegerDisplayType.SPINNER, Integer.valueOf(0),
+				Integer.valueOf(3), Integer.valueOf(1));
+		_leafDatabaseReadConnections = new ConfigurationInteger(this,
+				DATABASE_READ_CONNECTIONS_TAG,
+				DATABASE_READ_CONNECTIONS_SHORT_DESC,
+				DATABASE_READ_CONNECTIONS_LONG_DESC,
+				DATABASE_READ_CONNECTIONS_INVALID_MESSAGE, false,
+				IntegerDisplayType.SPINNER, Integer.valueOf(1),
+				Integer.valueOf(Integer.MAX_VALUE), Integer.valueOf(4));
+		_leafMetadataStoreType = new ConfigurationInteger(this,
+				METADATA_STORE_TYPE_TAG, METADATA_STORE_TYPE_SHORT_DESC,
+				METADATA_STORE_TYPE_LONG_DESC,
+				METADATA_STORE_TYPE_INVALID_MESSAGE, false,
+				IntegerDisplayType.SPINNER, Integer.valueOf(0),
+				Integer.valueOf(1), Integer.valueOf(0));
+		_leafDirectoryLevels = new ConfigurationInteger(this,
+				DIRECTORY_LEVELS_TAG, DIRECTORY_LEVELS_SHORT_DESC,
+				DIRECTORY_LEVELS_LONG_DESC, DIRECTORY_LEVELS_INVALID_MESSAGE,
+				false, IntegerDisplayType.SPINNER, Integer.valueOf(1),
+				Integer.valueOf(4), Integer.valueOf(1));
+		_leafDirectoryLevelWidth = new ConfigurationInteger(this,
+				DIRECTORY_LEVEL_WIDTH_TAG, DIRECTORY_LEVEL_WIDTH_SHORT_DESC,
+				DIRECTORY_LEVEL_WIDTH_LONG_DESC,
+				DIRECTORY_LEVEL_WIDTH_INVALID_MESSAGE, false,
+				IntegerDisplayType.SPINNER, Integer.valueOf(1),
+				Integer.valueOf(3), Integer.valueOf(2));
 		addLeaf(_leafPictureBankId);
 		addLeaf(_leafPictureBankName);
 		addLeaf(_leafDatabaseFileName);
 		addLeaf(_leafPictureDirectory);
 		addLeaf(_leafIndexDirectory);
 		addLeaf(_leafThumbnailsDirectory);
+		addLeaf(_leafDatabaseCacheSize);
+		addLeaf(_leafDatabaseMmapSize);
+		addLeaf(_leafDatabaseSynchronous);
+		addLeaf(_leafDatabaseReadConnections);
+		addLeaf(_leafMetadataStoreType);
+		addLeaf(_leafDirectoryLevels);
+		addLeaf(_leafDirectoryLevelWidth);
 		_pictureCacheLoaderConfiguration = new PictureLoaderConfigurationImpl();
 		_thumbnailCacheLoaderConfiguration = new ThumbnailLoaderConfigurationImpl();
 	}
@@ -229,6 +426,29 @@ public final class SQLFilePictureBankConfigurationImpl extends
 	 * @param strCommandLineIndexDirectory
 	 *            the value specified on the command line for the base directory
 	 *            for indexes.
+	 * @param iCommandLineDatabaseCacheSize
+	 *            the value specified on the command line for the page cache
+	 *            size of the database.
+	 * @param iCommandLineDatabaseMmapSize
+	 *            the value specified on the command line for the memory-mapped
+	 *            I/O size of the database.
+	 * @param iCommandLineDatabaseSynchronous
+	 *            the value specified on the command line for the synchronous
+	 *            level of the database.
+	 * @param iCommandLineDatabaseReadConnections
+	 *            the value specified on the command line for the number of read
+	 *            connections to the database.
+	 * @param iCommandLineMetadataStoreType
+	 *            the value specified on the command line for the type of the
+	 *            metadata store.
+	 * @param iCommandLineDirectoryLevels
+	 *            the value specified on the command line for the number of
+	 *            levels of sub-directories of the picture and thumbnail
+	 *            directories.
+	 * @param iCommandLineDirectoryLevelWidth
+	 *            the value specified on the command line for the number of
+	 *            characters of the picture id naming the sub-directories of
+	 *            each level.
 	 * @throws InvalidConfigurationException
 	 *             one of the given value is invalid.
 	 */
@@ -239,7 +459,14 @@ public final class SQLFilePictureBankConfigurationImpl extends
 			final String strCommandLineDatabaseFileName,
 			final String strCommandLinePictureDirectory,
 			final String strCommandLineThumbnailsDirectory,
-			final String strCommandLineIndexDirectory)
+			final String strCommandLineIndexDirectory,
+			final Integer iCommandLineDatabaseCacheSize,
+			final Integer iCommandLineDatabaseMmapSize,
+			final Integer iCommandLineDatabaseSynchronous,
+			final Integer iCommandLineDatabaseReadConnections,
+			final Integer iCommandLineMetadataStoreType,
+			final Integer iCommandLineDirectoryLevels,
+			final Integer iCommandLineDirectoryLevelWidth)
 			throws InvalidConfigurationException
 	{
 		super(parent, SQLFILE_PICTUREBANK_CONFIGURATION_TAG, mBeanServer);
@@ -276,12 +503,68 @@ public final class SQLFilePictureBankConfigurationImpl extends
 				INDEX_DIRECTORY_LONG_DESC, INDEX_DIRECTORY_INVALID_MESSAGE,
 				false, StringDisplayType.TEXTFIELD, 0, "",
 				strCommandLineIndexDirectory);
+		_leafDatabaseCacheSize = new ConfigurationInteger(this,
+				DATABASE_CACHE_SIZE_TAG, DATABASE_CACHE_SIZE_SHORT_DESC,
+				DATABASE_CACHE_SIZE_LONG_DESC,
+				DATABASE_CACHE_SIZE_INVALID_MESSAGE, false,
+				IntegerDisplayType.SPINNER, Integer.valueOf(1),
+				Integer.valueOf(Integer.MAX_VALUE), Integer.valueOf(8192),
+				iCommandLineDatabaseCacheSize);
+		_leafDatabaseMmapSize = new ConfigurationInteger(this,
+				DATABASE_MMAP_SIZE_TAG, DATABASE_MMAP_SIZE_SHORT_DESC,
+				DATABASE_MMAP_SIZE_LONG_DESC,
+				DATABASE_MMAP_SIZE_INVALID_MESSAGE, false,
+				IntegerDisplayType.SPINNER, Integer.valueOf(0),
+				Integer.valueOf(Integer.MAX_VALUE / 1024), Integer.valueOf(64),
+				iCommandLineDatabaseMmapSize);
+		_leafDatabaseSynchronous = new ConfigurationInteger(this,
+				DATABASE_SYNCHRONOUS_TAG, DATABASE_SYNCHRONOUS_SHORT_DESC,
+				DATABASE_SYNCHRONOUS_LONG_DESC,
+				DATABASE_SYNCHRONOUS_INVALID_MESSAGE, false,
+				IntegerDisplayType.SPINNER, Integer.valueOf(0),
+				Integer.valueOf(3), Integer.valueOf(1),
+				iCommandLineDatabaseSynchronous);
+		_leafDatabaseReadConnections = new ConfigurationInteger(this,
+				DATABASE_READ_CONNECTIONS_TAG,
+				DATABASE_READ_CONNECTIONS_SHORT_DESC,
+				DATABASE_READ_CONNECTIONS_LONG_DESC,
+				DATABASE_READ_CONNECTIONS_INVALID_MESSAGE, false,
+				IntegerDisplayType.SPINNER, Integer.valueOf(1),
+				Integer.valueOf(Integer.MAX_VALUE), Integer.valueOf(4),
+				iCommandLineDatabaseReadConnections);
+		_leafMetadataStoreType = new ConfigurationInteger(this,
+				METADATA_STORE_TYPE_TAG, METADATA_STORE_TYPE_SHORT_DESC,
+				METADATA_STORE_TYPE_LONG_DESC,
+				METADATA_STORE_TYPE_INVALID_MESSAGE, false,
+				IntegerDisplayType.SPINNER, Integer.valueOf(0),
+				Integer.valueOf(1), Integer.valueOf(0),
+				iCommandLineMetadataStoreType);
+		_leafDirectoryLevels = new ConfigurationInteger(this,
+				DIRECTORY_LEVELS_TAG, DIRECTORY_LEVELS_SHORT_DESC,
+				DIRECTORY_LEVELS_LONG_DESC, DIRECTORY_LEVELS_INVALID_MESSAGE,
+				false, IntegerDisplayType.SPINNER, Integer.valueOf(1),
+				Integer.valueOf(4), Integer.valueOf(1),
+				iCommandLineDirectoryLevels);
+		_leafDirectoryLevelWidth = new ConfigurationInteger(this,
+				DIRECTORY_LEVEL_WIDTH_TAG, DIRECTORY_LEVEL_WIDTH_SHORT_DESC,
+				DIRECTORY_LEVEL_WIDTH_LONG_DESC,
+				DIRECTORY_LEVEL_WIDTH_INVALID_MESSAGE, false,
+				IntegerDisplayType.SPINNER, Integer.valueOf(1),
+				Integer.valueOf(3), Integer.valueOf(2),
+				iCommandLineDirectoryLevelWidth);
 		addLeaf(_leafPictureBankId);
 		addLeaf(_leafPictureBankName);
 		addLeaf(_leafDatabaseFileName);
 		addLeaf(_leafPictureDirectory);
 		addLeaf(_leafIndexDirectory);
 		addLeaf(_leafThumbnailsDirectory);
+		addLeaf(_leafDatabaseCacheSize);
+		addLeaf(_leafDatabaseMmapSize);
+		addLeaf(_leafDatabaseSynchronous);
+		addLeaf(_leafDatabaseReadConnections);
+		addLeaf(_leafMetadataStoreType);
+		addLeaf(_leafDirectoryLevels);
+		addLeaf(_leafDirectoryLevelWidth);
 		_pictureCacheLoaderConfiguration = new PictureLoaderConfigurationImpl();
 		_thumbnailCacheLoaderConfiguration = new ThumbnailLoaderConfigurationImpl();
 	}
@@ -311,6 +594,30 @@ public final class SQLFilePictureBankConfigurationImpl extends
 	 *            for thumbnails.
 	 * @param strCommandLineIndexDirectory
 	 *            the value specified on the command line for the base directory
+	 *            for indexes.
+	 * @param iCommandLineDatabaseCacheSize
+	 *            the value specified on the command line for the page cache
+	 *            size of the database.
+	 * @param iCommandLineDatabaseMmapSize
+	 *            the value specified on the command line for the memory-mapped
+	 *            I/O size of the database.
+	 * @param iCommandLineDatabaseSynchronous
+	 *            the value specified on the command line for the synchronous
+	 *            level of the database.
+	 * @param iCommandLineDatabaseReadConnections
+	 *            the value specified on the command line for the number of read
+	 *            connections to the database.
+	 * @param iCommandLineMetadataStoreType
+	 *            the value specified on the command line for the type of the
+	 *            metadata store.
+	 * @param iCommandLineDirectoryLevels
+	 *            the value specified on the command line for the number of
+	 *            levels of sub-directories of the picture and thumbnail
+	 *            directories.
+	 * @param iCommandLineDirectoryLevelWidth
+	 *            the value specified on the command line for the number of
+	 *            characters of the picture id naming the sub-directories of
+	 *            each level.
 	 * @param iConfigurationPictureBankId
 	 *            the value specified in the configuration file for the
 	 *            {@link IPictureBank} name.
@@ -329,6 +636,29 @@ public final class SQLFilePictureBankConfigurationImpl extends
 	 * @param strConfigurationIndexDirectory
 	 *            the value specified in the configuration file for the base
 	 *            directory for indexes.
+	 * @param iConfigurationDatabaseCacheSize
+	 *            the value specified in the configuration file for the page
+	 *            cache size of the database.
+	 * @param iConfigurationDatabaseMmapSize
+	 *            the value specified in the configuration file for the memory-
+	 *            mapped I/O size of the database.
+	 * @param iConfigurationDatabaseSynchronous
+	 *            the value specified in the configuration file for the
+	 *            synchronous level of the database.
+	 * @param iConfigurationDatabaseReadConnections
+	 *            the value specified in the configuration file for the number
+	 *            of read connections to the database.
+	 * @param iConfigurationMetadataStoreType
+	 *            the value specified in the configuration file for the type of
+	 *            the metadata store.
+	 * @param iConfigurationDirectoryLevels
+	 *            the value specified in the configuration file for the number
+	 *            of levels of sub-directories of the picture and thumbnail
+	 *            directories.
+	 * @param iConfigurationDirectoryLevelWidth
+	 *            the value specified in the configuration file for the number
+	 *            of characters of the picture id naming the sub-directories of
+	 *            each level.
 	 * @throws InvalidConfigurationException
 	 *             one of the given value is invalid.
 	 */
@@ -340,18 +670,37 @@ public final class SQLFilePictureBankConfigurationImpl extends
 			final String strCommandLinePictureDirectory,
 			final String strCommandLineThumbnailsDirectory,
 			final String strCommandLineIndexDirectory,
+			final Integer iCommandLineDatabaseCacheSize,
+			final Integer iCommandLineDatabaseMmapSize,
+			final Integer iCommandLineDatabaseSynchronous,
+			final Integer iCommandLineDatabaseReadConnections,
+			final Integer iCommandLineMetadataStoreType,
+			final Integer iCommandLineDirectoryLevels,
+			final Integer iCommandLineDirectoryLevelWidth,
 			final Integer iConfigurationPictureBankId,
 			final String strConfigurationPictureBankName,
 			final String strConfigurationDatabaseFileName,
 			final String strConfigurationPictureDirectory,
 			final String strConfigurationThumbnailsDirectory,
-			final String strConfigurationIndexDirectory)
+			final String strConfigurationIndexDirectory,
+			final Integer iConfigurationDatabaseCacheSize,
+			final Integer iConfigurationDatabaseMmapSize,
+			final Integer iConfigurationDatabaseSynchronous,
+			final Integer iConfigurationDatabaseReadConnections,
+			final Integer iConfigurationMetadataStoreType,
+			final Integer iConfigurationDirectoryLevels,
+			final Integer iConfigurationDirectoryLevelWidth)
 			throws InvalidConfigurationException
 	{
 		this(parent, mBeanServer, iCommandLinePictureBankId,
 				strCommandLinePictureBankName, strCommandLineDatabaseFileName,
 				strCommandLinePictureDirectory,
-				strCommandLineThumbnailsDirectory, strCommandLineIndexDirectory);
+				strCommandLineThumbnailsDirectory, strCommandLineIndexDirectory,
+				iCommandLineDatabaseCacheSize, iCommandLineDatabaseMmapSize,
+				iCommandLineDatabaseSynchronous,
+				iCommandLineDatabaseReadConnections,
+				iCommandLineMetadataStoreType, iCommandLineDirectoryLevels,
+				iCommandLineDirectoryLevelWidth);
 		_leafPictureBankId.setConfigurationValue(iConfigurationPictureBankId);
 		_leafPictureBankName
 				.setConfigurationValue(strConfigurationPictureBankName);
@@ -363,7 +712,20 @@ public final class SQLFilePictureBankConfigurationImpl extends
 				.setConfigurationValue(strConfigurationIndexDirectory);
 		_leafThumbnailsDirectory
 				.setConfigurationValue(strConfigurationThumbnailsDirectory);
-
+		_leafDatabaseCacheSize
+				.setConfigurationValue(iConfigurationDatabaseCacheSize);
+		_leafDatabaseMmapSize
+				.setConfigurationValue(iConfigurationDatabaseMmapSize);
+		_leafDatabaseSynchronous
+				.setConfigurationValue(iConfigurationDatabaseSynchronous);
+		_leafDatabaseReadConnections
+				.setConfigurationValue(iConfigurationDatabaseReadConnections);
+		_leafMetadataStoreType
+				.setConfigurationValue(iConfigurationMetadataStoreType);
+		_leafDirectoryLevels
+				.setConfigurationValue(iConfigurationDirectoryLevels);
+		_leafDirectoryLevelWidth
+				.setConfigurationValue(iConfigurationDirectoryLevelWidth);
 	}
 
 	@Override
@@ -390,6 +752,48 @@ public final class SQLFilePictureBankConfigurationImpl extends
 		return _leafIndexDirectory.getCurrentValue();
 	}
 
+	@Override
+	public int getDatabaseCacheSize()
+	{
+		return _leafDatabaseCacheSize.getCurrentValue().intValue();
+	}
+
+	@Override
+	public int getDatabaseMmapSize()
+	{
+		return _leafDatabaseMmapSize.getCurrentValue().intValue();
+	}
+
+	@Override
+	public int getDatabaseSynchronous()
+	{
+		return _leafDatabaseSynchronous.getCurrentValue().intValue();
+	}
+
+	@Override
+	public int getDatabaseReadConnections()
+	{
+		return _leafDatabaseReadConnections.getCurrentValue().intValue();
+	}
+
+	@Override
+	public int getMetadataStoreType()
+	{
+		return _leafMetadataStoreType.getCurrentValue().intValue();
+	}
+
+	@Override
+	public int getDirectoryLevels()
+	{
+		return _leafDirectoryLevels.getCurrentValue().intValue();
+	}
+
+	@Override
+	public int getDirectoryLevelWidth()
+	{
+		return _leafDirectoryLevelWidth.getCurrentValue().intValue();
+	}
+
 	@Override
 	public IBufferedImageCacheLoaderConfiguration getMainPictureLoaderConfiguration()
 	{
@@ -0,0 +1,1697 @@
+package yapto.picturebank.sqlfile.kv;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import yapto.picturebank.PictureInformation;
+import yapto.picturebank.sqlfile.IMetadataStore;
+import yapto.picturebank.sqlfile.IStoreCursor;
+import yapto.picturebank.sqlfile.MetadataStoreException;
+import yapto.picturebank.sqlfile.PictureRecord;
+import yapto.picturebank.sqlfile.PictureState;
+import yapto.picturebank.sqlfile.TagRecord;
+import yapto.picturebank.tag.ITag;
+
+/**
+ * {@link IMetadataStore} keeping all the metadata in memory and writing each
+ * modification at the end of an append-only log file.
+ * 
+ * Each write is a single entry of the log, holding the length and the
+ * checksum of a list of operations, and is applied in memory once written. A
+ * write only costs an append to the log, without any index or page to
+ * update. When the log is opened, its entries are replayed up to the first
+ * incomplete or corrupted one, which is left by a crash during a write and
+ * discarded with the rest of the file, so that each write is either complete
+ * or absent.
+ * 
+ * The log starts with a header holding its format and the values of the
+ * change counter and of the next picture key when it was written. Once it
+ * has grown to twice its size after the last compaction, the log is
+ * compacted : a copy of the current state is written to a new log without
+ * blocking the other reads and writes, then the entries appended in the
+ * meantime are copied to its end and it replaces the old log. A backup is
+ * such a compacted log.
+ * 
+ * With a synchronous level of 2 (FULL) or more, each write is synced to the
+ * disk before returning, the writes waiting for the same sync being synced
+ * together. Otherwise the log is only synced when it's compacted or closed,
+ * and a crash may lose the last writes, never corrupt the store.
+ * 
+ * @author benobiwan
+ * 
+ */
+public final class LogStructuredMetadataStore implements IMetadataStore
+{
+	/**
+	 * Logger object.
+	 */
+	protected static final Logger LOGGER = LoggerFactory
+			.getLogger(LogStructuredMetadataStore.class);
+
+	/**
+	 * Magic number at the beginning of a log file.
+	 */
+	private static final int MAGIC = 0x59454b31;
+
+	/**
+	 * Version of the format of the log file.
+	 */
+	private static final int FORMAT_VERSION = 1;
+
+	/**
+	 * Size of the header of the log file : the magic number, the format
+	 * version, the change counter and the next picture key.
+	 */
+	private static final int HEADER_SIZE = 20;
+
+	/**
+	 * Size of the header of an entry : the length and the checksum of its
+	 * operations.
+	 */
+	private static final int ENTRY_HEADER_SIZE = 8;
+
+	/**
+	 * Size under which the log is never compacted.
+	 */
+	private static final long MIN_COMPACTION_SIZE = 4L * 1024 * 1024;
+
+	/**
+	 * Number of pictures written in each entry of a compacted log.
+	 */
+	private static final int PICTURES_PER_ENTRY = 1024;
+
+	/**
+	 * Suffix of the temporary file written before replacing the log file.
+	 */
+	private static final String TEMPORARY_SUFFIX = ".tmp";
+
+	/**
+	 * Charset used to write the strings.
+	 */
+	private static final Charset CHARSET = Charset.forName("UTF-8");
+
+	/**
+	 * Operation inserting a new picture, which increments the change counter.
+	 */
+	private static final byte OP_INSERT_PICTURE = 1;
+
+	/**
+	 * Operation restoring a picture in a compacted log.
+	 */
+	private static final byte OP_PICTURE = 2;
+
+	/**
+	 * Operation updating the grade, the modification timestamp and the tags
+	 * of a picture.
+	 */
+	private static final byte OP_UPDATE_PICTURE = 3;
+
+	/**
+	 * Operation adding deltas to the picture counts of a tag.
+	 */
+	private static final byte OP_ADD_TAG_COUNTS = 4;
+
+	/**
+	 * Operation setting the picture counts of a tag.
+	 */
+	private static final byte OP_SET_TAG_COUNTS = 5;
+
+	/**
+	 * Operation inserting a new tag, which increments the change counter.
+	 */
+	private static final byte OP_INSERT_TAG = 6;
+
+	/**
+	 * Operation restoring a tag in a compacted log.
+	 */
+	private static final byte OP_TAG = 7;
+
+	/**
+	 * Operation modifying a tag, which increments the change counter.
+	 */
+	private static final byte OP_MODIFY_TAG = 8;
+
+	/**
+	 * Operation removing a tag, which increments the change counter.
+	 */
+	private static final byte OP_REMOVE_TAG = 9;
+
+	/**
+	 * The log file.
+	 */
+	private final Path _logFile;
+
+	/**
+	 * Whether each write is synced to the disk before returning.
+	 */
+	private final boolean _bSyncOnWrite;
+
+	/**
+	 * Lock protecting the state in memory and the writes to the log.
+	 */
+	private final Object _lock = new Object();
+
+	/**
+	 * Lock serializing the syncs of the log.
+	 */
+	private final Object _syncLock = new Object();
+
+	/**
+	 * The pictures by key.
+	 */
+	private final Map<Integer, PictureRow> _picturesByKey = new HashMap<>();
+
+	/**
+	 * The pictures by id, in the order of their addition.
+	 */
+	private final Map<String, PictureRow> _picturesById = new LinkedHashMap<>();
+
+	/**
+	 * The {@link TagRecord}s of the tags by tag id.
+	 */
+	private final Map<Integer, TagRecord> _tags = new TreeMap<>();
+
+	/**
+	 * The picture count and the subtree count of the tags by tag id.
+	 */
+	private final Map<Integer, int[]> _tagCounts = new HashMap<>();
+
+	/**
+	 * Key given to the next inserted picture.
+	 */
+	private int _iNextKey = 1;
+
+	/**
+	 * The change counter.
+	 */
+	private long _lChangeCounter = 0;
+
+	/**
+	 * Channel used to append to the log.
+	 */
+	private FileChannel _channel;
+
+	/**
+	 * Size of the log.
+	 */
+	private long _lLogSize;
+
+	/**
+	 * Size of the log after its last compaction or its opening.
+	 */
+	private long _lCompactedSize;
+
+	/**
+	 * Number of writes appended to the log since its opening.
+	 */
+	private long _lWriteCount = 0;
+
+	/**
+	 * Number of writes synced to the disk, protected by the sync lock.
+	 */
+	private long _lSyncedWriteCount = 0;
+
+	/**
+	 * Whether this store has been closed.
+	 */
+	private boolean _bClosed = false;
+
+	/**
+	 * Whether a compaction of the log is in progress.
+	 */
+	private boolean _bCompacting = false;
+
+	/**
+	 * Creates a new LogStructuredMetadataStore, replaying its log or creating
+	 * an empty one.
+	 * 
+	 * @param logFile
+	 *            the log file.
+	 * @param iSynchronous
+	 *            the synchronous level, 2 (FULL) or more to sync each write.
+	 * @throws MetadataStoreException
+	 *             if the log file can't be read, isn't a log of this format,
+	 *             or can't be created.
+	 */
+	public LogStructuredMetadataStore(final Path logFile,
+			final int iSynchronous) throws MetadataStoreException
+	{
+		_logFile = logFile;
+		_bSyncOnWrite = iSynchronous >= 2;
+		try
+		{
+			if (!Files.exists(_logFile) || Files.size(_logFile) == 0)
+			{
+				replaceLog(new ArrayList<PictureRecord>(),
+						new ArrayList<TagRecord>(),
+						new HashMap<Integer, int[]>());
+			}
+			final long lValidSize = replay();
+			_channel = FileChannel.open(_logFile, StandardOpenOption.READ,
+					StandardOpenOption.WRITE);
+			_channel.truncate(lValidSize);
+			_channel.position(lValidSize);
+			_lLogSize = lValidSize;
+			_lCompactedSize = lValidSize;
+		}
+		catch (final MetadataStoreException e)
+		{
+			throw e;
+		}
+		catch (final IOException e)
+		{
+			throw new MetadataStoreException("Can't open the log " + _logFile,
+					e);
+		}
+	}
+
+	@Override
+	public int insertPicture(final String strPictureId,
+			final long lAddingTimestamp, final PictureInformation info)
+			throws MetadataStoreException
+	{
+		final long lWrite;
+		final int iKey;
+		synchronized (_lock)
+		{
+			if (info == null)
+			{
+				throw new MetadataStoreException("No information for picture "
+						+ strPictureId);
+			}
+			if (_picturesById.containsKey(strPictureId))
+			{
+				throw new MetadataStoreException("Picture " + strPictureId
+						+ " already in the store.");
+			}
+			iKey = _iNextKey;
+			final Operations ops = new Operations();
+			try
+			{
+				ops._out.writeByte(OP_INSERT_PICTURE);
+				ops._out.writeInt(iKey);
+				writeString(ops._out, strPictureId);
+				ops._out.writeLong(lAddingTimestamp);
+				writeInformation(ops._out, info);
+			}
+			catch (final IOException e)
+			{
+				throw new MetadataStoreException(e);
+			}
+			lWrite = append(ops);
+		}
+		sync(lWrite);
+		compactIfNeeded();
+		return iKey;
+	}
+
+	@Override
+	public PictureRecord loadPicture(final String strPictureId)
+			throws MetadataStoreException
+	{
+		synchronized (_lock)
+		{
+			final PictureRow row = _picturesById.get(strPictureId);
+			return (row == null) ? null : row.toRecord();
+		}
+	}
+
+	@Override
+	public List<PictureRecord> loadPictures(final List<String> pictureIds)
+			throws MetadataStoreException
+	{
+		final List<PictureRecord> records = new ArrayList<>(pictureIds.size());
+		synchronized (_lock)
+		{
+			for (final String strId : pictureIds)
+			{
+				final PictureRow row = _picturesById.get(strId);
+				if (row != null)
+				{
+					records.add(row.toRecord());
+				}
+			}
+		}
+		return records;
+	}
+
+	@Override
+	public IStoreCursor<String> openPictureIdCursor()
+			throws MetadataStoreException
+	{
+		final List<String> pictureIds;
+		synchronized (_lock)
+		{
+			pictureIds = new ArrayList<>(_picturesById.keySet());
+		}
+		return new IStoreCursor<String>()
+		{
+			/**
+			 * Index of the current id.
+			 */
+			private int _iIndex = -1;
+
+			@Override
+			public boolean next()
+			{
+				_iIndex++;
+				return _iIndex < pictureIds.size();
+			}
+
+			@Override
+			public String get()
+			{
+				return pictureIds.get(_iIndex);
+			}
+
+			@Override
+			public void close()
+			{
+				// nothing to release
+			}
+		};
+	}
+
+	@Override
+	public void updatePictures(final Map<Integer, PictureState> stateMap,
+			final Map<Integer, int[]> countDeltas)
+			throws MetadataStoreException
+	{
+		final long lWrite;
+		synchronized (_lock)
+		{
+			final Operations ops = new Operations();
+			try
+			{
+				for (final Entry<Integer, PictureState> entry : stateMap
+						.entrySet())
+				{
+					final PictureState state = entry.getValue();
+					ops._out.writeByte(OP_UPDATE_PICTURE);
+					ops._out.writeInt(entry.getKey().intValue());
+					ops._out.writeInt(state.getPictureGrade());
+					ops._out.writeLong(state.getModifiedTimestamp());
+					if (state.hasTagChanges())
+					{
+						writeIntArray(ops._out, state.getRemovedTagIds());
+						writeIntArray(ops._out, state.getAddedTagIds());
+					}
+					else
+					{
+						ops._out.writeInt(0);
+						ops._out.writeInt(0);
+					}
+				}
+				for (final Entry<Integer, int[]> entry : countDeltas
+						.entrySet())
+				{
+					ops._out.writeByte(OP_ADD_TAG_COUNTS);
+					ops._out.writeInt(entry.getKey().intValue());
+					ops._out.writeInt(entry.getValue()[0]);
+					ops._out.writeInt(entry.getValue()[1]);
+				}
+			}
+			catch (final IOException e)
+			{
+				throw new MetadataStoreException(e);
+			}
+			lWrite = append(ops);
+		}
+		sync(lWrite);
+		compactIfNeeded();
+	}
+
+	@Override
+	public void saveTag(final ITag tag) throws MetadataStoreException
+	{
+		final int iParentId = (tag.getParent() == null) ? 0 : tag
+				.getParentId();
+		writeTag(OP_INSERT_TAG, new TagRecord(tag.getTagId(), iParentId,
+				tag.getName(), tag.getDescription(), tag.isSelectable()));
+	}
+
+	@Override
+	public void modifyTag(final ITag tag) throws MetadataStoreException
+	{
+		writeTag(OP_MODIFY_TAG, new TagRecord(tag.getTagId(),
+				tag.getParentId(), tag.getName(), tag.getDescription(),
+				tag.isSelectable()));
+	}
+
+	@Override
+	public void removeTag(final int iTagId) throws MetadataStoreException
+	{
+		final long lWrite;
+		synchronized (_lock)
+		{
+			final Operations ops = new Operations();
+			try
+			{
+				ops._out.writeByte(OP_REMOVE_TAG);
+				ops._out.writeInt(iTagId);
+			}
+			catch (final IOException e)
+			{
+				throw new MetadataStoreException(e);
+			}
+			lWrite = append(ops);
+		}
+		sync(lWrite);
+		compactIfNeeded();
+	}
+
+	@Override
+	public List<TagRecord> loadTags() throws MetadataStoreException
+	{
+		synchronized (_lock)
+		{
+			return new ArrayList<>(_tags.values());
+		}
+	}
+
+	@Override
+	public Map<Integer, int[]> loadTagCounts() throws MetadataStoreException
+	{
+		synchronized (_lock)
+		{
+			return copyTagCounts();
+		}
+	}
+
+	@Override
+	public void recountTagSubtrees(final Collection<Integer> tagIds)
+			throws MetadataStoreException
+	{
+		final long lWrite;
+		synchronized (_lock)
+		{
+			// one pass on the pictures, counting each picture once for each
+			// of its tags and their ancestors
+			final Map<Integer, int[]> subtreeCounts = new HashMap<>();
+			for (final Integer tagId : tagIds)
+			{
+				subtreeCounts.put(tagId, new int[1]);
+			}
+			final Set<Integer> ancestors = new HashSet<>();
+			for (final PictureRow row : _picturesByKey.values())
+			{
+				ancestors.clear();
+				for (final int iTagId : row._tagIds)
+				{
+					Integer current = Integer.valueOf(iTagId);
+					while (current.intValue() != 0 && ancestors.add(current))
+					{
+						final TagRecord tag = _tags.get(current);
+						current = Integer.valueOf((tag == null) ? 0 : tag
+								.getParentId());
+					}
+				}
+				for (final Integer tagId : ancestors)
+				{
+					final int[] subtreeCount = subtreeCounts.get(tagId);
+					if (subtreeCount != null)
+					{
+						subtreeCount[0]++;
+					}
+				}
+			}
+			final Operations ops = new Operations();
+			try
+			{
+				for (final Integer tagId : tagIds)
+				{
+					final int[] counts = _tagCounts.get(tagId);
+					if (counts == null)
+					{
+						continue;
+					}
+					final int iSubtreeCount = subtreeCounts.get(tagId)[0];
+					ops._out.writeByte(OP_SET_TAG_COUNTS);
+					ops._out.writeInt(tagId.intValue());
+					ops._out.writeInt(counts[0]);
+					ops._out.writeInt(iSubtreeCount);
+				}
+			}
+			catch (final IOException e)
+			{
+				throw new MetadataStoreException(e);
+			}
+			lWrite = append(ops);
+		}
+		sync(lWrite);
+		compactIfNeeded();
+	}
+
+	@Override
+	public long getChangeCounter() throws MetadataStoreException
+	{
+		synchronized (_lock)
+		{
+			return _lChangeCounter;
+		}
+	}
+
+	@Override
+	public List<String> backup(final Path backupFile)
+			throws MetadataStoreException
+	{
+		// the state is copied while holding the lock, and written without it
+		final List<PictureRecord> pictures;
+		final List<TagRecord> tags;
+		final Map<Integer, int[]> tagCounts;
+		final long lChangeCounter;
+		final int iNextKey;
+		synchronized (_lock)
+		{
+			ensureOpen();
+			pictures = copyPictures();
+			tags = new ArrayList<>(_tags.values());
+			tagCounts = copyTagCounts();
+			lChangeCounter = _lChangeCounter;
+			iNextKey = _iNextKey;
+		}
+		try
+		{
+			writeLog(backupFile, pictures, tags, tagCounts, lChangeCounter,
+					iNextKey);
+		}
+		catch (final IOException e)
+		{
+			throw new MetadataStoreException("Can't write the backup "
+					+ backupFile, e);
+		}
+		final List<String> pictureIds = new ArrayList<>(pictures.size());
+		for (final PictureRecord picture : pictures)
+		{
+			pictureIds.add(picture.getId());
+		}
+		return pictureIds;
+	}
+
+	@Override
+	public void close() throws MetadataStoreException
+	{
+		synchronized (_lock)
+		{
+			if (_bClosed)
+			{
+				return;
+			}
+			_bClosed = true;
+			try
+			{
+				_channel.force(false);
+			}
+			catch (final IOException e)
+			{
+				throw new MetadataStoreException("Can't sync the log "
+						+ _logFile, e);
+			}
+			finally
+			{
+				try
+				{
+					_channel.close();
+				}
+				catch (final IOException e)
+				{
+					LOGGER.error(e.getMessage(), e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Write an operation on a tag.
+	 * 
+	 * @param bOperation
+	 *            the operation.
+	 * @param tag
+	 *            the {@link TagRecord} of the tag.
+	 * @throws MetadataStoreException
+	 *             if the operation can't be written.
+	 */
+	private void writeTag(final byte bOperation, final TagRecord tag)
+			throws MetadataStoreException
+	{
+		final long lWrite;
+		synchronized (_lock)
+		{
+			if (bOperation == OP_INSERT_TAG
+					&& _tags.containsKey(Integer.valueOf(tag.getTagId())))
+			{
+				throw new MetadataStoreException("Tag " + tag.getTagId()
+						+ " already in the store.");
+			}
+			final Operations ops = new Operations();
+			try
+			{
+				ops._out.writeByte(bOperation);
+				writeTagRecord(ops._out, tag);
+			}
+			catch (final IOException e)
+			{
+				throw new MetadataStoreException(e);
+			}
+			lWrite = append(ops);
+		}
+		sync(lWrite);
+		compactIfNeeded();
+	}
+
+	/**
+	 * Append an entry to the log and apply its operations in memory. Must be
+	 * called while holding the lock.
+	 * 
+	 * @param ops
+	 *            the operations of the entry.
+	 * @return the number of the write, to give to {@link #sync(long)}.
+	 * @throws MetadataStoreException
+	 *             if the entry can't be written, in which case it's neither
+	 *             in the log nor applied.
+	 */
+	private long append(final Operations ops) throws MetadataStoreException
+	{
+		ensureOpen();
+		final byte[] payload = ops._bytes.toByteArray();
+		final CRC32 crc = new CRC32();
+		crc.update(payload);
+		final ByteBuffer buffer = ByteBuffer.allocate(ENTRY_HEADER_SIZE
+				+ payload.length);
+		buffer.putInt(payload.length);
+		buffer.putInt((int) crc.getValue());
+		buffer.put(payload);
+		buffer.flip();
+		try
+		{
+			while (buffer.hasRemaining())
+			{
+				_channel.write(buffer);
+			}
+		}
+		catch (final IOException e)
+		{
+			// a partial entry would be discarded at the next opening, but
+			// the following entries with it
+			try
+			{
+				_channel.truncate(_lLogSize);
+				_channel.position(_lLogSize);
+			}
+			catch (final IOException e2)
+			{
+				LOGGER.error(e2.getMessage(), e2);
+			}
+			throw new MetadataStoreException("Can't write to the log "
+					+ _logFile, e);
+		}
+		_lLogSize += buffer.capacity();
+		_lWriteCount++;
+		try
+		{
+			apply(payload);
+		}
+		catch (final IOException e)
+		{
+			throw new MetadataStoreException("Invalid entry written to "
+					+ _logFile, e);
+		}
+		return _lWriteCount;
+	}
+
+	/**
+	 * Sync the log to the disk if each write must be, unless another sync
+	 * since the specified write already did it.
+	 * 
+	 * @param lWrite
+	 *            the number of the write.
+	 * @throws MetadataStoreException
+	 *             if the log can't be synced.
+	 */
+	private void sync(final long lWrite) throws MetadataStoreException
+	{
+		if (!_bSyncOnWrite)
+		{
+			return;
+		}
+		synchronized (_syncLock)
+		{
+			if (_lSyncedWriteCount >= lWrite)
+			{
+				return;
+			}
+			final FileChannel channel;
+			final long lWriteCount;
+			synchronized (_lock)
+			{
+				channel = _channel;
+				lWriteCount = _lWriteCount;
+			}
+			try
+			{
+				channel.force(false);
+			}
+			catch (final ClosedChannelException e)
+			{
+				// the log has been compacted or closed, and synced then
+			}
+			catch (final IOException e)
+			{
+				throw new MetadataStoreException("Can't sync the log "
+						+ _logFile, e);
+			}
+			_lSyncedWriteCount = lWriteCount;
+		}
+	}
+
+	/**
+	 * Compact the log if it has grown too much since its last compaction,
+	 * unless another write is already compacting it. Must be called without
+	 * holding the lock : the state is copied while holding it, like for a
+	 * backup, and written without it, so that the other reads and writes
+	 * aren't blocked by the compaction.
+	 */
+	private void compactIfNeeded()
+	{
+		final List<PictureRecord> pictures;
+		final List<TagRecord> tags;
+		final Map<Integer, int[]> tagCounts;
+		final long lChangeCounter;
+		final int iNextKey;
+		final long lSnapshotSize;
+		synchronized (_lock)
+		{
+			if (_bClosed || _bCompacting
+					|| _lLogSize <= Math.max(MIN_COMPACTION_SIZE,
+							2 * _lCompactedSize))
+			{
+				return;
+			}
+			_bCompacting = true;
+			pictures = copyPictures();
+			tags = new ArrayList<>(_tags.values());
+			tagCounts = copyTagCounts();
+			lChangeCounter = _lChangeCounter;
+			iNextKey = _iNextKey;
+			lSnapshotSize = _lLogSize;
+		}
+		try
+		{
+			compact(pictures, tags, tagCounts, lChangeCounter, iNextKey,
+					lSnapshotSize);
+		}
+		catch (final MetadataStoreException e)
+		{
+			// the writes are in the current log, which is kept
+			LOGGER.error(e.getMessage(), e);
+		}
+		finally
+		{
+			synchronized (_lock)
+			{
+				_bCompacting = false;
+			}
+		}
+	}
+
+	/**
+	 * Replace the log by a compacted log of a copy of the state. The
+	 * compacted log is written without holding the lock, then the entries
+	 * appended to the log since the copy are copied to its end, and it's
+	 * moved over the log file, while holding the lock.
+	 * 
+	 * @param pictures
+	 *            the {@link PictureRecord}s of the pictures.
+	 * @param tags
+	 *            the {@link TagRecord}s of the tags.
+	 * @param tagCounts
+	 *            the picture counts of the tags by tag id.
+	 * @param lChangeCounter
+	 *            the change counter.
+	 * @param iNextKey
+	 *            the key given to the next inserted picture.
+	 * @param lSnapshotSize
+	 *            the size of the log when the state was copied.
+	 * @throws MetadataStoreException
+	 *             if the compacted log can't be written, in which case the
+	 *             current log is kept and appended to.
+	 */
+	private void compact(final List<PictureRecord> pictures,
+			final List<TagRecord> tags, final Map<Integer, int[]> tagCounts,
+			final long lChangeCounter, final int iNextKey,
+			final long lSnapshotSize) throws MetadataStoreException
+	{
+		final Path temporaryFile = _logFile.resolveSibling(_logFile
+				.getFileName() + TEMPORARY_SUFFIX);
+		try
+		{
+			writeLog(temporaryFile, pictures, tags, tagCounts, lChangeCounter,
+					iNextKey);
+			synchronized (_lock)
+			{
+				if (_bClosed)
+				{
+					Files.delete(temporaryFile);
+					return;
+				}
+				final long lPreviousSize = _lLogSize;
+				// opened before the move, so that the log file is only
+				// replaced once it can be appended to
+				final FileChannel channel = FileChannel.open(temporaryFile,
+						StandardOpenOption.READ, StandardOpenOption.WRITE);
+				try
+				{
+					long lPosition = lSnapshotSize;
+					channel.position(channel.size());
+					while (lPosition < _lLogSize)
+					{
+						lPosition += _channel.transferTo(lPosition, _lLogSize
+								- lPosition, channel);
+					}
+					channel.force(false);
+					Files.move(temporaryFile, _logFile,
+							StandardCopyOption.REPLACE_EXISTING,
+							StandardCopyOption.ATOMIC_MOVE);
+				}
+				catch (final IOException e)
+				{
+					channel.close();
+					throw e;
+				}
+				syncDirectory(_logFile.getParent());
+				final FileChannel previousChannel = _channel;
+				_channel = channel;
+				_lLogSize = _channel.size();
+				_lCompactedSize = _lLogSize;
+				try
+				{
+					previousChannel.close();
+				}
+				catch (final IOException e)
+				{
+					LOGGER.error(e.getMessage(), e);
+				}
+				LOGGER.info("Compacted the log " + _logFile + " from "
+						+ lPreviousSize + " to " + _lLogSize + " bytes.");
+			}
+		}
+		catch (final IOException e)
+		{
+			try
+			{
+				Files.deleteIfExists(temporaryFile);
+			}
+			catch (final IOException e2)
+			{
+				LOGGER.error(e2.getMessage(), e2);
+			}
+			throw new MetadataStoreException("Can't compact the log "
+					+ _logFile, e);
+		}
+	}
+
+	/**
+	 * Write a new log holding the specified state to a temporary file, then
+	 * move it over the log file.
+	 * 
+	 * @param pictures
+	 *            the {@link PictureRecord}s of the pictures.
+	 * @param tags
+	 *            the {@link TagRecord}s of the tags.
+	 * @param tagCounts
+	 *            the picture counts of the tags by tag id.
+	 * @throws IOException
+	 *             if an error occurred while writing or moving the log.
+	 */
+	private void replaceLog(final List<PictureRecord> pictures,
+			final List<TagRecord> tags, final Map<Integer, int[]> tagCounts)
+			throws IOException
+	{
+		final Path temporaryFile = _logFile.resolveSibling(_logFile
+				.getFileName() + TEMPORARY_SUFFIX);
+		writeLog(temporaryFile, pictures, tags, tagCounts, _lChangeCounter,
+				_iNextKey);
+		Files.move(temporaryFile, _logFile,
+				StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+		syncDirectory(_logFile.getParent());
+	}
+
+	/**
+	 * Sync a directory to the disk, so that a file moved into it is still
+	 * there after a crash. Not all the platforms can open a directory, in
+	 * which case the directory isn't synced.
+	 * 
+	 * @param directory
+	 *            the directory.
+	 */
+	private static void syncDirectory(final Path directory)
+	{
+		try
+		{
+			final FileChannel channel = FileChannel.open(directory,
+					StandardOpenOption.READ);
+			try
+			{
+				channel.force(true);
+			}
+			finally
+			{
+				channel.close();
+			}
+		}
+		catch (final IOException e)
+		{
+			LOGGER.debug("Can't sync the directory " + directory, e);
+		}
+	}
+
+	/**
+	 * Write a log holding the specified state, and sync it to the disk.
+	 * 
+	 * @param file
+	 *            the file to write, replaced if it exists.
+	 * @param pictures
+	 *            the {@link PictureRecord}s of the pictures.
+	 * @param tags
+	 *            the {@link TagRecord}s of the tags.
+	 * @param tagCounts
+	 *            the picture counts of the tags by tag id.
+	 * @param lChangeCounter
+	 *            the change counter.
+	 * @param iNextKey
+	 *            the key given to the next inserted picture.
+	 * @throws IOException
+	 *             if an error occurred while writing the log.
+	 */
+	private static void writeLog(final Path file,
+			final List<PictureRecord> pictures, final List<TagRecord> tags,
+			final Map<Integer, int[]> tagCounts, final long lChangeCounter,
+			final int iNextKey) throws IOException
+	{
+		final FileOutputStream fileOut = new FileOutputStream(file.toFile());
+		final DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(fileOut));
+		try
+		{
+			out.writeInt(MAGIC);
+			out.writeInt(FORMAT_VERSION);
+			out.writeLong(lChangeCounter);
+			out.writeInt(iNextKey);
+			Operations ops = new Operations();
+			for (final TagRecord tag : tags)
+			{
+				ops._out.writeByte(OP_TAG);
+				writeTagRecord(ops._out, tag);
+			}
+			for (final Entry<Integer, int[]> entry : tagCounts.entrySet())
+			{
+				ops._out.writeByte(OP_SET_TAG_COUNTS);
+				ops._out.writeInt(entry.getKey().intValue());
+				ops._out.writeInt(entry.getValue()[0]);
+				ops._out.writeInt(entry.getValue()[1]);
+			}
+			writeEntry(out, ops);
+			int iCount = 0;
+			ops = new Operations();
+			for (final PictureRecord picture : pictures)
+			{
+				ops._out.writeByte(OP_PICTURE);
+				ops._out.writeInt(picture.getKey());
+				writeString(ops._out, picture.getId());
+				ops._out.writeInt(picture.getGrade());
+				ops._out.writeLong(picture.getModifiedTimestamp());
+				ops._out.writeLong(picture.getAddingTimestamp());
+				writeInformation(ops._out, picture.getInformation());
+				writeIntArray(ops._out, picture.getTagIds());
+				iCount++;
+				if (iCount % PICTURES_PER_ENTRY == 0)
+				{
+					writeEntry(out, ops);
+					ops = new Operations();
+				}
+			}
+			if (iCount % PICTURES_PER_ENTRY != 0)
+			{
+				writeEntry(out, ops);
+			}
+			out.flush();
+			fileOut.getFD().sync();
+		}
+		finally
+		{
+			out.close();
+		}
+	}
+
+	/**
+	 * Write an entry to a log being written.
+	 * 
+	 * @param out
+	 *            the stream to write to.
+	 * @param ops
+	 *            the operations of the entry.
+	 * @throws IOException
+	 *             if an error occurred while writing.
+	 */
+	private static void writeEntry(final DataOutputStream out,
+			final Operations ops) throws IOException
+	{
+		final byte[] payload = ops._bytes.toByteArray();
+		final CRC32 crc = new CRC32();
+		crc.update(payload);
+		out.writeInt(payload.length);
+		out.writeInt((int) crc.getValue());
+		out.write(payload);
+	}
+
+	/**
+	 * Replay the log, up to its first incomplete or corrupted entry.
+	 * 
+	 * @return the size of the valid part of the log.
+	 * @throws IOException
+	 *             if the log can't be read or isn't a log of this format.
+	 */
+	private long replay() throws IOException
+	{
+		final long lFileSize = Files.size(_logFile);
+		final DataInputStream in = new DataInputStream(
+				new BufferedInputStream(Files.newInputStream(_logFile)));
+		long lPosition = HEADER_SIZE;
+		int iEntryCount = 0;
+		try
+		{
+			if (lFileSize < HEADER_SIZE || in.readInt() != MAGIC)
+			{
+				throw new MetadataStoreException(_logFile
+						+ " isn't the log of a log-structured store.");
+			}
+			if (in.readInt() != FORMAT_VERSION)
+			{
+				throw new MetadataStoreException(_logFile
+						+ " is the log of another version.");
+			}
+			_lChangeCounter = in.readLong();
+			_iNextKey = in.readInt();
+			while (lPosition + ENTRY_HEADER_SIZE <= lFileSize)
+			{
+				final int iLength = in.readInt();
+				final int iChecksum = in.readInt();
+				if (iLength < 0
+						|| lPosition + ENTRY_HEADER_SIZE + iLength > lFileSize)
+				{
+					break;
+				}
+				final byte[] payload = new byte[iLength];
+				in.readFully(payload);
+				final CRC32 crc = new CRC32();
+				crc.update(payload);
+				if ((int) crc.getValue() != iChecksum)
+				{
+					break;
+				}
+				apply(payload);
+				lPosition += ENTRY_HEADER_SIZE + iLength;
+				iEntryCount++;
+			}
+		}
+		finally
+		{
+			in.close();
+		}
+		if (lPosition < lFileSize)
+		{
+			LOGGER.warn("Discarding the last " + (lFileSize - lPosition)
+					+ " bytes of the log " + _logFile
+					+ ", left by an interrupted write.");
+		}
+		LOGGER.info("Replayed " + iEntryCount + " entries of the log "
+				+ _logFile + ", " + _picturesById.size() + " pictures.");
+		return lPosition;
+	}
+
+	/**
+	 * Apply the operations of an entry to the state in memory.
+	 * 
+	 * @param payload
+	 *            the operations of the entry.
+	 * @throws IOException
+	 *             if the operations are invalid.
+	 */
+	private void apply(final byte[] payload) throws IOException
+	{
+		final DataInputStream in = new DataInputStream(
+				new ByteArrayInputStream(payload));
+		while (in.available() > 0)
+		{
+			final byte bOperation = in.readByte();
+			switch (bOperation)
+			{
+			case OP_INSERT_PICTURE:
+			{
+				final int iKey = in.readInt();
+				final String strId = readString(in);
+				final long lAddingTimestamp = in.readLong();
+				final PictureInformation info = readInformation(in);
+				putPicture(new PictureRow(iKey, strId, 0, lAddingTimestamp,
+						lAddingTimestamp, info, new int[0]));
+				_lChangeCounter++;
+				break;
+			}
+			case OP_PICTURE:
+			{
+				final int iKey = in.readInt();
+				final String strId = readString(in);
+				final int iGrade = in.readInt();
+				final long lModifiedTimestamp = in.readLong();
+				final long lAddingTimestamp = in.readLong();
+				final PictureInformation info = readInformation(in);
+				final int[] tagIds = readIntArray(in);
+				putPicture(new PictureRow(iKey, strId, iGrade,
+						lModifiedTimestamp, lAddingTimestamp, info, tagIds));
+				break;
+			}
+			case OP_UPDATE_PICTURE:
+			{
+				final PictureRow row = _picturesByKey.get(Integer.valueOf(in
+						.readInt()));
+				final int iGrade = in.readInt();
+				final long lModifiedTimestamp = in.readLong();
+				final int[] removedTagIds = readIntArray(in);
+				final int[] addedTagIds = readIntArray(in);
+				if (row != null)
+				{
+					row._iGrade = iGrade;
+					row._lModifiedTimestamp = lModifiedTimestamp;
+					for (final int iTagId : removedTagIds)
+					{
+						row._tagIds = removeTagId(row._tagIds, iTagId);
+					}
+					for (final int iTagId : addedTagIds)
+					{
+						row._tagIds = addTagId(row._tagIds, iTagId);
+					}
+				}
+				break;
+			}
+			case OP_ADD_TAG_COUNTS:
+			{
+				final int[] counts = _tagCounts.get(Integer.valueOf(in
+						.readInt()));
+				final int iPictureDelta = in.readInt();
+				final int iSubtreeDelta = in.readInt();
+				if (counts != null)
+				{
+					counts[0] += iPictureDelta;
+					counts[1] += iSubtreeDelta;
+				}
+				break;
+			}
+			case OP_SET_TAG_COUNTS:
+			{
+				final Integer tagId = Integer.valueOf(in.readInt());
+				_tagCounts.put(tagId,
+						new int[] { in.readInt(), in.readInt() });
+				break;
+			}
+			case OP_INSERT_TAG:
+			{
+				final TagRecord tag = readTagRecord(in);
+				_tags.put(Integer.valueOf(tag.getTagId()), tag);
+				_tagCounts.put(Integer.valueOf(tag.getTagId()), new int[2]);
+				_lChangeCounter++;
+				break;
+			}
+			case OP_TAG:
+			{
+				final TagRecord tag = readTagRecord(in);
+				_tags.put(Integer.valueOf(tag.getTagId()), tag);
+				break;
+			}
+			case OP_MODIFY_TAG:
+			{
+				final TagRecord tag = readTagRecord(in);
+				if (_tags.containsKey(Integer.valueOf(tag.getTagId())))
+				{
+					_tags.put(Integer.valueOf(tag.getTagId()), tag);
+					_lChangeCounter++;
+				}
+				break;
+			}
+			case OP_REMOVE_TAG:
+			{
+				final int iTagId = in.readInt();
+				if (_tags.remove(Integer.valueOf(iTagId)) != null)
+				{
+					_lChangeCounter++;
+				}
+				_tagCounts.remove(Integer.valueOf(iTagId));
+				for (final PictureRow row : _picturesByKey.values())
+				{
+					row._tagIds = removeTagId(row._tagIds, iTagId);
+				}
+				break;
+			}
+			default:
+				throw new IOException("Unknown operation " + bOperation);
+			}
+		}
+	}
+
+	/**
+	 * Add a picture to the maps of the pictures.
+	 * 
+	 * @param row
+	 *            the {@link PictureRow} of the picture.
+	 */
+	private void putPicture(final PictureRow row)
+	{
+		_picturesByKey.put(Integer.valueOf(row._iKey), row);
+		_picturesById.put(row._strId, row);
+		_iNextKey = Math.max(_iNextKey, row._iKey + 1);
+	}
+
+	/**
+	 * Copy the {@link PictureRecord}s of all the pictures, in the order of
+	 * their addition. Must be called while holding the lock.
+	 * 
+	 * @return the {@link PictureRecord}s of the pictures.
+	 */
+	private List<PictureRecord> copyPictures()
+	{
+		final List<PictureRecord> pictures = new ArrayList<>(
+				_picturesById.size());
+		for (final PictureRow row : _picturesById.values())
+		{
+			pictures.add(row.toRecord());
+		}
+		return pictures;
+	}
+
+	/**
+	 * Copy the picture counts of all the tags. Must be called while holding
+	 * the lock.
+	 * 
+	 * @return the picture counts of the tags by tag id.
+	 */
+	private Map<Integer, int[]> copyTagCounts()
+	{
+		final Map<Integer, int[]> tagCounts = new HashMap<>();
+		for (final Entry<Integer, int[]> entry : _tagCounts.entrySet())
+		{
+			tagCounts.put(entry.getKey(), entry.getValue().clone());
+		}
+		return tagCounts;
+	}
+
+	/**
+	 * Check that this store hasn't been closed. Must be called while holding
+	 * the lock.
+	 * 
+	 * @throws MetadataStoreException
+	 *             if this store has been closed.
+	 */
+	private void ensureOpen() throws MetadataStoreException
+	{
+		if (_bClosed)
+		{
+			throw new MetadataStoreException("The store " + _logFile
+					+ " is closed.");
+		}
+	}
+
+	/**
+	 * Add a tag id to a sorted array of tag ids.
+	 * 
+	 * @param tagIds
+	 *            the sorted array of tag ids, which isn't modified.
+	 * @param iTagId
+	 *            the tag id to add.
+	 * @return a sorted array containing the tag id.
+	 */
+	private static int[] addTagId(final int[] tagIds, final int iTagId)
+	{
+		if (Arrays.binarySearch(tagIds, iTagId) >= 0)
+		{
+			return tagIds;
+		}
+		final int[] result = Arrays.copyOf(tagIds, tagIds.length + 1);
+		result[tagIds.length] = iTagId;
+		Arrays.sort(result);
+		return result;
+	}
+
+	/**
+	 * Remove a tag id from a sorted array of tag ids.
+	 * 
+	 * @param tagIds
+	 *            the sorted array of tag ids, which isn't modified.
+	 * @param iTagId
+	 *            the tag id to remove.
+	 * @return a sorted array without the tag id.
+	 */
+	private static int[] removeTagId(final int[] tagIds, final int iTagId)
+	{
+		final int iIndex = Arrays.binarySearch(tagIds, iTagId);
+		if (iIndex < 0)
+		{
+			return tagIds;
+		}
+		final int[] result = new int[tagIds.length - 1];
+		System.arraycopy(tagIds, 0, result, 0, iIndex);
+		System.arraycopy(tagIds, iIndex + 1, result, iIndex, tagIds.length
+				- iIndex - 1);
+		return result;
+	}
+
+	/**
+	 * Write a {@link TagRecord}.
+	 * 
+	 * @param out
+	 *            the stream to write to.
+	 * @param tag
+	 *            the {@link TagRecord} to write.
+	 * @throws IOException
+	 *             if an error occurred while writing.
+	 */
+	private static void writeTagRecord(final DataOutputStream out,
+			final TagRecord tag) throws IOException
+	{
+		out.writeInt(tag.getTagId());
+		out.writeInt(tag.getParentId());
+		writeString(out, tag.getName());
+		writeString(out, tag.getDescription());
+		out.writeBoolean(tag.isSelectable());
+	}
+
+	/**
+	 * Read a {@link TagRecord}.
+	 * 
+	 * @param in
+	 *            the stream to read from.
+	 * @return the {@link TagRecord} read.
+	 * @throws IOException
+	 *             if an error occurred while reading.
+	 */
+	private static TagRecord readTagRecord(final DataInputStream in)
+			throws IOException
+	{
+		final int iTagId = in.readInt();
+		final int iParentId = in.readInt();
+		final String strName = readString(in);
+		final String strDescription = readString(in);
+		final boolean bSelectable = in.readBoolean();
+		return new TagRecord(iTagId, iParentId, strName, strDescription,
+				bSelectable);
+	}
+
+	/**
+	 * Write a {@link PictureInformation}.
+	 * 
+	 * @param out
+	 *            the stream to write to.
+	 * @param info
+	 *            the {@link PictureInformation} to write.
+	 * @throws IOException
+	 *             if an error occurred while writing.
+	 */
+	private static void writeInformation(final DataOutputStream out,
+			final PictureInformation info) throws IOException
+	{
+		writeString(out, info.getOriginalFileName());
+		out.writeInt(info.getWidth());
+		out.writeInt(info.getHeight());
+		out.writeLong(info.getCreationTimestamp());
+		out.writeInt(info.getOrientation());
+		writeString(out, info.getMake());
+		writeString(out, info.getModel());
+		writeString(out, info.getExposureTime());
+		writeString(out, info.getRelativeAperture());
+		writeString(out, info.getFocalLength());
+	}
+
+	/**
+	 * Read a {@link PictureInformation}.
+	 * 
+	 * @param in
+	 *            the stream to read from.
+	 * @return the {@link PictureInformation} read.
+	 * @throws IOException
+	 *             if an error occurred while reading.
+	 */
+	private static PictureInformation readInformation(final DataInputStream in)
+			throws IOException
+	{
+		final String strOriginalFileName = readString(in);
+		final int iWidth = in.readInt();
+		final int iHeight = in.readInt();
+		final long lCreationTimestamp = in.readLong();
+		final int iOrientation = in.readInt();
+		final String strMake = readString(in);
+		final String strModel = readString(in);
+		final String strExposureTime = readString(in);
+		final String strRelativeAperture = readString(in);
+		final String strFocalLength = readString(in);
+		return new PictureInformation(strOriginalFileName, iWidth, iHeight,
+				lCreationTimestamp, iOrientation, strMake, strModel,
+				strExposureTime, strRelativeAperture, strFocalLength);
+	}
+
+	/**
+	 * Write an array of ints, preceded by its length.
+	 * 
+	 * @param out
+	 *            the stream to write to.
+	 * @param values
+	 *            the array to write.
+	 * @throws IOException
+	 *             if an error occurred while writing.
+	 */
+	private static void writeIntArray(final DataOutputStream out,
+			final int[] values) throws IOException
+	{
+		out.writeInt(values.length);
+		for (final int iValue : values)
+		{
+			out.writeInt(iValue);
+		}
+	}
+
+	/**
+	 * Read an array of ints, written with
+	 * {@link #writeIntArray(DataOutputStream, int[])}.
+	 * 
+	 * @param in
+	 *            the stream to read from.
+	 * @return the array read.
+	 * @throws IOException
+	 *             if an error occurred while reading.
+	 */
+	private static int[] readIntArray(final DataInputStream in)
+			throws IOException
+	{
+		final int iLength = in.readInt();
+		if (iLength < 0 || iLength > in.available() / 4)
+		{
+			throw new EOFException("invalid array length " + iLength);
+		}
+		final int[] values = new int[iLength];
+		for (int i = 0; i < iLength; i++)
+		{
+			values[i] = in.readInt();
+		}
+		return values;
+	}
+
+	/**
+	 * Write a possibly null string, as its length in bytes followed by its
+	 * bytes.
+	 * 
+	 * @param out
+	 *            the stream to write to.
+	 * @param str
+	 *            the string to write.
+	 * @throws IOException
+	 *             if an error occurred while writing.
+	 */
+	private static void writeString(final DataOutputStream out,
+			final String str) throws IOException
+	{
+		if (str == null)
+		{
+			out.writeInt(-1);
+		}
+		else
+		{
+			final byte[] bytes = str.getBytes(CHARSET);
+			out.writeInt(bytes.length);
+			out.write(bytes);
+		}
+	}
+
+	/**
+	 * Read a string, written with
+	 * {@link #writeString(DataOutputStream, String)}.
+	 * 
+	 * @param in
+	 *            the stream to read from.
+	 * @return the string read, possibly null.
+	 * @throws IOException
+	 *             if an error occurred while reading.
+	 */
+	private static String readString(final DataInputStream in)
+			throws IOException
+	{
+		final int iLength = in.readInt();
+		if (iLength == -1)
+		{
+			return null;
+		}
+		if (iLength < 0 || iLength > in.available())
+		{
+			throw new EOFException("invalid string length " + iLength);
+		}
+		final byte[] bytes = new byte[iLength];
+		in.readFully(bytes);
+		return new String(bytes, CHARSET);
+	}
+
+	/**
+	 * Operations of an entry of the log being serialized.
+	 * 
+	 * @author benobiwan
+	 * 
+	 */
+	private static final class Operations
+	{
+		/**
+		 * The serialized operations.
+		 */
+		final ByteArrayOutputStream _bytes = new ByteArrayOutputStream();
+
+		/**
+		 * Stream used to serialize the operations.
+		 */
+		final DataOutputStream _out = new DataOutputStream(_bytes);
+	}
+
+	/**
+	 * A picture in memory. Its array of tag ids is replaced, never modified,
+	 * so that it can be shared with the {@link PictureRecord}s.
+	 * 
+	 * @author benobiwan
+	 * 
+	 */
+	private static final class PictureRow
+	{
+		/**
+		 * The key of the picture.
+		 */
+		final int _iKey;
+
+		/**
+		 * The id of the picture.
+		 */
+		final String _strId;
+
+		/**
+		 * The grade of the picture.
+		 */
+		int _iGrade;
+
+		/**
+		 * The timestamp of the last modification of the picture.
+		 */
+		long _lModifiedTimestamp;
+
+		/**
+		 * The timestamp of the addition of the picture.
+		 */
+		final long _lAddingTimestamp;
+
+		/**
+		 * The {@link PictureInformation} of the picture.
+		 */
+		final PictureInformation _information;
+
+		/**
+		 * The sorted ids of the tags of the picture.
+		 */
+		int[] _tagIds;
+
+		/**
+		 * Creates a new PictureRow.
+		 * 
+		 * @param iKey
+		 *            the key of the picture.
+		 * @param strId
+		 *            the id of the picture.
+		 * @param iGrade
+		 *            the grade of the picture.
+		 * @param lModifiedTimestamp
+		 *            the timestamp of the last modification of the picture.
+		 * @param lAddingTimestamp
+		 *            the timestamp of the addition of the picture.
+		 * @param information
+		 *            the {@link PictureInformation} of the picture.
+		 * @param tagIds
+		 *            the ids of the tags of the picture.
+		 */
+		PictureRow(final int iKey, final String strId, final int iGrade,
+				final long lModifiedTimestamp, final long lAddingTimestamp,
+				final PictureInformation information, final int[] tagIds)
+		{
+			_iKey = iKey;
+			_strId = strId;
+			_iGrade = iGrade;
+			_lModifiedTimestamp = lModifiedTimestamp;
+			_lAddingTimestamp = lAddingTimestamp;
+			_information = information;
+			_tagIds = tagIds.clone();
+			Arrays.sort(_tagIds);
+		}
+
+		/**
+		 * Create the {@link PictureRecord} of the current state of the
+		 * picture.
+		 * 
+		 * @return the {@link PictureRecord} of the picture.
+		 */
+		PictureRecord toRecord()
+		{
+			return new PictureRecord(_iKey, _strId, _iGrade,
+					_lModifiedTimestamp, _lAddingTimestamp, _information,
+					_tagIds);
+		}
+	}
+}
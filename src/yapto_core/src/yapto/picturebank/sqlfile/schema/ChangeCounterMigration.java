@@ -0,0 +1,89 @@
+package yapto.picturebank.sqlfile.schema;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import yapto.picturebank.sqlfile.SQLFileListConnection;
+
+/**
+ * Migration creating the 'bank_state' table, holding a change counter
+ * incremented by triggers each time a picture is added or removed, or a tag is
+ * added, modified or removed.
+ * 
+ * The counter changes with every write to the list of pictures or to the tree
+ * of the tags, whichever the program doing it, so that a copy of them saved
+ * with the value of the counter can be checked against the database.
+ * 
+ * @author benobiwan
+ * 
+ */
+public final class ChangeCounterMigration implements ISchemaMigration
+{
+	@Override
+	public int getVersion()
+	{
+		return 5;
+	}
+
+	@Override
+	public String getDescription()
+	{
+		return "bank_state change counter";
+	}
+
+	@Override
+	public void migrate(final Statement statement) throws SQLException
+	{
+		statement.executeUpdate("create table "
+				+ SQLFileListConnection.BANK_STATE_TABLE_NAME + " ("
+				+ SQLFileListConnection.BANK_STATE_ID_COLUMN_NAME
+				+ " integer primary key, "
+				+ SQLFileListConnection.BANK_STATE_CHANGE_COUNTER_COLUMN_NAME
+				+ " integer not null)");
+		statement.executeUpdate("INSERT INTO "
+				+ SQLFileListConnection.BANK_STATE_TABLE_NAME + " ("
+				+ SQLFileListConnection.BANK_STATE_ID_COLUMN_NAME + ", "
+				+ SQLFileListConnection.BANK_STATE_CHANGE_COUNTER_COLUMN_NAME
+				+ ") VALUES(0, 0)");
+		createTrigger(statement, "picture_insert_counter", "INSERT",
+				SQLFileListConnection.PICTURE_TABLE_NAME);
+		createTrigger(statement, "picture_delete_counter", "DELETE",
+				SQLFileListConnection.PICTURE_TABLE_NAME);
+		createTrigger(statement, "tag_insert_counter", "INSERT",
+				SQLFileListConnection.TAG_TABLE_NAME);
+		createTrigger(statement, "tag_update_counter", "UPDATE",
+				SQLFileListConnection.TAG_TABLE_NAME);
+		createTrigger(statement, "tag_delete_counter", "DELETE",
+				SQLFileListConnection.TAG_TABLE_NAME);
+	}
+
+	/**
+	 * Create a trigger incrementing the change counter after each row written
+	 * to a table.
+	 * 
+	 * @param statement
+	 *            the {@link Statement} used to create the trigger.
+	 * @param strTriggerName
+	 *            the name of the trigger.
+	 * @param strEvent
+	 *            the event firing the trigger.
+	 * @param strTableName
+	 *            the name of the table.
+	 * @throws SQLException
+	 *             if an SQL error occurred during the creation of the
+	 *             trigger.
+	 */
+	private static void createTrigger(final Statement statement,
+			final String strTriggerName, final String strEvent,
+			final String strTableName) throws SQLException
+	{
+		statement.executeUpdate("create trigger " + strTriggerName
+				+ " after " + strEvent + " on " + strTableName
+				+ " begin UPDATE "
+				+ SQLFileListConnection.BANK_STATE_TABLE_NAME + " SET "
+				+ SQLFileListConnection.BANK_STATE_CHANGE_COUNTER_COLUMN_NAME
+				+ " = "
+				+ SQLFileListConnection.BANK_STATE_CHANGE_COUNTER_COLUMN_NAME
+				+ " + 1; end");
+	}
+}
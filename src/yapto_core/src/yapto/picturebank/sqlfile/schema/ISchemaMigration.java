@@ -0,0 +1,39 @@
+package yapto.picturebank.sqlfile.schema;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * A step upgrading the schema of the database of an SQLFilePictureBank from
+ * the previous version to its version.
+ * 
+ * @author benobiwan
+ * 
+ */
+public interface ISchemaMigration
+{
+	/**
+	 * Get the version of the schema after this migration.
+	 * 
+	 * @return the version of the schema after this migration.
+	 */
+	int getVersion();
+
+	/**
+	 * Get the description of this migration.
+	 * 
+	 * @return the description of this migration.
+	 */
+	String getDescription();
+
+	/**
+	 * Upgrade the schema. Called inside a transaction, which is rolled back if
+	 * an {@link SQLException} is thrown.
+	 * 
+	 * @param statement
+	 *            the {@link Statement} used to upgrade the schema.
+	 * @throws SQLException
+	 *             if an SQL error occurred during the upgrade.
+	 */
+	void migrate(Statement statement) throws SQLException;
+}
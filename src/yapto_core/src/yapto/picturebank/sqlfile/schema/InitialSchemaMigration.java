@@ -0,0 +1,81 @@
+package yapto.picturebank.sqlfile.schema;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import yapto.picturebank.sqlfile.SQLFileListConnection;
+
+/**
+ * Migration creating the tables as they were before the schema was
+ * versioned. The tables of an existing database are kept as they are.
+ * 
+ * @author benobiwan
+ * 
+ */
+public final class InitialSchemaMigration implements ISchemaMigration
+{
+	/**
+	 * Name for the 'pictureId' column of the 'picture_tag' table, replaced by
+	 * the picture key since the version 3 of the schema.
+	 */
+	public static final String PICTURE_TAG_PICTURE_ID_COLUMN_NAME = "pictureId";
+
+	@Override
+	public int getVersion()
+	{
+		return 1;
+	}
+
+	@Override
+	public String getDescription()
+	{
+		return "initial tables";
+	}
+
+	@Override
+	public void migrate(final Statement statement) throws SQLException
+	{
+		// Tag table
+		statement.executeUpdate("create table if not exists "
+				+ SQLFileListConnection.TAG_TABLE_NAME + " ("
+				+ SQLFileListConnection.TAG_ID_COLUMN_NAME + " integer, "
+				+ SQLFileListConnection.TAG_NAME_COLUMN_NAME + " text, "
+				+ SQLFileListConnection.TAG_DESCRIPTION_COLUMN_NAME + " text, "
+				+ SQLFileListConnection.TAG_PARENT_ID_COLUMN_NAME
+				+ " integer, "
+				+ SQLFileListConnection.TAG_SELECTABLE_COLUMN_NAME
+				+ " boolean)");
+		// picture table
+		statement.executeUpdate("create table if not exists "
+				+ SQLFileListConnection.PICTURE_TABLE_NAME + " ("
+				+ SQLFileListConnection.PICTURE_ID_COLUMN_NAME + " text, "
+				+ SQLFileListConnection.PICTURE_GRADE_COLUMN_NAME
+				+ " integer, "
+				+ SQLFileListConnection.PICTURE_MODIFIED_TIMESTAMP_COLUMN_NAME
+				+ " integer, "
+				+ SQLFileListConnection.PICTURE_ADDING_TIMESTAMP_COLUMN_NAME
+				+ " integer, " + SQLFileListConnection.PICTURE_ORIGINAL_NAME
+				+ " text, " + SQLFileListConnection.PICTURE_WIDTH_COLUMN_NAME
+				+ " integer, "
+				+ SQLFileListConnection.PICTURE_HEIGTH_COLUMN_NAME
+				+ " integer, "
+				+ SQLFileListConnection.PICTURE_CREATION_TIMESTAMP_COLUMN_NAME
+				+ " integer, "
+				+ SQLFileListConnection.PICTURE_ORIENTATION_COLUMN_NAME
+				+ " integer, " + SQLFileListConnection.PICTURE_MAKE_COLUMN_NAME
+				+ " text, " + SQLFileListConnection.PICTURE_MODEL_COLUMN_NAME
+				+ " text, " + SQLFileListConnection.PICTURE_EXPOSURE_COLUMN_NAME
+				+ " text, "
+				+ SQLFileListConnection.PICTURE_RELATIVE_APERTURE_COLUMN_NAME
+				+ " text, "
+				+ SQLFileListConnection.PICTURE_FOCAL_LENGTH_COLUMN_NAME
+				+ " text)");
+		// picture_tag table
+		statement.executeUpdate("create table if not exists "
+				+ SQLFileListConnection.PICTURE_TAG_TABLE_NAME + " ("
+				+ SQLFileListConnection.PICTURE_TAG_TAG_ID_COLUMN_NAME
+				+ " integer, "
+				+ PICTURE_TAG_PICTURE_ID_COLUMN_NAME
+				+ " integer)");
+	}
+}
@@ -0,0 +1,171 @@
+package yapto.picturebank.sqlfile.schema;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import yapto.picturebank.sqlfile.SQLFileListConnection;
+
+/**
+ * Migration rebuilding the tables with primary keys and the correct column
+ * types, and indexing the 'picture_tag' table by tag.
+ * 
+ * The primary key of the 'picture_tag' table starts with the picture id, so
+ * it also serves the lookups of the tags of a picture. Duplicated rows are
+ * dropped while the tables are copied.
+ * 
+ * @author benobiwan
+ * 
+ */
+public final class KeysAndIndexesMigration implements ISchemaMigration
+{
+	/**
+	 * Name for the index of the 'picture_tag' table on the tag id.
+	 */
+	public static final String PICTURE_TAG_TAG_INDEX_NAME = "picture_tag_tag_idx";
+
+	/**
+	 * Suffix of the temporary tables used to rebuild the tables.
+	 */
+	private static final String NEW_TABLE_SUFFIX = "_new";
+
+	@Override
+	public int getVersion()
+	{
+		return 2;
+	}
+
+	@Override
+	public String getDescription()
+	{
+		return "primary keys, picture_tag index by tag and column types";
+	}
+
+	@Override
+	public void migrate(final Statement statement) throws SQLException
+	{
+		final String strTagColumns = SQLFileListConnection.TAG_ID_COLUMN_NAME
+				+ ", " + SQLFileListConnection.TAG_NAME_COLUMN_NAME + ", "
+				+ SQLFileListConnection.TAG_DESCRIPTION_COLUMN_NAME + ", "
+				+ SQLFileListConnection.TAG_PARENT_ID_COLUMN_NAME + ", "
+				+ SQLFileListConnection.TAG_SELECTABLE_COLUMN_NAME;
+		statement.executeUpdate("create table "
+				+ SQLFileListConnection.TAG_TABLE_NAME + NEW_TABLE_SUFFIX
+				+ " (" + SQLFileListConnection.TAG_ID_COLUMN_NAME
+				+ " integer primary key, "
+				+ SQLFileListConnection.TAG_NAME_COLUMN_NAME + " text, "
+				+ SQLFileListConnection.TAG_DESCRIPTION_COLUMN_NAME + " text, "
+				+ SQLFileListConnection.TAG_PARENT_ID_COLUMN_NAME
+				+ " integer, "
+				+ SQLFileListConnection.TAG_SELECTABLE_COLUMN_NAME
+				+ " boolean)");
+		copyTable(statement, SQLFileListConnection.TAG_TABLE_NAME,
+				strTagColumns, strTagColumns);
+
+		final String strPictureColumns = SQLFileListConnection.PICTURE_ID_COLUMN_NAME
+				+ ", "
+				+ SQLFileListConnection.PICTURE_GRADE_COLUMN_NAME
+				+ ", "
+				+ SQLFileListConnection.PICTURE_MODIFIED_TIMESTAMP_COLUMN_NAME
+				+ ", "
+				+ SQLFileListConnection.PICTURE_ADDING_TIMESTAMP_COLUMN_NAME
+				+ ", "
+				+ SQLFileListConnection.PICTURE_ORIGINAL_NAME
+				+ ", "
+				+ SQLFileListConnection.PICTURE_WIDTH_COLUMN_NAME
+				+ ", "
+				+ SQLFileListConnection.PICTURE_HEIGTH_COLUMN_NAME
+				+ ", "
+				+ SQLFileListConnection.PICTURE_CREATION_TIMESTAMP_COLUMN_NAME
+				+ ", "
+				+ SQLFileListConnection.PICTURE_ORIENTATION_COLUMN_NAME
+				+ ", "
+				+ SQLFileListConnection.PICTURE_MAKE_COLUMN_NAME
+				+ ", "
+				+ SQLFileListConnection.PICTURE_MODEL_COLUMN_NAME
+				+ ", "
+				+ SQLFileListConnection.PICTURE_EXPOSURE_COLUMN_NAME
+				+ ", "
+				+ SQLFileListConnection.PICTURE_RELATIVE_APERTURE_COLUMN_NAME
+				+ ", " + SQLFileListConnection.PICTURE_FOCAL_LENGTH_COLUMN_NAME;
+		statement.executeUpdate("create table "
+				+ SQLFileListConnection.PICTURE_TABLE_NAME + NEW_TABLE_SUFFIX
+				+ " (" + SQLFileListConnection.PICTURE_ID_COLUMN_NAME
+				+ " text primary key, "
+				+ SQLFileListConnection.PICTURE_GRADE_COLUMN_NAME
+				+ " integer, "
+				+ SQLFileListConnection.PICTURE_MODIFIED_TIMESTAMP_COLUMN_NAME
+				+ " integer, "
+				+ SQLFileListConnection.PICTURE_ADDING_TIMESTAMP_COLUMN_NAME
+				+ " integer, " + SQLFileListConnection.PICTURE_ORIGINAL_NAME
+				+ " text, " + SQLFileListConnection.PICTURE_WIDTH_COLUMN_NAME
+				+ " integer, "
+				+ SQLFileListConnection.PICTURE_HEIGTH_COLUMN_NAME
+				+ " integer, "
+				+ SQLFileListConnection.PICTURE_CREATION_TIMESTAMP_COLUMN_NAME
+				+ " integer, "
+				+ SQLFileListConnection.PICTURE_ORIENTATION_COLUMN_NAME
+				+ " integer, " + SQLFileListConnection.PICTURE_MAKE_COLUMN_NAME
+				+ " text, " + SQLFileListConnection.PICTURE_MODEL_COLUMN_NAME
+				+ " text, " + SQLFileListConnection.PICTURE_EXPOSURE_COLUMN_NAME
+				+ " text, "
+				+ SQLFileListConnection.PICTURE_RELATIVE_APERTURE_COLUMN_NAME
+				+ " text, "
+				+ SQLFileListConnection.PICTURE_FOCAL_LENGTH_COLUMN_NAME
+				+ " text)");
+		copyTable(statement, SQLFileListConnection.PICTURE_TABLE_NAME,
+				strPictureColumns, strPictureColumns);
+
+		// the picture ids were stored in an integer column
+		statement.executeUpdate("create table "
+				+ SQLFileListConnection.PICTURE_TAG_TABLE_NAME
+				+ NEW_TABLE_SUFFIX + " ("
+				+ InitialSchemaMigration.PICTURE_TAG_PICTURE_ID_COLUMN_NAME
+				+ " text not null, "
+				+ SQLFileListConnection.PICTURE_TAG_TAG_ID_COLUMN_NAME
+				+ " integer not null, primary key ("
+				+ InitialSchemaMigration.PICTURE_TAG_PICTURE_ID_COLUMN_NAME
+				+ ", " + SQLFileListConnection.PICTURE_TAG_TAG_ID_COLUMN_NAME
+				+ "))");
+		copyTable(statement, SQLFileListConnection.PICTURE_TAG_TABLE_NAME,
+				InitialSchemaMigration.PICTURE_TAG_PICTURE_ID_COLUMN_NAME
+						+ ", "
+						+ SQLFileListConnection.PICTURE_TAG_TAG_ID_COLUMN_NAME,
+				"CAST("
+						+ InitialSchemaMigration.PICTURE_TAG_PICTURE_ID_COLUMN_NAME
+						+ " AS TEXT), "
+						+ SQLFileListConnection.PICTURE_TAG_TAG_ID_COLUMN_NAME);
+		// covering index for the pictures of a tag
+		statement.executeUpdate("create index " + PICTURE_TAG_TAG_INDEX_NAME
+				+ " on " + SQLFileListConnection.PICTURE_TAG_TABLE_NAME + " ("
+				+ SQLFileListConnection.PICTURE_TAG_TAG_ID_COLUMN_NAME + ", "
+				+ InitialSchemaMigration.PICTURE_TAG_PICTURE_ID_COLUMN_NAME
+				+ ")");
+	}
+
+	/**
+	 * Copy the rows of a table into its new version, then replace the table by
+	 * its new version.
+	 * 
+	 * @param statement
+	 *            the {@link Statement} used to upgrade the schema.
+	 * @param strTableName
+	 *            the name of the table.
+	 * @param strColumns
+	 *            the columns of the new table.
+	 * @param strValues
+	 *            the values selected in the old table for these columns.
+	 * @throws SQLException
+	 *             if an SQL error occurred during the copy.
+	 */
+	private static void copyTable(final Statement statement,
+			final String strTableName, final String strColumns,
+			final String strValues) throws SQLException
+	{
+		statement.executeUpdate("INSERT OR IGNORE INTO " + strTableName
+				+ NEW_TABLE_SUFFIX + " (" + strColumns + ") SELECT "
+				+ strValues + " FROM " + strTableName);
+		statement.executeUpdate("DROP TABLE " + strTableName);
+		statement.executeUpdate("ALTER TABLE " + strTableName
+				+ NEW_TABLE_SUFFIX + " RENAME TO " + strTableName);
+	}
+}
@@ -0,0 +1,144 @@
+package yapto.picturebank.sqlfile.schema;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import yapto.picturebank.sqlfile.SQLFileListConnection;
+
+/**
+ * Migration giving each picture an integer key, used instead of its id by the
+ * 'picture_tag' table.
+ * 
+ * The key is the rowid of the 'picture' table, the id stays unique so that a
+ * picture can't be added twice. The 'picture_tag' table becomes a table
+ * without rowid, holding only its primary key and the index by tag. Its rows
+ * whose picture doesn't exist are dropped.
+ * 
+ * @author benobiwan
+ * 
+ */
+public final class PictureKeysMigration implements ISchemaMigration
+{
+	/**
+	 * Suffix of the temporary tables used to rebuild the tables.
+	 */
+	private static final String NEW_TABLE_SUFFIX = "_new";
+
+	@Override
+	public int getVersion()
+	{
+		return 3;
+	}
+
+	@Override
+	public String getDescription()
+	{
+		return "integer picture keys in picture_tag";
+	}
+
+	@Override
+	public void migrate(final Statement statement) throws SQLException
+	{
+		final String strPictureColumns = SQLFileListConnection.PICTURE_ID_COLUMN_NAME
+				+ ", "
+				+ SQLFileListConnection.PICTURE_GRADE_COLUMN_NAME
+				+ ", "
+				+ SQLFileListConnection.PICTURE_MODIFIED_TIMESTAMP_COLUMN_NAME
+				+ ", "
+				+ SQLFileListConnection.PICTURE_ADDING_TIMESTAMP_COLUMN_NAME
+				+ ", "
+				+ SQLFileListConnection.PICTURE_ORIGINAL_NAME
+				+ ", "
+				+ SQLFileListConnection.PICTURE_WIDTH_COLUMN_NAME
+				+ ", "
+				+ SQLFileListConnection.PICTURE_HEIGTH_COLUMN_NAME
+				+ ", "
+				+ SQLFileListConnection.PICTURE_CREATION_TIMESTAMP_COLUMN_NAME
+				+ ", "
+				+ SQLFileListConnection.PICTURE_ORIENTATION_COLUMN_NAME
+				+ ", "
+				+ SQLFileListConnection.PICTURE_MAKE_COLUMN_NAME
+				+ ", "
+				+ SQLFileListConnection.PICTURE_MODEL_COLUMN_NAME
+				+ ", "
+				+ SQLFileListConnection.PICTURE_EXPOSURE_COLUMN_NAME
+				+ ", "
+				+ SQLFileListConnection.PICTURE_RELATIVE_APERTURE_COLUMN_NAME
+				+ ", " + SQLFileListConnection.PICTURE_FOCAL_LENGTH_COLUMN_NAME;
+		final String strNewPictureTable = SQLFileListConnection.PICTURE_TABLE_NAME
+				+ NEW_TABLE_SUFFIX;
+		statement.executeUpdate("create table " + strNewPictureTable + " ("
+				+ SQLFileListConnection.PICTURE_KEY_COLUMN_NAME
+				+ " integer primary key, "
+				+ SQLFileListConnection.PICTURE_ID_COLUMN_NAME
+				+ " text not null unique, "
+				+ SQLFileListConnection.PICTURE_GRADE_COLUMN_NAME
+				+ " integer, "
+				+ SQLFileListConnection.PICTURE_MODIFIED_TIMESTAMP_COLUMN_NAME
+				+ " integer, "
+				+ SQLFileListConnection.PICTURE_ADDING_TIMESTAMP_COLUMN_NAME
+				+ " integer, " + SQLFileListConnection.PICTURE_ORIGINAL_NAME
+				+ " text, " + SQLFileListConnection.PICTURE_WIDTH_COLUMN_NAME
+				+ " integer, "
+				+ SQLFileListConnection.PICTURE_HEIGTH_COLUMN_NAME
+				+ " integer, "
+				+ SQLFileListConnection.PICTURE_CREATION_TIMESTAMP_COLUMN_NAME
+				+ " integer, "
+				+ SQLFileListConnection.PICTURE_ORIENTATION_COLUMN_NAME
+				+ " integer, " + SQLFileListConnection.PICTURE_MAKE_COLUMN_NAME
+				+ " text, " + SQLFileListConnection.PICTURE_MODEL_COLUMN_NAME
+				+ " text, " + SQLFileListConnection.PICTURE_EXPOSURE_COLUMN_NAME
+				+ " text, "
+				+ SQLFileListConnection.PICTURE_RELATIVE_APERTURE_COLUMN_NAME
+				+ " text, "
+				+ SQLFileListConnection.PICTURE_FOCAL_LENGTH_COLUMN_NAME
+				+ " text)");
+		// the keys are given in the order of addition
+		statement.executeUpdate("INSERT INTO " + strNewPictureTable + " ("
+				+ strPictureColumns + ") SELECT " + strPictureColumns
+				+ " FROM " + SQLFileListConnection.PICTURE_TABLE_NAME
+				+ " ORDER BY "
+				+ SQLFileListConnection.PICTURE_ADDING_TIMESTAMP_COLUMN_NAME
+				+ ", " + SQLFileListConnection.PICTURE_ID_COLUMN_NAME);
+
+		final String strNewPictureTagTable = SQLFileListConnection.PICTURE_TAG_TABLE_NAME
+				+ NEW_TABLE_SUFFIX;
+		statement.executeUpdate("create table " + strNewPictureTagTable
+				+ " (" + SQLFileListConnection.PICTURE_TAG_PICTURE_KEY_COLUMN_NAME
+				+ " integer not null, "
+				+ SQLFileListConnection.PICTURE_TAG_TAG_ID_COLUMN_NAME
+				+ " integer not null, primary key ("
+				+ SQLFileListConnection.PICTURE_TAG_PICTURE_KEY_COLUMN_NAME
+				+ ", " + SQLFileListConnection.PICTURE_TAG_TAG_ID_COLUMN_NAME
+				+ ")) without rowid");
+		statement.executeUpdate("INSERT OR IGNORE INTO "
+				+ strNewPictureTagTable + " ("
+				+ SQLFileListConnection.PICTURE_TAG_PICTURE_KEY_COLUMN_NAME
+				+ ", " + SQLFileListConnection.PICTURE_TAG_TAG_ID_COLUMN_NAME
+				+ ") SELECT " + strNewPictureTable + "."
+				+ SQLFileListConnection.PICTURE_KEY_COLUMN_NAME + ", "
+				+ SQLFileListConnection.PICTURE_TAG_TABLE_NAME + "."
+				+ SQLFileListConnection.PICTURE_TAG_TAG_ID_COLUMN_NAME
+				+ " FROM " + SQLFileListConnection.PICTURE_TAG_TABLE_NAME
+				+ " JOIN " + strNewPictureTable + " ON " + strNewPictureTable
+				+ "." + SQLFileListConnection.PICTURE_ID_COLUMN_NAME + " = "
+				+ SQLFileListConnection.PICTURE_TAG_TABLE_NAME + "."
+				+ InitialSchemaMigration.PICTURE_TAG_PICTURE_ID_COLUMN_NAME);
+
+		statement.executeUpdate("DROP TABLE "
+				+ SQLFileListConnection.PICTURE_TAG_TABLE_NAME);
+		statement.executeUpdate("DROP TABLE "
+				+ SQLFileListConnection.PICTURE_TABLE_NAME);
+		statement.executeUpdate("ALTER TABLE " + strNewPictureTable
+				+ " RENAME TO " + SQLFileListConnection.PICTURE_TABLE_NAME);
+		statement.executeUpdate("ALTER TABLE " + strNewPictureTagTable
+				+ " RENAME TO " + SQLFileListConnection.PICTURE_TAG_TABLE_NAME);
+		// covering index for the pictures of a tag
+		statement.executeUpdate("create index "
+				+ KeysAndIndexesMigration.PICTURE_TAG_TAG_INDEX_NAME + " on "
+				+ SQLFileListConnection.PICTURE_TAG_TABLE_NAME + " ("
+				+ SQLFileListConnection.PICTURE_TAG_TAG_ID_COLUMN_NAME + ", "
+				+ SQLFileListConnection.PICTURE_TAG_PICTURE_KEY_COLUMN_NAME
+				+ ")");
+	}
+}
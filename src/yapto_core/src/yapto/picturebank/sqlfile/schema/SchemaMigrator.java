@@ -0,0 +1,205 @@
+package yapto.picturebank.sqlfile.schema;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Object upgrading the schema of the database to the latest version.
+ * 
+ * The version of the schema is recorded in the 'schema_version' table, with
+ * one row per applied migration. On opening, the migrations with a greater
+ * version are applied in order, each one in its own transaction.
+ * 
+ * @author benobiwan
+ * 
+ */
+public final class SchemaMigrator
+{
+	/**
+	 * Logger object.
+	 */
+	protected static final Logger LOGGER = LoggerFactory
+			.getLogger(SchemaMigrator.class);
+
+	/**
+	 * Name for the 'schema_version' table.
+	 */
+	public static final String SCHEMA_VERSION_TABLE_NAME = "schema_version";
+
+	/**
+	 * Name for the 'version' column of the 'schema_version' table.
+	 */
+	public static final String SCHEMA_VERSION_VERSION_COLUMN_NAME = "version";
+
+	/**
+	 * Name for the 'description' column of the 'schema_version' table.
+	 */
+	public static final String SCHEMA_VERSION_DESCRIPTION_COLUMN_NAME = "description";
+
+	/**
+	 * Name for the 'applied_timestamp' column of the 'schema_version' table.
+	 */
+	public static final String SCHEMA_VERSION_APPLIED_TIMESTAMP_COLUMN_NAME = "applied_timestamp";
+
+	/**
+	 * The migrations, ordered by version.
+	 */
+	private final List<ISchemaMigration> _migrations;
+
+	/**
+	 * Creates a new SchemaMigrator with all the migrations of the schema.
+	 */
+	public SchemaMigrator()
+	{
+		final List<ISchemaMigration> migrations = new ArrayList<>();
+		migrations.add(new InitialSchemaMigration());
+		migrations.add(new KeysAndIndexesMigration());
+		migrations.add(new PictureKeysMigration());
+		migrations.add(new TagCountsMigration());
+		migrations.add(new ChangeCounterMigration());
+		_migrations = Collections.unmodifiableList(migrations);
+	}
+
+	/**
+	 * Get the latest version of the schema.
+	 * 
+	 * @return the latest version of the schema.
+	 */
+	public int getLatestVersion()
+	{
+		return _migrations.get(_migrations.size() - 1).getVersion();
+	}
+
+	/**
+	 * Upgrade the schema of the database to the latest version.
+	 * 
+	 * @param connection
+	 *            the connection to the database.
+	 * @throws SQLException
+	 *             if an SQL error occurred during the upgrade, or if the
+	 *             schema is more recent than the latest known version.
+	 */
+	public void migrate(final Connection connection) throws SQLException
+	{
+		final Statement statement = connection.createStatement();
+		try
+		{
+			statement.executeUpdate("create table if not exists "
+					+ SCHEMA_VERSION_TABLE_NAME + " ("
+					+ SCHEMA_VERSION_VERSION_COLUMN_NAME
+					+ " integer primary key, "
+					+ SCHEMA_VERSION_DESCRIPTION_COLUMN_NAME + " text, "
+					+ SCHEMA_VERSION_APPLIED_TIMESTAMP_COLUMN_NAME
+					+ " integer)");
+			final int iCurrentVersion = getCurrentVersion(statement);
+			if (iCurrentVersion > getLatestVersion())
+			{
+				throw new SQLException("the schema version "
+						+ iCurrentVersion
+						+ " is more recent than the latest known version "
+						+ getLatestVersion());
+			}
+			for (final ISchemaMigration migration : _migrations)
+			{
+				if (migration.getVersion() > iCurrentVersion)
+				{
+					apply(connection, statement, migration);
+				}
+			}
+		}
+		finally
+		{
+			statement.close();
+		}
+	}
+
+	/**
+	 * Get the current version of the schema.
+	 * 
+	 * @param statement
+	 *            the {@link Statement} used to read the version.
+	 * @return the current version of the schema, 0 if no migration has been
+	 *         applied.
+	 * @throws SQLException
+	 *             if an SQL error occurred during the interrogation of the
+	 *             database.
+	 */
+	private static int getCurrentVersion(final Statement statement)
+			throws SQLException
+	{
+		final ResultSet res = statement.executeQuery("SELECT MAX("
+				+ SCHEMA_VERSION_VERSION_COLUMN_NAME + ") FROM "
+				+ SCHEMA_VERSION_TABLE_NAME);
+		try
+		{
+			return res.next() ? res.getInt(1) : 0;
+		}
+		finally
+		{
+			res.close();
+		}
+	}
+
+	/**
+	 * Apply a migration and record its version in a single transaction.
+	 * 
+	 * @param connection
+	 *            the connection to the database.
+	 * @param statement
+	 *            the {@link Statement} used to upgrade the schema.
+	 * @param migration
+	 *            the migration to apply.
+	 * @throws SQLException
+	 *             if an SQL error occurred during the upgrade.
+	 */
+	private static void apply(final Connection connection,
+			final Statement statement, final ISchemaMigration migration)
+			throws SQLException
+	{
+		LOGGER.info("Upgrading the database schema to version "
+				+ migration.getVersion() + " : " + migration.getDescription());
+		final boolean bAutoCommit = connection.getAutoCommit();
+		connection.setAutoCommit(false);
+		try
+		{
+			migration.migrate(statement);
+			final PreparedStatement psVersion = connection
+					.prepareStatement("INSERT INTO "
+							+ SCHEMA_VERSION_TABLE_NAME + " ("
+							+ SCHEMA_VERSION_VERSION_COLUMN_NAME + ", "
+							+ SCHEMA_VERSION_DESCRIPTION_COLUMN_NAME + ", "
+							+ SCHEMA_VERSION_APPLIED_TIMESTAMP_COLUMN_NAME
+							+ ") VALUES(?, ?, ?)");
+			try
+			{
+				psVersion.setInt(1, migration.getVersion());
+				psVersion.setString(2, migration.getDescription());
+				psVersion.setLong(3, System.currentTimeMillis());
+				psVersion.executeUpdate();
+			}
+			finally
+			{
+				psVersion.close();
+			}
+			connection.commit();
+		}
+		catch (final SQLException e)
+		{
+			connection.rollback();
+			throw e;
+		}
+		finally
+		{
+			connection.setAutoCommit(bAutoCommit);
+		}
+	}
+}
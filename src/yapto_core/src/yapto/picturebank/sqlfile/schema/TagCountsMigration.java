@@ -0,0 +1,96 @@
+package yapto.picturebank.sqlfile.schema;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import yapto.picturebank.sqlfile.SQLFileListConnection;
+
+/**
+ * Migration creating the 'tag_count' summary table, holding for each tag the
+ * number of pictures having it and the number of distinct pictures having it
+ * or one of its descendants.
+ * 
+ * @author benobiwan
+ * 
+ */
+public final class TagCountsMigration implements ISchemaMigration
+{
+	@Override
+	public int getVersion()
+	{
+		return 4;
+	}
+
+	@Override
+	public String getDescription()
+	{
+		return "tag_count summary table";
+	}
+
+	@Override
+	public void migrate(final Statement statement) throws SQLException
+	{
+		statement.executeUpdate("create table "
+				+ SQLFileListConnection.TAG_COUNT_TABLE_NAME + " ("
+				+ SQLFileListConnection.TAG_COUNT_TAG_ID_COLUMN_NAME
+				+ " integer primary key, "
+				+ SQLFileListConnection.TAG_COUNT_PICTURE_COUNT_COLUMN_NAME
+				+ " integer not null default 0, "
+				+ SQLFileListConnection.TAG_COUNT_SUBTREE_COUNT_COLUMN_NAME
+				+ " integer not null default 0)");
+		// each tag paired with itself and all its descendants
+		statement.executeUpdate("WITH RECURSIVE subtree (ancestorId, tagId) AS (SELECT "
+				+ SQLFileListConnection.TAG_ID_COLUMN_NAME
+				+ ", "
+				+ SQLFileListConnection.TAG_ID_COLUMN_NAME
+				+ " FROM "
+				+ SQLFileListConnection.TAG_TABLE_NAME
+				+ " UNION SELECT subtree.ancestorId, "
+				+ SQLFileListConnection.TAG_TABLE_NAME
+				+ "."
+				+ SQLFileListConnection.TAG_ID_COLUMN_NAME
+				+ " FROM "
+				+ SQLFileListConnection.TAG_TABLE_NAME
+				+ " JOIN subtree ON "
+				+ SQLFileListConnection.TAG_TABLE_NAME
+				+ "."
+				+ SQLFileListConnection.TAG_PARENT_ID_COLUMN_NAME
+				+ " = subtree.tagId) INSERT INTO "
+				+ SQLFileListConnection.TAG_COUNT_TABLE_NAME
+				+ " ("
+				+ SQLFileListConnection.TAG_COUNT_TAG_ID_COLUMN_NAME
+				+ ", "
+				+ SQLFileListConnection.TAG_COUNT_PICTURE_COUNT_COLUMN_NAME
+				+ ", "
+				+ SQLFileListConnection.TAG_COUNT_SUBTREE_COUNT_COLUMN_NAME
+				+ ") SELECT "
+				+ SQLFileListConnection.TAG_TABLE_NAME
+				+ "."
+				+ SQLFileListConnection.TAG_ID_COLUMN_NAME
+				+ ", (SELECT COUNT(*) FROM "
+				+ SQLFileListConnection.PICTURE_TAG_TABLE_NAME
+				+ " WHERE "
+				+ SQLFileListConnection.PICTURE_TAG_TABLE_NAME
+				+ "."
+				+ SQLFileListConnection.PICTURE_TAG_TAG_ID_COLUMN_NAME
+				+ " = "
+				+ SQLFileListConnection.TAG_TABLE_NAME
+				+ "."
+				+ SQLFileListConnection.TAG_ID_COLUMN_NAME
+				+ "), (SELECT COUNT(DISTINCT "
+				+ SQLFileListConnection.PICTURE_TAG_TABLE_NAME
+				+ "."
+				+ SQLFileListConnection.PICTURE_TAG_PICTURE_KEY_COLUMN_NAME
+				+ ") FROM subtree JOIN "
+				+ SQLFileListConnection.PICTURE_TAG_TABLE_NAME
+				+ " ON "
+				+ SQLFileListConnection.PICTURE_TAG_TABLE_NAME
+				+ "."
+				+ SQLFileListConnection.PICTURE_TAG_TAG_ID_COLUMN_NAME
+				+ " = subtree.tagId WHERE subtree.ancestorId = "
+				+ SQLFileListConnection.TAG_TABLE_NAME
+				+ "."
+				+ SQLFileListConnection.TAG_ID_COLUMN_NAME
+				+ ") FROM " + SQLFileListConnection.TAG_TABLE_NAME);
+	}
+}
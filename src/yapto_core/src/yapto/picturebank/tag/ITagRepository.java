@@ -61,4 +61,24 @@ public interface ITagRepository
 	 * @return the root {@link ITag} of this repository.
 	 */
 	ITag getRootTag();
+
+	/**
+	 * Get the number of pictures having the {@link ITag} with the given id.
+	 * 
+	 * @param iTagId
+	 *            the id of the {@link ITag}.
+	 * @return the number of pictures having the {@link ITag}.
+	 */
+	int getPictureCount(final int iTagId);
+
+	/**
+	 * Get the number of distinct pictures having the {@link ITag} with the
+	 * given id or one of its descendants.
+	 * 
+	 * @param iTagId
+	 *            the id of the {@link ITag}.
+	 * @return the number of distinct pictures having the {@link ITag} or one
+	 *         of its descendants.
+	 */
+	int getPictureCountWithDescendants(final int iTagId);
 }
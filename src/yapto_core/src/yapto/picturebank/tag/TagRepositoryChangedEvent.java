@@ -1,19 +1,64 @@
 package yapto.picturebank.tag;
 
+import java.util.Collections;
+import java.util.Set;
+
 /**
  * Event used to signal that an {@link ITag} has been added, removed or changed
- * in the {@link ITagRepository}.
+ * in the {@link ITagRepository}, or that only the picture counts of some
+ * {@link ITag}s have changed.
  * 
  * @author benobiwan
  * 
  */
 public final class TagRepositoryChangedEvent
 {
+	/**
+	 * The ids of the {@link ITag}s whose picture counts have changed, if only
+	 * the counts have changed.
+	 */
+	private final Set<Integer> _countChangedTagIds;
+
 	/**
 	 * Creates a new {@link TagRepositoryChangedEvent}.
 	 */
 	public TagRepositoryChangedEvent()
 	{
-		// nothing to do
+		_countChangedTagIds = Collections.emptySet();
+	}
+
+	/**
+	 * Creates a new {@link TagRepositoryChangedEvent} signaling that only the
+	 * picture counts of some {@link ITag}s have changed.
+	 * 
+	 * @param countChangedTagIds
+	 *            the ids of the {@link ITag}s whose picture counts have
+	 *            changed.
+	 */
+	public TagRepositoryChangedEvent(final Set<Integer> countChangedTagIds)
+	{
+		_countChangedTagIds = Collections.unmodifiableSet(countChangedTagIds);
+	}
+
+	/**
+	 * Check whether only the picture counts of some {@link ITag}s have
+	 * changed, the {@link ITag}s themselves being unchanged.
+	 * 
+	 * @return true if only the picture counts have changed.
+	 */
+	public boolean isCountChange()
+	{
+		return !_countChangedTagIds.isEmpty();
+	}
+
+	/**
+	 * Get the ids of the {@link ITag}s whose picture counts have changed.
+	 * 
+	 * @return the ids of the {@link ITag}s whose picture counts have changed,
+	 *         empty if the {@link ITag}s themselves have changed.
+	 */
+	public Set<Integer> getCountChangedTagIds()
+	{
+		return _countChangedTagIds;
 	}
-}
\ No newline at end of file
+}
@@ -194,9 +194,13 @@ public abstract class AbstractTreeTagPanel extends JPanel
 	 */
 	@Subscribe
 	public void handleTagRepositoryChangedEvent(
-			@SuppressWarnings("unused") final TagRepositoryChangedEvent ev)
+			final TagRepositoryChangedEvent ev)
 	{
-		updateAvailableTags();
+		// the tree doesn't change when only the picture counts change
+		if (!ev.isCountChange())
+		{
+			updateAvailableTags();
+		}
 	}
 
 	/**
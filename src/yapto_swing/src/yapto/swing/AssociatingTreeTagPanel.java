@@ -132,7 +132,10 @@ public class AssociatingTreeTagPanel extends AbstractTreeTagPanel implements
 			final TagRepositoryChangedEvent ev)
 	{
 		super.handleTagRepositoryChangedEvent(ev);
-		setSelectedTags();
+		if (!ev.isCountChange())
+		{
+			setSelectedTags();
+		}
 	}
 
 	@Override
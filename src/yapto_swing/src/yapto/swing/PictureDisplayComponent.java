@@ -3,13 +3,16 @@ package yapto.swing;
 import java.awt.Dimension;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
 import java.awt.geom.AffineTransform;
 import java.awt.image.BufferedImage;
-import java.io.IOException;
+import java.util.concurrent.CancellationException;
 
 import javax.swing.JComponent;
 import javax.swing.JOptionPane;
 import javax.swing.JScrollPane;
+import javax.swing.SwingUtilities;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -20,8 +23,12 @@ import yapto.picturebank.IPictureBrowser;
 import yapto.picturebank.PictureBankList;
 import yapto.picturebank.PictureBrowserChangedEvent;
 import yapto.picturebank.PictureChangedEvent;
+import yapto.picturebank.PictureInformation;
 
 import com.google.common.eventbus.Subscribe;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 
 /**
  * Component used to display a picture.
@@ -59,15 +66,25 @@ public final class PictureDisplayComponent extends JScrollPane
 		super();
 		_displayPane = new DisplayPane(bankList);
 		setViewportView(_displayPane);
+		addComponentListener(new ComponentAdapter()
+		{
+			@Override
+			public void componentResized(final ComponentEvent e)
+			{
+				// the decoded resolution depends on the size of the window
+				if (!_displayPane.isTiled())
+				{
+					handlePictureChanged(null);
+				}
+			}
+		});
 	}
 
 	/**
-	 * Load the picture to display.
-	 * 
-	 * @throws IOException
-	 *             if an error occurs during reading.
+	 * Load the picture to display. The image is loaded asynchronously and
+	 * displayed once available.
 	 */
-	public void loadPicture() throws IOException
+	public void loadPicture()
 	{
 		_displayPane.loadPicture();
 	}
@@ -100,16 +117,7 @@ public final class PictureDisplayComponent extends JScrollPane
 	public void handlePictureChanged(
 			@SuppressWarnings("unused") final PictureChangedEvent ev)
 	{
-		try
-		{
-			_displayPane.loadPicture();
-		}
-		catch (final IOException ex)
-		{
-			JOptionPane.showMessageDialog(this, ex.getMessage(), "Error",
-					JOptionPane.ERROR_MESSAGE);
-			LOGGER.error(ex.getMessage(), ex);
-		}
+		_displayPane.loadPicture();
 	}
 
 	/**
@@ -129,6 +137,23 @@ public final class PictureDisplayComponent extends JScrollPane
 		 */
 		private BufferedImage _img;
 
+		/**
+		 * The pending load of the picture to display, null if there is none.
+		 */
+		private ListenableFuture<BufferedImage> _pendingImage;
+
+		/**
+		 * Lock protecting access to the pending load.
+		 */
+		private final Object _lockImage = new Object();
+
+		/**
+		 * The {@link TiledPictureRenderer} drawing the picture when it's
+		 * displayed as tiles, null otherwise. Only accessed from the event
+		 * dispatch thread.
+		 */
+		private TiledPictureRenderer _tiledRenderer;
+
 		/**
 		 * The configured type of zoom used to display the picture.
 		 */
@@ -194,53 +219,244 @@ public final class PictureDisplayComponent extends JScrollPane
 		}
 
 		/**
-		 * Load the picture to display.
-		 * 
-		 * @throws IOException
-		 *             if an error occurs during reading.
+		 * Load the picture to display. The previous pending load, if any, is
+		 * cancelled.
 		 */
-		public void loadPicture() throws IOException
+		public void loadPicture()
 		{
 			IPicture pic;
 			synchronized (_lockBrowser)
 			{
+				if (_pictureBrowser == null)
+				{
+					return;
+				}
 				pic = _pictureBrowser.getCurrentPicture();
+				_pictureBrowser.setDisplayDimension(getDisplayDimension());
 			}
 			if (pic != null)
 			{
-				_img = pic.getImageData();
-				_transform = null;
-				switch (_zoomType)
+				final PictureInformation info = pic.getPictureInformation();
+				if (info != null && isTiled())
 				{
-				case REAL_SIZE:
-					setPreferredSize(new Dimension(_img.getWidth(),
-							_img.getHeight()));
-					break;
-				case WINDOW_DIMENSION:
-					setPreferredSize(PictureDisplayComponent.this.getSize());
-					break;
-				case SCALE_DOWN_TO_WINDOW:
-					setPreferredSize(PictureDisplayComponent.this.getSize());
-					break;
-				case PICTURE_PERCENTAGE:
-					// TODO PICTURE_PERCENTAGE size implementation
-					break;
-				case SPECIFIC_SIZE:
-					setPreferredSize(_zoomDimension);
-					break;
-				case WINDOW_PERCENTAGE:
-					// TODO WINDOW_PERCENTAGE size implementation
-					break;
-				default:
-					break;
+					loadTiles(pic, info);
+					return;
 				}
-				repaint();
+				final ListenableFuture<BufferedImage> future = loadImage(pic);
+				synchronized (_lockImage)
+				{
+					if (_pendingImage != null)
+					{
+						_pendingImage.cancel(false);
+					}
+					_pendingImage = future;
+				}
+				Futures.addCallback(future, new FutureCallback<BufferedImage>()
+				{
+					@Override
+					public void onSuccess(final BufferedImage result)
+					{
+						SwingUtilities.invokeLater(new Runnable()
+						{
+							@Override
+							public void run()
+							{
+								synchronized (_lockImage)
+								{
+									if (_pendingImage != future)
+									{
+										// a newer picture has been requested
+										return;
+									}
+									_pendingImage = null;
+								}
+								displayImage(result);
+							}
+						});
+					}
+
+					@Override
+					public void onFailure(final Throwable t)
+					{
+						if (t instanceof CancellationException)
+						{
+							return;
+						}
+						LOGGER.error(t.getMessage(), t);
+						SwingUtilities.invokeLater(new Runnable()
+						{
+							@Override
+							public void run()
+							{
+								JOptionPane.showMessageDialog(
+										PictureDisplayComponent.this,
+										t.getMessage(), "Error",
+										JOptionPane.ERROR_MESSAGE);
+							}
+						});
+					}
+				});
+			}
+		}
+
+		/**
+		 * Check whether the current zoom type displays the picture as tiles.
+		 * Tiles are used when the picture is displayed at a fixed scale, in
+		 * which case the decoded area depends on the visible part of the
+		 * picture and not on the size of the window.
+		 * 
+		 * @return true if the picture is displayed as tiles.
+		 */
+		public boolean isTiled()
+		{
+			return _zoomType == PictureZoomType.REAL_SIZE
+					|| _zoomType == PictureZoomType.PICTURE_PERCENTAGE;
+		}
+
+		/**
+		 * Display the specified picture as tiles. The pending load of the
+		 * whole image, if any, is cancelled.
+		 * 
+		 * @param pic
+		 *            the picture to display.
+		 * @param info
+		 *            the {@link PictureInformation} of the picture.
+		 */
+		private void loadTiles(final IPicture pic,
+				final PictureInformation info)
+		{
+			synchronized (_lockImage)
+			{
+				if (_pendingImage != null)
+				{
+					_pendingImage.cancel(false);
+					_pendingImage = null;
+				}
+			}
+			final double dScale = (_zoomType == PictureZoomType.REAL_SIZE) ? 1
+					: _zoomScale;
+			SwingUtilities.invokeLater(new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					disposeTiledRenderer();
+					_img = null;
+					_tiledRenderer = new TiledPictureRenderer(DisplayPane.this,
+							pic, info.getDimension(), dScale);
+					setPreferredSize(_tiledRenderer.getDisplayDimension());
+					revalidate();
+					repaint();
+				}
+			});
+		}
+
+		/**
+		 * Dispose the current {@link TiledPictureRenderer}, if any. Must be
+		 * called from the event dispatch thread.
+		 */
+		private void disposeTiledRenderer()
+		{
+			if (_tiledRenderer != null)
+			{
+				_tiledRenderer.dispose();
+				_tiledRenderer = null;
+			}
+		}
+
+		/**
+		 * Display the specified image. Must be called from the event dispatch
+		 * thread.
+		 * 
+		 * @param img
+		 *            the image to display.
+		 */
+		private void displayImage(final BufferedImage img)
+		{
+			disposeTiledRenderer();
+			_img = img;
+			_transform = null;
+			switch (_zoomType)
+			{
+			case REAL_SIZE:
+				setPreferredSize(new Dimension(_img.getWidth(),
+						_img.getHeight()));
+				break;
+			case WINDOW_DIMENSION:
+				setPreferredSize(PictureDisplayComponent.this.getSize());
+				break;
+			case SCALE_DOWN_TO_WINDOW:
+				setPreferredSize(PictureDisplayComponent.this.getSize());
+				break;
+			case PICTURE_PERCENTAGE:
+				// TODO PICTURE_PERCENTAGE size implementation
+				break;
+			case SPECIFIC_SIZE:
+				setPreferredSize(_zoomDimension);
+				break;
+			case WINDOW_PERCENTAGE:
+				// TODO WINDOW_PERCENTAGE size implementation
+				break;
+			default:
+				break;
+			}
+			revalidate();
+			repaint();
+		}
+
+		/**
+		 * Load asynchronously the image of the specified picture, at a
+		 * resolution suited to the current zoom type.
+		 * 
+		 * @param pic
+		 *            the picture to load.
+		 * @return a {@link ListenableFuture} giving the image of the picture.
+		 */
+		private ListenableFuture<BufferedImage> loadImage(final IPicture pic)
+		{
+			final Dimension displayDimension = getDisplayDimension();
+			if (displayDimension == null)
+			{
+				return pic.getImageDataAsync();
+			}
+			return pic.getImageDataAsync(displayDimension);
+		}
+
+		/**
+		 * Get the {@link Dimension} at which the pictures are loaded for the
+		 * current zoom type, also given to the {@link IPictureBrowser} so that
+		 * it prefetches the next pictures at this resolution.
+		 * 
+		 * @return the {@link Dimension} at which the pictures are loaded, null
+		 *         to load them at full resolution.
+		 */
+		private Dimension getDisplayDimension()
+		{
+			switch (_zoomType)
+			{
+			case WINDOW_DIMENSION:
+			case SCALE_DOWN_TO_WINDOW:
+				return PictureDisplayComponent.this.getSize();
+			case SPECIFIC_SIZE:
+				return _zoomDimension;
+			default:
+				return null;
 			}
 		}
 
 		@Override
 		public void paint(final Graphics g)
 		{
+			if (_tiledRenderer != null)
+			{
+				_tiledRenderer.paint(g, getVisibleRect());
+				return;
+			}
+			if (_img == null)
+			{
+				// the image is still loading
+				return;
+			}
 			final Graphics2D g2 = (Graphics2D) g;
 			switch (_zoomType)
 			{
@@ -407,6 +623,7 @@ public final class PictureDisplayComponent extends JScrollPane
 				_pictureBrowser = _bankList.getLastSelectPictureBrowser();
 				if (_pictureBrowser != null)
 				{
+					_pictureBrowser.setDisplayDimension(getDisplayDimension());
 					_pictureBrowser.register(PictureDisplayComponent.this);
 				}
 			}
@@ -0,0 +1,472 @@
+package yapto.swing;
+
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.image.BufferedImage;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.RejectedExecutionException;
+
+import javax.swing.JComponent;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import yapto.picturebank.IPicture;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+
+/**
+ * Object drawing a picture as a grid of tiles, only the tiles around the
+ * visible part of the picture being decoded and kept in memory. The memory
+ * used thus depends on the size of the viewport and not on the size of the
+ * picture.
+ * 
+ * Tiles are loaded asynchronously and the component is repainted as they
+ * arrive. A tile which can't be loaded is requested again after a delay
+ * doubling on each failure, and given up after a few failures. This object
+ * must only be used from the event dispatch thread.
+ * 
+ * @author benobiwan
+ * 
+ */
+final class TiledPictureRenderer
+{
+	/**
+	 * Logger object.
+	 */
+	protected static final Logger LOGGER = LoggerFactory
+			.getLogger(TiledPictureRenderer.class);
+
+	/**
+	 * Size of a tile on screen, in pixels.
+	 */
+	private static final int TILE_SIZE = 512;
+
+	/**
+	 * Delay before requesting again a tile whose load failed for the first
+	 * time, in milliseconds.
+	 */
+	private static final int RETRY_DELAY_MILLIS = 1000;
+
+	/**
+	 * Maximum number of failed loads of a tile before it's given up.
+	 */
+	private static final int MAX_TILE_FAILURES = 4;
+
+	/**
+	 * Delay before requesting again a tile whose load was rejected because
+	 * the decode queue was full, in milliseconds.
+	 */
+	private static final int REJECTED_RETRY_DELAY_MILLIS = 200;
+
+	/**
+	 * The component on which the picture is drawn.
+	 */
+	private final JComponent _component;
+
+	/**
+	 * The picture to draw.
+	 */
+	private final IPicture _picture;
+
+	/**
+	 * The full {@link Dimension} of the picture.
+	 */
+	private final Dimension _pictureDimension;
+
+	/**
+	 * The scale factor between the picture and the screen.
+	 */
+	private final double _dScale;
+
+	/**
+	 * The subsampling factor used to decode the tiles.
+	 */
+	private final int _iSubsampling;
+
+	/**
+	 * The {@link Dimension} of the picture on screen.
+	 */
+	private final Dimension _displayDimension;
+
+	/**
+	 * Map of the decoded tiles by tile coordinates.
+	 */
+	private final Map<Point, BufferedImage> _tileMap = new HashMap<>();
+
+	/**
+	 * Map of the pending tile loads by tile coordinates.
+	 */
+	private final Map<Point, ListenableFuture<BufferedImage>> _pendingMap = new HashMap<>();
+
+	/**
+	 * Map of the failed loads of the tiles not loaded since, by tile
+	 * coordinates.
+	 */
+	private final Map<Point, TileFailure> _failureMap = new HashMap<>();
+
+	/**
+	 * Whether this renderer has been disposed.
+	 */
+	private boolean _bDisposed = false;
+
+	/**
+	 * Creates a new TiledPictureRenderer.
+	 * 
+	 * @param component
+	 *            the component on which the picture is drawn.
+	 * @param picture
+	 *            the picture to draw.
+	 * @param pictureDimension
+	 *            the full {@link Dimension} of the picture.
+	 * @param dScale
+	 *            the scale factor between the picture and the screen, 1 to
+	 *            draw the picture at its real size.
+	 */
+	public TiledPictureRenderer(final JComponent component,
+			final IPicture picture, final Dimension pictureDimension,
+			final double dScale)
+	{
+		_component = component;
+		_picture = picture;
+		_pictureDimension = new Dimension(pictureDimension);
+		_dScale = dScale;
+		int iSubsampling = 1;
+		while (iSubsampling * 2 * dScale <= 1)
+		{
+			iSubsampling *= 2;
+		}
+		_iSubsampling = iSubsampling;
+		_displayDimension = new Dimension(
+				(int) Math.ceil(_pictureDimension.width * dScale),
+				(int) Math.ceil(_pictureDimension.height * dScale));
+	}
+
+	/**
+	 * Get the {@link Dimension} of the picture on screen.
+	 * 
+	 * @return the {@link Dimension} of the picture on screen.
+	 */
+	public Dimension getDisplayDimension()
+	{
+		return new Dimension(_displayDimension);
+	}
+
+	/**
+	 * Draw the tiles intersecting the clip of the specified {@link Graphics}.
+	 * Tiles around the visible area are requested if they aren't available
+	 * yet, and tiles far from it are released.
+	 * 
+	 * @param g
+	 *            the {@link Graphics} to draw on.
+	 * @param visibleRect
+	 *            the visible area of the component.
+	 */
+	public void paint(final Graphics g, final Rectangle visibleRect)
+	{
+		if (_bDisposed)
+		{
+			return;
+		}
+		// keep one ring of tiles around the visible area to smooth scrolling
+		final int iMinCol = Math.max(0, visibleRect.x / TILE_SIZE - 1);
+		final int iMinRow = Math.max(0, visibleRect.y / TILE_SIZE - 1);
+		final int iMaxCol = Math.min((_displayDimension.width - 1)
+				/ TILE_SIZE, (visibleRect.x + visibleRect.width) / TILE_SIZE
+				+ 1);
+		final int iMaxRow = Math.min((_displayDimension.height - 1)
+				/ TILE_SIZE, (visibleRect.y + visibleRect.height) / TILE_SIZE
+				+ 1);
+		releaseTiles(iMinCol, iMinRow, iMaxCol, iMaxRow);
+
+		Rectangle clip = g.getClipBounds();
+		if (clip == null)
+		{
+			clip = visibleRect;
+		}
+		for (int iRow = iMinRow; iRow <= iMaxRow; iRow++)
+		{
+			for (int iCol = iMinCol; iCol <= iMaxCol; iCol++)
+			{
+				final Point tile = new Point(iCol, iRow);
+				final BufferedImage img = _tileMap.get(tile);
+				if (img == null)
+				{
+					requestTile(tile);
+				}
+				else
+				{
+					final Rectangle bounds = getTileBounds(tile);
+					if (bounds.intersects(clip))
+					{
+						g.drawImage(img, bounds.x, bounds.y, bounds.width,
+								bounds.height, null);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Release the decoded tiles and cancel the pending loads outside of the
+	 * specified range of tiles.
+	 * 
+	 * @param iMinCol
+	 *            the first column of the range.
+	 * @param iMinRow
+	 *            the first row of the range.
+	 * @param iMaxCol
+	 *            the last column of the range.
+	 * @param iMaxRow
+	 *            the last row of the range.
+	 */
+	private void releaseTiles(final int iMinCol, final int iMinRow,
+			final int iMaxCol, final int iMaxRow)
+	{
+		final Iterator<Point> itTile = _tileMap.keySet().iterator();
+		while (itTile.hasNext())
+		{
+			final Point tile = itTile.next();
+			if (tile.x < iMinCol || tile.x > iMaxCol || tile.y < iMinRow
+					|| tile.y > iMaxRow)
+			{
+				itTile.remove();
+			}
+		}
+		final Iterator<Entry<Point, ListenableFuture<BufferedImage>>> itPending = _pendingMap
+				.entrySet().iterator();
+		while (itPending.hasNext())
+		{
+			final Entry<Point, ListenableFuture<BufferedImage>> entry = itPending
+					.next();
+			final Point tile = entry.getKey();
+			if (tile.x < iMinCol || tile.x > iMaxCol || tile.y < iMinRow
+					|| tile.y > iMaxRow)
+			{
+				entry.getValue().cancel(false);
+				itPending.remove();
+			}
+		}
+	}
+
+	/**
+	 * Request asynchronously the specified tile, unless it's already pending.
+	 * The component is repainted when the tile is available.
+	 * 
+	 * @param tile
+	 *            the coordinates of the tile.
+	 */
+	private void requestTile(final Point tile)
+	{
+		if (_pendingMap.containsKey(tile))
+		{
+			return;
+		}
+		final TileFailure failure = _failureMap.get(tile);
+		if (failure != null
+				&& (failure._iFailureCount >= MAX_TILE_FAILURES || System
+						.currentTimeMillis() < failure._lRetryTime))
+		{
+			return;
+		}
+		final Rectangle bounds = getTileBounds(tile);
+		final ListenableFuture<BufferedImage> future = _picture
+				.getImageTileAsync(getSourceRegion(bounds), _iSubsampling);
+		_pendingMap.put(tile, future);
+		Futures.addCallback(future, new FutureCallback<BufferedImage>()
+		{
+			@Override
+			public void onSuccess(final BufferedImage result)
+			{
+				SwingUtilities.invokeLater(new Runnable()
+				{
+					@Override
+					public void run()
+					{
+						if (_bDisposed || _pendingMap.get(tile) != future)
+						{
+							// the tile isn't needed anymore
+							return;
+						}
+						_pendingMap.remove(tile);
+						_failureMap.remove(tile);
+						_tileMap.put(tile, result);
+						_component.repaint(bounds);
+					}
+				});
+			}
+
+			@Override
+			public void onFailure(final Throwable t)
+			{
+				if (t instanceof CancellationException)
+				{
+					return;
+				}
+				SwingUtilities.invokeLater(new Runnable()
+				{
+					@Override
+					public void run()
+					{
+						if (_bDisposed || _pendingMap.get(tile) != future)
+						{
+							// the tile isn't needed anymore
+							return;
+						}
+						_pendingMap.remove(tile);
+						tileFailed(tile, t);
+					}
+				});
+			}
+		});
+	}
+
+	/**
+	 * Record the failed load of a tile, and repaint it once the delay before
+	 * its next request has elapsed. Must be called from the event dispatch
+	 * thread.
+	 * 
+	 * @param tile
+	 *            the coordinates of the tile.
+	 * @param t
+	 *            the cause of the failure.
+	 */
+	private void tileFailed(final Point tile, final Throwable t)
+	{
+		TileFailure failure = _failureMap.get(tile);
+		if (failure == null)
+		{
+			failure = new TileFailure();
+			_failureMap.put(tile, failure);
+		}
+		final int iDelay;
+		if (t instanceof RejectedExecutionException)
+		{
+			// not a failure of the tile, the decode queue is full
+			if (LOGGER.isDebugEnabled())
+			{
+				LOGGER.debug("Load of tile " + tile + " of picture "
+						+ _picture.getId() + " rejected, decode queue full.");
+			}
+			iDelay = REJECTED_RETRY_DELAY_MILLIS;
+		}
+		else
+		{
+			failure._iFailureCount++;
+			if (failure._iFailureCount == 1)
+			{
+				LOGGER.warn("can't load tile " + tile + " of picture "
+						+ _picture.getId(), t);
+			}
+			else if (LOGGER.isDebugEnabled())
+			{
+				LOGGER.debug("can't load tile " + tile + " of picture "
+						+ _picture.getId() + ", failure "
+						+ failure._iFailureCount + " : " + t);
+			}
+			if (failure._iFailureCount >= MAX_TILE_FAILURES)
+			{
+				return;
+			}
+			iDelay = RETRY_DELAY_MILLIS << (failure._iFailureCount - 1);
+		}
+		failure._lRetryTime = System.currentTimeMillis() + iDelay;
+		final Timer timer = new Timer(iDelay, new ActionListener()
+		{
+			@Override
+			public void actionPerformed(final ActionEvent e)
+			{
+				if (!_bDisposed)
+				{
+					// requested again by the paint
+					_component.repaint(getTileBounds(tile));
+				}
+			}
+		});
+		timer.setRepeats(false);
+		timer.start();
+	}
+
+	/**
+	 * Get the bounds of the specified tile on screen.
+	 * 
+	 * @param tile
+	 *            the coordinates of the tile.
+	 * @return the bounds of the tile on screen.
+	 */
+	private Rectangle getTileBounds(final Point tile)
+	{
+		final int iX = tile.x * TILE_SIZE;
+		final int iY = tile.y * TILE_SIZE;
+		return new Rectangle(iX, iY, Math.min(TILE_SIZE,
+				_displayDimension.width - iX), Math.min(TILE_SIZE,
+				_displayDimension.height - iY));
+	}
+
+	/**
+	 * Get the region of the picture drawn in the specified area of the screen.
+	 * 
+	 * @param bounds
+	 *            the area of the screen.
+	 * @return the region of the picture, in picture coordinates.
+	 */
+	private Rectangle getSourceRegion(final Rectangle bounds)
+	{
+		final int iX = (int) Math.floor(bounds.x / _dScale);
+		final int iY = (int) Math.floor(bounds.y / _dScale);
+		final int iMaxX = Math.min(_pictureDimension.width,
+				(int) Math.ceil((bounds.x + bounds.width) / _dScale));
+		final int iMaxY = Math.min(_pictureDimension.height,
+				(int) Math.ceil((bounds.y + bounds.height) / _dScale));
+		return new Rectangle(iX, iY, iMaxX - iX, iMaxY - iY);
+	}
+
+	/**
+	 * Release every tile and cancel the pending loads. The renderer can't be
+	 * used anymore afterwards.
+	 */
+	public void dispose()
+	{
+		_bDisposed = true;
+		for (final ListenableFuture<BufferedImage> future : _pendingMap
+				.values())
+		{
+			future.cancel(false);
+		}
+		_pendingMap.clear();
+		_tileMap.clear();
+		_failureMap.clear();
+	}
+
+	/**
+	 * The failed loads of a tile.
+	 * 
+	 * @author benobiwan
+	 * 
+	 */
+	private static final class TileFailure
+	{
+		/**
+		 * Number of failed loads, the rejected ones excluded.
+		 */
+		private int _iFailureCount = 0;
+
+		/**
+		 * Time before which the tile isn't requested again, as given by
+		 * {@link System#currentTimeMillis()}.
+		 */
+		private long _lRetryTime;
+	}
+}